@@ -0,0 +1,149 @@
+import java.util.Locale;
+
+/**
+ * Checks that an {@link AllocationMonitor} attached to a {@link PhaseTimer}
+ * puts the bytes a loop allocates in the right phases, warns about the
+ * passes over budget and sees garbage collections, and reports what a step
+ * of the sample scenes allocates.
+ * <p>
+ * A fake loop allocates nothing in its first phase, a fixed array in its
+ * second and a large array in its third every tenth pass, with a budget
+ * only the large arrays break.
+ * <p>
+ * Exits with status 1 if any check fails.
+ */
+public class AllocationMonitorCheck {
+	/** The bytes allocated by the second phase every pass */
+	private static final int SMALL = 1000;
+
+	/** The bytes allocated by the third phase every tenth pass */
+	private static final int LARGE = 20000;
+
+	/** Keeps the arrays from being optimized away */
+	static volatile Object sink;
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		if (!AllocationCounter.isSupported()) {
+			System.out.println("Allocation counting isn't supported by this JVM");
+			System.exit(1);
+		}
+
+		PhaseTimer timer = new PhaseTimer("loop", "none", "small", "large");
+		AllocationMonitor monitor = new AllocationMonitor("loop", "none", "small", "large");
+		timer.setAllocationMonitor(monitor);
+		timer.setWindowLength(0.2);
+		monitor.setWindowLength(0.2);
+		monitor.setBudget(SMALL + LARGE / 2);
+		final long[] warnings = new long[1];
+		monitor.setListener(new AllocationMonitor.Listener() {
+			@Override
+			public void overBudget(AllocationMonitor monitor, AllocationMonitor.Window window) {
+				warnings[0]++;
+			}
+		});
+
+		// a few windows, with a collection part way through
+		long passes = 0;
+		boolean collected = false;
+		while (monitor.getWindow() == null || monitor.getWindow().getSequence() < 6) {
+			if (!collected && monitor.getWindow() != null && monitor.getWindow().getSequence() == 4) {
+				System.gc();
+				collected = true;
+			}
+			timer.begin();
+			timer.lap(0);
+			sink = new byte[SMALL];
+			timer.lap(1);
+			if (passes % 10 == 9) sink = new byte[LARGE];
+			timer.lap(2);
+			timer.end();
+			passes++;
+		}
+
+		AllocationMonitor.Window window = monitor.getWindow();
+		final int total = monitor.getTotalPhase();
+		Checks.check("nothing allocated", window.getMax(0) == 0, String.format(Locale.ROOT, "max %d bytes", window.getMax(0)));
+		Checks.check("array per pass", window.getMean(1) >= SMALL && window.getMean(1) < SMALL + 64,
+				String.format(Locale.ROOT, "mean %.1f bytes for %d", window.getMean(1), SMALL));
+		Checks.check("large every tenth", window.getMax(2) >= LARGE && window.getMax(2) < LARGE + 64 && Math.abs(window.getMean(2) - LARGE / 10.0) < LARGE / 50.0,
+				String.format(Locale.ROOT, "mean %.1f, max %d bytes", window.getMean(2), window.getMax(2)));
+		Checks.check("total adds up", Math.abs(window.getMean(total) - window.getMean(0) - window.getMean(1) - window.getMean(2)) < 1.0,
+				String.format(Locale.ROOT, "total %.1f bytes per pass", window.getMean(total)));
+		long expected = window.getCount() / 10;
+		Checks.check("over budget", Math.abs(window.getOverBudgetCount() - expected) <= 1 && warnings[0] == window.getSequence(),
+				String.format(Locale.ROOT, "%d of %d passes, %d warnings in %d windows", window.getOverBudgetCount(), window.getCount(), warnings[0], window.getSequence()));
+
+		// the notification arrives a little after the collection
+		long collections = 0;
+		for (int i = 0; i < 100 && collections == 0; i++) {
+			collections = AllocationMonitor.getCollectionCount();
+			if (collections == 0) sleep(10);
+		}
+		Checks.check("collections seen", collections > 0, String.format(Locale.ROOT, "%d collections, %.1f ms", collections, AllocationMonitor.getCollectionTime() / 1.0e6));
+
+		// the cost of a lap with the monitor attached
+		PhaseTimer bare = new PhaseTimer("bare", "a", "b", "c");
+		bare.setAllocationMonitor(new AllocationMonitor("bare", "a", "b", "c"));
+		bare.getAllocationMonitor().setWindowLength(0.05);
+		final int laps = 600000;
+		for (int round = 0; round < 3; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < laps / 3; i++) {
+				bare.begin();
+				bare.lap(0);
+				bare.lap(1);
+				bare.lap(2);
+				bare.end();
+			}
+			long elapsed = System.nanoTime() - start;
+			if (round == 2) {
+				Checks.print("overhead", String.format(Locale.ROOT, "%.1f ns per lap, %.1f bytes per pass",
+						elapsed / (double)(laps + laps / 3), bare.getAllocationMonitor().getWindow().getMean(3)));
+			}
+		}
+
+		// what a step of the samples allocates
+		for (String name : new String[] { "BallCollider", "SimplePlatformer" }) {
+			Simulation simulation = HeadlessSimulation.createScene(name);
+			final double step = simulation.getWorld().getSettings().getStepFrequency();
+			PhaseTimer steps = new PhaseTimer(name, "update");
+			AllocationMonitor allocations = new AllocationMonitor(name, "update");
+			allocations.setListener(null);
+			steps.setAllocationMonitor(allocations);
+			steps.setWindowLength(0.5);
+			allocations.setWindowLength(0.5);
+			int i = 0;
+			while (allocations.getWindow() == null || allocations.getWindow().getSequence() < 2) {
+				for (int p = 0; p < simulation.getPlayerCount(); p++) {
+					simulation.setPlayerInput(p, (i / 30) % 8);
+				}
+				steps.begin();
+				simulation.update(step);
+				steps.lap(0);
+				steps.end();
+				i++;
+			}
+			AllocationMonitor.Window w = allocations.getWindow();
+			Checks.print(name, String.format(Locale.ROOT, "%.0f bytes per step, p99 %d, max %d", w.getMean(0), w.getP99(0), w.getMax(0)));
+		}
+
+		Checks.exitIfFailed();
+	}
+
+	/**
+	 * Sleeps for the given time.
+	 * @param milliseconds the time in milliseconds
+	 */
+	private static void sleep(long milliseconds) {
+		try {
+			Thread.sleep(milliseconds);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,137 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Transform;
+
+/**
+ * Compares drawing bodies one by one with drawing them in batches with
+ * {@link BatchRenderer}.
+ * <p>
+ * Wheels are dropped into the {@link BallColliderScene} arena and stepped
+ * until they've piled up, so many of them touch. The scene is then drawn
+ * both ways and the images compared pixel for pixel before each way is
+ * timed.
+ * <p>
+ * Usage: <code>BatchRenderBenchmark [--wheels count] [--frames count]</code>
+ * <p>
+ * Exits with status 1 if the images differ.
+ */
+public class BatchRenderBenchmark {
+	/** The size of the offscreen image in pixels */
+	private static final int WIDTH = 800, HEIGHT = 600;
+
+	/** The scale in pixels per meter */
+	private static final double SCALE = 32.0;
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int wheels = 300;
+		int frames = 200;
+		for (int i = 0; i < args.length; i++) {
+			if ("--wheels".equals(args[i])) {
+				wheels = Integer.parseInt(args[++i]);
+			} else if ("--frames".equals(args[i])) {
+				frames = Integer.parseInt(args[++i]);
+			} else {
+				throw new IllegalArgumentException("Unknown argument: " + args[i]);
+			}
+		}
+
+		WorldStepBenchmark.WheelArena arena = new WorldStepBenchmark.WheelArena();
+		arena.addWheels(wheels, false);
+		World world = arena.getWorld();
+		double step = world.getSettings().getStepFrequency();
+		for (int i = 0; i < 180; i++) {
+			arena.update(step);
+		}
+
+		WorldSnapshot snapshot = new WorldSnapshot();
+		snapshot.capture(world, 0);
+		BatchRenderer batch = new BatchRenderer();
+
+		BufferedImage reference = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		draw(reference, snapshot, null);
+		int batches = draw(image, snapshot, batch);
+
+		int different = 0;
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				if (reference.getRGB(x, y) != image.getRGB(x, y)) different++;
+			}
+		}
+		Checks.check("same as one by one", different == 0, String.format(Locale.ROOT, "%d bodies in %d batches, %d pixels differ",
+				snapshot.getBodyCount(), batches, different));
+
+		double single = measure(image, snapshot, null, frames);
+		double batched = measure(image, snapshot, batch, frames);
+		System.out.println(String.format(Locale.ROOT, "one by one %.2f ms/frame, batched %.2f ms/frame (%.1fx)",
+				single, batched, single / batched));
+
+		Checks.exitIfFailed();
+	}
+
+	/**
+	 * Returns the average time to draw the snapshot.
+	 * @param image the image to draw to
+	 * @param snapshot the snapshot
+	 * @param batch the batch renderer or null to draw one by one
+	 * @param frames the number of measured frames
+	 * @return double the milliseconds per frame
+	 */
+	private static double measure(BufferedImage image, WorldSnapshot snapshot, BatchRenderer batch, int frames) {
+		for (int i = 0; i < frames / 2; i++) {
+			draw(image, snapshot, batch);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < frames; i++) {
+			draw(image, snapshot, batch);
+		}
+		return (System.nanoTime() - start) / 1.0e6 / frames;
+	}
+
+	/**
+	 * Clears the image and draws the snapshot the way the simulation frame does.
+	 * @param image the image to draw to
+	 * @param snapshot the snapshot
+	 * @param batch the batch renderer or null to draw one by one
+	 * @return int the number of batches drawn
+	 */
+	private static int draw(BufferedImage image, WorldSnapshot snapshot, BatchRenderer batch) {
+		Graphics2D g = image.createGraphics();
+		g.scale(1, -1);
+		g.translate(WIDTH / 2, -HEIGHT / 2);
+		g.setColor(Color.WHITE);
+		g.fillRect(-WIDTH / 2, -HEIGHT / 2, WIDTH, HEIGHT);
+		g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+		if (batch != null) batch.begin(g);
+		Transform transform = new Transform();
+		for (int i = 0; i < snapshot.getBodyCount(); i++) {
+			SimulationBody body = snapshot.getBody(i);
+			snapshot.interpolate(i, 1.0, transform);
+			if (batch != null) {
+				batch.add(body, SCALE, snapshot.getColor(i), snapshot.isAsleep(i), transform);
+			} else {
+				body.render(g, SCALE, snapshot.getColor(i), snapshot.isAsleep(i), transform);
+			}
+		}
+		int batches = 0;
+		if (batch != null) {
+			batch.end();
+			batches = batch.getBatchCount();
+		}
+		g.dispose();
+		return batches;
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ * The outcome of the checks of a bench program.
+ * <p>
+ * Each check prints a line with its name, PASS or FAIL and what was
+ * measured; measurements that aren't checked print the same way without
+ * the outcome, so the columns line up. Once done, {@link #exitIfFailed()}
+ * ends the program with status 1 if any check failed.
+ */
+public final class Checks {
+	/** The format of the name column */
+	private static final String NAME = "%-24s";
+
+	/** True if every check has passed so far */
+	private static boolean pass = true;
+
+	/**
+	 * Hidden constructor.
+	 */
+	private Checks() {}
+
+	/**
+	 * Prints the outcome of a check.
+	 * @param name the check
+	 * @param ok true if the check passed
+	 * @param detail what was measured
+	 * @return boolean ok
+	 */
+	public static boolean check(String name, boolean ok, String detail) {
+		pass &= ok;
+		System.out.println(String.format(NAME + " %s (%s)", name, ok ? "PASS" : "FAIL", detail));
+		return ok;
+	}
+
+	/**
+	 * Prints a measurement that isn't checked.
+	 * @param name the measurement
+	 * @param detail its value
+	 */
+	public static void print(String name, String detail) {
+		System.out.println(String.format(NAME + " %s", name, detail));
+	}
+
+	/**
+	 * Returns true if every check has passed so far.
+	 * @return boolean
+	 */
+	public static boolean isPassing() {
+		return pass;
+	}
+
+	/**
+	 * Exits with status 1 if any check failed; returns otherwise.
+	 */
+	public static void exitIfFailed() {
+		if (!pass) {
+			System.exit(1);
+		}
+	}
+}
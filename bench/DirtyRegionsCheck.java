@@ -0,0 +1,129 @@
+import java.awt.Color;
+import java.util.Locale;
+
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * Checks what {@link DirtyRegions} reports as the {@link BallColliderScene}
+ * is stepped headlessly.
+ * <p>
+ * The first frame must repaint everything. Once both wheels are asleep no
+ * frame may repaint anything, and when one wheel is driven only a small part
+ * of the canvas may be repainted. Many small bodies moving apart from each
+ * other must repaint the whole canvas at once rather than many rectangles.
+ * <p>
+ * Exits with status 1 if any check fails.
+ */
+public class DirtyRegionsCheck {
+	/** The canvas size in pixels */
+	private static final int WIDTH = 800, HEIGHT = 600;
+
+	/** The scale in pixels per meter */
+	private static final double SCALE = 32.0;
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		BallColliderScene scene = new BallColliderScene();
+		World world = scene.getWorld();
+		double step = world.getSettings().getStepFrequency();
+		WorldSnapshot snapshot = new WorldSnapshot();
+		DirtyRegions dirty = new DirtyRegions();
+
+		snapshot.capture(world, 0);
+		frame(dirty, snapshot);
+		check("first frame", dirty.getDirtyArea() == WIDTH * HEIGHT, dirty);
+
+		// let everything come to rest
+		int steps = 0;
+		while (!scene.wheel1.getBody().isAsleep() || !scene.wheel2.getBody().isAsleep()) {
+			scene.update(step);
+			snapshot.capture(world, 0);
+			frame(dirty, snapshot);
+			if (++steps > 3000) break;
+		}
+		System.out.println("asleep after " + steps + " steps");
+		scene.update(step);
+		snapshot.capture(world, 0);
+		frame(dirty, snapshot);
+		check("asleep", dirty.getRegionCount() == 0, dirty);
+		frame(dirty, snapshot);
+		check("asleep again", dirty.getRegionCount() == 0, dirty);
+
+		// drive one wheel
+		scene.wheel1.setRight(true);
+		for (int i = 0; i < 30; i++) {
+			scene.update(step);
+			snapshot.capture(world, 0);
+			frame(dirty, snapshot);
+		}
+		check("one wheel moving", dirty.getRegionCount() > 0 && dirty.getDirtyArea() < WIDTH * HEIGHT / 20, dirty);
+
+		dirty.invalidate();
+		frame(dirty, snapshot);
+		check("invalidated", dirty.getDirtyArea() == WIDTH * HEIGHT, dirty);
+
+		// a grid of small bodies, each moving a pixel
+		SimulationBody[] bodies = new SimulationBody[40];
+		for (int i = 0; i < bodies.length; i++) {
+			bodies[i] = new SimulationBody(Color.RED);
+		}
+		DirtyRegions scattered = new DirtyRegions();
+		Transform transform = new Transform();
+		for (int f = 0; f < 2; f++) {
+			scattered.begin(WIDTH, HEIGHT, bodies.length);
+			transform.setTranslation(f / SCALE, 0.0);
+			for (int i = 0; i < bodies.length; i++) {
+				int x = (i % 8) * 100 + 10 + f;
+				int y = (i / 8) * 100 + 10;
+				scattered.add(bodies[i], transform, Color.RED, false, x, y, x + 20, y + 20);
+			}
+			scattered.end();
+		}
+		check("many bodies moving", scattered.getRegionCount() == 1 && scattered.getDirtyArea() == WIDTH * HEIGHT, scattered);
+
+		Checks.exitIfFailed();
+	}
+
+	/**
+	 * Reports every body of the snapshot the way the simulation frame does.
+	 * @param dirty the dirty regions
+	 * @param snapshot the snapshot
+	 */
+	private static void frame(DirtyRegions dirty, WorldSnapshot snapshot) {
+		Transform transform = new Transform();
+		Vector2 center = new Vector2();
+		dirty.begin(WIDTH, HEIGHT, snapshot.getBodyCount());
+		for (int i = 0; i < snapshot.getBodyCount(); i++) {
+			SimulationBody body = snapshot.getBody(i);
+			snapshot.interpolate(i, 1.0, transform);
+			double radius = body.getRotationDiscRadius() * SCALE + 4.0;
+			transform.getTransformed(body.getLocalCenter(), center);
+			double cx = WIDTH / 2 + center.x * SCALE;
+			double cy = HEIGHT / 2 - center.y * SCALE;
+			dirty.add(body, transform, snapshot.getColor(i), snapshot.isAsleep(i),
+					(int)Math.floor(cx - radius),
+					(int)Math.floor(cy - radius),
+					(int)Math.ceil(cx + radius),
+					(int)Math.ceil(cy + radius));
+		}
+		dirty.end();
+	}
+
+	/**
+	 * Checks the dirty regions, printing how many there are and what they cover.
+	 * @param name the check name
+	 * @param ok true if the check passed
+	 * @param dirty the dirty regions
+	 */
+	private static void check(String name, boolean ok, DirtyRegions dirty) {
+		Checks.check(name, ok, String.format(Locale.ROOT, "%d rectangles, %.1f%% of the canvas",
+				dirty.getRegionCount(), dirty.getDirtyArea() * 100.0 / (WIDTH * HEIGHT)));
+	}
+}
@@ -0,0 +1,179 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.dyn4j.dynamics.Step;
+import org.dyn4j.dynamics.StepAdapter;
+import org.dyn4j.dynamics.World;
+
+/**
+ * Checks that the {@link FlightEvents} are recorded with the right counts,
+ * and measures what they cost while nothing records.
+ * <p>
+ * The platformer, which has a step listener and ground sensors, is played
+ * with random input without a recording, where the events must cost next
+ * to nothing, and then with one started through the <code>jdk.jfr</code>
+ * API. The recording must hold a world step event per step, a step
+ * callback per call of the traced listener and the contact callbacks of
+ * the ground sensors, with the body count of the world. The frame and
+ * buffer flip events need a window, so aren't checked here.
+ * <p>
+ * <code>jdk.jfr</code> is used through reflection since the samples build
+ * for Java 8. Needs a Java with the flight recorder; without it, only
+ * checks that the events stay off.
+ * <p>
+ * Exits with status 1 if any check fails.
+ */
+public class FlightEventsCheck {
+	/** The number of steps to play */
+	private static final int STEPS = 3600;
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 * @throws Exception if the recording can't be made or read
+	 */
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+
+		// loading only listens for recordings, the types wait for the first
+		long load = System.nanoTime();
+		FlightEvents.isRecording();
+		load = System.nanoTime() - load;
+		Checks.print("class loading", String.format(Locale.ROOT, "%.1f ms", load / 1.0e6));
+
+		// nothing records: no event objects at all
+		Checks.check("off without recording", !FlightEvents.isRecording() && FlightEvents.WORLD_STEP.begin() == null,
+				"available: " + FlightEvents.WORLD_STEP.isAvailable());
+		final int calls = 50000000;
+		for (int round = 0; round < 2; round++) {
+			long start = System.nanoTime();
+			int made = 0;
+			for (int i = 0; i < calls; i++) {
+				if (FlightEvents.STEP_CALLBACK.begin() != null) made++;
+			}
+			long elapsed = System.nanoTime() - start;
+			if (round == 1) {
+				Checks.print("overhead", String.format(Locale.ROOT, "%.2f ns per event while off (%d made)", elapsed / (double)calls, made));
+			}
+		}
+		double off = play(new int[1]);
+		Checks.print("not recording", String.format(Locale.ROOT, "%.0f steps/s", off));
+
+		if (!FlightEvents.WORLD_STEP.isAvailable()) {
+			System.out.println("no flight recorder in this Java, skipping the recording");
+			Checks.exitIfFailed();
+			return;
+		}
+
+		// record through jdk.jfr.Recording
+		Class<?> recordingType = Class.forName("jdk.jfr.Recording");
+		Object recording = recordingType.getConstructor().newInstance();
+		Method enable = recordingType.getMethod("enable", String.class);
+		for (FlightEvents.Type type : new FlightEvents.Type[] { FlightEvents.WORLD_STEP, FlightEvents.STEP_CALLBACK, FlightEvents.CONTACT_CALLBACK }) {
+			enable.invoke(recording, type.getName());
+		}
+		recordingType.getMethod("start").invoke(recording);
+		Checks.check("on while recording", FlightEvents.isRecording(), "recording started");
+
+		int[] steps = new int[1];
+		int[] bodies = new int[1];
+		double on = play(steps, bodies);
+		Checks.print("recording", String.format(Locale.ROOT, "%.0f steps/s", on));
+
+		recordingType.getMethod("stop").invoke(recording);
+		File file = File.createTempFile("events", ".jfr");
+		file.deleteOnExit();
+		recordingType.getMethod("dump", Path.class).invoke(recording, file.toPath());
+		recordingType.getMethod("close").invoke(recording);
+		Checks.check("off once stopped", !FlightEvents.isRecording() && FlightEvents.WORLD_STEP.begin() == null, "recording closed");
+
+		// count the events by type, listener and callback
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		boolean bodyCounts = true;
+		Class<?> recordedEvent = Class.forName("jdk.jfr.consumer.RecordedEvent");
+		Method getEventType = recordedEvent.getMethod("getEventType");
+		Method getName = Class.forName("jdk.jfr.EventType").getMethod("getName");
+		Method getLong = recordedEvent.getMethod("getLong", String.class);
+		Method getString = recordedEvent.getMethod("getString", String.class);
+		List<?> events = (List<?>)Class.forName("jdk.jfr.consumer.RecordingFile").getMethod("readAllEvents", Path.class).invoke(null, file.toPath());
+		for (Object event : events) {
+			String name = (String)getName.invoke(getEventType.invoke(event));
+			if (!name.startsWith("simulation.")) continue;
+			String key = name;
+			if (!name.equals(FlightEvents.WORLD_STEP.getName())) {
+				key += " " + getString.invoke(event, "listener") + "." + getString.invoke(event, "callback");
+			}
+			Integer count = counts.get(key);
+			counts.put(key, count == null ? 1 : count + 1);
+			bodyCounts &= (Long)getLong.invoke(event, "bodies") == bodies[0];
+		}
+		Checks.print("events", String.valueOf(counts));
+
+		int worldSteps = count(counts, "simulation.WorldStep");
+		int callbacks = count(counts, "simulation.StepCallback SimplePlatformerScene.ballsCollided.begin");
+		int contacts = count(counts, "simulation.ContactCallback GroundSensor.begin");
+		Checks.check("world steps", worldSteps == steps[0], worldSteps + " events, " + steps[0] + " steps");
+		Checks.check("step callbacks", callbacks == steps[0] && count(counts, "simulation.StepCallback SimplePlatformerScene.ballsCollided.end") == steps[0],
+				callbacks + " begin events, " + steps[0] + " steps");
+		Checks.check("contact callbacks", contacts > 0, contacts + " ground sensor begin events");
+		Checks.check("body counts", bodyCounts, bodies[0] + " bodies");
+
+		Checks.exitIfFailed();
+	}
+
+	/**
+	 * Plays the platformer with random input.
+	 * @param steps receives the number of world steps taken
+	 * @return double the steps per second
+	 */
+	private static double play(int[] steps) {
+		return play(steps, new int[1]);
+	}
+
+	/**
+	 * Plays the platformer with random input.
+	 * @param steps receives the number of world steps taken
+	 * @param bodies receives the number of bodies
+	 * @return double the steps per second
+	 */
+	private static double play(final int[] steps, int[] bodies) {
+		Simulation simulation = HeadlessSimulation.createScene("SimplePlatformer");
+		simulation.getWorld().addListener(new StepAdapter() {
+			@Override
+			public void end(Step step, World world) {
+				steps[0]++;
+			}
+		});
+		bodies[0] = simulation.getWorld().getBodyCount();
+		final double step = simulation.getWorld().getSettings().getStepFrequency();
+		Random random = new Random(3);
+		int buttons = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < STEPS; i++) {
+			if (random.nextInt(20) == 0) buttons = random.nextInt(1 << InputQueue.BUTTONS);
+			for (int p = 0; p < simulation.getPlayerCount(); p++) {
+				simulation.setPlayerInput(p, buttons);
+			}
+			simulation.update(step);
+		}
+		return STEPS * HeadlessSimulation.NANO_TO_BASE / (System.nanoTime() - start);
+	}
+
+	/**
+	 * Returns the count of the given key.
+	 * @param counts the counts
+	 * @param key the key
+	 * @return int zero if not counted
+	 */
+	private static int count(Map<String, Integer> counts, String key) {
+		Integer count = counts.get(key);
+		return count == null ? 0 : count;
+	}
+}
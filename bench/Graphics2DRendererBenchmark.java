@@ -0,0 +1,218 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+
+/**
+ * Measures the cost of drawing each dyn4j shape type with {@link Graphics2DRenderer}.
+ * <p>
+ * Every shape is drawn into an offscreen {@link BufferedImage} at several
+ * scales, with and without antialiasing. For each combination the harness
+ * reports the throughput in operations per second and the bytes allocated
+ * per operation by the drawing thread.
+ * <p>
+ * Each combination is warmed up before it's measured and measured over
+ * several timed iterations; the reported throughput is the mean of the
+ * iterations with the spread between the slowest and fastest.
+ * <p>
+ * Usage: <code>Graphics2DRendererBenchmark [--csv file] [--time ms] [filter]</code>
+ * where filter limits the run to shape names containing it.
+ */
+public class Graphics2DRendererBenchmark {
+	/** The scales to draw at in pixels per meter */
+	private static final double[] SCALES = { 8.0, 32.0, 128.0 };
+
+	/** The number of warm up iterations */
+	private static final int WARMUP_ITERATIONS = 3;
+
+	/** The number of measured iterations */
+	private static final int ITERATIONS = 5;
+
+	/** The number of operations between checks of the clock */
+	private static final int BATCH = 100;
+
+	/** The size of the offscreen image in pixels */
+	private static final int SIZE = 512;
+
+	/**
+	 * The measured result of one combination.
+	 */
+	private static final class Result {
+		/** The mean operations per second */
+		double opsPerSecond;
+
+		/** The slowest iteration in operations per second */
+		double minOpsPerSecond;
+
+		/** The fastest iteration in operations per second */
+		double maxOpsPerSecond;
+
+		/** The bytes allocated per operation or -1 if unknown */
+		double bytesPerOp;
+	}
+
+	/** The shape names */
+	private static final String[] NAMES = {
+		"Circle",
+		"Polygon",
+		"Segment",
+		"Capsule",
+		"Ellipse",
+		"Slice",
+		"HalfEllipse"
+	};
+
+	/** The shapes, all roughly one meter across */
+	private static final Convex[] SHAPES = {
+		Geometry.createCircle(0.5),
+		Geometry.createUnitCirclePolygon(6, 0.5),
+		Geometry.createHorizontalSegment(1.0),
+		Geometry.createCapsule(1.0, 0.5),
+		Geometry.createEllipse(1.0, 0.5),
+		Geometry.createSlice(0.5, Math.toRadians(90)),
+		Geometry.createHalfEllipse(1.0, 0.5)
+	};
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 * @throws IOException if the results can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+		System.setProperty("java.awt.headless", "true");
+
+		String csv = null;
+		String filter = null;
+		long time = 1000;
+		for (int i = 0; i < args.length; i++) {
+			if ("--csv".equals(args[i])) {
+				csv = args[++i];
+			} else if ("--time".equals(args[i])) {
+				time = Long.parseLong(args[++i]);
+			} else {
+				filter = args[i];
+			}
+		}
+
+		if (!AllocationCounter.isSupported()) {
+			System.out.println("Allocation counting isn't supported by this JVM, B/op will be -1");
+		}
+
+		PrintWriter out = null;
+		if (csv != null) {
+			out = new PrintWriter(new FileWriter(csv));
+			out.println("shape,scale,antialias,ops_per_s,min_ops_per_s,max_ops_per_s,bytes_per_op");
+		}
+
+		System.out.println(String.format(Locale.ROOT, "%-12s %6s %5s %14s %24s %10s",
+				"shape", "scale", "aa", "ops/s", "(min - max)", "B/op"));
+
+		BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		for (int s = 0; s < SHAPES.length; s++) {
+			if (filter != null && !NAMES[s].contains(filter)) continue;
+			for (double scale : SCALES) {
+				for (int aa = 0; aa < 2; aa++) {
+					boolean antialias = aa == 1;
+					Result result = run(image, SHAPES[s], scale, antialias, time);
+					System.out.println(String.format(Locale.ROOT, "%-12s %6.0f %5s %14.0f %24s %10.1f",
+							NAMES[s],
+							scale,
+							antialias ? "on" : "off",
+							result.opsPerSecond,
+							String.format(Locale.ROOT, "(%.0f - %.0f)", result.minOpsPerSecond, result.maxOpsPerSecond),
+							result.bytesPerOp));
+					if (out != null) {
+						out.println(String.format(Locale.ROOT, "%s,%.0f,%b,%.1f,%.1f,%.1f,%.2f",
+								NAMES[s],
+								scale,
+								antialias,
+								result.opsPerSecond,
+								result.minOpsPerSecond,
+								result.maxOpsPerSecond,
+								result.bytesPerOp));
+					}
+				}
+			}
+		}
+
+		if (out != null) {
+			out.close();
+		}
+	}
+
+	/**
+	 * Measures one combination.
+	 * @param image the image to draw to
+	 * @param shape the shape to draw
+	 * @param scale the scale in pixels per meter
+	 * @param antialias true to draw with antialiasing
+	 * @param time the duration of each iteration in milliseconds
+	 * @return {@link Result}
+	 */
+	private static Result run(BufferedImage image, Convex shape, double scale, boolean antialias, long time) {
+		Graphics2D g = image.createGraphics();
+		// the same setup the simulation frame uses
+		g.translate(SIZE / 2, SIZE / 2);
+		g.scale(1, -1);
+		g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				antialias ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+
+		final long duration = time * 1000000L;
+		final Color color = Color.ORANGE;
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			iteration(g, shape, scale, color, duration / 2);
+		}
+
+		Result result = new Result();
+		result.minOpsPerSecond = Double.MAX_VALUE;
+		long totalOps = 0;
+		long totalBytes = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			long bytes = AllocationCounter.getAllocatedBytes();
+			long start = System.nanoTime();
+			long ops = iteration(g, shape, scale, color, duration);
+			long elapsed = System.nanoTime() - start;
+			totalBytes += AllocationCounter.getAllocatedBytes() - bytes;
+			totalOps += ops;
+
+			double opsPerSecond = ops * 1.0e9 / elapsed;
+			result.opsPerSecond += opsPerSecond / ITERATIONS;
+			result.minOpsPerSecond = Math.min(result.minOpsPerSecond, opsPerSecond);
+			result.maxOpsPerSecond = Math.max(result.maxOpsPerSecond, opsPerSecond);
+		}
+		result.bytesPerOp = AllocationCounter.isSupported() ? (double)totalBytes / totalOps : -1;
+
+		g.dispose();
+		return result;
+	}
+
+	/**
+	 * Draws the shape repeatedly for the given duration.
+	 * @param g the graphics to draw to
+	 * @param shape the shape to draw
+	 * @param scale the scale in pixels per meter
+	 * @param color the color
+	 * @param duration the duration in nanoseconds
+	 * @return long the number of times the shape was drawn
+	 */
+	private static long iteration(Graphics2D g, Convex shape, double scale, Color color, long duration) {
+		long ops = 0;
+		long end = System.nanoTime() + duration;
+		do {
+			for (int i = 0; i < BATCH; i++) {
+				Graphics2DRenderer.render(g, shape, scale, color);
+			}
+			ops += BATCH;
+		} while (System.nanoTime() < end);
+		return ops;
+	}
+}
@@ -0,0 +1,134 @@
+import java.util.List;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.MassType;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * Checks that a {@link GroundSensor} agrees with searching the body's contacts.
+ * <p>
+ * Drops wheels in an arena like the {@link BallColliderScene} one, drives them back and
+ * forth over the hill with jumps, and after every step compares each sensor
+ * with a search of {@link Body#getInContactBodies(boolean)} for a floor body.
+ * The wheels are left to fall asleep on the floor, are woken and are finally
+ * lifted off by removing the floor, which must end their floor contacts.
+ * <p>
+ * Exits with status 1 if any check fails.
+ */
+public class GroundSensorCheck {
+	/** The user data of the floor bodies */
+	private static final Object FLOOR = new Object();
+
+	/** The number of wheels */
+	private static final int WHEELS = 12;
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		World world = new World();
+		SimulationBody floor = new SimulationBody();
+		floor.addFixture(Geometry.createRectangle(50.0, 0.2));
+		floor.setMass(MassType.INFINITE);
+		floor.translate(0, -3);
+		floor.setUserData(FLOOR);
+		world.addBody(floor);
+
+		SimulationBody hill = new SimulationBody();
+		hill.addFixture(Geometry.createRectangle(3, 3));
+		hill.setMass(MassType.INFINITE);
+		hill.setUserData(FLOOR);
+		hill.translate(0, -1.30);
+		world.addBody(hill);
+
+		// walls to keep the wheels on the floor
+		for (int side = -1; side <= 1; side += 2) {
+			SimulationBody wall = new SimulationBody();
+			wall.addFixture(Geometry.createRectangle(0.2, 20));
+			wall.setMass(MassType.INFINITE);
+			wall.translate(10 * side, 7);
+			world.addBody(wall);
+		}
+
+		SimulationBody[] wheels = new SimulationBody[WHEELS];
+		GroundSensor[] sensors = new GroundSensor[WHEELS];
+		ContactDispatcher dispatcher = ContactDispatcher.get(world);
+		for (int i = 0; i < WHEELS; i++) {
+			wheels[i] = new SimulationBody();
+			wheels[i].addFixture(Geometry.createCircle(0.5), 1.0, 20.0, 0.1);
+			wheels[i].setMass(MassType.NORMAL);
+			wheels[i].translate(-6.0 + i, 1.0 + (i % 3));
+			world.addBody(wheels[i]);
+			sensors[i] = new GroundSensor(FLOOR);
+			dispatcher.subscribe(wheels[i], sensors[i]);
+		}
+
+		final double step = world.getSettings().getStepFrequency();
+		int mismatches = 0;
+		int grounded = 0;
+		for (int s = 0; s < 1800; s++) {
+			// drive for ten seconds, then let the wheels settle
+			if (s < 1200) {
+				for (int i = 0; i < WHEELS; i++) {
+					double direction = ((s / 90) + i) % 2 == 0 ? 1.0 : -1.0;
+					wheels[i].applyForce(new Vector2(10.0 * direction, 0));
+					if (s % 45 == i && sensors[i].isOnGround()) {
+						wheels[i].applyImpulse(new Vector2(0, 2.0));
+					}
+				}
+			}
+			world.update(step);
+			for (int i = 0; i < WHEELS; i++) {
+				boolean expected = touchesFloor(wheels[i]);
+				if (sensors[i].isOnGround() != expected) mismatches++;
+				if (expected) grounded++;
+			}
+		}
+		Checks.check("sensor matches contacts", mismatches == 0, mismatches + " mismatches, " + grounded + " grounded samples");
+
+		// a wheel may have ended up on top of another
+		int asleep = 0;
+		mismatches = 0;
+		for (int i = 0; i < WHEELS; i++) {
+			if (wheels[i].isAsleep() && sensors[i].isOnGround()) asleep++;
+			if (sensors[i].isOnGround() != touchesFloor(wheels[i])) mismatches++;
+		}
+		Checks.check("on ground while asleep", asleep > 0 && mismatches == 0, asleep + " asleep on the ground, " + mismatches + " mismatches");
+
+		for (int i = 0; i < WHEELS; i++) {
+			wheels[i].setAsleep(false);
+		}
+		world.update(step);
+		mismatches = 0;
+		for (int i = 0; i < WHEELS; i++) {
+			if (sensors[i].isOnGround() != touchesFloor(wheels[i])) mismatches++;
+		}
+		Checks.check("on ground once woken", mismatches == 0, mismatches + " mismatches");
+
+		int onGround = 0;
+		world.removeBody(floor, true);
+		world.removeBody(hill, true);
+		for (int i = 0; i < WHEELS; i++) {
+			if (sensors[i].isOnGround()) onGround++;
+		}
+		Checks.check("floor removed", onGround == 0, onGround + " on ground");
+
+		Checks.exitIfFailed();
+	}
+
+	/**
+	 * Returns true if the given body is in contact with a floor body.
+	 * @param body the body
+	 * @return boolean
+	 */
+	private static boolean touchesFloor(Body body) {
+		List<Body> bodies = body.getInContactBodies(false);
+		for (int i = 0; i < bodies.size(); i++) {
+			if (bodies.get(i).getUserData() == FLOOR) return true;
+		}
+		return false;
+	}
+}
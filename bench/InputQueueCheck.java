@@ -0,0 +1,144 @@
+import java.awt.event.KeyEvent;
+import java.util.Locale;
+import java.util.Random;
+
+import javax.swing.JPanel;
+
+/**
+ * Checks that an {@link InputQueue} delivers every transition in order and
+ * reports the input to step latency.
+ * <p>
+ * A producer thread plays the part of the event dispatch thread and taps the
+ * buttons of two players at random, often more than once a step, while
+ * the main thread drains the queue at 60 steps per second like the physics
+ * thread. Every transition must arrive, in order, with no button changing
+ * twice in one step.
+ * <p>
+ * Then a tap shorter than a step is queued into a {@link BallColliderScene},
+ * which must still push the wheel, and a {@link CustomKeyListener} whose
+ * queue fills up must still deliver the release once there's room.
+ * <p>
+ * Exits with status 1 if any check fails.
+ */
+public class InputQueueCheck {
+	/** The number of transitions to send */
+	private static final int TRANSITIONS = 2000;
+
+	/** The time of one step in nanoseconds */
+	private static final long STEP = 1000000000L / 60;
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 * @throws InterruptedException if interrupted while waiting for the producer
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		final InputQueue queue = new InputQueue();
+
+		// the expected order as target, button and pressed
+		final int[] sent = new int[TRANSITIONS * 3];
+		Thread producer = new Thread("producer") {
+			public void run() {
+				boolean[] held = new boolean[2 * InputQueue.BUTTONS];
+				Random random = new Random(42);
+				for (int i = 0; i < TRANSITIONS; i++) {
+					int target = random.nextInt(2);
+					int button = random.nextInt(InputQueue.BUTTONS);
+					int k = target * InputQueue.BUTTONS + button;
+					held[k] = !held[k];
+					sent[i * 3] = target;
+					sent[i * 3 + 1] = button;
+					sent[i * 3 + 2] = held[k] ? 1 : 0;
+					while (!queue.offer(target, button, held[k])) {
+						Thread.yield();
+					}
+					// between nothing and two steps, about as fast as
+					// someone mashing all six keys
+					long pause = (long)(random.nextDouble() * STEP * 2.0);
+					long end = System.nanoTime() + pause;
+					while (System.nanoTime() < end) {
+						Thread.yield();
+					}
+				}
+			}
+		};
+
+		final int[] received = new int[TRANSITIONS * 3];
+		final int[] count = new int[1];
+		final long[] changed = new long[1];
+		final boolean[] twice = new boolean[1];
+		InputQueue.Handler handler = new InputQueue.Handler() {
+			@Override
+			public void apply(int target, int button, boolean pressed) {
+				int i = count[0]++;
+				received[i * 3] = target;
+				received[i * 3 + 1] = button;
+				received[i * 3 + 2] = pressed ? 1 : 0;
+				long bit = 1L << (target * InputQueue.BUTTONS + button);
+				if ((changed[0] & bit) != 0) twice[0] = true;
+				changed[0] |= bit;
+			}
+		};
+
+		producer.start();
+		FramePacer pacer = new FramePacer(60.0);
+		pacer.reset();
+		int steps = 0;
+		while (producer.isAlive() || queue.size() > 0) {
+			changed[0] = 0;
+			queue.drain(handler);
+			steps++;
+			pacer.await();
+		}
+		producer.join();
+
+		boolean ordered = count[0] == TRANSITIONS;
+		for (int i = 0; i < TRANSITIONS * 3 && ordered; i++) {
+			ordered = sent[i] == received[i];
+		}
+		Checks.check("all in order", ordered, count[0] + " of " + TRANSITIONS + " in " + steps + " steps");
+		Checks.check("one change per step", !twice[0], "per button");
+		Checks.check("none dropped", queue.getDroppedCount() == 0, queue.getDroppedCount() + " dropped");
+
+		Histogram latency = queue.getLatency();
+		Checks.print("input latency", String.format(Locale.ROOT, "p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+				latency.getPercentile(50) / 1.0e6,
+				latency.getPercentile(99) / 1.0e6,
+				latency.getMax() / 1.0e6));
+
+		// a tap between two steps still pushes the wheel
+		BallColliderScene tapped = new BallColliderScene();
+		BallColliderScene idle = new BallColliderScene();
+		double step = tapped.getWorld().getSettings().getStepFrequency();
+		tapped.getInput().offer(0, InputQueue.RIGHT, true);
+		tapped.getInput().offer(0, InputQueue.RIGHT, false);
+		for (int i = 0; i < 2; i++) {
+			tapped.update(step);
+			idle.update(step);
+		}
+		double vt = tapped.wheel1.getBody().getLinearVelocity().x;
+		double vi = idle.wheel1.getBody().getLinearVelocity().x;
+		Checks.check("short tap applied", vt > vi, String.format(Locale.ROOT, "vx %.4f vs %.4f", vt, vi));
+
+		// a release that doesn't fit is sent with the next key event
+		InputQueue full = new InputQueue(1);
+		CustomKeyListener listener = new CustomKeyListener(full);
+		JPanel source = new JPanel();
+		listener.keyPressed(new KeyEvent(source, KeyEvent.KEY_PRESSED, 0, 0, KeyEvent.VK_LEFT, KeyEvent.CHAR_UNDEFINED));
+		listener.keyReleased(new KeyEvent(source, KeyEvent.KEY_RELEASED, 0, 0, KeyEvent.VK_LEFT, KeyEvent.CHAR_UNDEFINED));
+		final boolean[] left = new boolean[1];
+		InputQueue.Handler state = new InputQueue.Handler() {
+			@Override
+			public void apply(int target, int button, boolean pressed) {
+				if (target == 0 && button == InputQueue.LEFT) left[0] = pressed;
+			}
+		};
+		full.drain(state);
+		boolean pressed = left[0];
+		listener.keyPressed(new KeyEvent(source, KeyEvent.KEY_PRESSED, 0, 0, KeyEvent.VK_SPACE, ' '));
+		full.drain(state);
+		Checks.check("release after full queue", pressed && !left[0], full.getDroppedCount() + " refused, then released");
+
+		Checks.exitIfFailed();
+	}
+}
@@ -0,0 +1,81 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Checks that replaying an {@link InputRecorder} log reproduces the recorded
+ * match exactly.
+ * <p>
+ * Each scene is played for a minute of steps with random button taps fed
+ * through its {@link InputQueue}, as the key listener would, while recording
+ * and hashing the trajectory. The log is then replayed twice with
+ * {@link InputReplay}; both replays must give the recorded hash.
+ * <p>
+ * Usage: <code>InputReplayCheck [directory]</code> to also keep the logs, for
+ * example to replay them in another JVM.
+ * <p>
+ * Exits with status 1 if any check fails.
+ */
+public class InputReplayCheck {
+	/** The scenes to check */
+	private static final String[] SCENES = { "BallCollider", "SimplePlatformer" };
+
+	/** The number of steps to record */
+	private static final int STEPS = 3600;
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 * @throws IOException if a log can't be written or read
+	 */
+	public static void main(String[] args) throws IOException {
+		System.setProperty("java.awt.headless", "true");
+
+		for (String scene : SCENES) {
+			Simulation simulation = HeadlessSimulation.createScene(scene);
+			ByteArrayOutputStream log = new ByteArrayOutputStream();
+			InputRecorder recorder = new InputRecorder(scene, simulation, log);
+			InputQueue input = simulation.getInput();
+
+			final double step = simulation.getWorld().getSettings().getStepFrequency();
+			Random random = new Random(7);
+			boolean[] held = new boolean[simulation.getPlayerCount() * InputQueue.BUTTONS];
+			long hash = 17;
+			for (int i = 0; i < STEPS; i++) {
+				// a few transitions between most steps
+				int transitions = random.nextInt(3);
+				for (int j = 0; j < transitions; j++) {
+					int k = random.nextInt(held.length);
+					held[k] = !held[k];
+					input.offer(k / InputQueue.BUTTONS, k % InputQueue.BUTTONS, held[k]);
+				}
+				simulation.update(step);
+				recorder.record();
+				hash = InputReplay.hash(hash, simulation.getWorld());
+			}
+			recorder.close();
+
+			byte[] bytes = log.toByteArray();
+			if (args.length > 0) {
+				OutputStream out = new FileOutputStream(new File(args[0], scene + ".input"));
+				out.write(bytes);
+				out.close();
+			}
+
+			InputReplay replay = new InputReplay(new ByteArrayInputStream(bytes));
+			long first = replay.run();
+			double sps = replay.getStepsPerSecond();
+			long second = replay.run();
+
+			Checks.check(scene + " steps", replay.getStepCount() == STEPS, replay.getStepCount() + " steps, " + bytes.length + " bytes");
+			Checks.check(scene + " replay", first == hash, String.format("%016x, recorded %016x", first, hash));
+			Checks.check(scene + " repeat", second == first, String.format("%016x, %.0f steps/s", second, sps));
+		}
+
+		Checks.exitIfFailed();
+	}
+}
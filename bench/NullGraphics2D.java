@@ -0,0 +1,140 @@
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.Map;
+
+/**
+ * A {@link Graphics2D} that keeps track of its transform and color and
+ * otherwise draws nothing.
+ * <p>
+ * Java2D allocates internally while rasterizing, which would hide any
+ * allocation made by our own drawing code. Drawing to this instead leaves
+ * only the allocations made by the callers, and counts the draw calls.
+ */
+public class NullGraphics2D extends Graphics2D {
+	/** The current transform */
+	private final AffineTransform transform = new AffineTransform();
+
+	/** The current color */
+	private Color color = Color.BLACK;
+
+	/** The number of fill calls */
+	private long fills;
+
+	/** The number of draw calls */
+	private long draws;
+
+	/**
+	 * Returns the number of fill calls.
+	 * @return long
+	 */
+	public long getFillCount() {
+		return this.fills;
+	}
+
+	/**
+	 * Returns the number of draw calls.
+	 * @return long
+	 */
+	public long getDrawCount() {
+		return this.draws;
+	}
+
+	/**
+	 * Returns the current transform without copying it.
+	 * @return AffineTransform
+	 */
+	public AffineTransform getCurrentTransform() {
+		return this.transform;
+	}
+
+	@Override public void draw(Shape s) { this.draws++; }
+	@Override public void fill(Shape s) { this.fills++; }
+	@Override public boolean drawImage(Image img, AffineTransform xform, ImageObserver obs) { this.draws++; return true; }
+	@Override public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) { this.draws++; }
+	@Override public void drawRenderedImage(RenderedImage img, AffineTransform xform) { this.draws++; }
+	@Override public void drawRenderableImage(RenderableImage img, AffineTransform xform) { this.draws++; }
+	@Override public void drawString(String str, int x, int y) {}
+	@Override public void drawString(String str, float x, float y) {}
+	@Override public void drawString(AttributedCharacterIterator iterator, int x, int y) {}
+	@Override public void drawString(AttributedCharacterIterator iterator, float x, float y) {}
+	@Override public void drawGlyphVector(GlyphVector g, float x, float y) {}
+	@Override public boolean hit(Rectangle rect, Shape s, boolean onStroke) { return false; }
+	@Override public GraphicsConfiguration getDeviceConfiguration() { return null; }
+	@Override public void setComposite(Composite comp) {}
+	@Override public void setPaint(Paint paint) { if (paint instanceof Color) this.color = (Color)paint; }
+	@Override public void setStroke(Stroke s) {}
+	@Override public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue) {}
+	@Override public Object getRenderingHint(RenderingHints.Key hintKey) { return null; }
+	@Override public void setRenderingHints(Map<?, ?> hints) {}
+	@Override public void addRenderingHints(Map<?, ?> hints) {}
+	@Override public RenderingHints getRenderingHints() { return null; }
+	@Override public void translate(int x, int y) { this.transform.translate(x, y); }
+	@Override public void translate(double tx, double ty) { this.transform.translate(tx, ty); }
+	@Override public void rotate(double theta) { this.transform.rotate(theta); }
+	@Override public void rotate(double theta, double x, double y) { this.transform.rotate(theta, x, y); }
+	@Override public void scale(double sx, double sy) { this.transform.scale(sx, sy); }
+	@Override public void shear(double shx, double shy) { this.transform.shear(shx, shy); }
+	@Override public void transform(AffineTransform tx) { this.transform.concatenate(tx); }
+	@Override public void setTransform(AffineTransform tx) { this.transform.setTransform(tx); }
+	@Override public AffineTransform getTransform() { return new AffineTransform(this.transform); }
+	@Override public Paint getPaint() { return this.color; }
+	@Override public Composite getComposite() { return null; }
+	@Override public void setBackground(Color color) {}
+	@Override public Color getBackground() { return null; }
+	@Override public Stroke getStroke() { return null; }
+	@Override public void clip(Shape s) {}
+	@Override public FontRenderContext getFontRenderContext() { return null; }
+	@Override public Graphics create() { return new NullGraphics2D(); }
+	@Override public Color getColor() { return this.color; }
+	@Override public void setColor(Color c) { this.color = c; }
+	@Override public void setPaintMode() {}
+	@Override public void setXORMode(Color c1) {}
+	@Override public Font getFont() { return null; }
+	@Override public void setFont(Font font) {}
+	@Override public FontMetrics getFontMetrics(Font f) { return null; }
+	@Override public Rectangle getClipBounds() { return null; }
+	@Override public void clipRect(int x, int y, int width, int height) {}
+	@Override public void setClip(int x, int y, int width, int height) {}
+	@Override public Shape getClip() { return null; }
+	@Override public void setClip(Shape clip) {}
+	@Override public void copyArea(int x, int y, int width, int height, int dx, int dy) {}
+	@Override public void drawLine(int x1, int y1, int x2, int y2) { this.draws++; }
+	@Override public void fillRect(int x, int y, int width, int height) { this.fills++; }
+	@Override public void clearRect(int x, int y, int width, int height) {}
+	@Override public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) { this.draws++; }
+	@Override public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) { this.fills++; }
+	@Override public void drawOval(int x, int y, int width, int height) { this.draws++; }
+	@Override public void fillOval(int x, int y, int width, int height) { this.fills++; }
+	@Override public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) { this.draws++; }
+	@Override public void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) { this.fills++; }
+	@Override public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) { this.draws++; }
+	@Override public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) { this.draws++; }
+	@Override public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) { this.fills++; }
+	@Override public boolean drawImage(Image img, int x, int y, ImageObserver observer) { this.draws++; return true; }
+	@Override public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) { this.draws++; return true; }
+	@Override public boolean drawImage(Image img, int x, int y, Color bgcolor, ImageObserver observer) { this.draws++; return true; }
+	@Override public boolean drawImage(Image img, int x, int y, int width, int height, Color bgcolor, ImageObserver observer) { this.draws++; return true; }
+	@Override public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, ImageObserver observer) { this.draws++; return true; }
+	@Override public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, Color bgcolor, ImageObserver observer) { this.draws++; return true; }
+	@Override public void dispose() {}
+}
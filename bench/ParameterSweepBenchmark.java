@@ -0,0 +1,71 @@
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how a {@link ParameterSweep} scales with the number of threads,
+ * and checks that every variant gives the same result however many threads
+ * run the sweep.
+ * <p>
+ * Runs the same sweep on pools of 1, 2, 4 and so on threads up to the
+ * number of cores, and at least 2 so the check means something on a single
+ * core machine, and prints the time and the speed up over one thread.
+ * <p>
+ * Usage: <code>ParameterSweepBenchmark [steps]</code>
+ * <p>
+ * Exits with status 1 if the results differ.
+ */
+public class ParameterSweepBenchmark {
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		final int steps = args.length > 0 ? Integer.parseInt(args[0]) : 1200;
+		final int cores = Runtime.getRuntime().availableProcessors();
+
+		ParameterSweep sweep = new ParameterSweep(ParameterSweep.createGrid(
+				new double[] { 0.5, 1.0, 2.0 },
+				new double[] { 5.0, 20.0 },
+				new double[] { 0.1, 0.5 },
+				new double[] { 10 },
+				new double[] { 1, 2 }), steps, 1);
+		final int variants = sweep.getVariants().size();
+
+		// warm up
+		sweep.run(new ForkJoinPool(1));
+
+		ParameterSweep.Result[] first = null;
+		double single = 0.0;
+		boolean same = true;
+		System.out.println(String.format("%d variants of %d steps, %d cores", variants, steps, cores));
+		for (int threads = 1; threads <= Math.max(cores, 2); threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			long start = System.nanoTime();
+			ParameterSweep.Result[] results = sweep.run(pool);
+			double elapsed = (System.nanoTime() - start) / HeadlessSimulation.NANO_TO_BASE;
+			pool.shutdown();
+
+			if (first == null) {
+				first = results;
+				single = elapsed;
+			} else {
+				for (int i = 0; i < variants; i++) {
+					same &= results[i].meanSpeed == first[i].meanSpeed
+						 && results[i].maximumHeight == first[i].maximumHeight
+						 && results[i].airborne == first[i].airborne
+						 && results[i].wheelContacts == first[i].wheelContacts;
+				}
+			}
+			System.out.println(String.format(Locale.ROOT, "%2d threads: %.3f s, %.1f variants/s, speed up %.2f (%.0f%% of linear)",
+					threads,
+					elapsed,
+					variants / elapsed,
+					single / elapsed,
+					100.0 * single / elapsed / Math.min(threads, cores)));
+		}
+
+		Checks.check("same on every pool", same, "every variant, every thread count");
+		Checks.exitIfFailed();
+	}
+}
@@ -0,0 +1,133 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Checks that a {@link PhaseTimer} times the phases of a loop correctly,
+ * that a {@link PhaseCsvWriter} streams its windows, and measures what a
+ * lap costs.
+ * <p>
+ * A fake loop spins for a known time in each of its phases, with one slow
+ * pass in fifty in the last phase. The published windows must have the
+ * right counts, medians near the spin times, a 99th percentile and maximum
+ * that see the slow passes, and a total that adds up the phases. The same
+ * windows must arrive in the CSV file.
+ * <p>
+ * Exits with status 1 if any check fails.
+ */
+public class PhaseTimerCheck {
+	/** The spin time of each phase in nanoseconds */
+	private static final long[] SPIN = { 200000L, 500000L, 100000L };
+
+	/** The extra spin time of the slow passes in nanoseconds */
+	private static final long SLOW = 3000000L;
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 * @throws IOException if the CSV file can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+		PhaseTimer timer = new PhaseTimer("loop", "a", "b", "c");
+		timer.setWindowLength(0.25);
+		File file = File.createTempFile("phases", ".csv");
+		file.deleteOnExit();
+		PhaseCsvWriter writer = new PhaseCsvWriter(file, timer);
+
+		// play until a few windows have been published
+		int passes = 0;
+		while (timer.getWindow() == null || timer.getWindow().getSequence() < 4) {
+			timer.begin();
+			for (int p = 0; p < SPIN.length; p++) {
+				long spin = SPIN[p];
+				if (p == SPIN.length - 1 && passes % 50 == 49) spin += SLOW;
+				spin(spin);
+				timer.lap(p);
+			}
+			timer.end();
+			passes++;
+		}
+		writer.close();
+
+		PhaseTimer.Window window = timer.getWindow();
+		final int total = timer.getTotalPhase();
+		boolean counts = true;
+		for (int p = 0; p <= total; p++) {
+			counts &= window.getCount(p) == window.getCount(total);
+		}
+		Checks.check("window published", window.getDuration() >= 250000000L, String.format(Locale.ROOT, "%d windows, last %.3f s", window.getSequence(), window.getDuration() / 1.0e9));
+		Checks.check("counts per phase", counts && window.getCount(total) > 0, window.getCount(total) + " passes in the last window");
+
+		boolean medians = true;
+		StringBuilder detail = new StringBuilder();
+		for (int p = 0; p < SPIN.length; p++) {
+			double ratio = window.getP50(p) / (double)SPIN[p];
+			medians &= ratio >= 0.95 && ratio < 1.5;
+			detail.append(String.format(Locale.ROOT, "%s %.3f ms ", timer.getPhaseName(p), window.getP50(p) / 1.0e6));
+		}
+		Checks.check("medians", medians, detail.toString().trim());
+
+		final int last = SPIN.length - 1;
+		Checks.check("slow passes", window.getMax(last) >= SPIN[last] + SLOW && window.getP99(last) >= SPIN[last] + SLOW * 0.9,
+				String.format(Locale.ROOT, "p99 %.3f ms, max %.3f ms", window.getP99(last) / 1.0e6, window.getMax(last) / 1.0e6));
+
+		double sum = 0.0;
+		for (int p = 0; p < SPIN.length; p++) {
+			sum += window.getMean(p);
+		}
+		Checks.check("total adds up", Math.abs(window.getMean(total) - sum) < 0.05 * sum,
+				String.format(Locale.ROOT, "total %.3f ms, phases %.3f ms", window.getMean(total) / 1.0e6, sum / 1.0e6));
+
+		// one row per phase per window, with the last window among them
+		List<String> rows = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				rows.add(line);
+			}
+		} finally {
+			in.close();
+		}
+		boolean csv = rows.size() > 1 && rows.get(0).startsWith("time,timer,phase,") && (rows.size() - 1) % timer.getPhaseCount() == 0;
+		String lastRow = rows.get(rows.size() - 1);
+		csv &= lastRow.startsWith(lastRow.split(",")[0] + ",loop,total," + window.getCount(total) + ",");
+		Checks.check("csv rows", csv, (rows.size() - 1) + " rows in " + file.length() + " bytes");
+
+		// the cost of a lap, which is what the frame pays per phase
+		PhaseTimer bare = new PhaseTimer("bare", "a", "b", "c");
+		final int laps = 3000000;
+		for (int round = 0; round < 3; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < laps / 3; i++) {
+				bare.begin();
+				bare.lap(0);
+				bare.lap(1);
+				bare.lap(2);
+				bare.end();
+			}
+			long elapsed = System.nanoTime() - start;
+			if (round == 2) {
+				Checks.print("overhead", String.format(Locale.ROOT, "%.1f ns per lap", elapsed / (double)(laps + laps / 3)));
+			}
+		}
+
+		Checks.exitIfFailed();
+	}
+
+	/**
+	 * Busy waits for the given time.
+	 * @param nanoseconds the time in nanoseconds
+	 */
+	private static void spin(long nanoseconds) {
+		long end = System.nanoTime() + nanoseconds;
+		while (System.nanoTime() - end < 0) {
+			// spin
+		}
+	}
+}
@@ -0,0 +1,133 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.MassType;
+import org.dyn4j.geometry.Transform;
+
+/**
+ * Checks that drawing a frame doesn't allocate once warmed up.
+ * <p>
+ * Draws the captured state of the sample scenes (plus a body with every
+ * shape type) the same way {@link SimulationFrame} does, to a
+ * {@link NullGraphics2D} so that only allocations made by our drawing code
+ * are counted, not those made by Java2D while rasterizing.
+ * <p>
+ * Exits with status 1 if any bytes were allocated.
+ */
+public class RenderAllocationCheck {
+	/** The number of frames drawn before measuring */
+	private static final int WARMUP_FRAMES = 20000;
+
+	/** The number of measured frames */
+	private static final int FRAMES = 5000;
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		if (!AllocationCounter.isSupported()) {
+			System.out.println("Allocation counting isn't supported by this JVM");
+			System.exit(1);
+		}
+
+		check("BallCollider", new BallColliderScene());
+		check("SimplePlatformer", new SimplePlatformerScene());
+		check("AllShapes", createShapeScene());
+
+		Checks.exitIfFailed();
+	}
+
+	/**
+	 * Draws the given simulation and reports the bytes allocated per frame.
+	 * @param name the name to report
+	 * @param simulation the simulation
+	 * @return boolean true if nothing was allocated
+	 */
+	private static boolean check(String name, Simulation simulation) {
+		final double step = simulation.getWorld().getSettings().getStepFrequency();
+		NullGraphics2D g = new NullGraphics2D();
+		WorldSnapshot snapshot = new WorldSnapshot();
+		Transform transform = new Transform();
+
+		// let some bodies fall asleep so that both colors are drawn
+		for (int i = 0; i < 300; i++) {
+			simulation.update(step);
+		}
+		snapshot.capture(simulation.getWorld(), System.nanoTime());
+
+		for (int i = 0; i < WARMUP_FRAMES; i++) {
+			frame(g, snapshot, transform, i);
+		}
+
+		// the cost of reading the counter itself
+		long overhead = AllocationCounter.getAllocatedBytes();
+		overhead = AllocationCounter.getAllocatedBytes() - overhead;
+
+		long bytes = AllocationCounter.getAllocatedBytes();
+		for (int i = 0; i < FRAMES; i++) {
+			frame(g, snapshot, transform, i);
+		}
+		bytes = AllocationCounter.getAllocatedBytes() - bytes - overhead;
+
+		return Checks.check(name, bytes <= 0, String.format("%d bytes over %d frames, %d bodies",
+				bytes,
+				FRAMES,
+				snapshot.getBodyCount()));
+	}
+
+	/**
+	 * Draws one frame the way {@link SimulationFrame} does.
+	 * @param g the graphics
+	 * @param snapshot the captured state
+	 * @param transform the scratch transform
+	 * @param frame the frame number
+	 */
+	private static void frame(Graphics2D g, WorldSnapshot snapshot, Transform transform, int frame) {
+		final double scale = 32.0;
+		final double alpha = (frame % 10) / 10.0;
+
+		// SimulationFrame#transform
+		g.scale(1, -1);
+		g.translate(400, -300);
+
+		// SimulationFrame#clear
+		g.setColor(Color.WHITE);
+		g.fillRect(-400, -300, 800, 600);
+
+		// SimulationFrame#render
+		for (int i = 0; i < snapshot.getBodyCount(); i++) {
+			SimulationBody body = snapshot.getBody(i);
+			snapshot.interpolate(i, alpha, transform);
+			body.render(g, scale, snapshot.getColor(i), snapshot.isAsleep(i), transform);
+		}
+
+		g.translate(-400, 300);
+		g.scale(1, -1);
+	}
+
+	/**
+	 * Returns a simulation with a body of every shape type.
+	 * @return {@link Simulation}
+	 */
+	private static Simulation createShapeScene() {
+		return new Simulation() {
+			@Override
+			protected void initializeWorld() {
+				SimulationBody body = new SimulationBody();
+				body.addFixture(Geometry.createCircle(0.5));
+				body.addFixture(Geometry.createUnitCirclePolygon(6, 0.5));
+				body.addFixture(Geometry.createHorizontalSegment(1.0));
+				body.addFixture(Geometry.createCapsule(1.0, 0.5));
+				body.addFixture(Geometry.createEllipse(1.0, 0.5));
+				body.addFixture(Geometry.createSlice(0.5, Math.toRadians(90)));
+				body.addFixture(Geometry.createHalfEllipse(1.0, 0.5));
+				body.setMass(MassType.NORMAL);
+				this.world.addBody(body);
+			}
+		};
+	}
+}
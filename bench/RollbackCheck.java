@@ -0,0 +1,180 @@
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Plays the ball collider as two {@link RollbackSession}s connected by a
+ * {@link LoopbackLink}, each on its own thread stepping in real time, and
+ * reports how deep and how costly the rollbacks are for a range of delays.
+ * <p>
+ * Each side presses random buttons for its own wheel. Once both sides have
+ * received all of each other's buttons their worlds must be identical, and
+ * identical to a world stepped directly with everybody's buttons.
+ * <p>
+ * Usage: <code>RollbackCheck [frames]</code>
+ * <p>
+ * Exits with status 1 if any check fails.
+ */
+public class RollbackCheck {
+	/** The delay and jitter of each run in seconds */
+	private static final double[][] LINKS = {
+		{ 0.0, 0.0 },
+		{ 0.030, 0.010 },
+		{ 0.080, 0.030 },
+		{ 0.150, 0.050 }
+	};
+
+	/** The most frames a rollback goes back */
+	private static final int MAXIMUM_ROLLBACK = 10;
+
+	/**
+	 * One side, stepping its session in real time on its own thread.
+	 */
+	static final class Peer extends Thread {
+		/** The session */
+		final RollbackSession session;
+
+		/** The local buttons of every frame */
+		final int[] script;
+
+		/** The time of the first frame in nanoseconds */
+		final long start;
+
+		/**
+		 * Constructor.
+		 * @param session the session
+		 * @param script the local buttons of every frame
+		 * @param start the time of the first frame in nanoseconds
+		 */
+		Peer(RollbackSession session, int[] script, long start) {
+			this.session = session;
+			this.script = script;
+			this.start = start;
+		}
+
+		@Override
+		public void run() {
+			final long step = (long)(this.session.getSimulation().getWorld().getSettings().getStepFrequency() * HeadlessSimulation.NANO_TO_BASE);
+			long tick = this.start;
+			while (this.session.getFrame() < this.script.length) {
+				// a stalled frame is tried again on the next tick
+				this.session.advance(this.script[this.session.getFrame()]);
+				tick += step;
+				sleepUntil(tick);
+			}
+		}
+	}
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 * @throws InterruptedException if interrupted while waiting for the sides
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		System.setProperty("java.awt.headless", "true");
+		final int frames = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+
+		for (int run = 0; run < LINKS.length; run++) {
+			int[] script0 = createScript(frames, 11 + run);
+			int[] script1 = createScript(frames, 23 + run);
+
+			LoopbackLink[] link = LoopbackLink.createPair(LINKS[run][0], LINKS[run][1], run);
+			RollbackSession session0 = new RollbackSession(HeadlessSimulation.createScene("BallCollider"), 0, 1, link[0], MAXIMUM_ROLLBACK);
+			RollbackSession session1 = new RollbackSession(HeadlessSimulation.createScene("BallCollider"), 1, 0, link[1], MAXIMUM_ROLLBACK);
+			long start = System.nanoTime();
+			Peer peer0 = new Peer(session0, script0, start);
+			Peer peer1 = new Peer(session1, script1, start);
+			peer0.start();
+			peer1.start();
+			peer0.join();
+			peer1.join();
+			double seconds = (System.nanoTime() - start) / HeadlessSimulation.NANO_TO_BASE;
+
+			// wait for the last buttons
+			long timeout = System.nanoTime() + 5000000000L;
+			while ((session0.getConfirmedFrame() < frames || session1.getConfirmedFrame() < frames) && System.nanoTime() < timeout) {
+				session0.poll();
+				session1.poll();
+				Thread.sleep(1);
+			}
+
+			// step the same buttons directly
+			Simulation reference = HeadlessSimulation.createScene("BallCollider");
+			reference.getWorld().setDeterministic(true);
+			double step = reference.getWorld().getSettings().getStepFrequency();
+			for (int i = 0; i < frames; i++) {
+				reference.setPlayerInput(0, script0[i]);
+				reference.setPlayerInput(1, script1[i]);
+				reference.update(step);
+			}
+			WorldState expected = new WorldState();
+			WorldState state0 = new WorldState();
+			WorldState state1 = new WorldState();
+			expected.capture(reference);
+			state0.capture(session0.getSimulation());
+			state1.capture(session1.getSimulation());
+
+			String name = String.format(Locale.ROOT, "%3.0f +/- %2.0f ms", LINKS[run][0] * 1000, LINKS[run][1] * 1000);
+			Checks.print(name, String.format(Locale.ROOT, "%d frames in %.2f s", frames, seconds));
+			report(session0);
+			report(session1);
+			Checks.check(name + " same state", state0.getBuffer().equals(expected.getBuffer()) && state1.getBuffer().equals(expected.getBuffer()),
+					"confirmed " + session0.getConfirmedFrame() + " and " + session1.getConfirmedFrame());
+		}
+
+		Checks.exitIfFailed();
+	}
+
+	/**
+	 * Returns random buttons that change every half second or so.
+	 * @param frames the number of frames
+	 * @param seed the random seed
+	 * @return int[]
+	 */
+	private static int[] createScript(int frames, long seed) {
+		Random random = new Random(seed);
+		int[] script = new int[frames];
+		int buttons = 0;
+		for (int i = 0; i < frames; i++) {
+			if (random.nextInt(30) == 0) {
+				buttons = random.nextInt(1 << InputQueue.BUTTONS);
+			}
+			script[i] = buttons;
+		}
+		return script;
+	}
+
+	/**
+	 * Prints the rollback statistics of the given session.
+	 * @param session the session
+	 */
+	private static void report(RollbackSession session) {
+		Histogram depth = session.getRollbackDepth();
+		Histogram time = session.getResimulationTime();
+		System.out.println(String.format(Locale.ROOT,
+				"  %d rollbacks for %d mispredictions, depth p50 %d p99 %d max %d frames, resimulation p50 %.0f p99 %.0f max %.0f us, %d over budget, %d stalls",
+				depth.getCount(),
+				session.getMispredictionCount(),
+				depth.getPercentile(50),
+				depth.getPercentile(99),
+				depth.getMax(),
+				time.getPercentile(50) / 1000.0,
+				time.getPercentile(99) / 1000.0,
+				time.getMax() / 1000.0,
+				session.getBudgetOverrunCount(),
+				session.getStallCount()));
+	}
+
+	/**
+	 * Sleeps until the given time.
+	 * @param time the time in nanoseconds
+	 */
+	private static void sleepUntil(long time) {
+		long remaining = time - System.nanoTime();
+		if (remaining <= 0) return;
+		try {
+			Thread.sleep(remaining / 1000000, (int)(remaining % 1000000));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Runs increasing numbers of ball collider rooms on a {@link RoomScheduler}
+ * and reports the tick latency and how many ticks miss their deadline.
+ * <p>
+ * Each room presses random buttons for both wheels so the worlds keep
+ * moving. Every count of rooms runs for a few seconds after a warm up.
+ * <p>
+ * Usage: <code>RoomSchedulerBenchmark [threads] [seconds]</code>
+ */
+public class RoomSchedulerBenchmark {
+	/** The numbers of rooms to run */
+	private static final int[] ROOMS = { 50, 100, 200, 400 };
+
+	/**
+	 * A ball collider whose players press random buttons.
+	 */
+	static final class ScriptedRoom extends BallColliderScene {
+		/** The random number generator */
+		private final Random random;
+
+		/**
+		 * Constructor.
+		 * @param seed the random seed
+		 */
+		ScriptedRoom(long seed) {
+			this.random = new Random(seed);
+		}
+
+		@Override
+		protected void update(double elapsedTime) {
+			for (int i = 0; i < 2; i++) {
+				if (this.random.nextInt(30) == 0) {
+					this.setPlayerInput(i, this.random.nextInt(1 << InputQueue.BUTTONS));
+				}
+			}
+			super.update(elapsedTime);
+		}
+	}
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		System.setProperty("java.awt.headless", "true");
+		final int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		final double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 4.0;
+
+		// warm up
+		run(threads, ROOMS[0], 2.0);
+
+		System.out.println(String.format("%d threads, %.0f s per run", threads, seconds));
+		for (int rooms : ROOMS) {
+			RoomScheduler scheduler = run(threads, rooms, seconds);
+			Histogram latency = scheduler.getLatency();
+			long ticks = 0;
+			long missed = 0;
+			long skipped = 0;
+			int late = 0;
+			for (RoomScheduler.Room room : scheduler.getRooms()) {
+				ticks += room.getTickCount();
+				missed += room.getMissedDeadlineCount();
+				skipped += room.getSkippedTickCount();
+				if (room.getMissedDeadlineCount() > 0) late++;
+			}
+			System.out.println(String.format(Locale.ROOT,
+					"%4d rooms: %6.0f ticks/s, latency p50 %6.2f p99 %6.2f max %7.2f ms, %5.2f%% missed deadlines in %d rooms, %d ticks skipped",
+					rooms,
+					ticks / seconds,
+					latency.getPercentile(50) / 1.0e6,
+					latency.getPercentile(99) / 1.0e6,
+					latency.getMax() / 1.0e6,
+					100.0 * missed / Math.max(ticks, 1),
+					late,
+					skipped));
+		}
+	}
+
+	/**
+	 * Runs the given number of rooms for the given time.
+	 * @param threads the number of pool threads
+	 * @param rooms the number of rooms
+	 * @param seconds the time to run for
+	 * @return {@link RoomScheduler} the stopped scheduler
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static RoomScheduler run(int threads, int rooms, double seconds) throws InterruptedException {
+		RoomScheduler scheduler = new RoomScheduler(threads);
+		scheduler.start();
+		for (int i = 0; i < rooms; i++) {
+			scheduler.add(new ScriptedRoom(i));
+			// spread the rooms over a tick
+			Thread.sleep(0, (int)(16666667L / rooms));
+		}
+		Thread.sleep((long)(seconds * 1000));
+		scheduler.stop(1.0);
+		return scheduler;
+	}
+}
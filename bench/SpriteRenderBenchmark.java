@@ -0,0 +1,205 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+import java.util.Random;
+
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.MassType;
+import org.dyn4j.geometry.Transform;
+
+/**
+ * Compares drawing many identical bodies from their geometry with drawing
+ * them from the {@link SpriteCache}.
+ * <p>
+ * Before measuring, one body of each shape type is drawn both ways at an
+ * angle and the images are compared, so a sprite that's flipped, rotated
+ * or offset the wrong way fails the run, as does a body with its own
+ * drawing that's drawn from the cache anyway. The bodies are then drawn again
+ * each in its own color, more stamps than the cache holds, which must fall
+ * back to geometry for the rest of the frame rather than rasterize every
+ * body every frame.
+ * <p>
+ * Usage: <code>SpriteRenderBenchmark [--bodies count] [--frames count] [--scale scale]</code>
+ */
+public class SpriteRenderBenchmark {
+	/** The size of the offscreen image in pixels */
+	private static final int WIDTH = 800, HEIGHT = 600;
+
+	/** The largest fraction of pixels that may differ noticeably between the two ways */
+	private static final double MAXIMUM_DIFFERENCE = 0.10;
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int count = 1000;
+		int frames = 200;
+		double scale = 32.0;
+		for (int i = 0; i < args.length; i++) {
+			if ("--bodies".equals(args[i])) {
+				count = Integer.parseInt(args[++i]);
+			} else if ("--frames".equals(args[i])) {
+				frames = Integer.parseInt(args[++i]);
+			} else if ("--scale".equals(args[i])) {
+				scale = Double.parseDouble(args[++i]);
+			} else {
+				throw new IllegalArgumentException("Unknown argument: " + args[i]);
+			}
+		}
+
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+		BufferedImage reference = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+
+		// check each shape drawn both ways looks the same
+		Convex[] shapes = {
+			Geometry.createCircle(0.5),
+			Geometry.createUnitCirclePolygon(5, 0.5),
+			Geometry.createCapsule(1.0, 0.4),
+			Geometry.createSlice(0.8, Math.toRadians(60)),
+			Geometry.createHalfEllipse(1.2, 0.5)
+		};
+		for (Convex shape : shapes) {
+			SimulationBody body = new SimulationBody(Color.ORANGE);
+			body.addFixture(shape);
+			body.translate(0.3, 0.2);
+			body.rotate(Math.toRadians(35), 0.3, 0.2);
+			body.setMass(MassType.NORMAL);
+
+			draw(reference, new SimulationBody[] { body }, scale, false);
+			draw(image, new SimulationBody[] { body }, scale, true);
+			double difference = difference(reference, image);
+			Checks.check(shape.getClass().getSimpleName(), difference <= MAXIMUM_DIFFERENCE,
+					String.format(Locale.ROOT, "%.2f%% of pixels differ", difference * 100.0));
+		}
+
+		// a body that draws its fixtures its own way isn't drawn from the cache
+		SimulationBody custom = new SimulationBody(Color.ORANGE) {
+			@Override
+			protected void renderFixture(Graphics2D g, double scale, BodyFixture fixture, Color color, boolean asleep) {
+				Graphics2DRenderer.render(g, fixture.getShape(), scale, Color.BLACK);
+			}
+		};
+		custom.addFixture(Geometry.createCircle(0.5));
+		custom.setMass(MassType.NORMAL);
+		draw(reference, new SimulationBody[] { custom }, scale, false);
+		draw(image, new SimulationBody[] { custom }, scale, true);
+		double difference = difference(reference, image);
+		Checks.check("custom drawing", difference == 0.0,
+				String.format(Locale.ROOT, "%.2f%% of pixels differ", difference * 100.0));
+
+		// a crowd of wheels at different angles, half in the other color
+		SimulationBody[] bodies = new SimulationBody[count];
+		for (int i = 0; i < count; i++) {
+			SimulationBody body = new SimulationBody(i % 2 == 0 ? Color.RED : Color.BLUE);
+			body.addFixture(Geometry.createCircle(0.5));
+			body.setMass(MassType.NORMAL);
+			body.translate((i % 40) * 0.6 - 12.0, (i / 40 % 30) * 0.6 - 9.0);
+			body.rotate(i * 0.1, body.getWorldCenter());
+			bodies[i] = body;
+		}
+
+		double vector = measure(image, bodies, scale, false, frames);
+		double sprite = measure(image, bodies, scale, true, frames);
+		System.out.println(String.format(Locale.ROOT, "%d bodies at %.0f px/m: geometry %.2f ms/frame, sprites %.2f ms/frame (%.1fx), %d stamps",
+				count, scale, vector, sprite, vector / sprite, SpriteCache.getStampCount()));
+
+		// each in its own color, more stamps than the cache holds
+		Random random = new Random(1);
+		SimulationBody[] colored = new SimulationBody[count];
+		for (int i = 0; i < count; i++) {
+			SimulationBody body = new SimulationBody(new Color(random.nextInt(0x1000000)));
+			body.addFixture(Geometry.createCircle(0.5));
+			body.setMass(MassType.NORMAL);
+			body.translate(bodies[i].getTransform().getTranslationX(), bodies[i].getTransform().getTranslationY());
+			colored[i] = body;
+		}
+		vector = measure(image, colored, scale, false, frames);
+		sprite = measure(image, colored, scale, true, frames);
+		Checks.check("colors past the cache", SpriteCache.getFallbackCount() > 0 || count <= SpriteCache.getStampCount(),
+				String.format(Locale.ROOT, "geometry %.2f ms/frame, sprites %.2f ms/frame, %d stamps, %d drawn as geometry",
+				vector, sprite, SpriteCache.getStampCount(), SpriteCache.getFallbackCount()));
+
+		Checks.exitIfFailed();
+	}
+
+	/**
+	 * Returns the average time to draw the bodies.
+	 * @param image the image to draw to
+	 * @param bodies the bodies
+	 * @param scale the scale
+	 * @param sprites true to draw from sprites
+	 * @param frames the number of measured frames
+	 * @return double the milliseconds per frame
+	 */
+	private static double measure(BufferedImage image, SimulationBody[] bodies, double scale, boolean sprites, int frames) {
+		for (int i = 0; i < frames / 2; i++) {
+			draw(image, bodies, scale, sprites);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < frames; i++) {
+			draw(image, bodies, scale, sprites);
+		}
+		return (System.nanoTime() - start) / 1.0e6 / frames;
+	}
+
+	/**
+	 * Clears the image and draws the bodies the way the simulation frame does.
+	 * @param image the image to draw to
+	 * @param bodies the bodies
+	 * @param scale the scale
+	 * @param sprites true to draw from sprites
+	 */
+	private static void draw(BufferedImage image, SimulationBody[] bodies, double scale, boolean sprites) {
+		SpriteCache.nextFrame();
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, WIDTH, HEIGHT);
+		g.scale(1, -1);
+		g.translate(WIDTH / 2, -HEIGHT / 2);
+		g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		for (SimulationBody body : bodies) {
+			Transform transform = body.getTransform();
+			if (sprites) {
+				body.renderSprite(g, scale, body.getColor(), false, transform);
+			} else {
+				body.render(g, scale, body.getColor(), false, transform);
+			}
+		}
+		g.dispose();
+	}
+
+	/**
+	 * Returns the fraction of the drawn pixels that differ noticeably.
+	 * <p>
+	 * Small differences are expected where the sprite is resampled.
+	 * @param a the first image
+	 * @param b the second image
+	 * @return double
+	 */
+	private static double difference(BufferedImage a, BufferedImage b) {
+		int drawn = 0;
+		int different = 0;
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				int pa = a.getRGB(x, y);
+				int pb = b.getRGB(x, y);
+				if (pa == 0xFFFFFFFF && pb == 0xFFFFFFFF) continue;
+				drawn++;
+				int d = Math.abs(((pa >> 16) & 0xFF) - ((pb >> 16) & 0xFF))
+						+ Math.abs(((pa >> 8) & 0xFF) - ((pb >> 8) & 0xFF))
+						+ Math.abs((pa & 0xFF) - (pb & 0xFF));
+				if (d > 96) different++;
+			}
+		}
+		return drawn > 0 ? (double)different / drawn : 0.0;
+	}
+}
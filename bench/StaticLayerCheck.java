@@ -0,0 +1,98 @@
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.MassType;
+
+/**
+ * Checks when a {@link StaticLayer} needs to be drawn again.
+ * <p>
+ * Steps the {@link BallColliderScene} headlessly and checks that the layer
+ * stays valid while only the wheels move, and becomes invalid when a static
+ * body is moved, recolored, added or removed.
+ * <p>
+ * Exits with status 1 if any check fails.
+ */
+public class StaticLayerCheck {
+	/** The layer size in pixels */
+	private static final int WIDTH = 800, HEIGHT = 600;
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		BallColliderScene scene = new BallColliderScene();
+		World world = scene.getWorld();
+		double step = world.getSettings().getStepFrequency();
+		scene.wheel1.setRight(true);
+
+		WorldSnapshot snapshot = new WorldSnapshot();
+		StaticLayer layer = new StaticLayer();
+
+		snapshot.capture(world, 0);
+		check("new layer", layer.isValid(snapshot, WIDTH, HEIGHT), false);
+		layer.update(snapshot, WIDTH, HEIGHT);
+		check("after update", layer.isValid(snapshot, WIDTH, HEIGHT), true);
+
+		for (int i = 0; i < 120; i++) {
+			scene.update(step);
+		}
+		snapshot.capture(world, 0);
+		check("wheels moved", layer.isValid(snapshot, WIDTH, HEIGHT), true);
+		check("resized", layer.isValid(snapshot, WIDTH, HEIGHT + 1), false);
+
+		SimulationBody floor = findStatic(snapshot);
+		floor.translate(0.0, 0.5);
+		snapshot.capture(world, 0);
+		check("static body moved", layer.isValid(snapshot, WIDTH, HEIGHT), false);
+		layer.update(snapshot, WIDTH, HEIGHT);
+
+		floor.setColor(java.awt.Color.MAGENTA);
+		snapshot.capture(world, 0);
+		check("static body recolored", layer.isValid(snapshot, WIDTH, HEIGHT), false);
+		layer.update(snapshot, WIDTH, HEIGHT);
+
+		SimulationBody platform = new SimulationBody();
+		platform.addFixture(Geometry.createRectangle(2.0, 0.2));
+		platform.setMass(MassType.INFINITE);
+		platform.translate(0.0, 3.0);
+		world.addBody(platform);
+		snapshot.capture(world, 0);
+		check("static body added", layer.isValid(snapshot, WIDTH, HEIGHT), false);
+		layer.update(snapshot, WIDTH, HEIGHT);
+		check("after update", layer.isValid(snapshot, WIDTH, HEIGHT), true);
+
+		world.removeBody(platform);
+		snapshot.capture(world, 0);
+		check("static body removed", layer.isValid(snapshot, WIDTH, HEIGHT), false);
+		layer.update(snapshot, WIDTH, HEIGHT);
+
+		layer.invalidate();
+		check("invalidated", layer.isValid(snapshot, WIDTH, HEIGHT), false);
+
+		Checks.exitIfFailed();
+	}
+
+	/**
+	 * Returns the first static body of the snapshot.
+	 * @param snapshot the snapshot
+	 * @return {@link SimulationBody}
+	 */
+	private static SimulationBody findStatic(WorldSnapshot snapshot) {
+		for (int i = 0; i < snapshot.getBodyCount(); i++) {
+			if (snapshot.isStatic(i)) return snapshot.getBody(i);
+		}
+		throw new IllegalStateException("The scene has no static bodies.");
+	}
+
+	/**
+	 * Checks the validity of the layer.
+	 * @param name the check name
+	 * @param actual the validity of the layer
+	 * @param expected the expected validity
+	 */
+	private static void check(String name, boolean actual, boolean expected) {
+		Checks.check(name, actual == expected, "valid: " + actual);
+	}
+}
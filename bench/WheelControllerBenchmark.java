@@ -0,0 +1,252 @@
+import java.awt.Color;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * Checks that a {@link WheelController} drives wheels like
+ * {@link Wheel#updateBall(Wheel)} does, without allocating, and measures
+ * how its update scales with the number of wheels.
+ * <p>
+ * Two copies of an arena whose floor the wheels know are played with the
+ * same random buttons, one with a {@link Wheel} per body and one with a
+ * controller; their bodies must stay where the other's are, and agree on
+ * which touch the floor, for the first few seconds. Rounding differs a
+ * little, since one pushes through forces and the other through
+ * velocities, and the wheels bump into each other, so after a while the
+ * two drift apart. Then the control loop alone, without stepping the
+ * world, is timed for growing populations, against calling
+ * {@link Wheel#updateBall(Wheel)} per wheel and with the controller split
+ * across a pool.
+ * <p>
+ * Usage: <code>WheelControllerBenchmark [--wheels 2,1000,10000,50000] [--threads n]</code>
+ * <p>
+ * Exits with status 1 if any check fails.
+ */
+public class WheelControllerBenchmark {
+	/** The default populations */
+	private static final int[] DEFAULT_WHEELS = { 2, 1000, 10000, 50000 };
+
+	/** The steps the two arenas must stay together for */
+	private static final int TOGETHER = 150;
+
+	/** The number of timed updates per population */
+	private static final int UPDATES = 200;
+
+	/**
+	 * The game's arena, widened for the wheels, with wheels that know its floor.
+	 * <p>
+	 * The arena is added with the wheels since its width depends on how
+	 * many there are.
+	 */
+	static final class Arena extends Simulation {
+		/** The wheels */
+		Wheel[] wheels;
+
+		/** The controller; null if the wheels drive themselves */
+		WheelController controller;
+
+		@Override
+		protected void initializeWorld() {}
+
+		/**
+		 * Adds an arena wide enough for the given number of wheels and the
+		 * wheels in a grid on its floor, either side of the hill.
+		 * @param count the number of wheels
+		 * @param controlled true to drive them with a controller
+		 */
+		void addWheels(int count, boolean controlled) {
+			final int columns = 200;
+			// the hill reaches 4 m either side of the middle
+			BallColliderScene.createArena(this.world, 6.0 + columns + 2.0);
+			this.wheels = new Wheel[count];
+			if (controlled) {
+				this.controller = new WheelController(this.world, BallColliderScene.FLOOR_BODY);
+			}
+			for (int i = 0; i < count; i++) {
+				int column = i % columns;
+				double x = (column % 2 == 0 ? 1.0 : -1.0) * (6.0 + (column / 2) * 2.0);
+				double y = -2.4 + (i / columns) * 1.1;
+				this.wheels[i] = new Wheel(this.world, x, y, Color.red, Color.blue, BallColliderScene.FLOOR_BODY);
+				if (controlled) {
+					this.controller.add(this.wheels[i].getBody());
+				} else {
+					this.wheels[i].checkFloorColissions();
+				}
+			}
+		}
+
+		/**
+		 * Sets the buttons of every wheel.
+		 * @param buttons the buttons of each wheel
+		 */
+		void setButtons(int[] buttons) {
+			for (int i = 0; i < this.wheels.length; i++) {
+				if (this.controller != null) {
+					this.controller.setInputBits(i, buttons[i]);
+				} else {
+					this.wheels[i].setInputBits(buttons[i]);
+				}
+			}
+		}
+
+		/**
+		 * Pushes the wheels by their buttons, without stepping.
+		 */
+		void control() {
+			if (this.controller != null) {
+				this.controller.update(this.world.getSettings().getStepFrequency());
+			} else {
+				for (int i = 0; i < this.wheels.length; i++) {
+					this.wheels[i].updateBall(this.wheels[(i + 1) % this.wheels.length]);
+				}
+			}
+		}
+
+		@Override
+		protected void update(double elapsedTime) {
+			this.control();
+			super.update(elapsedTime);
+		}
+	}
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		int[] populations = DEFAULT_WHEELS;
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		for (int i = 0; i < args.length; i++) {
+			if ("--wheels".equals(args[i])) {
+				String[] values = args[++i].split(",");
+				populations = new int[values.length];
+				for (int j = 0; j < values.length; j++) {
+					populations[j] = Integer.parseInt(values[j].trim());
+				}
+			} else if ("--threads".equals(args[i])) {
+				threads = Integer.parseInt(args[++i]);
+			} else {
+				throw new IllegalArgumentException("Unknown argument: " + args[i]);
+			}
+		}
+
+		compare();
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		boolean allocationFree = true;
+		Checks.print("control loop (us)", String.format("%12s %12s %12s %14s", "updateBall", "controller", threads + " threads", "bytes/update"));
+		for (int wheels : populations) {
+			double perWheel = time(wheels, false, null, null);
+			long[] bytes = new long[1];
+			double controller = time(wheels, true, null, bytes);
+			long[] parallelBytes = new long[1];
+			double parallel = time(wheels, true, pool, parallelBytes);
+			Checks.print(wheels + " wheels", String.format(Locale.ROOT, "%12.1f %12.1f %12.1f %7d, %5d",
+					perWheel, controller, parallel, bytes[0], parallelBytes[0]));
+			allocationFree &= bytes[0] == 0;
+		}
+		pool.shutdown();
+		Checks.check("controller allocation", allocationFree, "bytes per sequential update");
+
+		Checks.exitIfFailed();
+	}
+
+	/**
+	 * Plays the same buttons with wheels and with a controller, and checks
+	 * their bodies stay together.
+	 */
+	private static void compare() {
+		final int wheels = 16;
+		Arena own = new Arena();
+		own.addWheels(wheels, false);
+		Arena controlled = new Arena();
+		controlled.addWheels(wheels, true);
+		final double step = own.getWorld().getSettings().getStepFrequency();
+
+		Random random = new Random(5);
+		int[] buttons = new int[wheels];
+		int together = -1;
+		int grounded = 0;
+		boolean sameGround = true;
+		for (int s = 0; s < 600; s++) {
+			for (int i = 0; i < wheels; i++) {
+				if (random.nextInt(30) == 0) buttons[i] = random.nextInt(1 << InputQueue.BUTTONS);
+			}
+			own.setButtons(buttons);
+			controlled.setButtons(buttons);
+			own.update(step);
+			controlled.update(step);
+
+			double difference = 0.0;
+			for (int i = 0; i < wheels; i++) {
+				Vector2 a = own.wheels[i].getBody().getTransform().getTranslation();
+				Vector2 b = controlled.controller.getBody(i).getTransform().getTranslation();
+				difference = Math.max(difference, a.distance(b));
+			}
+			if (difference > 1.0e-9) {
+				together = s;
+				break;
+			}
+			for (int i = 0; i < wheels; i++) {
+				sameGround &= own.wheels[i].isOnGround() == controlled.controller.isOnGround(i);
+				if (own.wheels[i].isOnGround()) grounded++;
+			}
+		}
+		if (together < 0) together = 600;
+		Checks.check("same as updateBall", together >= TOGETHER, "within 1e-9 m for " + together + " steps");
+		Checks.check("same ground state", sameGround && grounded > 0, sameGround ? grounded + " grounded samples" : "differs");
+	}
+
+	/**
+	 * Times the control loop alone.
+	 * @param wheels the number of wheels
+	 * @param controlled true to time a controller, false a wheel per body
+	 * @param pool the pool to split the controller across, or null
+	 * @param bytes receives the bytes allocated per update
+	 * @return double the mean time per update in microseconds
+	 */
+	private static double time(int wheels, boolean controlled, ForkJoinPool pool, long[] bytes) {
+		Arena arena = new Arena();
+		arena.addWheels(wheels, controlled);
+		if (controlled) {
+			arena.controller.setPool(pool);
+		}
+		int[] buttons = new int[wheels];
+		for (int i = 0; i < wheels; i++) {
+			buttons[i] = 1 << (i % 2 == 0 ? InputQueue.LEFT : InputQueue.RIGHT);
+		}
+		arena.setButtons(buttons);
+
+		long elapsed = 0;
+		long allocated = 0;
+		for (int round = 0; round < 2; round++) {
+			elapsed = 0;
+			allocated = 0;
+			for (int u = 0; u < UPDATES; u++) {
+				long b = AllocationCounter.getAllocatedBytes();
+				long start = System.nanoTime();
+				arena.control();
+				elapsed += System.nanoTime() - start;
+				allocated += AllocationCounter.getAllocatedBytes() - b;
+				// undo the push so every update does the same work
+				for (int i = 0; i < wheels; i++) {
+					Body body = arena.wheels[i].getBody();
+					body.getLinearVelocity().zero();
+					body.clearForce();
+				}
+			}
+		}
+		if (bytes != null) {
+			// less the cost of reading the counter
+			long overhead = AllocationCounter.getAllocatedBytes();
+			overhead = AllocationCounter.getAllocatedBytes() - overhead;
+			bytes[0] = Math.max(0, allocated / UPDATES - overhead);
+		}
+		return elapsed / 1000.0 / UPDATES;
+	}
+}
@@ -0,0 +1,255 @@
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.dyn4j.dynamics.Body;
+
+/**
+ * Checks that a {@link WorldState} restores a simulation and measures how
+ * long capturing and restoring take.
+ * <p>
+ * A small arena of wheels is played with random input. A state taken part
+ * way through is restored into the same simulation, which must then capture
+ * the same bytes and have its ground sensors agree with its contacts, and
+ * through a file into a new instance of the scene. Replaying the same input
+ * from the restored state shows how far it drifts from the original run;
+ * after one step it must still be close, and in deterministic mode it must
+ * not drift at all.
+ * <p>
+ * Exits with status 1 if any check fails.
+ */
+public class WorldStateCheck {
+	/**
+	 * The game's arena with more wheels, which know its floor so they can be
+	 * on the ground.
+	 */
+	static final class Arena extends Simulation {
+		/** The number of wheels */
+		static final int WHEELS = 8;
+
+		/** The wheels */
+		Wheel[] wheels;
+
+		@Override
+		protected void initializeWorld() {
+			BallColliderScene.createArena(this.world);
+			this.wheels = new Wheel[WHEELS];
+			for (int i = 0; i < WHEELS; i++) {
+				// dropped from above the hill
+				this.wheels[i] = new Wheel(this.world, -7.0 + 2.0 * i, 1.0 + (i % 3), Color.red, Color.blue, BallColliderScene.FLOOR_BODY);
+				this.wheels[i].persistingFloorColissions();
+			}
+		}
+
+		@Override
+		protected void update(double elapsedTime) {
+			for (int i = 0; i < WHEELS; i++) {
+				this.wheels[i].updateBall(this.wheels[(i + 1) % WHEELS]);
+			}
+			super.update(elapsedTime);
+		}
+
+		@Override
+		public int getPlayerCount() {
+			return WHEELS;
+		}
+
+		@Override
+		public int getPlayerInput(int player) {
+			return this.wheels[player].getInputBits();
+		}
+
+		@Override
+		public void setPlayerInput(int player, int buttons) {
+			this.wheels[player].setInputBits(buttons);
+		}
+	}
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 * @throws IOException if the state can't be written to a temporary file
+	 */
+	public static void main(String[] args) throws IOException {
+		System.setProperty("java.awt.headless", "true");
+
+		// the input of every player for every step
+		final int steps = 1200;
+		final int restoreAt = 600;
+		int[][] input = new int[steps][Arena.WHEELS];
+		Random random = new Random(3);
+		for (int i = 0; i < steps; i++) {
+			for (int j = 0; j < Arena.WHEELS; j++) {
+				input[i][j] = i % 30 == 0 ? random.nextInt(8) : input[Math.max(i - 1, 0)][j];
+			}
+		}
+
+		Arena arena = new Arena();
+		double step = arena.getWorld().getSettings().getStepFrequency();
+		WorldState state = new WorldState();
+		play(arena, input, 0, restoreAt, step);
+		state.capture(arena);
+		double[][] original = new double[steps - restoreAt][];
+		for (int i = restoreAt; i < steps; i++) {
+			play(arena, input, i, i + 1, step);
+			original[i - restoreAt] = positions(arena);
+		}
+		int grounded = 0;
+		for (Wheel wheel : arena.wheels) {
+			if (wheel.isOnGround()) grounded++;
+		}
+
+		state.restore(arena);
+		WorldState again = new WorldState();
+		again.capture(arena);
+		Checks.check("restore then capture", again.getBuffer().equals(state.getBuffer()), state.getSize() + " bytes");
+		Checks.check("ground after restore", groundMatches(arena), grounded + " grounded before");
+
+		// the restored run drifts away from the original since the sleep
+		// times and warm starting impulses aren't restored, slowly at first
+		double[] drift = new double[steps - restoreAt];
+		for (int i = restoreAt; i < steps; i++) {
+			play(arena, input, i, i + 1, step);
+			drift[i - restoreAt] = maximumDifference(original[i - restoreAt], positions(arena));
+		}
+		Checks.check("replay after restore", drift[0] < 1.0e-3, String.format(Locale.ROOT, "largest difference %.1e m after 1 step, %.1e m after 60, %.1e m after %d",
+				drift[0], drift[59], drift[drift.length - 1], drift.length));
+
+		// in deterministic mode it repeats the original exactly
+		Arena exact = new Arena();
+		exact.getWorld().setDeterministic(true);
+		WorldState exactState = new WorldState();
+		play(exact, input, 0, restoreAt, step);
+		exactState.capture(exact);
+		play(exact, input, restoreAt, steps, step);
+		double[] end = positions(exact);
+		exactState.restore(exact);
+		play(exact, input, restoreAt, steps, step);
+		Checks.check("deterministic replay", Arrays.equals(end, positions(exact)), String.format(Locale.ROOT, "largest difference %.1e m after %d",
+				maximumDifference(end, positions(exact)), steps - restoreAt));
+
+		File file = File.createTempFile("world", ".state");
+		try {
+			state.write(file);
+			WorldState read = new WorldState();
+			read.read(file);
+			Arena fresh = new Arena();
+			read.restore(fresh);
+			again.capture(fresh);
+			Checks.check("file into new scene", again.getBuffer().equals(state.getBuffer()), file.length() + " bytes on disk");
+		} finally {
+			file.delete();
+		}
+
+		// the cost with many bodies
+		WorldStepBenchmark.WheelArena big = new WorldStepBenchmark.WheelArena();
+		big.addWheels(1000, true);
+		for (int i = 0; i < 120; i++) {
+			big.update(step);
+		}
+		Histogram capture = new Histogram();
+		Histogram restore = new Histogram();
+		long captureBytes = 0;
+		long restoreBytes = 0;
+		// grow the buffer and compile capture first
+		for (int i = 0; i < 1000; i++) {
+			state.capture(big);
+		}
+		for (int i = 0; i < 500; i++) {
+			long b0 = AllocationCounter.getAllocatedBytes();
+			long t0 = System.nanoTime();
+			state.capture(big);
+			long t1 = System.nanoTime();
+			long b1 = AllocationCounter.getAllocatedBytes();
+			state.restore(big);
+			long t2 = System.nanoTime();
+			restoreBytes += AllocationCounter.getAllocatedBytes() - b1;
+			captureBytes += b1 - b0;
+			capture.record(t1 - t0);
+			restore.record(t2 - t1);
+		}
+		// less the cost of reading the counter
+		long overhead = AllocationCounter.getAllocatedBytes();
+		overhead = AllocationCounter.getAllocatedBytes() - overhead;
+		captureBytes = Math.max(0, captureBytes / 500 - overhead);
+		restoreBytes = Math.max(0, restoreBytes / 500 - overhead);
+		Checks.check("capture every step", captureBytes == 0, String.format(Locale.ROOT, "1000 wheels, %d bytes: p50 %.1f us, p99 %.1f us, %d bytes allocated",
+				state.getSize(),
+				capture.getPercentile(50) / 1000.0,
+				capture.getPercentile(99) / 1000.0,
+				captureBytes));
+		Checks.print("restore", String.format(Locale.ROOT, "1000 wheels: p50 %.1f us, p99 %.1f us, %d bytes allocated, with contact detection",
+				restore.getPercentile(50) / 1000.0,
+				restore.getPercentile(99) / 1000.0,
+				restoreBytes));
+
+		Checks.exitIfFailed();
+	}
+
+	/**
+	 * Steps the arena with the given input.
+	 * @param arena the arena
+	 * @param input the input of every player for every step
+	 * @param from the first step
+	 * @param to the step to stop before
+	 * @param step the step time
+	 */
+	private static void play(Arena arena, int[][] input, int from, int to, double step) {
+		for (int i = from; i < to; i++) {
+			for (int j = 0; j < Arena.WHEELS; j++) {
+				arena.setPlayerInput(j, input[i][j]);
+			}
+			arena.update(step);
+		}
+	}
+
+	/**
+	 * Returns the x and y of every body.
+	 * @param arena the arena
+	 * @return double[]
+	 */
+	private static double[] positions(Arena arena) {
+		List<Body> bodies = arena.getWorld().getBodies();
+		double[] positions = new double[bodies.size() * 2];
+		for (int i = 0; i < bodies.size(); i++) {
+			positions[i * 2] = bodies.get(i).getTransform().getTranslationX();
+			positions[i * 2 + 1] = bodies.get(i).getTransform().getTranslationY();
+		}
+		return positions;
+	}
+
+	/**
+	 * Returns the largest difference between the given arrays.
+	 * @param a the first array
+	 * @param b the second array
+	 * @return double
+	 */
+	private static double maximumDifference(double[] a, double[] b) {
+		double max = 0.0;
+		for (int i = 0; i < a.length; i++) {
+			max = Math.max(max, Math.abs(a[i] - b[i]));
+		}
+		return max;
+	}
+
+	/**
+	 * Returns true if every wheel is on the ground exactly when it touches the floor.
+	 * @param arena the arena
+	 * @return boolean
+	 */
+	private static boolean groundMatches(Arena arena) {
+		for (Wheel wheel : arena.wheels) {
+			boolean touches = false;
+			List<Body> bodies = wheel.getBody().getInContactBodies(false);
+			for (int i = 0; i < bodies.size(); i++) {
+				touches |= bodies.get(i).getUserData() == BallColliderScene.FLOOR_BODY;
+			}
+			if (touches != wheel.isOnGround()) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,190 @@
+import java.awt.Color;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures how a world step scales with the number of {@link Wheel}s in the
+ * {@link BallColliderScene} arena.
+ * <p>
+ * For every population the arena is built headlessly, wide enough for the
+ * wheels to be dropped in a grid of a few rows above the floor, and driven by
+ * a fixed input pattern so every run does the same work. The warmup lets
+ * them land, so the measured steps are of wheels rolling into each other on
+ * the floor rather than falling; the mean number of contacts per step is
+ * reported to show it. Each population is run with and without the per wheel
+ * step and contact listeners ({@link Wheel#checkFloorColissions()},
+ * {@link Wheel#persistingFloorColissions()} and {@link Wheel#checkBallColissions()}).
+ * <p>
+ * One CSV row is written per run with the step latency percentiles and the
+ * bytes allocated per step, so the output of two commits can be diffed.
+ * <p>
+ * Usage: <code>WorldStepBenchmark [--wheels 2,100,1000,10000] [--warmup steps] [--steps steps] [--out file]</code>
+ */
+public class WorldStepBenchmark {
+	/** The default populations */
+	private static final int[] DEFAULT_WHEELS = { 2, 100, 1000, 10000 };
+
+	/** The default number of steps to run before measuring */
+	private static final int DEFAULT_WARMUP = 120;
+
+	/** The default number of measured steps */
+	private static final int DEFAULT_STEPS = 300;
+
+	/** The CSV header */
+	private static final String HEADER = "wheels,listeners,steps,contacts,mean_us,p50_us,p90_us,p99_us,max_us,bytes_per_step,mb_per_s";
+
+	/** The rows of wheels dropped on the floor */
+	private static final int ROWS = 5;
+
+	/**
+	 * The arena with any number of wheels.
+	 * <p>
+	 * The wheels are added after construction since the population
+	 * isn't known yet when {@link #initializeWorld()} is called.
+	 */
+	static final class WheelArena extends Simulation {
+		/** The wheels */
+		private final List<Wheel> wheels = new ArrayList<Wheel>();
+
+		/** The number of steps taken */
+		private long steps;
+
+		@Override
+		protected void initializeWorld() {}
+
+		/**
+		 * Adds an arena wide enough for the given number of wheels in
+		 * {@link WorldStepBenchmark#ROWS} rows, and the wheels in a grid
+		 * between its walls.
+		 * @param count the number of wheels
+		 * @param listeners true to register the per wheel listeners
+		 */
+		void addWheels(int count, boolean listeners) {
+			// one meter wheels a little apart, a meter or two from the walls
+			final int columns = Math.max(17, (count + ROWS - 1) / ROWS);
+			final double halfWidth = Math.max(BallColliderScene.HALF_WIDTH, columns * 0.5 + 2.0);
+			BallColliderScene.createArena(this.world, halfWidth);
+			for (int i = 0; i < count; i++) {
+				double x = -columns * 0.5 + 0.5 + (i % columns) * 1.0;
+				double y = 1.0 + (i / columns) * 1.1;
+				Wheel wheel = new Wheel(this.world, x, y, Color.red, Color.blue, BallColliderScene.FLOOR_BODY);
+				if (listeners) {
+					wheel.checkBallColissions();
+					wheel.checkFloorColissions();
+					wheel.persistingFloorColissions();
+				}
+				this.wheels.add(wheel);
+			}
+		}
+
+		@Override
+		protected void update(double elapsedTime) {
+			int n = this.wheels.size();
+			for (int i = 0; i < n; i++) {
+				Wheel wheel = this.wheels.get(i);
+				// every wheel changes direction every two seconds, half
+				// of them out of phase, and jumps once a second
+				boolean right = ((this.steps / 120) + i) % 2 == 0;
+				wheel.setRight(right);
+				wheel.setLeft(!right);
+				wheel.setUp(this.steps % 60 == i % 60);
+				wheel.updateBall(this.wheels.get((i + 1) % n));
+			}
+			this.steps++;
+			super.update(elapsedTime);
+		}
+	}
+
+	/**
+	 * Entry point.
+	 * @param args command line arguments
+	 * @throws IOException if the results can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+		System.setProperty("java.awt.headless", "true");
+
+		int[] populations = DEFAULT_WHEELS;
+		int warmup = DEFAULT_WARMUP;
+		int steps = DEFAULT_STEPS;
+		String file = null;
+		for (int i = 0; i < args.length; i++) {
+			if ("--wheels".equals(args[i])) {
+				String[] values = args[++i].split(",");
+				populations = new int[values.length];
+				for (int j = 0; j < values.length; j++) {
+					populations[j] = Integer.parseInt(values[j].trim());
+				}
+			} else if ("--warmup".equals(args[i])) {
+				warmup = Integer.parseInt(args[++i]);
+			} else if ("--steps".equals(args[i])) {
+				steps = Integer.parseInt(args[++i]);
+			} else if ("--out".equals(args[i])) {
+				file = args[++i];
+			} else {
+				throw new IllegalArgumentException("Unknown argument: " + args[i]);
+			}
+		}
+
+		PrintWriter out = file != null ? new PrintWriter(new FileWriter(file)) : new PrintWriter(System.out, true);
+		out.println(HEADER);
+		for (int wheels : populations) {
+			out.println(run(wheels, false, warmup, steps));
+			out.println(run(wheels, true, warmup, steps));
+			out.flush();
+		}
+		if (file != null) {
+			out.close();
+		}
+	}
+
+	/**
+	 * Measures one population.
+	 * @param wheels the number of wheels
+	 * @param listeners true to register the per wheel listeners
+	 * @param warmup the number of steps before measuring
+	 * @param steps the number of measured steps
+	 * @return String the CSV row
+	 */
+	static String run(int wheels, boolean listeners, int warmup, int steps) {
+		WheelArena arena = new WheelArena();
+		arena.addWheels(wheels, listeners);
+
+		final double step = arena.getWorld().getSettings().getStepFrequency();
+		for (int i = 0; i < warmup; i++) {
+			arena.update(step);
+		}
+
+		Histogram latency = new Histogram();
+		long contacts = 0;
+		long bytes = AllocationCounter.getAllocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < steps; i++) {
+			long t0 = System.nanoTime();
+			arena.update(step);
+			latency.record(System.nanoTime() - t0);
+			contacts += arena.getWorld().getContactManager().getContactCount();
+		}
+		long elapsed = System.nanoTime() - start;
+		bytes = AllocationCounter.isSupported() ? AllocationCounter.getAllocatedBytes() - bytes : -1;
+
+		double bytesPerStep = bytes >= 0 ? (double)bytes / steps : -1;
+		double mbPerSecond = bytes >= 0 ? bytes / (elapsed / 1.0e9) / (1024.0 * 1024.0) : -1;
+
+		return String.format(Locale.ROOT, "%d,%b,%d,%.0f,%.1f,%.1f,%.1f,%.1f,%.1f,%.0f,%.2f",
+				wheels,
+				listeners,
+				steps,
+				(double)contacts / steps,
+				latency.getMean() / 1000.0,
+				latency.getPercentile(50) / 1000.0,
+				latency.getPercentile(90) / 1000.0,
+				latency.getPercentile(99) / 1000.0,
+				latency.getMax() / 1000.0,
+				bytesPerStep,
+				mbPerSecond);
+	}
+}
@@ -0,0 +1,63 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reads the number of bytes allocated by a thread from the JVM.
+ * <p>
+ * Relies on the HotSpot extension of the thread MX bean; on JVMs
+ * without it {@link #isSupported()} returns false and the counts
+ * are always -1.
+ */
+public final class AllocationCounter {
+	/** The HotSpot thread bean or null if not available */
+	private static final com.sun.management.ThreadMXBean THREADS = getThreadBean();
+
+	/** Hidden constructor */
+	private AllocationCounter() {}
+
+	/**
+	 * Returns the HotSpot thread bean with allocation counting enabled.
+	 * @return com.sun.management.ThreadMXBean or null if not available
+	 */
+	private static com.sun.management.ThreadMXBean getThreadBean() {
+		try {
+			java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if (bean instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+				if (threads.isThreadAllocatedMemorySupported()) {
+					threads.setThreadAllocatedMemoryEnabled(true);
+					return threads;
+				}
+			}
+		} catch (UnsupportedOperationException e) {
+		} catch (SecurityException e) {
+		}
+		return null;
+	}
+
+	/**
+	 * Returns true if allocations can be counted on this JVM.
+	 * @return boolean
+	 */
+	public static boolean isSupported() {
+		return THREADS != null;
+	}
+
+	/**
+	 * Returns the total number of bytes allocated by the current thread.
+	 * @return long the bytes or -1 if not supported
+	 */
+	public static long getAllocatedBytes() {
+		if (THREADS == null) return -1;
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Returns the total number of bytes allocated by the given thread.
+	 * @param threadId the thread id
+	 * @return long the bytes or -1 if not supported or the thread isn't alive
+	 */
+	public static long getAllocatedBytes(long threadId) {
+		if (THREADS == null) return -1;
+		return THREADS.getThreadAllocatedBytes(threadId);
+	}
+}
@@ -0,0 +1,498 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Counts the bytes a loop, such as the render thread, allocates per pass
+ * and per phase, and warns when a pass allocates more than its budget.
+ * <p>
+ * Driven like a {@link PhaseTimer}, usually by one: attach it with
+ * {@link PhaseTimer#setAllocationMonitor(AllocationMonitor)} and every
+ * begin, lap and end of the timer also reads the thread's allocated bytes
+ * with the {@link AllocationCounter}. So only allocations made by the
+ * owning thread are counted, whatever other threads do.
+ * <p>
+ * Once a window has passed, {@link #end()} publishes the bytes of every
+ * phase, the passes over budget and the garbage collections the JVM made
+ * during the window as a {@link Window}. If any pass was over budget the
+ * {@link Listener} is told, on the owning thread; by default it prints a
+ * warning to standard error. Warning once per window rather than per pass
+ * keeps the warning from allocating in the loop it watches.
+ * <p>
+ * Counts nothing if the JVM can't count allocations per thread.
+ */
+public final class AllocationMonitor {
+	/** The default window in seconds */
+	public static final double DEFAULT_WINDOW = 1.0;
+
+	/** No budget */
+	public static final long NO_BUDGET = Long.MAX_VALUE;
+
+	/** The number of garbage collections since the first monitor was made */
+	private static final AtomicLong collections = new AtomicLong();
+
+	/** The time spent in garbage collections since the first monitor was made in nanoseconds */
+	private static final AtomicLong collectionTime = new AtomicLong();
+
+	/** True once the garbage collectors are listened to; guarded by the class */
+	private static boolean listening;
+
+	/**
+	 * Told about windows in which passes allocated more than the budget.
+	 */
+	public interface Listener {
+		/**
+		 * Called on the monitored thread when a window with passes over
+		 * budget is published.
+		 * @param monitor the monitor
+		 * @param window the window
+		 */
+		public void overBudget(AllocationMonitor monitor, Window window);
+	}
+
+	/** Prints a warning to standard error */
+	public static final Listener WARNING = new Listener() {
+		/* (non-Javadoc)
+		 * @see AllocationMonitor.Listener#overBudget(AllocationMonitor, AllocationMonitor.Window)
+		 */
+		@Override
+		public void overBudget(AllocationMonitor monitor, Window window) {
+			System.err.println(String.format("Warning: %s allocated more than %d bytes in %d of %d passes, at most %d bytes; %d garbage collections took %.1f ms",
+					monitor.getName(),
+					monitor.getBudget(),
+					window.getOverBudgetCount(),
+					window.getCount(),
+					window.getMax(monitor.getTotalPhase()),
+					window.getCollectionCount(),
+					window.getCollectionTime() / 1.0e6));
+		}
+	};
+
+	/**
+	 * The allocations of every phase over one window. Never changes once published.
+	 */
+	public static final class Window {
+		/** The window number, counting from one */
+		private final long sequence;
+
+		/** The time the window started in nanoseconds */
+		private final long start;
+
+		/** The duration of the window in nanoseconds */
+		private final long duration;
+
+		/** The number of passes */
+		private final long count;
+
+		/** The number of passes over budget */
+		private final long overBudget;
+
+		/** The number of garbage collections */
+		private final long collections;
+
+		/** The time spent in garbage collections in nanoseconds */
+		private final long collectionTime;
+
+		/** The mean bytes per pass, per phase */
+		private final double[] mean;
+
+		/** The 99th percentile bytes per pass, per phase */
+		private final long[] p99;
+
+		/** The most bytes in a pass, per phase */
+		private final long[] max;
+
+		/**
+		 * Constructor.
+		 * @param sequence the window number
+		 * @param start the time the window started in nanoseconds
+		 * @param duration the duration of the window in nanoseconds
+		 * @param overBudget the number of passes over budget
+		 * @param collections the number of garbage collections
+		 * @param collectionTime the time spent in garbage collections in nanoseconds
+		 * @param histograms the histogram of each phase
+		 */
+		private Window(long sequence, long start, long duration, long overBudget, long collections, long collectionTime, Histogram[] histograms) {
+			final int n = histograms.length;
+			this.sequence = sequence;
+			this.start = start;
+			this.duration = duration;
+			this.count = histograms[n - 1].getCount();
+			this.overBudget = overBudget;
+			this.collections = collections;
+			this.collectionTime = collectionTime;
+			this.mean = new double[n];
+			this.p99 = new long[n];
+			this.max = new long[n];
+			for (int i = 0; i < n; i++) {
+				this.mean[i] = histograms[i].getMean();
+				this.p99[i] = histograms[i].getPercentile(99);
+				this.max[i] = histograms[i].getMax();
+			}
+		}
+
+		/**
+		 * Returns the window number, counting from one.
+		 * @return long
+		 */
+		public long getSequence() {
+			return this.sequence;
+		}
+
+		/**
+		 * Returns the time the window started, from {@link System#nanoTime()}.
+		 * @return long
+		 */
+		public long getStart() {
+			return this.start;
+		}
+
+		/**
+		 * Returns the duration of the window in nanoseconds.
+		 * @return long
+		 */
+		public long getDuration() {
+			return this.duration;
+		}
+
+		/**
+		 * Returns the number of passes.
+		 * @return long
+		 */
+		public long getCount() {
+			return this.count;
+		}
+
+		/**
+		 * Returns the number of passes that allocated more than the budget.
+		 * @return long
+		 */
+		public long getOverBudgetCount() {
+			return this.overBudget;
+		}
+
+		/**
+		 * Returns the number of garbage collections during the window, by any thread.
+		 * @return long
+		 */
+		public long getCollectionCount() {
+			return this.collections;
+		}
+
+		/**
+		 * Returns the time spent in garbage collections during the window in nanoseconds.
+		 * @return long
+		 */
+		public long getCollectionTime() {
+			return this.collectionTime;
+		}
+
+		/**
+		 * Returns the mean bytes the given phase allocated per pass.
+		 * @param phase the phase index
+		 * @return double
+		 */
+		public double getMean(int phase) {
+			return this.mean[phase];
+		}
+
+		/**
+		 * Returns the bytes below which the given phase allocated in 99% of the passes.
+		 * @param phase the phase index
+		 * @return long
+		 */
+		public long getP99(int phase) {
+			return this.p99[phase];
+		}
+
+		/**
+		 * Returns the most bytes the given phase allocated in a pass.
+		 * @param phase the phase index
+		 * @return long
+		 */
+		public long getMax(int phase) {
+			return this.max[phase];
+		}
+	}
+
+	/** The name of the monitored loop */
+	private final String name;
+
+	/** The phase names, then "total" */
+	private final String[] phases;
+
+	/** The bytes per pass of each phase in the current window */
+	private final Histogram[] histograms;
+
+	/** The bytes reading the counter allocates, taken off every reading */
+	private final long overhead;
+
+	/** The window length in nanoseconds */
+	private volatile long window;
+
+	/** The most bytes a pass may allocate */
+	private volatile long budget;
+
+	/** Told about windows with passes over budget */
+	private volatile Listener listener;
+
+	/** The time the current window started */
+	private long windowStart;
+
+	/** The garbage collections when the current window started */
+	private long windowCollections;
+
+	/** The garbage collection time when the current window started */
+	private long windowCollectionTime;
+
+	/** The passes over budget in the current window */
+	private long overBudget;
+
+	/** The allocated bytes when the current pass started */
+	private long passStart;
+
+	/** The allocated bytes at the last lap */
+	private long last;
+
+	/** The number of readings in the current pass */
+	private int readings;
+
+	/** The number of windows published */
+	private long sequence;
+
+	/** The last complete window */
+	private volatile Window published;
+
+	/**
+	 * Constructor.
+	 * @param name the name of the monitored loop
+	 * @param phases the phase names, in the order of their indices
+	 */
+	public AllocationMonitor(String name, String... phases) {
+		listen();
+		this.name = name;
+		this.phases = new String[phases.length + 1];
+		System.arraycopy(phases, 0, this.phases, 0, phases.length);
+		this.phases[phases.length] = "total";
+		this.histograms = new Histogram[this.phases.length];
+		for (int i = 0; i < this.histograms.length; i++) {
+			this.histograms[i] = new Histogram();
+		}
+		this.window = (long)(DEFAULT_WINDOW * HeadlessSimulation.NANO_TO_BASE);
+		this.budget = NO_BUDGET;
+		this.listener = WARNING;
+
+		// the cost of reading the counter itself, which some JVMs allocate for
+		long overhead = 0;
+		if (AllocationCounter.isSupported()) {
+			overhead = Long.MAX_VALUE;
+			for (int i = 0; i < 10; i++) {
+				long bytes = AllocationCounter.getAllocatedBytes();
+				overhead = Math.min(overhead, AllocationCounter.getAllocatedBytes() - bytes);
+			}
+		}
+		this.overhead = overhead;
+		this.windowStart = System.nanoTime();
+		this.windowCollections = collections.get();
+		this.windowCollectionTime = collectionTime.get();
+	}
+
+	/**
+	 * Starts counting the time and number of garbage collections, once.
+	 */
+	private static synchronized void listen() {
+		if (listening) return;
+		listening = true;
+		NotificationListener listener = new NotificationListener() {
+			/* (non-Javadoc)
+			 * @see javax.management.NotificationListener#handleNotification(javax.management.Notification, java.lang.Object)
+			 */
+			@Override
+			public void handleNotification(Notification notification, Object handback) {
+				if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+				GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData)notification.getUserData());
+				collections.incrementAndGet();
+				collectionTime.addAndGet(info.getGcInfo().getDuration() * 1000000L);
+			}
+		};
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (collector instanceof NotificationEmitter) {
+				((NotificationEmitter)collector).addNotificationListener(listener, null, null);
+			}
+		}
+	}
+
+	/**
+	 * Starts a pass.
+	 */
+	public void begin() {
+		long bytes = AllocationCounter.getAllocatedBytes();
+		this.passStart = bytes;
+		this.last = bytes;
+		this.readings = 1;
+	}
+
+	/**
+	 * Ends the given phase, recording the bytes allocated since the
+	 * previous lap or the start of the pass.
+	 * @param phase the phase index
+	 */
+	public void lap(int phase) {
+		long bytes = AllocationCounter.getAllocatedBytes();
+		this.histograms[phase].record(bytes - this.last - this.overhead);
+		this.last = bytes;
+		this.readings++;
+	}
+
+	/**
+	 * Ends the pass, recording its total bytes, and publishes the window if it has passed.
+	 */
+	public void end() {
+		long bytes = AllocationCounter.getAllocatedBytes();
+		long total = bytes - this.passStart - this.readings * this.overhead;
+		this.histograms[this.histograms.length - 1].record(total);
+		if (total > this.budget) {
+			this.overBudget++;
+		}
+
+		long now = System.nanoTime();
+		long duration = now - this.windowStart;
+		if (duration >= this.window) {
+			long gcs = collections.get();
+			long gcTime = collectionTime.get();
+			Window window = new Window(++this.sequence, this.windowStart, duration, this.overBudget,
+					gcs - this.windowCollections, gcTime - this.windowCollectionTime, this.histograms);
+			this.published = window;
+			for (int i = 0; i < this.histograms.length; i++) {
+				this.histograms[i].reset();
+			}
+			this.windowStart = now;
+			this.windowCollections = gcs;
+			this.windowCollectionTime = gcTime;
+			this.overBudget = 0;
+
+			Listener listener = this.listener;
+			if (window.getOverBudgetCount() > 0 && listener != null) {
+				listener.overBudget(this, window);
+			}
+		}
+	}
+
+	/**
+	 * Returns the last complete window.
+	 * @return {@link Window} null until the first window has passed
+	 */
+	public Window getWindow() {
+		return this.published;
+	}
+
+	/**
+	 * Returns the name of the monitored loop.
+	 * @return String
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Returns the number of phases, including the total.
+	 * @return int
+	 */
+	public int getPhaseCount() {
+		return this.phases.length;
+	}
+
+	/**
+	 * Returns the name of the given phase.
+	 * @param phase the phase index
+	 * @return String
+	 */
+	public String getPhaseName(int phase) {
+		return this.phases[phase];
+	}
+
+	/**
+	 * Returns the index of the phase holding the total bytes of each pass.
+	 * @return int
+	 */
+	public int getTotalPhase() {
+		return this.phases.length - 1;
+	}
+
+	/**
+	 * Returns the most bytes a pass may allocate before it counts as over budget.
+	 * @return long {@link #NO_BUDGET} if there's no budget
+	 */
+	public long getBudget() {
+		return this.budget;
+	}
+
+	/**
+	 * Sets the most bytes a pass may allocate before it counts as over budget.
+	 * @param budget the budget in bytes; {@link #NO_BUDGET} by default
+	 * @throws IllegalArgumentException if budget is less than zero
+	 */
+	public void setBudget(long budget) {
+		if (budget < 0) throw new IllegalArgumentException("The budget must be zero or greater.");
+		this.budget = budget;
+	}
+
+	/**
+	 * Returns the listener told about windows with passes over budget.
+	 * @return {@link Listener} null if none
+	 */
+	public Listener getListener() {
+		return this.listener;
+	}
+
+	/**
+	 * Sets the listener told about windows with passes over budget.
+	 * @param listener the listener; {@link #WARNING} by default, null for none
+	 */
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Returns the window length in seconds.
+	 * @return double
+	 */
+	public double getWindowLength() {
+		return this.window / HeadlessSimulation.NANO_TO_BASE;
+	}
+
+	/**
+	 * Sets the window length; takes effect from the current window.
+	 * @param window the window length in seconds
+	 * @throws IllegalArgumentException if window is less than or equal to zero
+	 */
+	public void setWindowLength(double window) {
+		if (window <= 0) throw new IllegalArgumentException("The window must be greater than zero.");
+		this.window = (long)(window * HeadlessSimulation.NANO_TO_BASE);
+	}
+
+	/**
+	 * Returns the number of garbage collections the JVM has made since the
+	 * first monitor was made.
+	 * @return long
+	 */
+	public static long getCollectionCount() {
+		return collections.get();
+	}
+
+	/**
+	 * Returns the time the JVM has spent in garbage collections since the
+	 * first monitor was made, in nanoseconds.
+	 * @return long
+	 */
+	public static long getCollectionTime() {
+		return collectionTime.get();
+	}
+}
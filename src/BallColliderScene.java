@@ -0,0 +1,158 @@
+import java.awt.Color;
+
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.MassType;
+
+/**
+ * The two player wheel arena, without any window attached.
+ * <p>
+ * Used by {@link BallCollider} for the interactive game and by
+ * {@link HeadlessSimulation} to step the same world on machines
+ * without a display.
+ */
+public class BallColliderScene extends Simulation
+{
+	/** The user data of the floor and hill, which the wheels stand and jump on */
+	static final Object FLOOR_BODY = new Object();
+	
+	/** The distance from the middle of the arena to each wall */
+	static final double HALF_WIDTH = 10.0;
+	
+	Wheel wheel1;
+	Wheel wheel2;
+
+	/** Applies the queued key transitions to the wheel of each player */
+	private final InputQueue.Handler inputHandler = new InputQueue.Handler() {
+		@Override
+		public void apply(int target, int button, boolean pressed) {
+			getWheel(target).setInput(button, pressed);
+		}
+	};
+
+	/**
+	 * Adds the floor, walls and hill of the arena to the given world.
+	 * @param world the world
+	 * @return {@link SimulationBody} the floor
+	 */
+	static SimulationBody createArena(World world) {
+		return createArena(world, HALF_WIDTH);
+	}
+
+	/**
+	 * Adds the floor, walls and hill of an arena of the given width to the
+	 * given world, for more wheels than the game has.
+	 * <p>
+	 * The floor reaches 15 past each wall, the hill stays in the middle.
+	 * @param world the world
+	 * @param halfWidth the distance from the middle to each wall
+	 * @return {@link SimulationBody} the floor
+	 */
+	static SimulationBody createArena(World world, double halfWidth) {
+		SimulationBody floor = new SimulationBody();
+		floor.addFixture(Geometry.createRectangle(2.0 * halfWidth + 30.0, 0.2));
+		floor.setMass(MassType.INFINITE);
+		floor.translate(0, -3);
+		floor.setUserData(FLOOR_BODY);
+		world.addBody(floor);
+
+
+		// some bounding shapes
+		SimulationBody right = new SimulationBody();
+		right.addFixture(Geometry.createRectangle(0.2, 20));
+		right.setMass(MassType.INFINITE);
+		right.translate(halfWidth, 7);
+		world.addBody(right);
+
+		SimulationBody left = new SimulationBody();
+		left.addFixture(Geometry.createRectangle(0.2, 20));
+		left.setMass(MassType.INFINITE);
+		left.translate(-halfWidth, 7);
+		world.addBody(left);
+
+		//THE HILL
+		SimulationBody mid = new SimulationBody();
+		mid.addFixture(Geometry.createRectangle(3, 3));
+		mid.setMass(MassType.INFINITE);
+		mid.setUserData(FLOOR_BODY);
+		mid.translate(0,-1.30);
+		world.addBody(mid);
+
+		SimulationBody leftMid = new SimulationBody();
+		leftMid.addFixture(Geometry.createRightTriangle(3, 3));
+		leftMid.setMass(MassType.INFINITE);
+		leftMid.setUserData(FLOOR_BODY);
+		leftMid.translate(2.5, -1.8);
+		world.addBody(leftMid);
+
+		SimulationBody rightMid = new SimulationBody();
+		rightMid.addFixture(Geometry.createRightTriangle(3, 3));
+		rightMid.setMass(MassType.INFINITE);
+		rightMid.setUserData(FLOOR_BODY);
+		rightMid.rotate(Math.PI / 2);
+		rightMid.translate(-2.5, -1.8);
+		world.addBody(rightMid);
+
+		return floor;
+	}
+
+	@Override
+	protected void initializeWorld() {
+		createArena(this.world);
+		wheel1 = new Wheel(this.world, 5, 0, Color.red, Color.blue, FLOOR_BODY);
+		wheel2 = new Wheel(this.world, 0, 0, Color.green, Color.orange, FLOOR_BODY);
+		
+		wheel1.checkBallColissions();
+		wheel1.checkFloorColissions();
+		wheel1.persistingFloorColissions();
+		
+		wheel2.checkBallColissions();
+		wheel2.checkFloorColissions();
+		wheel2.persistingFloorColissions();
+	}
+	
+	@Override
+	protected void update(double elapsedTime) {
+		// apply the key transitions since the last step
+		this.input.drain(this.inputHandler);
+		// apply a torque based on key input
+		wheel1.updateBall(wheel2);
+		wheel2.updateBall(wheel1);
+		super.update(elapsedTime);
+	}
+
+	/* (non-Javadoc)
+	 * @see Simulation#getPlayerCount()
+	 */
+	@Override
+	public int getPlayerCount() {
+		return 2;
+	}
+
+	/* (non-Javadoc)
+	 * @see Simulation#getPlayerInput(int)
+	 */
+	@Override
+	public int getPlayerInput(int player) {
+		return this.getWheel(player).getInputBits();
+	}
+
+	/* (non-Javadoc)
+	 * @see Simulation#setPlayerInput(int, int)
+	 */
+	@Override
+	public void setPlayerInput(int player, int buttons) {
+		this.getWheel(player).setInputBits(buttons);
+	}
+
+	/**
+	 * Returns the wheel of the given player.
+	 * @param player the player index
+	 * @return {@link Wheel}
+	 */
+	Wheel getWheel(int player) {
+		if (player == 0) return wheel1;
+		if (player == 1) return wheel2;
+		throw new IndexOutOfBoundsException("No player " + player);
+	}
+}
@@ -0,0 +1,311 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.geometry.Transform;
+
+/**
+ * Draws bodies in batches with one fill and one outline per color.
+ * <p>
+ * Drawing each fixture costs two color changes and two small fills or
+ * draws. Instead, the fixtures of many bodies are transformed into one
+ * path per fill color and one per outline color, and each batch is drawn
+ * with all the fills first, then all the outlines and then the center
+ * points, which is the order each body draws them in.
+ * <p>
+ * Drawing the fills of a batch before its outlines only gives the same
+ * pixels as drawing fixture by fixture if no two fixtures in the batch
+ * touch. So a fixture whose bounds overlap those of a fixture already in
+ * the batch flushes the batch first, which keeps the drawing order where
+ * it matters.
+ * <p>
+ * Bodies are drawn the way {@link SimulationBody} draws them by default, so
+ * only bodies that {@link SimulationBody#isDrawnByDefault() keep it} may be
+ * added.
+ * <p>
+ * Must only be used from one thread.
+ */
+public final class BatchRenderer {
+	/** The maximum number of fixtures in a batch, since checking for overlap is linear */
+	private static final int MAXIMUM_BATCH_SIZE = 256;
+
+	/** The pixels the outline and antialiasing reach past the geometry */
+	private static final double PADDING = 1.5;
+
+	/** The center point radius in pixels */
+	private static final int POINT_RADIUS = 4;
+
+	/** The graphics being drawn to between {@link #begin(Graphics2D)} and {@link #end()} */
+	private Graphics2D graphics;
+
+	/** The number of fill colors in the batch */
+	private int fillCount;
+
+	/** The fill colors in the batch */
+	private Color[] fillColors;
+
+	/** The fills of each color */
+	private Path2D.Double[] fills;
+
+	/** The number of outline colors in the batch */
+	private int outlineCount;
+
+	/** The outline colors in the batch */
+	private Color[] outlineColors;
+
+	/** The outlines of each color */
+	private Path2D.Double[] outlines;
+
+	/** The center point fills */
+	private final Path2D.Double centerFills;
+
+	/** The center point outlines */
+	private final Path2D.Double centerOutlines;
+
+	/** The number of fixtures and center points in the batch */
+	private int size;
+
+	/** The index of the first fixture of the body being added */
+	private int bodyStart;
+
+	/** The bounds of each fixture in the batch as min x, min y, max x, max y */
+	private final double[] bounds;
+
+	/** The transform of the body being added */
+	private final AffineTransform transform;
+
+	/** The center point marker */
+	private final Ellipse2D.Double centerPoint;
+
+	/** The bounds of the center point marker */
+	private final Rectangle2D.Double centerBounds;
+
+	/** The number of batches drawn since {@link #begin(Graphics2D)} */
+	private int batchCount;
+
+	/**
+	 * Default constructor.
+	 */
+	public BatchRenderer() {
+		this.fillColors = new Color[0];
+		this.fills = new Path2D.Double[0];
+		this.outlineColors = new Color[0];
+		this.outlines = new Path2D.Double[0];
+		this.bounds = new double[MAXIMUM_BATCH_SIZE * 4];
+		this.transform = new AffineTransform();
+		this.centerPoint = new Ellipse2D.Double();
+		this.centerBounds = new Rectangle2D.Double();
+		this.centerFills = new Path2D.Double(Path2D.WIND_NON_ZERO, 256);
+		this.centerOutlines = new Path2D.Double(Path2D.WIND_NON_ZERO, 256);
+	}
+
+	/**
+	 * Starts drawing to the given graphics.
+	 * @param g the graphics to draw to
+	 */
+	public void begin(Graphics2D g) {
+		this.graphics = g;
+		this.batchCount = 0;
+	}
+
+	/**
+	 * Adds the given body to the batch.
+	 * <p>
+	 * The batch is drawn first if the body overlaps it.
+	 * @param body the body
+	 * @param scale the scale to render the body (pixels per dyn4j unit (typically meter))
+	 * @param color the color to render the body
+	 * @param asleep true to draw the body in the brighter color of a sleeping body
+	 * @param transform the local to world transform to draw the body with
+	 */
+	public void add(SimulationBody body, double scale, Color color, boolean asleep, Transform transform) {
+		this.transform.setToTranslation(transform.getTranslationX() * scale, transform.getTranslationY() * scale);
+		this.transform.rotate(transform.getRotation());
+
+		// brighten the color if asleep, as SimulationBody does
+		if (asleep) {
+			color = Graphics2DRenderer.getBrighterColor(color);
+		}
+		Color outline = Graphics2DRenderer.getOutlineColor(color);
+
+		this.bodyStart = this.size;
+		List<BodyFixture> fixtures = body.getFixtures();
+		for (int i = 0; i < fixtures.size(); i++) {
+			Graphics2DRenderer.CachedShape cached = Graphics2DRenderer.getCachedShape(fixtures.get(i).getShape(), scale);
+			if (cached == null) continue;
+			// a fixture's fill covers the outlines of the ones before it, even on the same body
+			if (this.overlaps(cached.bounds, this.size)) {
+				this.flush();
+			}
+			if (cached.fill != null) {
+				this.fillColor(color).append(cached.fill.getPathIterator(this.transform), false);
+			}
+			this.outlineColor(outline).append(cached.outline.getPathIterator(this.transform), false);
+			this.size++;
+		}
+
+		// the center point
+		final double pr = POINT_RADIUS;
+		this.centerPoint.setFrame(
+				body.getLocalCenter().x * scale - pr * 0.5,
+				body.getLocalCenter().y * scale - pr * 0.5,
+				pr,
+				pr);
+		this.centerBounds.setRect(this.centerPoint.x, this.centerPoint.y, pr, pr);
+		// the center points are drawn after all the fixtures, so it's only
+		// a problem if it overlaps a fixture of another body
+		if (this.overlaps(this.centerBounds, this.bodyStart)) {
+			this.flush();
+		}
+		this.centerFills.append(this.centerPoint.getPathIterator(this.transform), false);
+		this.centerOutlines.append(this.centerPoint.getPathIterator(this.transform), false);
+		this.size++;
+	}
+
+	/**
+	 * Draws what's left in the batch and stops drawing to the graphics.
+	 */
+	public void end() {
+		this.flush();
+		this.graphics = null;
+	}
+
+	/**
+	 * Returns the number of batches drawn since {@link #begin(Graphics2D)}.
+	 * @return int
+	 */
+	public int getBatchCount() {
+		return this.batchCount;
+	}
+
+	/**
+	 * Returns true if the given local bounds, moved by the current body
+	 * transform, overlap one of the first given number of items in the batch.
+	 * <p>
+	 * Either way the bounds are recorded as those of the next item.
+	 * @param local the bounds in local space
+	 * @param count the number of items to check against
+	 * @return boolean
+	 */
+	private boolean overlaps(Rectangle2D local, int count) {
+		// the bounds of the transformed local bounds
+		final AffineTransform t = this.transform;
+		final double x0 = local.getMinX(), y0 = local.getMinY();
+		final double x1 = local.getMaxX(), y1 = local.getMaxY();
+		final double m00 = t.getScaleX(), m01 = t.getShearX(), m02 = t.getTranslateX();
+		final double m10 = t.getShearY(), m11 = t.getScaleY(), m12 = t.getTranslateY();
+		final double ax = m00 * x0, bx = m00 * x1, cx = m01 * y0, dx = m01 * y1;
+		final double ay = m10 * x0, by = m10 * x1, cy = m11 * y0, dy = m11 * y1;
+		final double minX = Math.min(ax, bx) + Math.min(cx, dx) + m02 - PADDING;
+		final double maxX = Math.max(ax, bx) + Math.max(cx, dx) + m02 + PADDING;
+		final double minY = Math.min(ay, by) + Math.min(cy, dy) + m12 - PADDING;
+		final double maxY = Math.max(ay, by) + Math.max(cy, dy) + m12 + PADDING;
+
+		boolean overlaps = this.size == MAXIMUM_BATCH_SIZE;
+		final double[] b = this.bounds;
+		final int n = count * 4;
+		for (int i = 0; i < n && !overlaps; i += 4) {
+			overlaps = minX <= b[i + 2] && maxX >= b[i] && minY <= b[i + 3] && maxY >= b[i + 1];
+		}
+
+		// a flush empties the batch, so the item goes first
+		int i = overlaps ? 0 : this.size * 4;
+		b[i] = minX;
+		b[i + 1] = minY;
+		b[i + 2] = maxX;
+		b[i + 3] = maxY;
+		return overlaps;
+	}
+
+	/**
+	 * Returns the fill path of the given color, adding one if needed.
+	 * @param color the color
+	 * @return Path2D.Double
+	 */
+	private Path2D.Double fillColor(Color color) {
+		for (int i = 0; i < this.fillCount; i++) {
+			if (this.fillColors[i] == color) return this.fills[i];
+		}
+		if (this.fillCount == this.fills.length) {
+			this.fillColors = Arrays.copyOf(this.fillColors, this.fillCount * 2 + 2);
+			this.fills = grow(this.fills, this.fillCount * 2 + 2);
+		}
+		this.fillColors[this.fillCount] = color;
+		return this.fills[this.fillCount++];
+	}
+
+	/**
+	 * Returns the outline path of the given color, adding one if needed.
+	 * @param color the color
+	 * @return Path2D.Double
+	 */
+	private Path2D.Double outlineColor(Color color) {
+		for (int i = 0; i < this.outlineCount; i++) {
+			if (this.outlineColors[i] == color) return this.outlines[i];
+		}
+		if (this.outlineCount == this.outlines.length) {
+			this.outlineColors = Arrays.copyOf(this.outlineColors, this.outlineCount * 2 + 2);
+			this.outlines = grow(this.outlines, this.outlineCount * 2 + 2);
+		}
+		this.outlineColors[this.outlineCount] = color;
+		return this.outlines[this.outlineCount++];
+	}
+
+	/**
+	 * Returns a copy of the given paths with new empty paths added to the given length.
+	 * @param paths the paths
+	 * @param length the new length
+	 * @return Path2D.Double[]
+	 */
+	private static Path2D.Double[] grow(Path2D.Double[] paths, int length) {
+		Path2D.Double[] grown = Arrays.copyOf(paths, length);
+		for (int i = paths.length; i < length; i++) {
+			grown[i] = new Path2D.Double(Path2D.WIND_NON_ZERO, 256);
+		}
+		return grown;
+	}
+
+	/**
+	 * Draws the batch: all the fills and then all the outlines.
+	 * <p>
+	 * Call before drawing anything else to the graphics to keep the
+	 * drawing order.
+	 */
+	public void flush() {
+		if (this.size == 0) return;
+		final Graphics2D g = this.graphics;
+
+		for (int i = 0; i < this.fillCount; i++) {
+			g.setColor(this.fillColors[i]);
+			g.fill(this.fills[i]);
+			this.fills[i].reset();
+			this.fillColors[i] = null;
+		}
+		for (int i = 0; i < this.outlineCount; i++) {
+			g.setColor(this.outlineColors[i]);
+			g.draw(this.outlines[i]);
+			this.outlines[i].reset();
+			this.outlineColors[i] = null;
+		}
+		if (this.centerFills.getCurrentPoint() != null) {
+			g.setColor(Color.WHITE);
+			g.fill(this.centerFills);
+			g.setColor(Color.DARK_GRAY);
+			g.draw(this.centerOutlines);
+			this.centerFills.reset();
+			this.centerOutlines.reset();
+		}
+
+		this.fillCount = 0;
+		this.outlineCount = 0;
+		this.size = 0;
+		this.bodyStart = 0;
+		this.batchCount++;
+	}
+}
@@ -0,0 +1,179 @@
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * The view of a {@link SimulationFrame}: the point of the world at the center
+ * of the canvas and the zoom.
+ * <p>
+ * The camera can be moved with {@link #pan(double, double)} or made to
+ * {@link #follow(SimulationBody...)} one or more bodies, in which case it's
+ * centered on their midpoint every frame and panning only has an effect
+ * once {@link #stopFollowing()} is called.
+ * <p>
+ * The camera may be changed from any thread. Every change is made holding
+ * the camera's lock, so the render thread reads the position and zoom in
+ * one piece by holding it too, once per frame.
+ */
+public final class Camera {
+	/** The smallest zoom */
+	public static final double MINIMUM_ZOOM = 0.05;
+
+	/** The largest zoom */
+	public static final double MAXIMUM_ZOOM = 20.0;
+
+	/** The x coordinate of the world point at the center of the view */
+	private volatile double x;
+
+	/** The y coordinate of the world point at the center of the view */
+	private volatile double y;
+
+	/** The zoom; 1.0 draws at the frame's scale */
+	private volatile double zoom;
+
+	/** The bodies to keep in view; empty if not following */
+	private volatile SimulationBody[] followed;
+
+	/** The transform of a followed body; only used by the render thread */
+	private final Transform transform;
+
+	/** The center of a followed body; only used by the render thread */
+	private final Vector2 center;
+
+	/**
+	 * Default constructor.
+	 * <p>
+	 * Centers the view on the origin with no zoom.
+	 */
+	public Camera() {
+		this.zoom = 1.0;
+		this.followed = new SimulationBody[0];
+		this.transform = new Transform();
+		this.center = new Vector2();
+	}
+
+	/**
+	 * Centers the camera on the followed bodies as of the given snapshot.
+	 * <p>
+	 * Called from the render thread before each frame.
+	 * @param snapshot the state of the world being drawn
+	 * @param alpha the interpolation factor between the previous and last step
+	 */
+	public void update(WorldSnapshot snapshot, double alpha) {
+		final SimulationBody[] followed = this.followed;
+		if (followed.length == 0) return;
+
+		double sx = 0.0;
+		double sy = 0.0;
+		int count = 0;
+		int n = snapshot.getBodyCount();
+		for (int i = 0; i < n; i++) {
+			SimulationBody body = snapshot.getBody(i);
+			for (int j = 0; j < followed.length; j++) {
+				if (followed[j] == body) {
+					snapshot.interpolate(i, alpha, this.transform);
+					this.transform.getTransformed(body.getLocalCenter(), this.center);
+					sx += this.center.x;
+					sy += this.center.y;
+					count++;
+					break;
+				}
+			}
+		}
+
+		// keep the last position if the bodies have left the world
+		if (count > 0) {
+			this.setPosition(sx / count, sy / count);
+		}
+	}
+
+	/**
+	 * Moves the camera by the given amount.
+	 * @param dx the distance along the x axis in meters
+	 * @param dy the distance along the y axis in meters
+	 */
+	public synchronized void pan(double dx, double dy) {
+		this.x += dx;
+		this.y += dy;
+	}
+
+	/**
+	 * Centers the camera on the given world point.
+	 * @param x the x coordinate in meters
+	 * @param y the y coordinate in meters
+	 */
+	public synchronized void setPosition(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Returns the x coordinate of the world point at the center of the view.
+	 * @return double
+	 */
+	public double getX() {
+		return this.x;
+	}
+
+	/**
+	 * Returns the y coordinate of the world point at the center of the view.
+	 * @return double
+	 */
+	public double getY() {
+		return this.y;
+	}
+
+	/**
+	 * Multiplies the zoom by the given factor.
+	 * @param factor the factor; greater than one zooms in
+	 * @throws IllegalArgumentException if factor is less than or equal to zero
+	 */
+	public synchronized void zoom(double factor) {
+		if (factor <= 0) throw new IllegalArgumentException("The zoom factor must be greater than zero.");
+		this.setZoom(this.zoom * factor);
+	}
+
+	/**
+	 * Sets the zoom.
+	 * <p>
+	 * The zoom is kept between {@link #MINIMUM_ZOOM} and {@link #MAXIMUM_ZOOM}.
+	 * @param zoom the zoom; 1.0 draws at the frame's scale
+	 * @throws IllegalArgumentException if zoom is less than or equal to zero
+	 */
+	public synchronized void setZoom(double zoom) {
+		if (zoom <= 0) throw new IllegalArgumentException("The zoom must be greater than zero.");
+		this.zoom = Math.max(MINIMUM_ZOOM, Math.min(MAXIMUM_ZOOM, zoom));
+	}
+
+	/**
+	 * Returns the zoom.
+	 * @return double
+	 */
+	public double getZoom() {
+		return this.zoom;
+	}
+
+	/**
+	 * Keeps the given bodies in view by centering the camera on their midpoint.
+	 * <p>
+	 * For a {@link Wheel} pass {@link Wheel#getBody()}.
+	 * @param bodies the bodies to follow
+	 */
+	public void follow(SimulationBody... bodies) {
+		this.followed = bodies.clone();
+	}
+
+	/**
+	 * Stops following bodies; the camera stays where it is.
+	 */
+	public void stopFollowing() {
+		this.followed = new SimulationBody[0];
+	}
+
+	/**
+	 * Returns true if the camera is following any bodies.
+	 * @return boolean
+	 */
+	public boolean isFollowing() {
+		return this.followed.length > 0;
+	}
+}
@@ -0,0 +1,313 @@
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.DestructionListener;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.dynamics.joint.Joint;
+import org.dyn4j.dynamics.contact.ContactListener;
+import org.dyn4j.dynamics.contact.ContactPoint;
+import org.dyn4j.dynamics.contact.PersistedContactPoint;
+import org.dyn4j.dynamics.contact.SolvedContactPoint;
+
+/**
+ * A single contact listener per world that passes each contact event on to
+ * the listeners subscribed to the two bodies involved.
+ * <p>
+ * A listener added to the world directly is called for every contact in the
+ * world and has to check whether the contact is one it cares about, so with a
+ * listener per body each step costs the number of bodies times the number of
+ * contacts. A listener subscribed here is only called for contacts of its
+ * body, found with an identity lookup per event.
+ * <p>
+ * A listener subscribed to both bodies of a contact is called once. The
+ * events that can disable a contact do so if any of the listeners called
+ * returns false.
+ * <p>
+ * The world doesn't end the contacts of a body it removes, it destroys them.
+ * So that every begin is followed by an end, a destroyed contact is passed on
+ * as an end, as long as the body is removed with notification, for example
+ * with {@link World#removeBody(Body, boolean)}.
+ * <p>
+ * Each call of a subscribed listener is recorded as a
+ * {@link FlightEvents#CONTACT_CALLBACK} event.
+ * <p>
+ * Like the world, must only be used from the thread stepping the world.
+ */
+public final class ContactDispatcher implements ContactListener, DestructionListener {
+	/** An empty listener array */
+	private static final ContactListener[] NONE = new ContactListener[0];
+
+	/** The world */
+	private final World world;
+
+	/** The listeners of each body */
+	private final Map<Body, ContactListener[]> subscribers;
+
+	/**
+	 * Returns the dispatcher of the given world, adding one to the world
+	 * if it doesn't have one yet.
+	 * @param world the world
+	 * @return {@link ContactDispatcher}
+	 */
+	public static ContactDispatcher get(World world) {
+		List<ContactDispatcher> dispatchers = world.getListeners(ContactDispatcher.class);
+		if (!dispatchers.isEmpty()) {
+			return dispatchers.get(0);
+		}
+		ContactDispatcher dispatcher = new ContactDispatcher(world);
+		world.addListener(dispatcher);
+		return dispatcher;
+	}
+
+	/**
+	 * Default constructor.
+	 * <p>
+	 * Use {@link #get(World)} so that a world has only one dispatcher.
+	 * @param world the world
+	 */
+	private ContactDispatcher(World world) {
+		this.world = world;
+		this.subscribers = new IdentityHashMap<Body, ContactListener[]>();
+	}
+
+	/**
+	 * Calls the given listener for the contacts of the given body.
+	 * @param body the body
+	 * @param listener the listener
+	 */
+	public void subscribe(Body body, ContactListener listener) {
+		ContactListener[] listeners = this.getSubscribers(body);
+		ContactListener[] added = new ContactListener[listeners.length + 1];
+		System.arraycopy(listeners, 0, added, 0, listeners.length);
+		added[listeners.length] = listener;
+		this.subscribers.put(body, added);
+	}
+
+	/**
+	 * Stops calling the given listener for the contacts of the given body.
+	 * @param body the body
+	 * @param listener the listener
+	 * @return boolean true if the listener was subscribed to the body
+	 */
+	public boolean unsubscribe(Body body, ContactListener listener) {
+		ContactListener[] listeners = this.getSubscribers(body);
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i] == listener) {
+				if (listeners.length == 1) {
+					this.subscribers.remove(body);
+				} else {
+					ContactListener[] removed = new ContactListener[listeners.length - 1];
+					System.arraycopy(listeners, 0, removed, 0, i);
+					System.arraycopy(listeners, i + 1, removed, i, removed.length - i);
+					this.subscribers.put(body, removed);
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes all the listeners of the given body, for example when it's
+	 * removed from the world.
+	 * @param body the body
+	 */
+	public void unsubscribeAll(Body body) {
+		this.subscribers.remove(body);
+	}
+
+	/**
+	 * Returns the number of bodies with listeners.
+	 * @return int
+	 */
+	public int getBodyCount() {
+		return this.subscribers.size();
+	}
+
+	/**
+	 * Returns the listeners of the given body.
+	 * @param body the body
+	 * @return ContactListener[] empty if it has none
+	 */
+	private ContactListener[] getSubscribers(Body body) {
+		ContactListener[] listeners = this.subscribers.get(body);
+		return listeners == null ? NONE : listeners;
+	}
+
+	/**
+	 * Returns true if the given listener is in the given array.
+	 * @param listeners the listeners
+	 * @param listener the listener
+	 * @return boolean
+	 */
+	private static boolean contains(ContactListener[] listeners, ContactListener listener) {
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i] == listener) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Records a call of a subscribed listener, if it's being recorded.
+	 * @param event the event; null if not recorded
+	 * @param listener the listener called
+	 * @param callback the method called
+	 */
+	private void commit(Object event, ContactListener listener, String callback) {
+		if (event != null) {
+			FlightEvents.CONTACT_CALLBACK.commit(event, listener.getClass().getName(), callback, this.world.getBodyCount(), this.world.getContactManager().getContactCount());
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.contact.ContactListener#sensed(org.dyn4j.dynamics.contact.ContactPoint)
+	 */
+	@Override
+	@Deprecated
+	@SuppressWarnings("deprecation")
+	public void sensed(ContactPoint point) {
+		ContactListener[] first = this.getSubscribers(point.getBody1());
+		ContactListener[] second = this.getSubscribers(point.getBody2());
+		for (int i = 0; i < first.length; i++) {
+			Object event = FlightEvents.CONTACT_CALLBACK.begin();
+			first[i].sensed(point);
+			this.commit(event, first[i], "sensed");
+		}
+		for (int i = 0; i < second.length; i++) {
+			if (contains(first, second[i])) continue;
+			Object event = FlightEvents.CONTACT_CALLBACK.begin();
+			second[i].sensed(point);
+			this.commit(event, second[i], "sensed");
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.contact.ContactListener#begin(org.dyn4j.dynamics.contact.ContactPoint)
+	 */
+	@Override
+	public boolean begin(ContactPoint point) {
+		ContactListener[] first = this.getSubscribers(point.getBody1());
+		ContactListener[] second = this.getSubscribers(point.getBody2());
+		boolean enabled = true;
+		for (int i = 0; i < first.length; i++) {
+			Object event = FlightEvents.CONTACT_CALLBACK.begin();
+			enabled &= first[i].begin(point);
+			this.commit(event, first[i], "begin");
+		}
+		for (int i = 0; i < second.length; i++) {
+			if (contains(first, second[i])) continue;
+			Object event = FlightEvents.CONTACT_CALLBACK.begin();
+			enabled &= second[i].begin(point);
+			this.commit(event, second[i], "begin");
+		}
+		return enabled;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.contact.ContactListener#end(org.dyn4j.dynamics.contact.ContactPoint)
+	 */
+	@Override
+	public void end(ContactPoint point) {
+		ContactListener[] first = this.getSubscribers(point.getBody1());
+		ContactListener[] second = this.getSubscribers(point.getBody2());
+		for (int i = 0; i < first.length; i++) {
+			Object event = FlightEvents.CONTACT_CALLBACK.begin();
+			first[i].end(point);
+			this.commit(event, first[i], "end");
+		}
+		for (int i = 0; i < second.length; i++) {
+			if (contains(first, second[i])) continue;
+			Object event = FlightEvents.CONTACT_CALLBACK.begin();
+			second[i].end(point);
+			this.commit(event, second[i], "end");
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.contact.ContactListener#persist(org.dyn4j.dynamics.contact.PersistedContactPoint)
+	 */
+	@Override
+	public boolean persist(PersistedContactPoint point) {
+		ContactListener[] first = this.getSubscribers(point.getBody1());
+		ContactListener[] second = this.getSubscribers(point.getBody2());
+		boolean enabled = true;
+		for (int i = 0; i < first.length; i++) {
+			Object event = FlightEvents.CONTACT_CALLBACK.begin();
+			enabled &= first[i].persist(point);
+			this.commit(event, first[i], "persist");
+		}
+		for (int i = 0; i < second.length; i++) {
+			if (contains(first, second[i])) continue;
+			Object event = FlightEvents.CONTACT_CALLBACK.begin();
+			enabled &= second[i].persist(point);
+			this.commit(event, second[i], "persist");
+		}
+		return enabled;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.contact.ContactListener#preSolve(org.dyn4j.dynamics.contact.ContactPoint)
+	 */
+	@Override
+	public boolean preSolve(ContactPoint point) {
+		ContactListener[] first = this.getSubscribers(point.getBody1());
+		ContactListener[] second = this.getSubscribers(point.getBody2());
+		boolean enabled = true;
+		for (int i = 0; i < first.length; i++) {
+			Object event = FlightEvents.CONTACT_CALLBACK.begin();
+			enabled &= first[i].preSolve(point);
+			this.commit(event, first[i], "preSolve");
+		}
+		for (int i = 0; i < second.length; i++) {
+			if (contains(first, second[i])) continue;
+			Object event = FlightEvents.CONTACT_CALLBACK.begin();
+			enabled &= second[i].preSolve(point);
+			this.commit(event, second[i], "preSolve");
+		}
+		return enabled;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.contact.ContactListener#postSolve(org.dyn4j.dynamics.contact.SolvedContactPoint)
+	 */
+	@Override
+	public void postSolve(SolvedContactPoint point) {
+		ContactListener[] first = this.getSubscribers(point.getBody1());
+		ContactListener[] second = this.getSubscribers(point.getBody2());
+		for (int i = 0; i < first.length; i++) {
+			Object event = FlightEvents.CONTACT_CALLBACK.begin();
+			first[i].postSolve(point);
+			this.commit(event, first[i], "postSolve");
+		}
+		for (int i = 0; i < second.length; i++) {
+			if (contains(first, second[i])) continue;
+			Object event = FlightEvents.CONTACT_CALLBACK.begin();
+			second[i].postSolve(point);
+			this.commit(event, second[i], "postSolve");
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.DestructionListener#destroyed(org.dyn4j.dynamics.contact.ContactPoint)
+	 */
+	@Override
+	public void destroyed(ContactPoint point) {
+		// sensor contacts are never begun
+		if (point.isSensor()) return;
+		this.end(point);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.DestructionListener#destroyed(org.dyn4j.dynamics.joint.Joint)
+	 */
+	@Override
+	public void destroyed(Joint joint) {}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.DestructionListener#destroyed(org.dyn4j.dynamics.Body)
+	 */
+	@Override
+	public void destroyed(Body body) {}
+}
@@ -1,38 +1,58 @@
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 
+/**
+ * Adds the presses and releases of the arrow keys (player 0) and the
+ * W, A and D keys (player 1) to an {@link InputQueue}.
+ * <p>
+ * Held keys repeat their key pressed events; only the first is added.
+ * <p>
+ * If the queue is full the transition is kept pending and offered again on
+ * the next event of any key, so a release is late rather than lost.
+ */
 public class CustomKeyListener extends KeyAdapter {
-		
-		private Wheel firstWheel;
-		private Wheel secondWheel;
-		
-		public CustomKeyListener(Wheel wheel1, Wheel wheel2)
+
+		private final InputQueue input;
+
+		/** The buttons held by each player; only used by the event dispatch thread */
+		private final boolean[][] held;
+
+		/** The state of each button as last added to the queue; only used by the event dispatch thread */
+		private final boolean[][] queued;
+
+		/** True if a button in held hasn't been added to the queue yet */
+		private boolean pending;
+
+		public CustomKeyListener(InputQueue input)
 		{
-			firstWheel = wheel1;
-			secondWheel = wheel2;
+			this.input = input;
+			this.held = new boolean[2][InputQueue.BUTTONS];
+			this.queued = new boolean[2][InputQueue.BUTTONS];
 		}
-		
+
 		public void keyPressed(KeyEvent e) {
 			switch (e.getKeyCode()) {
 			case KeyEvent.VK_LEFT:
-				firstWheel.setLeft(true);
+				set(0, InputQueue.LEFT, true);
 				break;
 			case KeyEvent.VK_RIGHT:
-				firstWheel.setRight(true);
+				set(0, InputQueue.RIGHT, true);
 				break;
 			case KeyEvent.VK_UP:
-				firstWheel.setUp(true);
+				set(0, InputQueue.UP, true);
 				break;
 			case KeyEvent.VK_W:
-				secondWheel.setUp(true);
+				set(1, InputQueue.UP, true);
 				break;
 			case KeyEvent.VK_A:
-				secondWheel.setLeft(true);
+				set(1, InputQueue.LEFT, true);
 				break;
 			case KeyEvent.VK_D:
-				secondWheel.setRight(true);
+				set(1, InputQueue.RIGHT, true);
+				break;
+			default:
+				if (pending) flush();
 				break;
-
 			}
 
 		}
@@ -41,23 +61,56 @@ public class CustomKeyListener extends KeyAdapter {
 		public void keyReleased(KeyEvent e) {
 			switch (e.getKeyCode()) {
 			case KeyEvent.VK_LEFT:
-				firstWheel.setLeft(false);
+				set(0, InputQueue.LEFT, false);
 				break;
 			case KeyEvent.VK_RIGHT:
-				firstWheel.setRight(false);
+				set(0, InputQueue.RIGHT, false);
 				break;
 			case KeyEvent.VK_UP:
-				firstWheel.setUp(false);
+				set(0, InputQueue.UP, false);
 				break;
 			case KeyEvent.VK_W:
-				secondWheel.setUp(false);
+				set(1, InputQueue.UP, false);
 				break;
 			case KeyEvent.VK_A:
-				secondWheel.setLeft(false);
+				set(1, InputQueue.LEFT, false);
 				break;
 			case KeyEvent.VK_D:
-				secondWheel.setRight(false);
+				set(1, InputQueue.RIGHT, false);
 				break;
+			default:
+				if (pending) flush();
+				break;
+			}
+		}
+
+		/**
+		 * Queues the transition if the button changed.
+		 * @param player the player
+		 * @param button the button
+		 * @param pressed true if pressed
+		 */
+		private void set(int player, int button, boolean pressed)
+		{
+			held[player][button] = pressed;
+			if (queued[player][button] != pressed) pending = true;
+			if (pending) flush();
+		}
+
+		/**
+		 * Queues every button whose state differs from the one last queued,
+		 * stopping at the first that doesn't fit.
+		 */
+		private void flush()
+		{
+			for (int player = 0; player < held.length; player++) {
+				for (int button = 0; button < InputQueue.BUTTONS; button++) {
+					boolean pressed = held[player][button];
+					if (queued[player][button] == pressed) continue;
+					if (!input.offer(player, button, pressed)) return;
+					queued[player][button] = pressed;
+				}
 			}
+			pending = false;
 		}
 	}
@@ -0,0 +1,310 @@
+import java.awt.Color;
+import java.util.Arrays;
+
+import org.dyn4j.geometry.Transform;
+
+/**
+ * Tracks the parts of the canvas that changed since the last frame.
+ * <p>
+ * Each frame every drawn body is reported with the transform, color and
+ * asleep flag it's drawn with and its bounds on the canvas. A body drawn exactly as in the last
+ * frame, typically because it's asleep, adds nothing; otherwise both its old
+ * and new bounds are dirty. A dirty rectangle that overlaps one already
+ * dirty grows it instead of being added, in one pass as they're reported,
+ * so the frame only has to repaint a few rectangles, or none at all when
+ * nothing moved. The grown rectangles may still overlap each other, which
+ * only repaints some pixels twice.
+ * <p>
+ * Each rectangle costs a pass over the bodies, so past {@link #MAXIMUM_REGIONS}
+ * rectangles, or once they cover more than {@link #MAXIMUM_DIRTY_FRACTION}
+ * of the canvas, the whole canvas is repainted in one go instead.
+ * <p>
+ * Bodies are matched to the last frame by their index. Adding or removing a
+ * body, or anything else that changes the whole picture, such as moving the
+ * camera, makes the whole canvas dirty.
+ * <p>
+ * Must only be used from the thread drawing the frames.
+ */
+public final class DirtyRegions {
+	/** The most dirty rectangles before the whole canvas is repainted instead */
+	public static final int MAXIMUM_REGIONS = 16;
+
+	/** The fraction of the canvas the dirty rectangles may cover before the whole canvas is repainted instead */
+	public static final double MAXIMUM_DIRTY_FRACTION = 0.5;
+
+	/** The canvas size */
+	private int width, height;
+
+	/** True if the whole canvas must be repainted */
+	private boolean full;
+
+	/** The number of bodies drawn in the last frame */
+	private int bodyCount;
+
+	/** The bodies drawn in the last frame */
+	private SimulationBody[] bodies;
+
+	/** The transform of each body as x, y, rotation */
+	private double[] transforms;
+
+	/** The color of each body */
+	private Color[] colors;
+
+	/** The asleep flag of each body */
+	private boolean[] asleep;
+
+	/** The bounds of each body as min x, min y, max x, max y in pixels */
+	private int[] bounds;
+
+	/** The number of bodies reported this frame */
+	private int index;
+
+	/** The number of dirty rectangles */
+	private int regionCount;
+
+	/** The dirty rectangles as min x, min y, max x, max y in pixels */
+	private int[] regions;
+
+	/**
+	 * Default constructor.
+	 */
+	public DirtyRegions() {
+		this.full = true;
+		this.bodies = new SimulationBody[0];
+		this.transforms = new double[0];
+		this.colors = new Color[0];
+		this.asleep = new boolean[0];
+		this.bounds = new int[0];
+		this.regions = new int[MAXIMUM_REGIONS * 4];
+	}
+
+	/**
+	 * Makes the whole canvas dirty for the next frame.
+	 */
+	public void invalidate() {
+		this.full = true;
+	}
+
+	/**
+	 * Starts a frame.
+	 * @param width the canvas width in pixels
+	 * @param height the canvas height in pixels
+	 * @param bodyCount the number of bodies that will be reported
+	 */
+	public void begin(int width, int height, int bodyCount) {
+		if (width != this.width || height != this.height || bodyCount != this.bodyCount) {
+			this.full = true;
+		}
+		this.width = width;
+		this.height = height;
+		this.ensureCapacity(bodyCount);
+		// don't keep removed bodies reachable
+		for (int i = bodyCount; i < this.bodyCount; i++) {
+			this.bodies[i] = null;
+			this.colors[i] = null;
+		}
+		this.bodyCount = bodyCount;
+		this.index = 0;
+		this.regionCount = 0;
+	}
+
+	/**
+	 * Reports the next body of the frame.
+	 * @param body the body
+	 * @param transform the transform it's drawn with
+	 * @param color the color it's drawn with
+	 * @param asleep true if it's drawn in the brighter color of a sleeping body
+	 * @param minX the left of its bounds on the canvas in pixels
+	 * @param minY the top of its bounds on the canvas in pixels
+	 * @param maxX the right of its bounds on the canvas in pixels
+	 * @param maxY the bottom of its bounds on the canvas in pixels
+	 */
+	public void add(SimulationBody body, Transform transform, Color color, boolean asleep, int minX, int minY, int maxX, int maxY) {
+		final int i = this.index++;
+		final int t = i * 3;
+		final int b = i * 4;
+		final double x = transform.getTranslationX();
+		final double y = transform.getTranslationY();
+		final double r = transform.getRotation();
+
+		if (this.bodies[i] != body) {
+			// not the same bodies as the last frame
+			this.full = true;
+		} else if (!this.full && (
+				this.transforms[t] != x ||
+				this.transforms[t + 1] != y ||
+				this.transforms[t + 2] != r ||
+				this.colors[i] != color ||
+				this.asleep[i] != asleep)) {
+			// repaint where it was and where it is
+			this.addRegion(this.bounds[b], this.bounds[b + 1], this.bounds[b + 2], this.bounds[b + 3]);
+			this.addRegion(minX, minY, maxX, maxY);
+		}
+
+		this.bodies[i] = body;
+		this.transforms[t] = x;
+		this.transforms[t + 1] = y;
+		this.transforms[t + 2] = r;
+		this.colors[i] = color;
+		this.asleep[i] = asleep;
+		this.bounds[b] = minX;
+		this.bounds[b + 1] = minY;
+		this.bounds[b + 2] = maxX;
+		this.bounds[b + 3] = maxY;
+	}
+
+	/**
+	 * Ends the frame, making the whole canvas one dirty rectangle if it's
+	 * cheaper to repaint it whole.
+	 */
+	public void end() {
+		if (!this.full && this.getDirtyArea() > MAXIMUM_DIRTY_FRACTION * this.width * this.height) {
+			this.full = true;
+		}
+		if (this.full) {
+			this.regionCount = 0;
+			this.full = false;
+			this.addRegion(0, 0, this.width, this.height);
+		}
+	}
+
+	/**
+	 * Returns the number of dirty rectangles.
+	 * @return int zero if nothing changed
+	 */
+	public int getRegionCount() {
+		return this.regionCount;
+	}
+
+	/**
+	 * Returns the left of the given dirty rectangle.
+	 * @param region the rectangle index
+	 * @return int
+	 */
+	public int getX(int region) {
+		return this.regions[region * 4];
+	}
+
+	/**
+	 * Returns the top of the given dirty rectangle.
+	 * @param region the rectangle index
+	 * @return int
+	 */
+	public int getY(int region) {
+		return this.regions[region * 4 + 1];
+	}
+
+	/**
+	 * Returns the width of the given dirty rectangle.
+	 * @param region the rectangle index
+	 * @return int
+	 */
+	public int getWidth(int region) {
+		return this.regions[region * 4 + 2] - this.regions[region * 4];
+	}
+
+	/**
+	 * Returns the height of the given dirty rectangle.
+	 * @param region the rectangle index
+	 * @return int
+	 */
+	public int getHeight(int region) {
+		return this.regions[region * 4 + 3] - this.regions[region * 4 + 1];
+	}
+
+	/**
+	 * Returns the number of dirty pixels, counting those in more than one
+	 * rectangle once per rectangle.
+	 * @return long
+	 */
+	public long getDirtyArea() {
+		long area = 0;
+		for (int i = 0; i < this.regionCount; i++) {
+			area += this.getWidth(i) * this.getHeight(i);
+		}
+		return area;
+	}
+
+	/**
+	 * Returns true if the given body of this frame overlaps the given dirty rectangle.
+	 * @param region the rectangle index
+	 * @param body the index the body was reported at
+	 * @return boolean
+	 */
+	public boolean intersects(int region, int body) {
+		final int b = body * 4;
+		return this.overlaps(region, this.bounds[b], this.bounds[b + 1], this.bounds[b + 2], this.bounds[b + 3]);
+	}
+
+	/**
+	 * Returns true if the given rectangle overlaps the given bounds.
+	 * @param region the rectangle index
+	 * @param minX the left
+	 * @param minY the top
+	 * @param maxX the right
+	 * @param maxY the bottom
+	 * @return boolean
+	 */
+	private boolean overlaps(int region, int minX, int minY, int maxX, int maxY) {
+		final int r = region * 4;
+		return minX < this.regions[r + 2] && maxX > this.regions[r] &&
+			   minY < this.regions[r + 3] && maxY > this.regions[r + 1];
+	}
+
+	/**
+	 * Adds a dirty rectangle, clipped to the canvas, growing the first one
+	 * it overlaps instead if there's one.
+	 * <p>
+	 * Makes the whole canvas dirty if there would be too many rectangles.
+	 * @param minX the left
+	 * @param minY the top
+	 * @param maxX the right
+	 * @param maxY the bottom
+	 */
+	private void addRegion(int minX, int minY, int maxX, int maxY) {
+		// the whole canvas is repainted anyway
+		if (this.full) return;
+
+		minX = Math.max(minX, 0);
+		minY = Math.max(minY, 0);
+		maxX = Math.min(maxX, this.width);
+		maxY = Math.min(maxY, this.height);
+		// off the canvas
+		if (minX >= maxX || minY >= maxY) return;
+
+		final int[] regions = this.regions;
+		for (int i = 0; i < this.regionCount; i++) {
+			if (this.overlaps(i, minX, minY, maxX, maxY)) {
+				final int r = i * 4;
+				regions[r] = Math.min(regions[r], minX);
+				regions[r + 1] = Math.min(regions[r + 1], minY);
+				regions[r + 2] = Math.max(regions[r + 2], maxX);
+				regions[r + 3] = Math.max(regions[r + 3], maxY);
+				return;
+			}
+		}
+
+		if (this.regionCount == MAXIMUM_REGIONS) {
+			this.full = true;
+			return;
+		}
+		int r = this.regionCount++ * 4;
+		this.regions[r] = minX;
+		this.regions[r + 1] = minY;
+		this.regions[r + 2] = maxX;
+		this.regions[r + 3] = maxY;
+	}
+
+	/**
+	 * Grows the arrays to hold at least the given number of bodies.
+	 * @param n the number of bodies
+	 */
+	private void ensureCapacity(int n) {
+		if (n <= this.bodies.length) return;
+		this.bodies = Arrays.copyOf(this.bodies, n);
+		this.transforms = Arrays.copyOf(this.transforms, n * 3);
+		this.colors = Arrays.copyOf(this.colors, n);
+		this.asleep = Arrays.copyOf(this.asleep, n);
+		this.bounds = Arrays.copyOf(this.bounds, n * 4);
+	}
+}
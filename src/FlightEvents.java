@@ -0,0 +1,449 @@
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The custom Java Flight Recorder events of the samples, so recordings show
+ * what the game loop, the world and its listeners were doing, with the
+ * number of bodies and contacts at the time.
+ * <p>
+ * The events are in the Simulation category:
+ * <ul>
+ * <li>simulation.Frame: the render thread preparing, drawing and showing a frame</li>
+ * <li>simulation.BufferFlip: showing the drawn frame and syncing the display</li>
+ * <li>simulation.WorldStep: one step of the world, its listeners included</li>
+ * <li>simulation.StepCallback: a call of a {@link TracedStepListener}</li>
+ * <li>simulation.ContactCallback: a call of a listener subscribed to a {@link ContactDispatcher}</li>
+ * </ul>
+ * The samples build for Java 8, which has no <code>jdk.jfr</code> to
+ * compile against, so the event types are made with
+ * <code>jdk.jfr.EventFactory</code>, if the running Java has it, and called
+ * through method handles. Without it the events are never recorded. Making
+ * the types takes a few hundred milliseconds, so it waits for the first
+ * recording to start; loading the class only looks up the flight recorder
+ * and listens for recordings.
+ * <p>
+ * Timing a call looks like:
+ * <pre>
+ * Object event = FlightEvents.WORLD_STEP.begin();
+ * step();
+ * if (event != null) FlightEvents.WORLD_STEP.commit(event, bodies, contacts);
+ * </pre>
+ * {@link Type#begin()} returns null unless a recording is running, so
+ * while nothing records an event costs a volatile read and allocates
+ * nothing.
+ */
+public final class FlightEvents {
+	/** The category of every event */
+	private static final String CATEGORY = "Simulation";
+
+	/** The recordings that are running; guarded by itself */
+	private static final Set<Object> running = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+	/** True while a recording is running */
+	private static volatile boolean recording;
+
+	/**
+	 * The <code>jdk.jfr</code> classes and the listener to the recordings,
+	 * set up when {@link FlightEvents} loads.
+	 */
+	private static final class Recorder {
+		/** jdk.jfr.Event, or null if there's no flight recorder */
+		static final Class<?> EVENT;
+
+		/** jdk.jfr.EventFactory */
+		static final Class<?> EVENT_FACTORY;
+
+		/** jdk.jfr.AnnotationElement */
+		static final Class<?> ANNOTATION_ELEMENT;
+
+		/** jdk.jfr.ValueDescriptor */
+		static final Class<?> VALUE_DESCRIPTOR;
+
+		/** The jdk.jfr.Name, Label, Description and Category annotations */
+		static final Class<? extends Annotation> NAME, LABEL, DESCRIPTION, CATEGORY;
+
+		static {
+			Class<?> event = null, factory = null, element = null, descriptor = null;
+			Class<? extends Annotation> name = null, label = null, description = null, category = null;
+			try {
+				event = Class.forName("jdk.jfr.Event");
+				factory = Class.forName("jdk.jfr.EventFactory");
+				element = Class.forName("jdk.jfr.AnnotationElement");
+				descriptor = Class.forName("jdk.jfr.ValueDescriptor");
+				name = Class.forName("jdk.jfr.Name").asSubclass(Annotation.class);
+				label = Class.forName("jdk.jfr.Label").asSubclass(Annotation.class);
+				description = Class.forName("jdk.jfr.Description").asSubclass(Annotation.class);
+				category = Class.forName("jdk.jfr.Category").asSubclass(Annotation.class);
+			} catch (ReflectiveOperationException e) {
+				// no flight recorder, or one without an event factory
+				event = null;
+			} catch (LinkageError e) {
+				event = null;
+			}
+			EVENT = event;
+			EVENT_FACTORY = factory;
+			ANNOTATION_ELEMENT = element;
+			VALUE_DESCRIPTOR = descriptor;
+			NAME = name;
+			LABEL = label;
+			DESCRIPTION = description;
+			CATEGORY = category;
+			// after the classes are set, since a recording may be running
+			// already and make the types straight away
+			if (event != null) {
+				try {
+					listen();
+					listening = true;
+				} catch (ReflectiveOperationException e) {
+					// never told when recordings run
+					listening = false;
+				}
+			}
+		}
+
+		/** True if the recordings are listened to; set once by the initializer */
+		static boolean listening;
+
+		/**
+		 * Loads this class, which looks up the flight recorder and listens to it.
+		 */
+		static void init() {}
+
+		/**
+		 * Keeps {@link FlightEvents#recording} up to date with the recordings.
+		 * @throws ReflectiveOperationException if the flight recorder can't be listened to
+		 */
+		private static void listen() throws ReflectiveOperationException {
+			Class<?> flightRecorder = Class.forName("jdk.jfr.FlightRecorder");
+			Class<?> listenerType = Class.forName("jdk.jfr.FlightRecorderListener");
+			final Method getRecordings = flightRecorder.getMethod("getRecordings");
+			final Method getState = Class.forName("jdk.jfr.Recording").getMethod("getState");
+			Object listener = Proxy.newProxyInstance(FlightEvents.class.getClassLoader(), new Class<?>[] { listenerType }, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if (method.getDeclaringClass() == Object.class) {
+						if ("equals".equals(method.getName())) return proxy == args[0];
+						if ("hashCode".equals(method.getName())) return System.identityHashCode(proxy);
+						return "FlightEvents listener";
+					}
+					if ("recorderInitialized".equals(method.getName())) {
+						// recordings started before the listener was added
+						for (Object r : (List<?>)getRecordings.invoke(args[0])) {
+							update(r, getState.invoke(r));
+						}
+					} else if ("recordingStateChanged".equals(method.getName())) {
+						update(args[0], getState.invoke(args[0]));
+					}
+					return null;
+				}
+			});
+			flightRecorder.getMethod("addListener", listenerType).invoke(null, listener);
+		}
+
+		/**
+		 * Notes the state of the given recording.
+		 * @param recording the recording
+		 * @param state its state
+		 */
+		private static void update(Object recording, Object state) {
+			synchronized (running) {
+				if ("RUNNING".equals(String.valueOf(state))) {
+					running.add(recording);
+				} else {
+					running.remove(recording);
+				}
+				if (!running.isEmpty() && !FlightEvents.recording) {
+					// before the flag, so a type is made when it's seen recording
+					for (Type type : TYPES) {
+						type.create();
+					}
+				}
+				FlightEvents.recording = !running.isEmpty();
+			}
+		}
+	}
+
+	/**
+	 * The method handles of a made event type.
+	 */
+	private static final class Handles {
+		/** Makes an event */
+		final MethodHandle newEvent;
+
+		/** Starts timing an event */
+		final MethodHandle begin;
+
+		/** Sets a field of an event */
+		final MethodHandle set;
+
+		/** Ends and records an event */
+		final MethodHandle commit;
+
+		/**
+		 * Constructor.
+		 * @param newEvent makes an event
+		 * @param begin starts timing an event
+		 * @param set sets a field of an event
+		 * @param commit ends and records an event
+		 */
+		Handles(MethodHandle newEvent, MethodHandle begin, MethodHandle set, MethodHandle commit) {
+			this.newEvent = newEvent;
+			this.begin = begin;
+			this.set = set;
+			this.commit = commit;
+		}
+	}
+
+	/**
+	 * An event type.
+	 * <p>
+	 * Has either two counts, or the listener and callback names followed by
+	 * two counts. Made with the flight recorder when the first recording
+	 * starts.
+	 */
+	public static final class Type {
+		/** The event name */
+		private final String name;
+
+		/** The event label */
+		private final String label;
+
+		/** The event description */
+		private final String description;
+
+		/** True if the event starts with the listener and callback names */
+		private final boolean callback;
+
+		/** The name and label of each count */
+		private final String[] fields;
+
+		/** The method handles; null until made, or if the type can't be made */
+		private volatile Handles handles;
+
+		/** True if making the type failed */
+		private volatile boolean failed;
+
+		/**
+		 * Constructor.
+		 * @param name the event name
+		 * @param label the event label
+		 * @param description the event description
+		 * @param callback true if the event starts with the listener and callback names
+		 * @param fields the name and label of each count
+		 */
+		private Type(String name, String label, String description, boolean callback, String... fields) {
+			this.name = name;
+			this.label = label;
+			this.description = description;
+			this.callback = callback;
+			this.fields = fields;
+		}
+
+		/**
+		 * Makes the event type with the flight recorder, unless made already.
+		 * <p>
+		 * Called when a recording starts, with the recordings locked.
+		 */
+		private void create() {
+			if (this.handles != null || this.failed) return;
+			try {
+				List<Object> annotations = new ArrayList<Object>();
+				annotations.add(annotation(Recorder.NAME, this.name));
+				annotations.add(annotation(Recorder.LABEL, this.label));
+				annotations.add(annotation(Recorder.DESCRIPTION, this.description));
+				annotations.add(annotation(Recorder.CATEGORY, new String[] { CATEGORY }));
+				List<Object> values = new ArrayList<Object>();
+				if (this.callback) {
+					values.add(field(String.class, "listener", "Listener"));
+					values.add(field(String.class, "callback", "Callback"));
+				}
+				for (int i = 0; i + 1 < this.fields.length; i += 2) {
+					values.add(field(long.class, this.fields[i], this.fields[i + 1]));
+				}
+				Object factory = Recorder.EVENT_FACTORY.getMethod("create", List.class, List.class).invoke(null, annotations, values);
+
+				MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+				MethodHandle newEvent = lookup.findVirtual(Recorder.EVENT_FACTORY, "newEvent", MethodType.methodType(Recorder.EVENT))
+						.bindTo(factory)
+						.asType(MethodType.methodType(Object.class));
+				MethodHandle begin = lookup.findVirtual(Recorder.EVENT, "begin", MethodType.methodType(void.class))
+						.asType(MethodType.methodType(void.class, Object.class));
+				MethodHandle set = lookup.findVirtual(Recorder.EVENT, "set", MethodType.methodType(void.class, int.class, Object.class))
+						.asType(MethodType.methodType(void.class, Object.class, int.class, Object.class));
+				MethodHandle commit = lookup.findVirtual(Recorder.EVENT, "commit", MethodType.methodType(void.class))
+						.asType(MethodType.methodType(void.class, Object.class));
+				this.handles = new Handles(newEvent, begin, set, commit);
+			} catch (ReflectiveOperationException e) {
+				// leave the type unrecorded rather than break the samples
+				this.failed = true;
+			}
+		}
+
+		/**
+		 * Starts timing an event if a recording is running.
+		 * @return Object the event to commit; null if nothing records it
+		 */
+		public Object begin() {
+			if (!recording) return null;
+			Handles handles = this.handles;
+			if (handles == null) return null;
+			try {
+				Object event = (Object)handles.newEvent.invokeExact();
+				handles.begin.invokeExact(event);
+				return event;
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		/**
+		 * Records an event with two counts.
+		 * @param event the event from {@link #begin()}; ignored if null
+		 * @param first the first count
+		 * @param second the second count
+		 */
+		public void commit(Object event, long first, long second) {
+			if (event == null) return;
+			// made before the event was
+			Handles handles = this.handles;
+			try {
+				handles.set.invokeExact(event, 0, (Object)Long.valueOf(first));
+				handles.set.invokeExact(event, 1, (Object)Long.valueOf(second));
+				handles.commit.invokeExact(event);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		/**
+		 * Records an event of a listener call with two counts.
+		 * @param event the event from {@link #begin()}; ignored if null
+		 * @param listener the listener name
+		 * @param callback the method called
+		 * @param first the first count
+		 * @param second the second count
+		 */
+		public void commit(Object event, String listener, String callback, long first, long second) {
+			if (event == null) return;
+			Handles handles = this.handles;
+			try {
+				handles.set.invokeExact(event, 0, (Object)listener);
+				handles.set.invokeExact(event, 1, (Object)callback);
+				handles.set.invokeExact(event, 2, (Object)Long.valueOf(first));
+				handles.set.invokeExact(event, 3, (Object)Long.valueOf(second));
+				handles.commit.invokeExact(event);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		/**
+		 * Returns the event name.
+		 * @return String
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Returns true if the running Java can record the event.
+		 * <p>
+		 * The type may not be made yet; true unless making it failed.
+		 * @return boolean
+		 */
+		public boolean isAvailable() {
+			return Recorder.listening && !this.failed;
+		}
+	}
+
+	/** The render thread preparing, drawing and showing a frame */
+	public static final Type FRAME = new Type("simulation.Frame", "Frame",
+			"The render thread preparing, drawing and showing a frame", false,
+			"bodies", "Bodies", "drawnBodies", "Drawn Bodies");
+
+	/** Showing the drawn frame and syncing the display */
+	public static final Type BUFFER_FLIP = new Type("simulation.BufferFlip", "Buffer Flip",
+			"Showing the drawn frame and syncing the display", false,
+			"bodies", "Bodies", "drawnBodies", "Drawn Bodies");
+
+	/** One step of the world, its listeners included */
+	public static final Type WORLD_STEP = new Type("simulation.WorldStep", "World Step",
+			"One step of the world, its listeners included", false,
+			"bodies", "Bodies", "contacts", "Contacts");
+
+	/** A call of a step listener */
+	public static final Type STEP_CALLBACK = new Type("simulation.StepCallback", "Step Callback",
+			"A call of a step listener", true,
+			"bodies", "Bodies", "contacts", "Contacts");
+
+	/** A call of a contact listener */
+	public static final Type CONTACT_CALLBACK = new Type("simulation.ContactCallback", "Contact Callback",
+			"A call of a contact listener subscribed to a body", true,
+			"bodies", "Bodies", "contacts", "Contacts");
+
+	/** Every event type, to make when the first recording starts */
+	private static final Type[] TYPES = { FRAME, BUFFER_FLIP, WORLD_STEP, STEP_CALLBACK, CONTACT_CALLBACK };
+
+	static {
+		// listen for recordings once the types are there to make
+		Recorder.init();
+	}
+
+	/**
+	 * Hidden constructor.
+	 */
+	private FlightEvents() {}
+
+	/**
+	 * Returns true while a flight recording is running.
+	 * @return boolean
+	 */
+	public static boolean isRecording() {
+		return recording;
+	}
+
+	/**
+	 * Returns a jdk.jfr.AnnotationElement.
+	 * @param type the annotation type
+	 * @param value its value
+	 * @return Object
+	 * @throws ReflectiveOperationException if it can't be made
+	 */
+	private static Object annotation(Class<? extends Annotation> type, Object value) throws ReflectiveOperationException {
+		return Recorder.ANNOTATION_ELEMENT.getConstructor(Class.class, Object.class).newInstance(type, value);
+	}
+
+	/**
+	 * Returns a labeled jdk.jfr.ValueDescriptor.
+	 * @param type the field type
+	 * @param name the field name
+	 * @param label the field label
+	 * @return Object
+	 * @throws ReflectiveOperationException if it can't be made
+	 */
+	private static Object field(Class<?> type, String name, String label) throws ReflectiveOperationException {
+		List<Object> annotations = Collections.singletonList(annotation(Recorder.LABEL, label));
+		return Recorder.VALUE_DESCRIPTOR.getConstructor(Class.class, String.class, List.class).newInstance(type, name, annotations);
+	}
+
+	/**
+	 * Rethrows what a method handle threw.
+	 * @param e the exception
+	 * @return RuntimeException never returns
+	 */
+	private static RuntimeException rethrow(Throwable e) {
+		if (e instanceof RuntimeException) throw (RuntimeException)e;
+		if (e instanceof Error) throw (Error)e;
+		throw new IllegalStateException(e);
+	}
+}
@@ -0,0 +1,196 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a loop to a target rate.
+ * <p>
+ * Each iteration has a deadline one period after the previous one, so the
+ * time spent in the iteration counts towards the period rather than being
+ * added to it. The wait parks the thread until shortly before the deadline
+ * and spins for the rest, since parking alone commonly oversleeps by tens
+ * of microseconds or more.
+ * <p>
+ * The time between iterations is recorded, as is the jitter: how far that
+ * time was from the target period.
+ * <p>
+ * A rate of zero or less is uncapped; {@link #await()} returns immediately,
+ * which is useful for benchmarking.
+ */
+public final class FramePacer {
+	/** The conversion factor from nano to base */
+	private static final double NANO_TO_BASE = 1.0e9;
+
+	/** The default time to spin before a deadline in nanoseconds */
+	public static final long DEFAULT_SPIN_TIME = 200000;
+
+	/** The target period in nanoseconds; zero when uncapped */
+	private volatile long period;
+
+	/** The time to spin instead of park before a deadline in nanoseconds */
+	private volatile long spinTime;
+
+	/** The number of periods the loop may fall behind before the missed ones are dropped */
+	private volatile int maximumBacklog;
+
+	/** The next deadline */
+	private long deadline;
+
+	/** The time the last call to await returned */
+	private long last;
+
+	/** The time between iterations */
+	private final Histogram frameTimes;
+
+	/** The difference between the time between iterations and the period */
+	private final Histogram jitter;
+
+	/**
+	 * Full constructor.
+	 * @param rate the target rate in hertz; zero or less for uncapped
+	 */
+	public FramePacer(double rate) {
+		this.setRate(rate);
+		this.spinTime = DEFAULT_SPIN_TIME;
+		this.maximumBacklog = 1;
+		this.frameTimes = new Histogram();
+		this.jitter = new Histogram();
+		this.reset();
+	}
+
+	/**
+	 * Starts a new schedule with the first deadline one period from now.
+	 */
+	public void reset() {
+		long now = System.nanoTime();
+		this.deadline = now;
+		this.last = now;
+	}
+
+	/**
+	 * Waits for the end of the current period.
+	 * <p>
+	 * When the loop is more periods behind than the maximum backlog, the
+	 * missed periods are dropped and the schedule restarts from now instead
+	 * of running the loop back to back to catch up.
+	 * @return long the time the wait ended in nanoseconds
+	 */
+	public long await() {
+		final long period = this.period;
+		long now = System.nanoTime();
+
+		if (period > 0) {
+			this.deadline += period;
+			long remaining = this.deadline - now;
+			if (remaining > 0) {
+				// park for the bulk of the wait
+				long park = remaining - this.spinTime;
+				while (park > 0) {
+					LockSupport.parkNanos(park);
+					park = this.deadline - this.spinTime - System.nanoTime();
+				}
+				// then spin for the last bit to be on time
+				do {
+					now = System.nanoTime();
+				} while (now < this.deadline);
+			} else if (-remaining > period * this.maximumBacklog) {
+				this.deadline = now;
+			}
+		}
+
+		long frameTime = now - this.last;
+		this.last = now;
+		this.frameTimes.record(frameTime);
+		if (period > 0) {
+			this.jitter.record(Math.abs(frameTime - period));
+		}
+		return now;
+	}
+
+	/**
+	 * Sets the target rate.
+	 * @param rate the target rate in hertz; zero or less for uncapped
+	 */
+	public void setRate(double rate) {
+		this.period = rate > 0 ? (long)(NANO_TO_BASE / rate) : 0;
+	}
+
+	/**
+	 * Returns the target rate.
+	 * @return double the target rate in hertz or zero if uncapped
+	 */
+	public double getRate() {
+		final long period = this.period;
+		return period > 0 ? NANO_TO_BASE / period : 0.0;
+	}
+
+	/**
+	 * Returns the target period.
+	 * @return long the period in nanoseconds or zero if uncapped
+	 */
+	public long getPeriod() {
+		return this.period;
+	}
+
+	/**
+	 * Returns true if the loop isn't paced.
+	 * @return boolean
+	 */
+	public boolean isUncapped() {
+		return this.period <= 0;
+	}
+
+	/**
+	 * Sets the time to spin instead of park before a deadline.
+	 * <p>
+	 * Larger values are more accurate and burn more CPU.
+	 * @param spinTime the spin time in nanoseconds
+	 * @throws IllegalArgumentException if spinTime is negative
+	 */
+	public void setSpinTime(long spinTime) {
+		if (spinTime < 0) throw new IllegalArgumentException("The spin time cannot be negative.");
+		this.spinTime = spinTime;
+	}
+
+	/**
+	 * Returns the time to spin instead of park before a deadline.
+	 * @return long the spin time in nanoseconds
+	 */
+	public long getSpinTime() {
+		return this.spinTime;
+	}
+
+	/**
+	 * Sets the number of periods the loop may fall behind and still
+	 * catch up by running iterations back to back.
+	 * @param maximumBacklog the maximum backlog in periods
+	 * @throws IllegalArgumentException if maximumBacklog is less than one
+	 */
+	public void setMaximumBacklog(int maximumBacklog) {
+		if (maximumBacklog < 1) throw new IllegalArgumentException("The maximum backlog must be one or more.");
+		this.maximumBacklog = maximumBacklog;
+	}
+
+	/**
+	 * Returns the number of periods the loop may fall behind.
+	 * @return int
+	 */
+	public int getMaximumBacklog() {
+		return this.maximumBacklog;
+	}
+
+	/**
+	 * Returns the histogram of the time between iterations in nanoseconds.
+	 * @return {@link Histogram}
+	 */
+	public Histogram getFrameTimes() {
+		return this.frameTimes;
+	}
+
+	/**
+	 * Returns the histogram of how far the time between iterations was
+	 * from the target period in nanoseconds.
+	 * @return {@link Histogram}
+	 */
+	public Histogram getJitter() {
+		return this.jitter;
+	}
+}
@@ -30,6 +30,13 @@ import java.awt.geom.Arc2D;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.dyn4j.geometry.Capsule;
 import org.dyn4j.geometry.Circle;
@@ -43,13 +50,79 @@ import org.dyn4j.geometry.Vector2;
 
 /**
  * Graphics2D renderer for dyn4j shape types.
+ * <p>
+ * Each shape is converted to Java2D geometry the first time it's drawn at
+ * a given scale and the result is cached, so drawing a shape again is just
+ * a fill and a draw. A shape keeps its geometry at the last
+ * {@link #SCALES_PER_SHAPE} scales it was drawn at, so drawing it at two
+ * scales in one frame doesn't rebuild either. The cache assumes shapes
+ * aren't changed once drawn; call {@link #evict(Shape)} if one is. Entries
+ * are also dropped when their shape is garbage collected.
+ * <p>
+ * Drawing must only happen on one thread at a time, the one drawing the
+ * frames, so the cache takes no lock. {@link #evict(Shape)} and
+ * {@link #clearCache()} may be called from any thread; they're applied the
+ * next time a shape is drawn.
  * @author William Bittle
  * @version 3.1.7
  * @since 3.1.5
  */
 public final class Graphics2DRenderer {
+	/** The maximum number of cached colors before the cache is cleared */
+	private static final int MAXIMUM_CACHED_COLORS = 1024;
+	
+	/** The outline color of each fill color */
+	private static final Map<Color, Color> OUTLINE_COLORS = new ConcurrentHashMap<Color, Color>();
+	
+	/** The brighter color of each color */
+	private static final Map<Color, Color> BRIGHTER_COLORS = new ConcurrentHashMap<Color, Color>();
+	
+	/** The number of scales the geometry of a shape is kept at */
+	private static final int SCALES_PER_SHAPE = 4;
+	
+	/** The Java2D geometry of each drawn shape, latest scale first; used by the drawing thread only */
+	private static final Map<Shape, CachedShape[]> SHAPES = new WeakHashMap<Shape, CachedShape[]>();
+	
+	/** The shapes to evict from the cache, from any thread */
+	private static final Queue<Shape> EVICTED = new ConcurrentLinkedQueue<Shape>();
+	
+	/** True if the whole cache is to be cleared */
+	private static volatile boolean cleared;
+	
+	/**
+	 * A shape converted to Java2D geometry in its body's local space.
+	 */
+	static final class CachedShape {
+		/** The scale the geometry was built at */
+		final double scale;
+		
+		/** The area to fill or null if the shape has no area */
+		final java.awt.Shape fill;
+		
+		/** The outline to draw */
+		final java.awt.Shape outline;
+		
+		/** The bounds of the outline */
+		final Rectangle2D bounds;
+		
+		/**
+		 * Full constructor.
+		 * @param scale the scale the geometry was built at
+		 * @param fill the area to fill; can be null
+		 * @param outline the outline to draw
+		 */
+		CachedShape(double scale, java.awt.Shape fill, java.awt.Shape outline) {
+			this.scale = scale;
+			this.fill = fill;
+			this.outline = outline;
+			this.bounds = outline.getBounds2D();
+		}
+	}
+	
 	/**
 	 * Renders the given shape to the given graphics context using the given scale and color.
+	 * <p>
+	 * Shapes of any other type than the dyn4j ones below aren't drawn.
 	 * @param g the graphics context
 	 * @param shape the shape to render
 	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
@@ -62,33 +135,203 @@ public final class Graphics2DRenderer {
 		// just default the color
 		if (color == null) color = Color.ORANGE;
 		
+		CachedShape cached = getCachedShape(shape, scale);
+		if (cached != null) {
+			Graphics2DRenderer.render(g, cached, color);
+		}
+	}
+	
+	/**
+	 * Renders the given {@link Circle} to the given graphics context using the given scale and color.
+	 * @param g the graphics context
+	 * @param circle the circle to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param color the color
+	 */
+	public static final void render(Graphics2D g, Circle circle, double scale, Color color) {
+		Graphics2DRenderer.render(g, (Shape)circle, scale, color);
+	}
+	
+	/**
+	 * Renders the given {@link Polygon} to the given graphics context using the given scale and color.
+	 * @param g the graphics context
+	 * @param polygon the polygon to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param color the color
+	 */
+	public static final void render(Graphics2D g, Polygon polygon, double scale, Color color) {
+		Graphics2DRenderer.render(g, (Shape)polygon, scale, color);
+	}
+	
+	/**
+	 * Renders the given {@link Segment} to the given graphics context using the given scale and color.
+	 * @param g the graphics context
+	 * @param segment the segment to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param color the color
+	 */
+	public static final void render(Graphics2D g, Segment segment, double scale, Color color) {
+		Graphics2DRenderer.render(g, (Shape)segment, scale, color);
+	}
+	
+	/**
+	 * Renders the given {@link Capsule} to the given graphics context using the given scale and color.
+	 * @param g the graphics context
+	 * @param capsule the capsule to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param color the color
+	 */
+	public static final void render(Graphics2D g, Capsule capsule, double scale, Color color) {
+		Graphics2DRenderer.render(g, (Shape)capsule, scale, color);
+	}
+	
+	/**
+	 * Renders the given {@link Ellipse} to the given graphics context using the given scale and color.
+	 * @param g the graphics context
+	 * @param ellipse the ellipse to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param color the color
+	 */
+	public static final void render(Graphics2D g, Ellipse ellipse, double scale, Color color) {
+		Graphics2DRenderer.render(g, (Shape)ellipse, scale, color);
+	}
+	
+	/**
+	 * Renders the given {@link Slice} to the given graphics context using the given scale and color.
+	 * @param g the graphics context
+	 * @param slice the slice to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param color the color
+	 */
+	public static final void render(Graphics2D g, Slice slice, double scale, Color color) {
+		Graphics2DRenderer.render(g, (Shape)slice, scale, color);
+	}
+	
+	/**
+	 * Renders the given {@link HalfEllipse} to the given graphics context using the given scale and color.
+	 * @param g the graphics context
+	 * @param halfEllipse the halfEllipse to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param color the color
+	 */
+	public static final void render(Graphics2D g, HalfEllipse halfEllipse, double scale, Color color) {
+		Graphics2DRenderer.render(g, (Shape)halfEllipse, scale, color);
+	}
+	
+	/**
+	 * Fills and outlines the given cached geometry.
+	 * @param g the graphics context
+	 * @param cached the geometry
+	 * @param color the color
+	 */
+	private static final void render(Graphics2D g, CachedShape cached, Color color) {
+		// fill the shape
+		if (cached.fill != null) {
+			g.setColor(color);
+			g.fill(cached.fill);
+		}
+		// draw the outline
+		g.setColor(getOutlineColor(color));
+		g.draw(cached.outline);
+	}
+	
+	/**
+	 * Returns the Java2D geometry of the given shape at the given scale,
+	 * building it if it isn't cached at that scale.
+	 * @param shape the shape
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 * @return {@link CachedShape} or null if the shape type isn't supported
+	 */
+	static final CachedShape getCachedShape(Shape shape, double scale) {
+		if (cleared || !EVICTED.isEmpty()) {
+			Graphics2DRenderer.applyEvictions();
+		}
+		CachedShape[] scales = SHAPES.get(shape);
+		if (scales != null) {
+			for (int i = 0; i < SCALES_PER_SHAPE; i++) {
+				CachedShape cached = scales[i];
+				if (cached == null) break;
+				if (cached.scale == scale) return cached;
+			}
+		}
+		
+		// a new scale (or first time), replacing the oldest geometry
+		CachedShape cached = createCachedShape(shape, scale);
+		if (cached != null) {
+			if (scales == null) {
+				scales = new CachedShape[SCALES_PER_SHAPE];
+				SHAPES.put(shape, scales);
+			}
+			System.arraycopy(scales, 0, scales, 1, SCALES_PER_SHAPE - 1);
+			scales[0] = cached;
+		}
+		return cached;
+	}
+	
+	/**
+	 * Applies the evictions and clearing asked for since the last draw.
+	 */
+	private static final void applyEvictions() {
+		if (cleared) {
+			cleared = false;
+			SHAPES.clear();
+		}
+		Shape shape;
+		while ((shape = EVICTED.poll()) != null) {
+			SHAPES.remove(shape);
+		}
+	}
+	
+	/**
+	 * Removes the cached geometry of the given shape.
+	 * <p>
+	 * Called when a fixture is removed from a body, or should be
+	 * called when a shape is changed after it has been drawn.
+	 * @param shape the shape
+	 */
+	public static final void evict(Shape shape) {
+		EVICTED.add(shape);
+	}
+	
+	/**
+	 * Removes the cached geometry of all shapes.
+	 */
+	public static final void clearCache() {
+		cleared = true;
+	}
+	
+	/**
+	 * Builds the Java2D geometry of the given shape.
+	 * @param shape the shape
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 * @return {@link CachedShape} or null if the shape type isn't supported
+	 */
+	private static final CachedShape createCachedShape(Shape shape, double scale) {
 		if (shape instanceof Circle) {
-			Graphics2DRenderer.render(g, (Circle)shape, scale, color);
+			return Graphics2DRenderer.createCachedShape((Circle)shape, scale);
 		} else if (shape instanceof Polygon) {
-			Graphics2DRenderer.render(g, (Polygon)shape, scale, color);
+			return Graphics2DRenderer.createCachedShape((Polygon)shape, scale);
 		} else if (shape instanceof Segment) {
-			Graphics2DRenderer.render(g, (Segment)shape, scale, color);
+			return Graphics2DRenderer.createCachedShape((Segment)shape, scale);
 		} else if (shape instanceof Capsule) {
-			Graphics2DRenderer.render(g, (Capsule)shape, scale, color);
+			return Graphics2DRenderer.createCachedShape((Capsule)shape, scale);
 		} else if (shape instanceof Ellipse) {
-			Graphics2DRenderer.render(g, (Ellipse)shape, scale, color);
+			return Graphics2DRenderer.createCachedShape((Ellipse)shape, scale);
 		} else if (shape instanceof Slice) {
-			Graphics2DRenderer.render(g, (Slice)shape, scale, color);
+			return Graphics2DRenderer.createCachedShape((Slice)shape, scale);
 		} else if (shape instanceof HalfEllipse) {
-			Graphics2DRenderer.render(g, (HalfEllipse)shape, scale, color);
-		} else {
-			// unknown shape
+			return Graphics2DRenderer.createCachedShape((HalfEllipse)shape, scale);
 		}
+		return null;
 	}
 	
 	/**
-	 * Renders the given {@link Circle} to the given graphics context using the given scale and color.
-	 * @param g the graphics context
-	 * @param circle the circle to render
-	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
-	 * @param color the color
+	 * Builds the geometry of the given {@link Circle}.
+	 * @param circle the circle
+	 * @param scale the scale
+	 * @return {@link CachedShape}
 	 */
-	public static final void render(Graphics2D g, Circle circle, double scale, Color color) {
+	private static final CachedShape createCachedShape(Circle circle, double scale) {
 		double radius = circle.getRadius();
 		Vector2 center = circle.getCenter();
 		
@@ -99,57 +342,49 @@ public final class Graphics2DRenderer {
 			radius2 * scale,
 			radius2 * scale);
 		
-		// fill the shape
-		g.setColor(color);
-		g.fill(c);
-		// draw the outline
-		g.setColor(getOutlineColor(color));
-		g.draw(c);
-		
 		// draw a line so that rotation is visible
 		Line2D.Double l = new Line2D.Double(
 				center.x * scale,
 				center.y * scale,
 				(center.x + radius) * scale,
 				center.y * scale);
-		g.draw(l);
+		
+		// the outline is the circle and the line
+		Path2D.Double outline = new Path2D.Double();
+		outline.append(c, false);
+		outline.append(l, false);
+		
+		return new CachedShape(scale, c, outline);
 	}
 	
 	/**
-	 * Renders the given {@link Polygon} to the given graphics context using the given scale and color.
-	 * @param g the graphics context
-	 * @param polygon the polygon to render
-	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
-	 * @param color the color
+	 * Builds the geometry of the given {@link Polygon}.
+	 * @param polygon the polygon
+	 * @param scale the scale
+	 * @return {@link CachedShape}
 	 */
-	public static final void render(Graphics2D g, Polygon polygon, double scale, Color color) {
+	private static final CachedShape createCachedShape(Polygon polygon, double scale) {
 		Vector2[] vertices = polygon.getVertices();
 		int l = vertices.length;
 		
 		// create the awt polygon
-		Path2D.Double p = new Path2D.Double();
+		Path2D.Double p = new Path2D.Double(Path2D.WIND_NON_ZERO, l + 1);
 		p.moveTo(vertices[0].x * scale, vertices[0].y * scale);
 		for (int i = 1; i < l; i++) {
 			p.lineTo(vertices[i].x * scale, vertices[i].y * scale);
 		}
 		p.closePath();
 		
-		// fill the shape
-		g.setColor(color);
-		g.fill(p);
-		// draw the outline
-		g.setColor(getOutlineColor(color));
-		g.draw(p);
+		return new CachedShape(scale, p, p);
 	}
 	
 	/**
-	 * Renders the given {@link Segment} to the given graphics context using the given scale and color.
-	 * @param g the graphics context
-	 * @param segment the segment to render
-	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
-	 * @param color the color
+	 * Builds the geometry of the given {@link Segment}.
+	 * @param segment the segment
+	 * @param scale the scale
+	 * @return {@link CachedShape}
 	 */
-	public static final void render(Graphics2D g, Segment segment, double scale, Color color) {
+	private static final CachedShape createCachedShape(Segment segment, double scale) {
 		Vector2[] vertices = segment.getVertices();
 		
 		Line2D.Double l = new Line2D.Double(
@@ -158,87 +393,41 @@ public final class Graphics2DRenderer {
 			vertices[1].x * scale,
 			vertices[1].y * scale);
 		
-		// draw the outline
-		g.setColor(getOutlineColor(color));
-		g.draw(l);
+		// segments only have an outline
+		return new CachedShape(scale, null, l);
 	}
 	
 	/**
-	 * Renders the given {@link Capsule} to the given graphics context using the given scale and color.
-	 * @param g the graphics context
-	 * @param capsule the capsule to render
-	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
-	 * @param color the color
+	 * Builds the geometry of the given {@link Capsule}.
+	 * @param capsule the capsule
+	 * @param scale the scale
+	 * @return {@link CachedShape}
 	 */
-	public static final void render(Graphics2D g, Capsule capsule, double scale, Color color) {
-		// get the local rotation and translation
-		double rotation = capsule.getRotation();
-		Vector2 center = capsule.getCenter();
-		
-		// save the old transform
-		AffineTransform oTransform = g.getTransform();
-		// translate and rotate
-		g.translate(center.x * scale, center.y * scale);
-		g.rotate(rotation);
-		
+	private static final CachedShape createCachedShape(Capsule capsule, double scale) {
 		double width = capsule.getLength();
 		double radius = capsule.getCapRadius();
 		double radius2 = radius * 2.0;
 		
-		Arc2D.Double arcL = new Arc2D.Double(
+		// a rectangle with fully rounded ends is a capsule
+		RoundRectangle2D.Double c = new RoundRectangle2D.Double(
 				-(width * 0.5) * scale,
 				-radius * scale,
+				width * scale,
 				radius2 * scale,
 				radius2 * scale,
-				90.0,
-				180.0,
-				Arc2D.OPEN);
-		Arc2D.Double arcR = new Arc2D.Double(
-				(width * 0.5 - radius2) * scale,
-				-radius * scale,
-				radius2 * scale,
-				radius2 * scale,
-				-90.0,
-				180.0,
-				Arc2D.OPEN);
-		
-		// connect the shapes
-		Path2D.Double path = new Path2D.Double();
-		path.append(arcL, true);
-		path.append(new Line2D.Double(arcL.getEndPoint(), arcR.getStartPoint()), true);
-		path.append(arcR, true);
-		path.append(new Line2D.Double(arcR.getEndPoint(), arcL.getStartPoint()), true);
-		
-		// set the color
-		g.setColor(color);
-		// fill the shape
-		g.fill(path);
-		// set the color
-		g.setColor(getOutlineColor(color));
-		// draw the shape
-		g.draw(path);
+				radius2 * scale);
 		
-		// re-instate the old transform
-		g.setTransform(oTransform);
+		java.awt.Shape path = Graphics2DRenderer.toLocal(c, capsule.getCenter(), capsule.getRotation(), scale);
+		return new CachedShape(scale, path, path);
 	}
 	
 	/**
-	 * Renders the given {@link Ellipse} to the given graphics context using the given scale and color.
-	 * @param g the graphics context
-	 * @param ellipse the ellipse to render
-	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
-	 * @param color the color
+	 * Builds the geometry of the given {@link Ellipse}.
+	 * @param ellipse the ellipse
+	 * @param scale the scale
+	 * @return {@link CachedShape}
 	 */
-	public static final void render(Graphics2D g, Ellipse ellipse, double scale, Color color) {
-		// get the local rotation and translation
-		double rotation = ellipse.getRotation();
-		Vector2 center = ellipse.getCenter();
-		
-		// save the old transform
-		AffineTransform oTransform = g.getTransform();
-		g.translate(center.x * scale, center.y * scale);
-		g.rotate(rotation);
-		
+	private static final CachedShape createCachedShape(Ellipse ellipse, double scale) {
 		double width = ellipse.getWidth();
 		double height = ellipse.getHeight();
 		Ellipse2D.Double c = new Ellipse2D.Double(
@@ -247,38 +436,20 @@ public final class Graphics2DRenderer {
 			width * scale,
 			height * scale);
 		
-		// fill the shape
-		g.setColor(color);
-		g.fill(c);
-		// draw the outline
-		g.setColor(getOutlineColor(color));
-		g.draw(c);
-		
-		// re-instate the old transform
-		g.setTransform(oTransform);
+		java.awt.Shape path = Graphics2DRenderer.toLocal(c, ellipse.getCenter(), ellipse.getRotation(), scale);
+		return new CachedShape(scale, path, path);
 	}
 	
 	/**
-	 * Renders the given {@link Slice} to the given graphics context using the given scale and color.
-	 * @param g the graphics context
-	 * @param slice the slice to render
-	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
-	 * @param color the color
+	 * Builds the geometry of the given {@link Slice}.
+	 * @param slice the slice
+	 * @param scale the scale
+	 * @return {@link CachedShape}
 	 */
-	public static final void render(Graphics2D g, Slice slice, double scale, Color color) {
+	private static final CachedShape createCachedShape(Slice slice, double scale) {
 		double radius = slice.getSliceRadius();
 		double theta2 = slice.getTheta() * 0.5;
 		
-		// get the local rotation and translation
-		double rotation = slice.getRotation();
-		Vector2 circleCenter = slice.getCircleCenter();
-		
-		// save the old transform
-		AffineTransform oTransform = g.getTransform();
-		// translate and rotate
-		g.translate(circleCenter.x * scale, circleCenter.y * scale);
-		g.rotate(rotation);
-		
 		// to draw the arc, java2d wants the top left x,y
 		// as if you were drawing a circle
 		Arc2D a = new Arc2D.Double(-radius * scale, 
@@ -289,38 +460,20 @@ public final class Graphics2DRenderer {
 				Math.toDegrees(2.0 * theta2),
 				Arc2D.PIE);
 		
-		// fill the shape
-		g.setColor(color);
-		g.fill(a);
-		// draw the outline
-		g.setColor(getOutlineColor(color));
-		g.draw(a);
-		
-		// re-instate the old transform
-		g.setTransform(oTransform);
+		java.awt.Shape path = Graphics2DRenderer.toLocal(a, slice.getCircleCenter(), slice.getRotation(), scale);
+		return new CachedShape(scale, path, path);
 	}
 	
 	/**
-	 * Renders the given {@link HalfEllipse} to the given graphics context using the given scale and color.
-	 * @param g the graphics context
-	 * @param halfEllipse the halfEllipse to render
-	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
-	 * @param color the color
+	 * Builds the geometry of the given {@link HalfEllipse}.
+	 * @param halfEllipse the half ellipse
+	 * @param scale the scale
+	 * @return {@link CachedShape}
 	 */
-	public static final void render(Graphics2D g, HalfEllipse halfEllipse, double scale, Color color) {
+	private static final CachedShape createCachedShape(HalfEllipse halfEllipse, double scale) {
 		double width = halfEllipse.getWidth();
 		double height = halfEllipse.getHeight();
 		
-		// get the local rotation and translation
-		double rotation = halfEllipse.getRotation();
-		Vector2 center = halfEllipse.getEllipseCenter();
-		
-		// save the old transform
-		AffineTransform oTransform = g.getTransform();
-		// translate and rotate
-		g.translate(center.x * scale, center.y * scale);
-		g.rotate(rotation);
-		
 		// to draw the arc, java2d wants the top left x,y
 		// as if you were drawing a circle
 		Arc2D a = new Arc2D.Double(
@@ -332,15 +485,23 @@ public final class Graphics2DRenderer {
 				-180.0,
 				Arc2D.PIE);
 		
-		// fill the shape
-		g.setColor(color);
-		g.fill(a);
-		// draw the outline
-		g.setColor(getOutlineColor(color));
-		g.draw(a);
-		
-		// re-instate the old transform
-		g.setTransform(oTransform);
+		java.awt.Shape path = Graphics2DRenderer.toLocal(a, halfEllipse.getEllipseCenter(), halfEllipse.getRotation(), scale);
+		return new CachedShape(scale, path, path);
+	}
+	
+	/**
+	 * Moves geometry built around the origin to the shape's local
+	 * center and rotation.
+	 * @param shape the geometry around the origin
+	 * @param center the local center of the shape
+	 * @param rotation the local rotation of the shape
+	 * @param scale the scale
+	 * @return java.awt.Shape
+	 */
+	private static final java.awt.Shape toLocal(java.awt.Shape shape, Vector2 center, double rotation, double scale) {
+		AffineTransform lt = AffineTransform.getTranslateInstance(center.x * scale, center.y * scale);
+		lt.rotate(rotation);
+		return lt.createTransformedShape(shape);
 	}
 	
 	/**
@@ -348,9 +509,47 @@ public final class Graphics2DRenderer {
 	 * @param color the fill color
 	 * @return Color
 	 */
-	private static final Color getOutlineColor(Color color) {
-		Color oc = color.darker();
-		return new Color(oc.getRed(), oc.getGreen(), oc.getBlue(), color.getAlpha());
+	static final Color getOutlineColor(Color color) {
+		Color outline = OUTLINE_COLORS.get(color);
+		if (outline == null) {
+			Color oc = color.darker();
+			outline = new Color(oc.getRed(), oc.getGreen(), oc.getBlue(), color.getAlpha());
+			cache(OUTLINE_COLORS, color, outline);
+		}
+		return outline;
+	}
+	
+	/**
+	 * Returns a brighter version of the given color.
+	 * <p>
+	 * The same as {@link Color#brighter()} without creating a new
+	 * color every time it's called for the same color.
+	 * @param color the color
+	 * @return Color
+	 */
+	public static final Color getBrighterColor(Color color) {
+		Color brighter = BRIGHTER_COLORS.get(color);
+		if (brighter == null) {
+			brighter = color.brighter();
+			cache(BRIGHTER_COLORS, color, brighter);
+		}
+		return brighter;
+	}
+	
+	/**
+	 * Adds a derived color to the given cache.
+	 * <p>
+	 * The cache is emptied when it gets too large, for example when
+	 * many bodies are given random colors.
+	 * @param cache the cache
+	 * @param color the original color
+	 * @param derived the derived color
+	 */
+	private static final void cache(Map<Color, Color> cache, Color color, Color derived) {
+		if (cache.size() >= MAXIMUM_CACHED_COLORS) {
+			cache.clear();
+		}
+		cache.put(color, derived);
 	}
 	
 	/**
@@ -0,0 +1,79 @@
+import org.dyn4j.dynamics.contact.ContactAdapter;
+import org.dyn4j.dynamics.contact.ContactPoint;
+
+/**
+ * Keeps track of whether a body is standing on the floor by counting its
+ * contacts with floor bodies.
+ * <p>
+ * Subscribe the sensor to the body with {@link ContactDispatcher#subscribe(org.dyn4j.dynamics.Body, org.dyn4j.dynamics.contact.ContactListener)}.
+ * Each contact point that begins with a body whose user data is the floor
+ * adds one and each one that ends takes one away, so {@link #isOnGround()}
+ * is a field read instead of a search through the body's contacts every step.
+ * <p>
+ * The contacts of a sleeping body don't end, so a body resting on the floor
+ * stays on the ground while asleep.
+ * <p>
+ * Updated from the thread stepping the world and only meant to be read from it.
+ */
+public final class GroundSensor extends ContactAdapter {
+	/** The user data of the floor bodies */
+	private final Object floor;
+
+	/** The number of contact points with floor bodies */
+	private int contacts;
+
+	/**
+	 * Constructor.
+	 * @param floor the user data of the floor bodies
+	 */
+	public GroundSensor(Object floor) {
+		this.floor = floor;
+	}
+
+	/**
+	 * Returns true if the given contact is with a floor body.
+	 * @param point the contact point
+	 * @return boolean
+	 */
+	private boolean isContactWithFloor(ContactPoint point) {
+		return point.getBody1().getUserData() == this.floor || point.getBody2().getUserData() == this.floor;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.contact.ContactAdapter#begin(org.dyn4j.dynamics.contact.ContactPoint)
+	 */
+	@Override
+	public boolean begin(ContactPoint point) {
+		if (this.isContactWithFloor(point)) {
+			this.contacts++;
+		}
+		return super.begin(point);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.contact.ContactAdapter#end(org.dyn4j.dynamics.contact.ContactPoint)
+	 */
+	@Override
+	public void end(ContactPoint point) {
+		// never below zero, in case the sensor was subscribed mid contact
+		if (this.contacts > 0 && this.isContactWithFloor(point)) {
+			this.contacts--;
+		}
+	}
+
+	/**
+	 * Returns true if the body touches a floor body.
+	 * @return boolean
+	 */
+	public boolean isOnGround() {
+		return this.contacts > 0;
+	}
+
+	/**
+	 * Returns the number of contact points with floor bodies.
+	 * @return int
+	 */
+	public int getContactCount() {
+		return this.contacts;
+	}
+}
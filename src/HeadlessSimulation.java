@@ -0,0 +1,156 @@
+/**
+ * Steps a {@link Simulation} without a window.
+ * <p>
+ * The world is built by the simulation's {@link Simulation#initializeWorld()}
+ * exactly like it is for the {@link SimulationFrame}, but nothing here creates
+ * a frame, canvas or buffer strategy, so it runs on machines without a display.
+ * <p>
+ * Each step advances the world by the step frequency of its settings. The
+ * steps can either be run back to back, to measure raw physics throughput,
+ * or paced at that frequency to mimic the real time game.
+ */
+public class HeadlessSimulation {
+	/** The conversion factor from nano to base */
+	public static final double NANO_TO_BASE = 1.0e9;
+
+	/** The simulation to step */
+	private final Simulation simulation;
+
+	/** The time of one step in seconds */
+	private final double stepTime;
+
+	/** True if the run should end early */
+	private volatile boolean stopped;
+
+	/** The number of steps performed by the last run */
+	private long steps;
+
+	/** The wall clock duration of the last run in nanoseconds */
+	private long duration;
+
+	/**
+	 * Constructor.
+	 * @param simulation the simulation to step
+	 */
+	public HeadlessSimulation(Simulation simulation) {
+		this.simulation = simulation;
+		this.stepTime = simulation.getWorld().getSettings().getStepFrequency();
+	}
+
+	/**
+	 * Performs the given number of steps as fast as possible.
+	 * @param steps the number of steps
+	 * @return double the achieved steps per second
+	 */
+	public double run(long steps) {
+		return this.run(steps, false);
+	}
+
+	/**
+	 * Performs the given number of steps.
+	 * @param steps the number of steps
+	 * @param realTime true to wait for the next tick between steps, false to run as fast as possible
+	 * @return double the achieved steps per second
+	 */
+	public double run(long steps, boolean realTime) {
+		FramePacer pacer = new FramePacer(1.0 / this.stepTime);
+
+		this.stopped = false;
+		this.steps = 0;
+
+		long start = System.nanoTime();
+		pacer.reset();
+		while (this.steps < steps && !this.stopped) {
+			if (realTime) {
+				// wait for the tick deadline instead of sleeping a fixed
+				// amount so that slow steps don't push the schedule back
+				pacer.await();
+			}
+			// exactly one step since the elapsed time equals the step frequency
+			this.simulation.update(this.stepTime);
+			this.steps++;
+		}
+		this.duration = System.nanoTime() - start;
+
+		return this.getStepsPerSecond();
+	}
+
+	/**
+	 * Ends the current run after the step in progress.
+	 */
+	public void stop() {
+		this.stopped = true;
+	}
+
+	/**
+	 * Returns the number of steps performed by the last run.
+	 * @return long
+	 */
+	public long getStepCount() {
+		return this.steps;
+	}
+
+	/**
+	 * Returns the wall clock duration of the last run in seconds.
+	 * @return double
+	 */
+	public double getElapsedTime() {
+		return this.duration / NANO_TO_BASE;
+	}
+
+	/**
+	 * Returns the steps per second achieved by the last run.
+	 * @return double
+	 */
+	public double getStepsPerSecond() {
+		if (this.duration <= 0) return 0.0;
+		return this.steps * NANO_TO_BASE / this.duration;
+	}
+
+	/**
+	 * Returns the simulation being stepped.
+	 * @return {@link Simulation}
+	 */
+	public Simulation getSimulation() {
+		return this.simulation;
+	}
+
+	/**
+	 * Creates the scene with the given name.
+	 * @param name the scene name
+	 * @return {@link Simulation}
+	 * @throws IllegalArgumentException if the name is not a known scene
+	 */
+	public static Simulation createScene(String name) {
+		if ("BallCollider".equalsIgnoreCase(name)) {
+			return new BallColliderScene();
+		} else if ("SimplePlatformer".equalsIgnoreCase(name)) {
+			return new SimplePlatformerScene();
+		}
+		throw new IllegalArgumentException("Unknown scene: " + name);
+	}
+
+	/**
+	 * Entry point for headless runs.
+	 * <p>
+	 * Usage: <code>HeadlessSimulation [BallCollider|SimplePlatformer] [steps] [--realtime]</code>
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		// make sure nothing can open a window
+		System.setProperty("java.awt.headless", "true");
+
+		String name = args.length > 0 ? args[0] : "BallCollider";
+		long steps = args.length > 1 ? Long.parseLong(args[1]) : 100000;
+		boolean realTime = args.length > 2 && "--realtime".equals(args[2]);
+
+		HeadlessSimulation runner = new HeadlessSimulation(createScene(name));
+		double sps = runner.run(steps, realTime);
+
+		System.out.println(String.format("%s: %d steps in %.3f s (%.1f steps/s)",
+				name,
+				runner.getStepCount(),
+				runner.getElapsedTime(),
+				sps));
+	}
+}
@@ -0,0 +1,166 @@
+/**
+ * A histogram of durations (or any non-negative long values) with a
+ * fixed memory footprint.
+ * <p>
+ * Values are counted in buckets that are 1/16th of a power of two wide,
+ * so percentiles are accurate to about 6% whatever the magnitude, and
+ * recording is a few bit operations with no allocation. Meant to be
+ * written by one thread; other threads may read it for reporting and
+ * will see approximate values while it's being written.
+ */
+public final class Histogram {
+	/** The number of bits of each value used to pick the bucket within a power of two */
+	private static final int SUB_BUCKET_BITS = 4;
+
+	/** The number of buckets per power of two */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** The number of buckets; enough for any positive long */
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	/** The counts per bucket */
+	private final long[] counts;
+
+	/** The number of recorded values */
+	private long count;
+
+	/** The sum of the recorded values */
+	private long sum;
+
+	/** The smallest recorded value */
+	private long min;
+
+	/** The largest recorded value */
+	private long max;
+
+	/**
+	 * Default constructor.
+	 */
+	public Histogram() {
+		this.counts = new long[BUCKETS];
+		this.reset();
+	}
+
+	/**
+	 * Records the given value.
+	 * <p>
+	 * Negative values are recorded as zero.
+	 * @param value the value
+	 */
+	public void record(long value) {
+		if (value < 0) value = 0;
+		this.counts[index(value)]++;
+		this.count++;
+		this.sum += value;
+		if (value < this.min) this.min = value;
+		if (value > this.max) this.max = value;
+	}
+
+	/**
+	 * Adds all the values recorded by the given histogram to this one.
+	 * @param histogram the histogram to add
+	 */
+	public void add(Histogram histogram) {
+		if (histogram.count == 0) return;
+		for (int i = 0; i < BUCKETS; i++) {
+			this.counts[i] += histogram.counts[i];
+		}
+		this.count += histogram.count;
+		this.sum += histogram.sum;
+		if (histogram.min < this.min) this.min = histogram.min;
+		if (histogram.max > this.max) this.max = histogram.max;
+	}
+
+	/**
+	 * Removes all recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.counts[i] = 0;
+		}
+		this.count = 0;
+		this.sum = 0;
+		this.min = Long.MAX_VALUE;
+		this.max = 0;
+	}
+
+	/**
+	 * Returns the value below which the given percentage of the recorded values fall.
+	 * @param percentile the percentile in the range [0, 100]
+	 * @return long the value or zero if nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		if (this.count == 0) return 0;
+		long target = (long)Math.ceil(percentile / 100.0 * this.count);
+		if (target < 1) target = 1;
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += this.counts[i];
+			if (seen >= target) {
+				// don't report more than we've actually seen
+				return Math.min(Math.max(value(i), this.min), this.max);
+			}
+		}
+		return this.max;
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 * @return long
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Returns the mean of the recorded values.
+	 * @return double the mean or zero if nothing was recorded
+	 */
+	public double getMean() {
+		if (this.count == 0) return 0.0;
+		return (double)this.sum / (double)this.count;
+	}
+
+	/**
+	 * Returns the smallest recorded value.
+	 * @return long the minimum or zero if nothing was recorded
+	 */
+	public long getMin() {
+		return this.count == 0 ? 0 : this.min;
+	}
+
+	/**
+	 * Returns the largest recorded value.
+	 * @return long
+	 */
+	public long getMax() {
+		return this.max;
+	}
+
+	/**
+	 * Returns the bucket for the given value.
+	 * @param value the value; non-negative
+	 * @return int
+	 */
+	private static int index(long value) {
+		if (value < SUB_BUCKETS) return (int)value;
+		// the position of the highest bit picks the power of two and the
+		// next bits below it pick the bucket within that power of two
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int mantissa = (int)(value >>> shift);
+		return (shift + 1) * SUB_BUCKETS + mantissa - SUB_BUCKETS;
+	}
+
+	/**
+	 * Returns the middle value of the given bucket.
+	 * @param index the bucket
+	 * @return long
+	 */
+	private static long value(int index) {
+		if (index < 2 * SUB_BUCKETS) return index;
+		int shift = index / SUB_BUCKETS - 1;
+		long mantissa = SUB_BUCKETS + index % SUB_BUCKETS;
+		return (mantissa << shift) + (1L << shift) / 2;
+	}
+}
@@ -0,0 +1,34 @@
+/**
+ * Carries the buttons of one player, frame by frame, to the other side of a
+ * {@link RollbackSession}.
+ * <p>
+ * Every message sent must eventually be received, but messages may arrive
+ * late and out of order. Both methods are called from the thread stepping
+ * the session and must not block.
+ */
+public interface InputLink {
+	/**
+	 * Receives the buttons of the other side.
+	 */
+	public static interface Handler {
+		/**
+		 * Called for each message received.
+		 * @param frame the frame the buttons were held in
+		 * @param buttons the buttons as bits: 1 &lt;&lt; {@link InputQueue#LEFT} and so on
+		 */
+		public void receive(int frame, int buttons);
+	}
+
+	/**
+	 * Sends the buttons of the local player for the given frame.
+	 * @param frame the frame
+	 * @param buttons the buttons as bits: 1 &lt;&lt; {@link InputQueue#LEFT} and so on
+	 */
+	public void send(int frame, int buttons);
+
+	/**
+	 * Passes every message that has arrived since the last call to the given handler.
+	 * @param handler the handler
+	 */
+	public void receive(Handler handler);
+}
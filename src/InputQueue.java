@@ -0,0 +1,207 @@
+/**
+ * Hands key presses and releases from the event dispatch thread to the
+ * physics thread in the order they happened.
+ * <p>
+ * Setting a flag from the key listener and reading it each step loses a tap
+ * that's pressed and released between two steps. Instead each transition is
+ * put in a single producer, single consumer ring buffer with the time it
+ * happened, and the physics thread drains the buffer at the start of each
+ * step with {@link #drain(Handler)}.
+ * <p>
+ * A drain stops at the second transition of the same button so that every
+ * transition lasts at least one step: a tap shorter than a step is pressed
+ * for one step and released the next instead of cancelling itself out.
+ * <p>
+ * The time from each transition to the step that applies it is recorded in
+ * the {@link #getLatency()} histogram.
+ * <p>
+ * Exactly one thread may {@link #offer(int, int, boolean)} and exactly one
+ * other thread may {@link #drain(Handler)}; neither ever blocks.
+ */
+public final class InputQueue {
+	/** The left button */
+	public static final int LEFT = 0;
+
+	/** The right button */
+	public static final int RIGHT = 1;
+
+	/** The up (jump) button */
+	public static final int UP = 2;
+
+	/** The number of buttons */
+	public static final int BUTTONS = 3;
+
+	/** The default number of transitions the queue can hold */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/** The most transitions one drain applies, which is also the most distinct buttons */
+	private static final int MAXIMUM_DRAIN = 64;
+
+	/**
+	 * Applies transitions drained from the queue.
+	 */
+	public static interface Handler {
+		/**
+		 * Called for each transition, in order, on the draining thread.
+		 * @param target the index of the controlled object, for example the player
+		 * @param button the button; one of {@link InputQueue#LEFT}, {@link InputQueue#RIGHT} or {@link InputQueue#UP}
+		 * @param pressed true if pressed, false if released
+		 */
+		public void apply(int target, int button, boolean pressed);
+	}
+
+	/** The transitions as target, button and pressed packed in an int */
+	private final int[] events;
+
+	/** The time of each transition in nanoseconds */
+	private final long[] times;
+
+	/** The capacity minus one, for wrapping indices */
+	private final int mask;
+
+	/** The index of the next transition to drain; only written by the consumer */
+	private volatile long head;
+
+	/** The index of the next transition to offer; only written by the producer */
+	private volatile long tail;
+
+	/** The buttons already applied by the current drain; only used by the consumer */
+	private final int[] drained;
+
+	/** The time from transition to step in nanoseconds; only written by the consumer */
+	private final Histogram latency;
+
+	/** The number of transitions refused because the queue was full */
+	private volatile long dropped;
+
+	/**
+	 * Default constructor.
+	 * <p>
+	 * Holds {@link #DEFAULT_CAPACITY} transitions.
+	 */
+	public InputQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 * @param capacity the number of transitions the queue can hold; rounded up to a power of two
+	 * @throws IllegalArgumentException if capacity is less than one
+	 */
+	public InputQueue(int capacity) {
+		if (capacity < 1) throw new IllegalArgumentException("The capacity must be at least one.");
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) size <<= 1;
+		this.events = new int[size];
+		this.times = new long[size];
+		this.mask = size - 1;
+		this.drained = new int[MAXIMUM_DRAIN];
+		this.latency = new Histogram();
+	}
+
+	/**
+	 * Adds a transition that happened now.
+	 * <p>
+	 * Must only be called by the producer thread.
+	 * @param target the index of the controlled object, for example the player
+	 * @param button the button
+	 * @param pressed true if pressed, false if released
+	 * @return boolean false if the queue was full and the transition was dropped
+	 */
+	public boolean offer(int target, int button, boolean pressed) {
+		return this.offer(target, button, pressed, System.nanoTime());
+	}
+
+	/**
+	 * Adds a transition that happened at the given time.
+	 * <p>
+	 * Must only be called by the producer thread.
+	 * @param target the index of the controlled object, for example the player
+	 * @param button the button
+	 * @param pressed true if pressed, false if released
+	 * @param time the time of the transition from {@link System#nanoTime()}
+	 * @return boolean false if the queue was full and the transition was dropped
+	 */
+	public boolean offer(int target, int button, boolean pressed, long time) {
+		final long tail = this.tail;
+		if (tail - this.head > this.mask) {
+			this.dropped++;
+			return false;
+		}
+		final int i = (int)tail & this.mask;
+		this.events[i] = (target << 3) | (button << 1) | (pressed ? 1 : 0);
+		this.times[i] = time;
+		// publishes the slot to the consumer
+		this.tail = tail + 1;
+		return true;
+	}
+
+	/**
+	 * Applies the waiting transitions in order, stopping before the second
+	 * transition of a button so that it's applied by the next drain.
+	 * <p>
+	 * Must only be called by the consumer thread, once per step.
+	 * @param handler the handler to apply the transitions
+	 * @return int the number of transitions applied
+	 */
+	public int drain(Handler handler) {
+		final long tail = this.tail;
+		final long now = System.nanoTime();
+		long head = this.head;
+		int count = 0;
+		while (head < tail && count < MAXIMUM_DRAIN) {
+			final int i = (int)head & this.mask;
+			final int event = this.events[i];
+			// the button of the event, without the pressed bit
+			final int button = event >>> 1;
+			boolean seen = false;
+			for (int j = 0; j < count && !seen; j++) {
+				seen = this.drained[j] == button;
+			}
+			if (seen) break;
+
+			this.drained[count++] = button;
+			this.latency.record(now - this.times[i]);
+			handler.apply(event >>> 3, button & 3, (event & 1) != 0);
+			head++;
+		}
+		// frees the slots for the producer
+		this.head = head;
+		return count;
+	}
+
+	/**
+	 * Returns the number of transitions waiting to be drained.
+	 * @return int
+	 */
+	public int size() {
+		return (int)(this.tail - this.head);
+	}
+
+	/**
+	 * Returns the number of transitions the queue can hold.
+	 * @return int
+	 */
+	public int getCapacity() {
+		return this.mask + 1;
+	}
+
+	/**
+	 * Returns the number of transitions dropped because the queue was full.
+	 * @return long
+	 */
+	public long getDroppedCount() {
+		return this.dropped;
+	}
+
+	/**
+	 * Returns the time from each transition to the step that applied it,
+	 * in nanoseconds.
+	 * <p>
+	 * Written by the consumer thread; read from other threads for reporting only.
+	 * @return {@link Histogram}
+	 */
+	public Histogram getLatency() {
+		return this.latency;
+	}
+}
@@ -0,0 +1,162 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the buttons held by every player of a {@link Simulation} at each
+ * step to a binary log that {@link InputReplay} can play back.
+ * <p>
+ * Call {@link #record()} right after each step. The buttons read then are
+ * the ones the step was taken with, since the scenes only change them when
+ * draining their {@link InputQueue} at the start of a step.
+ * <p>
+ * The log starts with a header:
+ * <ul>
+ * <li>the int {@link #MAGIC} and the short {@link #VERSION}</li>
+ * <li>the scene name, as written by {@link DataOutputStream#writeUTF(String)}</li>
+ * <li>the step frequency in seconds as a double</li>
+ * <li>the number of players as an int</li>
+ * </ul>
+ * followed by one record per step of {@link #BITS_PER_PLAYER} bits per
+ * player, packed from the lowest bit of the first byte up and padded to
+ * whole bytes. Two players take one byte per step.
+ */
+public final class InputRecorder implements Closeable {
+	/** The first four bytes of a log */
+	public static final int MAGIC = 0x57484C49;
+
+	/** The format version */
+	public static final short VERSION = 1;
+
+	/** The bits recorded per player */
+	public static final int BITS_PER_PLAYER = InputQueue.BUTTONS;
+
+	/** The simulation being recorded */
+	private final Simulation simulation;
+
+	/** The log */
+	private final DataOutputStream out;
+
+	/** The packed record of a step */
+	private final byte[] record;
+
+	/** The number of steps recorded */
+	private long steps;
+
+	/** True once closed */
+	private boolean closed;
+
+	/**
+	 * Constructor.
+	 * @param scene the scene name, as accepted by {@link HeadlessSimulation#createScene(String)}
+	 * @param simulation the simulation to record; in the state the scene starts in
+	 * @param file the log file
+	 * @throws IOException if the header can't be written
+	 */
+	public InputRecorder(String scene, Simulation simulation, File file) throws IOException {
+		this(scene, simulation, new FileOutputStream(file));
+	}
+
+	/**
+	 * Constructor.
+	 * @param scene the scene name, as accepted by {@link HeadlessSimulation#createScene(String)}
+	 * @param simulation the simulation to record; in the state the scene starts in
+	 * @param out the stream to write the log to; closed by {@link #close()}
+	 * @throws IOException if the header can't be written
+	 */
+	public InputRecorder(String scene, Simulation simulation, OutputStream out) throws IOException {
+		this.simulation = simulation;
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+		this.record = new byte[getRecordSize(simulation.getPlayerCount())];
+
+		this.out.writeInt(MAGIC);
+		this.out.writeShort(VERSION);
+		this.out.writeUTF(scene);
+		this.out.writeDouble(simulation.getWorld().getSettings().getStepFrequency());
+		this.out.writeInt(simulation.getPlayerCount());
+	}
+
+	/**
+	 * Records the buttons of every player for the step just taken.
+	 * <p>
+	 * Does nothing once closed.
+	 * @throws IOException if the record can't be written
+	 */
+	public synchronized void record() throws IOException {
+		if (this.closed) return;
+		final byte[] record = this.record;
+		for (int i = 0; i < record.length; i++) {
+			record[i] = 0;
+		}
+		final int players = this.simulation.getPlayerCount();
+		for (int i = 0; i < players; i++) {
+			pack(record, i, this.simulation.getPlayerInput(i));
+		}
+		this.out.write(record);
+		this.steps++;
+	}
+
+	/**
+	 * Returns the number of steps recorded.
+	 * @return long
+	 */
+	public synchronized long getStepCount() {
+		return this.steps;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (this.closed) return;
+		this.closed = true;
+		this.out.close();
+	}
+
+	/**
+	 * Returns the number of bytes recorded per step.
+	 * @param players the number of players
+	 * @return int
+	 */
+	static int getRecordSize(int players) {
+		return (players * BITS_PER_PLAYER + 7) / 8;
+	}
+
+	/**
+	 * Writes the buttons of the given player into a step record.
+	 * @param record the record
+	 * @param player the player index
+	 * @param buttons the buttons
+	 */
+	static void pack(byte[] record, int player, int buttons) {
+		final int bit = player * BITS_PER_PLAYER;
+		for (int i = 0; i < BITS_PER_PLAYER; i++) {
+			if ((buttons & (1 << i)) != 0) {
+				record[(bit + i) >> 3] |= 1 << ((bit + i) & 7);
+			}
+		}
+	}
+
+	/**
+	 * Reads the buttons of the given player from a step record.
+	 * @param record the records
+	 * @param offset the index of the first byte of the step record
+	 * @param player the player index
+	 * @return int the buttons
+	 */
+	static int unpack(byte[] record, int offset, int player) {
+		final int bit = player * BITS_PER_PLAYER;
+		int buttons = 0;
+		for (int i = 0; i < BITS_PER_PLAYER; i++) {
+			if ((record[offset + ((bit + i) >> 3)] & (1 << ((bit + i) & 7))) != 0) {
+				buttons |= 1 << i;
+			}
+		}
+		return buttons;
+	}
+}
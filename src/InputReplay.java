@@ -0,0 +1,258 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * Plays back a log written by {@link InputRecorder} on a new headless
+ * instance of the recorded scene, as fast as possible.
+ * <p>
+ * Before each step the buttons of every player are set to the recorded ones
+ * and then the scene is stepped exactly as it was while recording, so the
+ * world goes through the same states. A hash of every body's position and
+ * velocity after every step is kept, so two runs can be compared: the same
+ * log gives the same hash every run.
+ * <p>
+ * Usage: <code>InputReplay file [runs]</code>
+ */
+public final class InputReplay {
+	/** The recorded scene name */
+	private final String scene;
+
+	/** The recorded step frequency in seconds */
+	private final double stepFrequency;
+
+	/** The number of players */
+	private final int players;
+
+	/** The bytes per step record */
+	private final int recordSize;
+
+	/** The step records */
+	private final byte[] records;
+
+	/** The number of steps */
+	private final int steps;
+
+	/** The wall clock duration of the last run in nanoseconds */
+	private long duration;
+
+	/**
+	 * Reads the given log.
+	 * @param file the log file
+	 * @return {@link InputReplay}
+	 * @throws IOException if the file can't be read or isn't a log
+	 */
+	public static InputReplay read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			return new InputReplay(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Constructor.
+	 * <p>
+	 * Reads the whole log from the given stream, which isn't closed.
+	 * @param in the stream
+	 * @throws IOException if the stream can't be read or isn't a log
+	 */
+	public InputReplay(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		if (data.readInt() != InputRecorder.MAGIC) throw new IOException("Not an input log.");
+		short version = data.readShort();
+		if (version != InputRecorder.VERSION) throw new IOException("Unsupported input log version " + version + ".");
+		this.scene = data.readUTF();
+		this.stepFrequency = data.readDouble();
+		this.players = data.readInt();
+		this.recordSize = InputRecorder.getRecordSize(this.players);
+
+		// read the records until the end
+		byte[] records = new byte[4096];
+		int length = 0;
+		while (true) {
+			if (length == records.length) {
+				records = Arrays.copyOf(records, records.length * 2);
+			}
+			int n = data.read(records, length, records.length - length);
+			if (n < 0) break;
+			length += n;
+		}
+		if (this.recordSize > 0 && length % this.recordSize != 0) {
+			throw new EOFException("The input log ends in the middle of a step.");
+		}
+		this.records = records;
+		this.steps = this.recordSize > 0 ? length / this.recordSize : 0;
+	}
+
+	/**
+	 * Creates the recorded scene in its starting state.
+	 * @return {@link Simulation}
+	 * @throws IllegalStateException if the scene doesn't match the recording
+	 */
+	public Simulation createSimulation() {
+		Simulation simulation = HeadlessSimulation.createScene(this.scene);
+		if (simulation.getPlayerCount() != this.players) {
+			throw new IllegalStateException("The scene has " + simulation.getPlayerCount() + " players, the log " + this.players + ".");
+		}
+		simulation.getWorld().getSettings().setStepFrequency(this.stepFrequency);
+		return simulation;
+	}
+
+	/**
+	 * Sets the buttons of every player of the given simulation to those
+	 * recorded for the given step.
+	 * @param simulation the simulation
+	 * @param step the step index
+	 */
+	public void apply(Simulation simulation, int step) {
+		final int offset = step * this.recordSize;
+		for (int i = 0; i < this.players; i++) {
+			simulation.setPlayerInput(i, InputRecorder.unpack(this.records, offset, i));
+		}
+	}
+
+	/**
+	 * Replays the whole log on a new instance of the scene as fast as possible.
+	 * @return long the hash of the trajectory
+	 */
+	public long run() {
+		return this.run(this.createSimulation());
+	}
+
+	/**
+	 * Replays the whole log on the given simulation as fast as possible.
+	 * @param simulation the simulation, in the state the scene starts in
+	 * @return long the hash of the trajectory
+	 */
+	public long run(Simulation simulation) {
+		final World world = simulation.getWorld();
+		final double step = world.getSettings().getStepFrequency();
+		long hash = 17;
+		long start = System.nanoTime();
+		for (int i = 0; i < this.steps; i++) {
+			this.apply(simulation, i);
+			// exactly one step since the elapsed time equals the step frequency
+			simulation.update(step);
+			hash = hash(hash, world);
+		}
+		this.duration = System.nanoTime() - start;
+		return hash;
+	}
+
+	/**
+	 * Adds the position and velocity of every body of the given world to the given hash.
+	 * @param hash the hash so far
+	 * @param world the world
+	 * @return long the new hash
+	 */
+	public static long hash(long hash, World world) {
+		List<Body> bodies = world.getBodies();
+		for (int i = 0; i < bodies.size(); i++) {
+			Body body = bodies.get(i);
+			Transform transform = body.getTransform();
+			Vector2 velocity = body.getLinearVelocity();
+			hash = hash * 31 + Double.doubleToLongBits(transform.getTranslationX());
+			hash = hash * 31 + Double.doubleToLongBits(transform.getTranslationY());
+			hash = hash * 31 + Double.doubleToLongBits(transform.getRotation());
+			hash = hash * 31 + Double.doubleToLongBits(velocity.x);
+			hash = hash * 31 + Double.doubleToLongBits(velocity.y);
+			hash = hash * 31 + Double.doubleToLongBits(body.getAngularVelocity());
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the recorded scene name.
+	 * @return String
+	 */
+	public String getScene() {
+		return this.scene;
+	}
+
+	/**
+	 * Returns the number of recorded players.
+	 * @return int
+	 */
+	public int getPlayerCount() {
+		return this.players;
+	}
+
+	/**
+	 * Returns the number of recorded steps.
+	 * @return int
+	 */
+	public int getStepCount() {
+		return this.steps;
+	}
+
+	/**
+	 * Returns the wall clock duration of the last run in seconds.
+	 * @return double
+	 */
+	public double getElapsedTime() {
+		return this.duration / HeadlessSimulation.NANO_TO_BASE;
+	}
+
+	/**
+	 * Returns the steps per second achieved by the last run.
+	 * @return double
+	 */
+	public double getStepsPerSecond() {
+		if (this.duration <= 0) return 0.0;
+		return this.steps * HeadlessSimulation.NANO_TO_BASE / this.duration;
+	}
+
+	/**
+	 * Entry point.
+	 * <p>
+	 * Replays the given log the given number of times and prints the speed
+	 * and trajectory hash of each run.
+	 * <p>
+	 * Usage: <code>InputReplay file [runs]</code>
+	 * @param args command line arguments
+	 * @throws IOException if the log can't be read
+	 */
+	public static void main(String[] args) throws IOException {
+		// make sure nothing can open a window
+		System.setProperty("java.awt.headless", "true");
+
+		if (args.length < 1) {
+			System.err.println("Usage: InputReplay file [runs]");
+			System.exit(2);
+		}
+		InputReplay replay = InputReplay.read(new File(args[0]));
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+		long first = 0;
+		boolean same = true;
+		for (int i = 0; i < runs; i++) {
+			long hash = replay.run();
+			if (i == 0) first = hash;
+			same &= hash == first;
+			System.out.println(String.format("%s run %d: %d steps in %.3f s (%.1f steps/s), hash %016x",
+					replay.getScene(),
+					i + 1,
+					replay.getStepCount(),
+					replay.getElapsedTime(),
+					replay.getStepsPerSecond(),
+					hash));
+		}
+		if (!same) {
+			System.err.println("The runs diverged.");
+			System.exit(1);
+		}
+	}
+}
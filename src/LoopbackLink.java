@@ -0,0 +1,150 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * An {@link InputLink} to another link in the same process that holds each
+ * message back for a delay, to try a {@link RollbackSession} without a
+ * network.
+ * <p>
+ * Each message is delayed by the given delay plus or minus up to the given
+ * jitter, chosen at random, so with enough jitter messages overtake each
+ * other as they would on a real network. None are lost.
+ * <p>
+ * The two ends may be used from different threads.
+ */
+public final class LoopbackLink implements InputLink {
+	/** The messages on their way to this end; guarded by this */
+	private long[] due;
+
+	/** The frame of each message */
+	private int[] frames;
+
+	/** The buttons of each message */
+	private int[] buttons;
+
+	/** The number of messages on their way */
+	private int count;
+
+	/** The frames of the messages being delivered; used by the receiving thread only */
+	private int[] arrivedFrames;
+
+	/** The buttons of the messages being delivered; used by the receiving thread only */
+	private int[] arrivedButtons;
+
+	/** The other end */
+	private LoopbackLink other;
+
+	/** The delay in nanoseconds */
+	private final long delay;
+
+	/** The jitter in nanoseconds */
+	private final long jitter;
+
+	/** The random number generator for the jitter */
+	private final Random random;
+
+	/**
+	 * Creates two connected ends.
+	 * @param delay the delay of each message in seconds
+	 * @param jitter the most the delay of each message varies by in seconds
+	 * @param seed the seed of the random jitter
+	 * @return {@link LoopbackLink}[] the two ends
+	 */
+	public static LoopbackLink[] createPair(double delay, double jitter, long seed) {
+		if (delay < 0 || jitter < 0) throw new IllegalArgumentException("The delay and jitter must be zero or greater.");
+		LoopbackLink a = new LoopbackLink(delay, jitter, seed);
+		LoopbackLink b = new LoopbackLink(delay, jitter, seed + 1);
+		a.other = b;
+		b.other = a;
+		return new LoopbackLink[] { a, b };
+	}
+
+	/**
+	 * Constructor.
+	 * @param delay the delay of each message in seconds
+	 * @param jitter the most the delay of each message varies by in seconds
+	 * @param seed the seed of the random jitter
+	 */
+	private LoopbackLink(double delay, double jitter, long seed) {
+		this.delay = (long)(delay * HeadlessSimulation.NANO_TO_BASE);
+		this.jitter = (long)(jitter * HeadlessSimulation.NANO_TO_BASE);
+		this.random = new Random(seed);
+		this.due = new long[64];
+		this.frames = new int[64];
+		this.buttons = new int[64];
+		this.arrivedFrames = new int[64];
+		this.arrivedButtons = new int[64];
+	}
+
+	/* (non-Javadoc)
+	 * @see InputLink#send(int, int)
+	 */
+	@Override
+	public void send(int frame, int buttons) {
+		long delay = this.delay;
+		if (this.jitter > 0) {
+			delay += (long)((this.random.nextDouble() * 2.0 - 1.0) * this.jitter);
+		}
+		this.other.put(System.nanoTime() + Math.max(delay, 0), frame, buttons);
+	}
+
+	/**
+	 * Adds a message on its way to this end.
+	 * @param time the time it arrives in nanoseconds
+	 * @param frame the frame
+	 * @param buttons the buttons
+	 */
+	private synchronized void put(long time, int frame, int buttons) {
+		if (this.count == this.due.length) {
+			this.due = Arrays.copyOf(this.due, this.count * 2);
+			this.frames = Arrays.copyOf(this.frames, this.count * 2);
+			this.buttons = Arrays.copyOf(this.buttons, this.count * 2);
+		}
+		this.due[this.count] = time;
+		this.frames[this.count] = frame;
+		this.buttons[this.count] = buttons;
+		this.count++;
+	}
+
+	/* (non-Javadoc)
+	 * @see InputLink#receive(InputLink.Handler)
+	 */
+	@Override
+	public void receive(Handler handler) {
+		// take the arrived messages out first and hand them over without the
+		// lock, so a handler that throws leaves the messages consistent
+		int arrived = 0;
+		synchronized (this) {
+			final long now = System.nanoTime();
+			if (this.arrivedFrames.length < this.count) {
+				this.arrivedFrames = new int[this.due.length];
+				this.arrivedButtons = new int[this.due.length];
+			}
+			int kept = 0;
+			for (int i = 0; i < this.count; i++) {
+				if (this.due[i] - now <= 0) {
+					this.arrivedFrames[arrived] = this.frames[i];
+					this.arrivedButtons[arrived] = this.buttons[i];
+					arrived++;
+				} else {
+					this.due[kept] = this.due[i];
+					this.frames[kept] = this.frames[i];
+					this.buttons[kept] = this.buttons[i];
+					kept++;
+				}
+			}
+			this.count = kept;
+		}
+		for (int i = 0; i < arrived; i++) {
+			handler.receive(this.arrivedFrames[i], this.arrivedButtons[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of messages on their way to this end.
+	 * @return int
+	 */
+	public synchronized int getPendingCount() {
+		return this.count;
+	}
+}
@@ -0,0 +1,358 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plays the ball collider with many variants of the {@link Wheel}
+ * parameters at once, without windows, and writes how each variant
+ * played to a CSV file.
+ * <p>
+ * Every variant gets its own {@link BallColliderScene}, built and stepped
+ * by one task of a {@link ForkJoinPool}. The tasks share nothing but the
+ * button script, which is only read, so they scale with the number of cores
+ * and every variant gives the same result however many threads run the
+ * sweep. Both wheels of every variant are driven by the same script, so
+ * the variants can be compared.
+ * <p>
+ * Usage: <code>ParameterSweep [--density 0.5,1,2] [--friction ...]
+ * [--restitution ...] [--side-speed ...] [--jump-speed ...] [--steps 3600]
+ * [--threads n] [--seed 1] [--out sweep.csv]</code>
+ * <p>
+ * A sweep runs every combination of the listed values; parameters that
+ * aren't listed keep the {@link Wheel} defaults.
+ */
+public final class ParameterSweep {
+	/** The CSV header */
+	private static final String HEADER = "variant,density,friction,restitution,side_speed,jump_speed,mean_speed,max_height,airborne,wheel_contacts,steps_per_second";
+
+	/**
+	 * The wheel parameters of one variant.
+	 */
+	public static final class Variant {
+		/** The tire density */
+		public final double density;
+
+		/** The tire friction */
+		public final double friction;
+
+		/** The tire restitution */
+		public final double restitution;
+
+		/** The sideways force and top speed */
+		public final double sideSpeed;
+
+		/** The jump impulse */
+		public final double jumpSpeed;
+
+		/**
+		 * Constructor.
+		 * @param density the tire density
+		 * @param friction the tire friction
+		 * @param restitution the tire restitution
+		 * @param sideSpeed the sideways force and top speed
+		 * @param jumpSpeed the jump impulse
+		 */
+		public Variant(double density, double friction, double restitution, double sideSpeed, double jumpSpeed) {
+			this.density = density;
+			this.friction = friction;
+			this.restitution = restitution;
+			this.sideSpeed = sideSpeed;
+			this.jumpSpeed = jumpSpeed;
+		}
+
+		/**
+		 * Applies the parameters to the given wheel.
+		 * @param wheel the wheel
+		 */
+		public void apply(Wheel wheel) {
+			wheel.setTire(this.density, this.friction, this.restitution);
+			wheel.setSideSpeed(this.sideSpeed);
+			wheel.setJumpSpeed(this.jumpSpeed);
+		}
+	}
+
+	/**
+	 * How one variant played, for both wheels together.
+	 */
+	public static final class Result {
+		/** The mean horizontal speed in m/s */
+		public double meanSpeed;
+
+		/** The highest a wheel got in m */
+		public double maximumHeight;
+
+		/** The fraction of wheel steps spent off the floor and hill */
+		public double airborne;
+
+		/** The number of steps the wheels touched each other */
+		public int wheelContacts;
+
+		/** The steps per second the variant was stepped at */
+		public double stepsPerSecond;
+	}
+
+	/**
+	 * Plays one variant.
+	 */
+	private final class Play extends RecursiveAction {
+		/** The serial version id */
+		private static final long serialVersionUID = 1L;
+
+		/** The variant index */
+		private final int index;
+
+		/**
+		 * Constructor.
+		 * @param index the variant index
+		 */
+		Play(int index) {
+			this.index = index;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			results[this.index] = play(variants.get(this.index));
+		}
+	}
+
+	/** The variants */
+	private final List<Variant> variants;
+
+	/** The number of steps per variant */
+	private final int steps;
+
+	/** The buttons of both players for every step; only read once created */
+	private final int[] script;
+
+	/** The results, by variant index */
+	private Result[] results;
+
+	/**
+	 * Constructor.
+	 * @param variants the variants
+	 * @param steps the number of steps to play each variant for
+	 * @param seed the seed of the random button script
+	 */
+	public ParameterSweep(List<Variant> variants, int steps, long seed) {
+		this.variants = new ArrayList<Variant>(variants);
+		this.steps = steps;
+
+		// buttons that change every half second or so, for both players
+		Random random = new Random(seed);
+		this.script = new int[steps * 2];
+		for (int i = 0; i < steps * 2; i++) {
+			this.script[i] = i >= 2 && random.nextInt(30) != 0 ? this.script[i - 2] : random.nextInt(1 << InputQueue.BUTTONS);
+		}
+	}
+
+	/**
+	 * Plays every variant on the given pool and waits for them all.
+	 * @param pool the pool
+	 * @return {@link Result}[] the results, in the order of the variants
+	 */
+	public Result[] run(ForkJoinPool pool) {
+		this.results = new Result[this.variants.size()];
+		final Play[] tasks = new Play[this.variants.size()];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new Play(i);
+		}
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+		return this.results;
+	}
+
+	/**
+	 * Plays the given variant on a new scene.
+	 * @param variant the variant
+	 * @return {@link Result}
+	 */
+	private Result play(Variant variant) {
+		BallColliderScene scene = new BallColliderScene();
+		Wheel[] wheels = { scene.getWheel(0), scene.getWheel(1) };
+		for (Wheel wheel : wheels) {
+			variant.apply(wheel);
+		}
+		final double step = scene.getWorld().getSettings().getStepFrequency();
+
+		Result result = new Result();
+		double speed = 0.0;
+		long airborne = 0;
+		result.maximumHeight = Double.NEGATIVE_INFINITY;
+		long start = System.nanoTime();
+		for (int i = 0; i < this.steps; i++) {
+			scene.setPlayerInput(0, this.script[i * 2]);
+			scene.setPlayerInput(1, this.script[i * 2 + 1]);
+			scene.update(step);
+
+			for (Wheel wheel : wheels) {
+				SimulationBody body = wheel.getBody();
+				speed += Math.abs(body.getLinearVelocity().x);
+				result.maximumHeight = Math.max(result.maximumHeight, body.getTransform().getTranslationY());
+				if (!wheel.isOnGround()) airborne++;
+			}
+			if (wheels[0].getBody().isInContact(wheels[1].getBody())) {
+				result.wheelContacts++;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+
+		result.meanSpeed = speed / (this.steps * 2.0);
+		result.airborne = airborne / (this.steps * 2.0);
+		result.stepsPerSecond = elapsed > 0 ? this.steps * HeadlessSimulation.NANO_TO_BASE / elapsed : 0.0;
+		return result;
+	}
+
+	/**
+	 * Writes the given results as CSV, one line per variant.
+	 * @param file the file
+	 * @param results the results of {@link #run(ForkJoinPool)}
+	 * @throws IOException if the file can't be written
+	 */
+	public void write(File file, Result[] results) throws IOException {
+		PrintWriter out = new PrintWriter(file, "UTF-8");
+		try {
+			out.println(HEADER);
+			for (int i = 0; i < results.length; i++) {
+				Variant v = this.variants.get(i);
+				Result r = results[i];
+				out.println(String.format(Locale.ROOT, "%d,%s,%s,%s,%s,%s,%.6f,%.6f,%.6f,%d,%.1f",
+						i,
+						v.density,
+						v.friction,
+						v.restitution,
+						v.sideSpeed,
+						v.jumpSpeed,
+						r.meanSpeed,
+						r.maximumHeight,
+						r.airborne,
+						r.wheelContacts,
+						r.stepsPerSecond));
+			}
+		} finally {
+			out.close();
+		}
+		if (out.checkError()) throw new IOException("Couldn't write " + file + ".");
+	}
+
+	/**
+	 * Returns every combination of the given values.
+	 * @param density the densities
+	 * @param friction the frictions
+	 * @param restitution the restitutions
+	 * @param sideSpeed the side speeds
+	 * @param jumpSpeed the jump speeds
+	 * @return List&lt;{@link Variant}&gt;
+	 */
+	public static List<Variant> createGrid(double[] density, double[] friction, double[] restitution, double[] sideSpeed, double[] jumpSpeed) {
+		List<Variant> variants = new ArrayList<Variant>();
+		for (double d : density) {
+			for (double f : friction) {
+				for (double r : restitution) {
+					for (double s : sideSpeed) {
+						for (double j : jumpSpeed) {
+							variants.add(new Variant(d, f, r, s, j));
+						}
+					}
+				}
+			}
+		}
+		return variants;
+	}
+
+	/**
+	 * Returns the variants.
+	 * @return List&lt;{@link Variant}&gt;
+	 */
+	public List<Variant> getVariants() {
+		return this.variants;
+	}
+
+	/**
+	 * Returns the number of steps each variant is played for.
+	 * @return int
+	 */
+	public int getStepCount() {
+		return this.steps;
+	}
+
+	/**
+	 * Entry point.
+	 * <p>
+	 * Usage: <code>ParameterSweep [--density 0.5,1,2] [--friction ...]
+	 * [--restitution ...] [--side-speed ...] [--jump-speed ...] [--steps 3600]
+	 * [--threads n] [--seed 1] [--out sweep.csv]</code>
+	 * @param args command line arguments
+	 * @throws IOException if the results can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+		// make sure nothing can open a window
+		System.setProperty("java.awt.headless", "true");
+
+		double[] density = { Wheel.DEFAULT_DENSITY };
+		double[] friction = { Wheel.DEFAULT_FRICTION };
+		double[] restitution = { Wheel.DEFAULT_RESTITUTION };
+		double[] sideSpeed = { Wheel.DEFAULT_SIDE_SPEED };
+		double[] jumpSpeed = { Wheel.DEFAULT_JUMP_SPEED };
+		int steps = 3600;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seed = 1;
+		File file = new File("sweep.csv");
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			if ("--density".equals(args[i])) density = parseList(value);
+			else if ("--friction".equals(args[i])) friction = parseList(value);
+			else if ("--restitution".equals(args[i])) restitution = parseList(value);
+			else if ("--side-speed".equals(args[i])) sideSpeed = parseList(value);
+			else if ("--jump-speed".equals(args[i])) jumpSpeed = parseList(value);
+			else if ("--steps".equals(args[i])) steps = Integer.parseInt(value);
+			else if ("--threads".equals(args[i])) threads = Integer.parseInt(value);
+			else if ("--seed".equals(args[i])) seed = Long.parseLong(value);
+			else if ("--out".equals(args[i])) file = new File(value);
+			else throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+
+		ParameterSweep sweep = new ParameterSweep(createGrid(density, friction, restitution, sideSpeed, jumpSpeed), steps, seed);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long start = System.nanoTime();
+		Result[] results = sweep.run(pool);
+		double elapsed = (System.nanoTime() - start) / HeadlessSimulation.NANO_TO_BASE;
+		pool.shutdown();
+		sweep.write(file, results);
+
+		System.out.println(String.format("%d variants of %d steps on %d threads in %.3f s (%.1f variants/s), written to %s",
+				results.length,
+				steps,
+				threads,
+				elapsed,
+				results.length / elapsed,
+				file));
+	}
+
+	/**
+	 * Parses a comma separated list of numbers.
+	 * @param list the list
+	 * @return double[]
+	 */
+	private static double[] parseList(String list) {
+		String[] parts = list.split(",");
+		double[] values = new double[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Double.parseDouble(parts[i].trim());
+		}
+		return values;
+	}
+}
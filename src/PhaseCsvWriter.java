@@ -0,0 +1,159 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Streams every window of one or more {@link PhaseTimer}s to a CSV file, for
+ * soak tests that run for hours.
+ * <p>
+ * A daemon thread polls the timers a few times per window and writes a row
+ * per phase for each new window, so the timed threads never wait on the
+ * file. The rows are:
+ * <pre>
+ * time,timer,phase,count,mean_ms,p50_ms,p99_ms,max_ms
+ * </pre>
+ * where the time is when the window ended, in seconds since the writer was
+ * created. A window that's replaced before the writer sees it is missed.
+ */
+public final class PhaseCsvWriter implements Closeable {
+	/** The CSV header */
+	private static final String HEADER = "time,timer,phase,count,mean_ms,p50_ms,p99_ms,max_ms";
+
+	/** The nanoseconds per millisecond */
+	private static final double NANO_TO_MILLI = 1.0e6;
+
+	/** The timers */
+	private final PhaseTimer[] timers;
+
+	/** The last window written per timer */
+	private final long[] written;
+
+	/** The file */
+	private final Writer out;
+
+	/** The time the writer was created in nanoseconds */
+	private final long start;
+
+	/** The polling thread */
+	private final Thread thread;
+
+	/** True once closed */
+	private volatile boolean closed;
+
+	/** The exception that stopped the writing, if any */
+	private volatile IOException failure;
+
+	/**
+	 * Constructor.
+	 * <p>
+	 * Writes the header and starts polling.
+	 * @param file the file, replaced if it exists
+	 * @param timers the timers
+	 * @throws IOException if the file can't be written
+	 */
+	public PhaseCsvWriter(File file, PhaseTimer... timers) throws IOException {
+		this.timers = timers.clone();
+		this.written = new long[timers.length];
+		this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		this.out.write(HEADER);
+		this.out.write('\n');
+		this.out.flush();
+		this.start = System.nanoTime();
+
+		this.thread = new Thread("phase-csv") {
+			@Override
+			public void run() {
+				poll();
+			}
+		};
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Writes the new windows until closed.
+	 */
+	private void poll() {
+		try {
+			while (!this.closed) {
+				double shortest = Double.MAX_VALUE;
+				for (PhaseTimer timer : this.timers) {
+					shortest = Math.min(shortest, timer.getWindowLength());
+				}
+				Thread.sleep(Math.max(1, (long)(shortest * 250)));
+				this.write();
+			}
+		} catch (InterruptedException e) {
+			// closing
+		} catch (IOException e) {
+			this.failure = e;
+		}
+	}
+
+	/**
+	 * Writes the windows that haven't been written.
+	 * @throws IOException if the file can't be written
+	 */
+	private synchronized void write() throws IOException {
+		boolean wrote = false;
+		for (int i = 0; i < this.timers.length; i++) {
+			PhaseTimer timer = this.timers[i];
+			PhaseTimer.Window window = timer.getWindow();
+			if (window == null || window.getSequence() == this.written[i]) continue;
+			this.written[i] = window.getSequence();
+			double time = (window.getStart() + window.getDuration() - this.start) / HeadlessSimulation.NANO_TO_BASE;
+			for (int p = 0; p < timer.getPhaseCount(); p++) {
+				this.out.write(String.format(Locale.ROOT, "%.3f,%s,%s,%d,%.4f,%.4f,%.4f,%.4f\n",
+						time,
+						timer.getName(),
+						timer.getPhaseName(p),
+						window.getCount(p),
+						window.getMean(p) / NANO_TO_MILLI,
+						window.getP50(p) / NANO_TO_MILLI,
+						window.getP99(p) / NANO_TO_MILLI,
+						window.getMax(p) / NANO_TO_MILLI));
+			}
+			wrote = true;
+		}
+		if (wrote) {
+			this.out.flush();
+		}
+	}
+
+	/**
+	 * Returns the exception that stopped the writing.
+	 * @return IOException null if writing hasn't failed
+	 */
+	public IOException getFailure() {
+		return this.failure;
+	}
+
+	/**
+	 * Stops polling, writes the last windows and closes the file.
+	 * @throws IOException if the file can't be written or writing had failed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) return;
+		this.closed = true;
+		this.thread.interrupt();
+		try {
+			this.thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			if (this.failure == null) {
+				this.write();
+			}
+		} finally {
+			this.out.close();
+		}
+		if (this.failure != null) throw this.failure;
+	}
+}
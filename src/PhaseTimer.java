@@ -0,0 +1,328 @@
+/**
+ * Times the phases of a repeating loop, such as the steps of the render
+ * thread, into histograms that cover a rolling window of time.
+ * <p>
+ * The owning thread calls {@link #begin()} at the start of each pass,
+ * {@link #lap(int)} at the end of each phase, which records the time since
+ * the previous call, and {@link #end()} at the end of the pass, which also
+ * records the whole pass as the {@link #getTotalPhase() total} phase. Each
+ * lap costs one {@link System#nanoTime()} and a histogram increment.
+ * <p>
+ * Once a window has passed, {@link #end()} publishes the counts,
+ * percentiles and maximum of every phase as a {@link Window} and starts a
+ * new one, so other threads can read the last complete window with
+ * {@link #getWindow()} at any time without locking.
+ * <p>
+ * An {@link AllocationMonitor} can be attached to count the bytes each
+ * phase allocates as well.
+ */
+public final class PhaseTimer {
+	/** The default window in seconds */
+	public static final double DEFAULT_WINDOW = 1.0;
+
+	/**
+	 * The timing of every phase over one window. Never changes once published.
+	 */
+	public static final class Window {
+		/** The window number, counting from one */
+		private final long sequence;
+
+		/** The time the window started in nanoseconds */
+		private final long start;
+
+		/** The duration of the window in nanoseconds */
+		private final long duration;
+
+		/** The number of laps per phase */
+		private final long[] count;
+
+		/** The mean per phase in nanoseconds */
+		private final double[] mean;
+
+		/** The 50th percentile per phase in nanoseconds */
+		private final long[] p50;
+
+		/** The 99th percentile per phase in nanoseconds */
+		private final long[] p99;
+
+		/** The maximum per phase in nanoseconds */
+		private final long[] max;
+
+		/**
+		 * Constructor.
+		 * @param sequence the window number
+		 * @param start the time the window started in nanoseconds
+		 * @param duration the duration of the window in nanoseconds
+		 * @param histograms the histogram of each phase
+		 */
+		private Window(long sequence, long start, long duration, Histogram[] histograms) {
+			final int n = histograms.length;
+			this.sequence = sequence;
+			this.start = start;
+			this.duration = duration;
+			this.count = new long[n];
+			this.mean = new double[n];
+			this.p50 = new long[n];
+			this.p99 = new long[n];
+			this.max = new long[n];
+			for (int i = 0; i < n; i++) {
+				this.count[i] = histograms[i].getCount();
+				this.mean[i] = histograms[i].getMean();
+				this.p50[i] = histograms[i].getPercentile(50);
+				this.p99[i] = histograms[i].getPercentile(99);
+				this.max[i] = histograms[i].getMax();
+			}
+		}
+
+		/**
+		 * Returns the window number, counting from one.
+		 * @return long
+		 */
+		public long getSequence() {
+			return this.sequence;
+		}
+
+		/**
+		 * Returns the time the window started, from {@link System#nanoTime()}.
+		 * @return long
+		 */
+		public long getStart() {
+			return this.start;
+		}
+
+		/**
+		 * Returns the duration of the window in nanoseconds.
+		 * @return long
+		 */
+		public long getDuration() {
+			return this.duration;
+		}
+
+		/**
+		 * Returns the number of laps of the given phase.
+		 * @param phase the phase index
+		 * @return long
+		 */
+		public long getCount(int phase) {
+			return this.count[phase];
+		}
+
+		/**
+		 * Returns the mean time of the given phase in nanoseconds.
+		 * @param phase the phase index
+		 * @return double
+		 */
+		public double getMean(int phase) {
+			return this.mean[phase];
+		}
+
+		/**
+		 * Returns the time below which the given phase took half its laps, in nanoseconds.
+		 * @param phase the phase index
+		 * @return long
+		 */
+		public long getP50(int phase) {
+			return this.p50[phase];
+		}
+
+		/**
+		 * Returns the time below which the given phase took 99% of its laps, in nanoseconds.
+		 * @param phase the phase index
+		 * @return long
+		 */
+		public long getP99(int phase) {
+			return this.p99[phase];
+		}
+
+		/**
+		 * Returns the longest time the given phase took in nanoseconds.
+		 * @param phase the phase index
+		 * @return long
+		 */
+		public long getMax(int phase) {
+			return this.max[phase];
+		}
+	}
+
+	/** The name of the timed loop */
+	private final String name;
+
+	/** The phase names, then "total" */
+	private final String[] phases;
+
+	/** The histogram of each phase in the current window */
+	private final Histogram[] histograms;
+
+	/** The window length in nanoseconds */
+	private volatile long window;
+
+	/** The time the current window started */
+	private long windowStart;
+
+	/** The time the current pass started */
+	private long passStart;
+
+	/** The time of the last lap */
+	private long last;
+
+	/** The number of windows published */
+	private long sequence;
+
+	/** The last complete window */
+	private volatile Window published;
+
+	/** Counts the allocations of the same phases; null if none */
+	private volatile AllocationMonitor allocations;
+
+	/** The allocation monitor of the current pass */
+	private AllocationMonitor passAllocations;
+
+	/**
+	 * Constructor.
+	 * @param name the name of the timed loop
+	 * @param phases the phase names, in the order of their indices
+	 */
+	public PhaseTimer(String name, String... phases) {
+		this.name = name;
+		this.phases = new String[phases.length + 1];
+		System.arraycopy(phases, 0, this.phases, 0, phases.length);
+		this.phases[phases.length] = "total";
+		this.histograms = new Histogram[this.phases.length];
+		for (int i = 0; i < this.histograms.length; i++) {
+			this.histograms[i] = new Histogram();
+		}
+		this.window = (long)(DEFAULT_WINDOW * HeadlessSimulation.NANO_TO_BASE);
+		this.windowStart = System.nanoTime();
+	}
+
+	/**
+	 * Starts a pass.
+	 */
+	public void begin() {
+		long now = System.nanoTime();
+		this.passStart = now;
+		this.last = now;
+		// read once, so a pass is monitored from its start
+		this.passAllocations = this.allocations;
+		if (this.passAllocations != null) {
+			this.passAllocations.begin();
+		}
+	}
+
+	/**
+	 * Ends the given phase, recording the time since the previous lap or
+	 * the start of the pass.
+	 * @param phase the phase index
+	 */
+	public void lap(int phase) {
+		long now = System.nanoTime();
+		this.histograms[phase].record(now - this.last);
+		this.last = now;
+		if (this.passAllocations != null) {
+			this.passAllocations.lap(phase);
+		}
+	}
+
+	/**
+	 * Ends the pass, recording its total time, and publishes the window if it has passed.
+	 */
+	public void end() {
+		long now = System.nanoTime();
+		this.histograms[this.histograms.length - 1].record(now - this.passStart);
+		long duration = now - this.windowStart;
+		if (duration >= this.window) {
+			this.published = new Window(++this.sequence, this.windowStart, duration, this.histograms);
+			for (int i = 0; i < this.histograms.length; i++) {
+				this.histograms[i].reset();
+			}
+			this.windowStart = now;
+		}
+		if (this.passAllocations != null) {
+			this.passAllocations.end();
+			this.passAllocations = null;
+		}
+	}
+
+	/**
+	 * Returns the last complete window.
+	 * @return {@link Window} null until the first window has passed
+	 */
+	public Window getWindow() {
+		return this.published;
+	}
+
+	/**
+	 * Returns the name of the timed loop.
+	 * @return String
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Returns the number of phases, including the total.
+	 * @return int
+	 */
+	public int getPhaseCount() {
+		return this.phases.length;
+	}
+
+	/**
+	 * Returns the name of the given phase.
+	 * @param phase the phase index
+	 * @return String
+	 */
+	public String getPhaseName(int phase) {
+		return this.phases[phase];
+	}
+
+	/**
+	 * Returns the index of the phase holding the total time of each pass.
+	 * @return int
+	 */
+	public int getTotalPhase() {
+		return this.phases.length - 1;
+	}
+
+	/**
+	 * Returns the monitor counting the allocations of each phase.
+	 * @return {@link AllocationMonitor} null if none
+	 */
+	public AllocationMonitor getAllocationMonitor() {
+		return this.allocations;
+	}
+
+	/**
+	 * Sets a monitor to count the allocations of each phase along with
+	 * their times, from the next pass.
+	 * <p>
+	 * Reading the allocated bytes takes longer than reading the time, which
+	 * adds a little to the time of every phase.
+	 * @param allocations the monitor, with the same phases; null for none
+	 * @throws IllegalArgumentException if the monitor has a different number of phases
+	 */
+	public void setAllocationMonitor(AllocationMonitor allocations) {
+		if (allocations != null && allocations.getPhaseCount() != this.phases.length) {
+			throw new IllegalArgumentException("The monitor must have the same phases as the timer.");
+		}
+		this.allocations = allocations;
+	}
+
+	/**
+	 * Returns the window length in seconds.
+	 * @return double
+	 */
+	public double getWindowLength() {
+		return this.window / HeadlessSimulation.NANO_TO_BASE;
+	}
+
+	/**
+	 * Sets the window length; takes effect from the current window.
+	 * @param window the window length in seconds
+	 * @throws IllegalArgumentException if window is less than or equal to zero
+	 */
+	public void setWindowLength(double window) {
+		if (window <= 0) throw new IllegalArgumentException("The window must be greater than zero.");
+		this.window = (long)(window * HeadlessSimulation.NANO_TO_BASE);
+	}
+}
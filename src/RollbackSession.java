@@ -0,0 +1,339 @@
+import java.util.Arrays;
+
+/**
+ * Steps a two player {@link Simulation} whose other player is on another
+ * machine without waiting for their buttons.
+ * <p>
+ * Each frame the local buttons are sent over the {@link InputLink} and the
+ * world is stepped straight away with the remote buttons predicted to be the
+ * same as in the frame before. When the remote buttons of an earlier frame
+ * arrive and differ from the prediction, the {@link WorldState} from before
+ * that frame is restored and the frames since are stepped again with the
+ * right buttons. The remote player usually holds the same buttons for many
+ * frames, so most predictions are right and most frames need no rollback.
+ * <p>
+ * A rollback goes back at most the given number of frames, which bounds
+ * the time it takes; if the remote buttons are later than that the session
+ * stalls, not stepping, until they arrive. That bound is the only one: the
+ * {@link #setFrameBudget(double) frame budget} isn't enforced, a rollback
+ * that takes longer is finished in the same frame and only counted in
+ * {@link #getBudgetOverrunCount()}. Lower the maximum rollback if the
+ * overruns show.
+ * <p>
+ * Both sides start from a new instance of the same scene. The world is put
+ * in {@link SimulationWorld#setDeterministic(boolean) deterministic mode},
+ * so stepping again from a restored state gives exactly the same result
+ * and both sides end up in the same state once they have the same buttons.
+ * The local buttons must only be passed to {@link #advance(int)}, not added
+ * to the scene's {@link InputQueue}.
+ * <p>
+ * Not thread safe; call from the thread stepping the world.
+ */
+public final class RollbackSession {
+	/** The simulation */
+	private final Simulation simulation;
+
+	/** The local player index */
+	private final int localPlayer;
+
+	/** The remote player index */
+	private final int remotePlayer;
+
+	/** The link to the other side */
+	private final InputLink link;
+
+	/** The most frames a rollback goes back */
+	private final int maximumRollback;
+
+	/** The ring size minus one, for wrapping frames */
+	private final int mask;
+
+	/** The step frequency in seconds */
+	private final double step;
+
+	/** The state before each frame */
+	private final WorldState[] states;
+
+	/** The local buttons of each frame */
+	private final int[] localInputs;
+
+	/** The remote buttons of each frame; received or predicted */
+	private final int[] remoteInputs;
+
+	/** The frame whose remote buttons have been received, per slot */
+	private final int[] received;
+
+	/** The remote buttons before the first frame */
+	private final int initialRemoteInput;
+
+	/** Stores the remote buttons as they arrive */
+	private final InputLink.Handler receiver = new InputLink.Handler() {
+		@Override
+		public void receive(int frame, int buttons) {
+			store(frame, buttons);
+		}
+	};
+
+	/** The next frame to step */
+	private int frame;
+
+	/** The first frame whose remote buttons haven't been received */
+	private int confirmedFrame;
+
+	/** The first frame stepped with a wrong prediction; {@link Integer#MAX_VALUE} if none */
+	private int rollbackFrame;
+
+	/** The time a rollback may take before it counts as an overrun in nanoseconds */
+	private long frameBudget;
+
+	/** The frames gone back by each rollback */
+	private final Histogram rollbackDepth;
+
+	/** The time each rollback took in nanoseconds */
+	private final Histogram resimulationTime;
+
+	/** The number of remote buttons that differed from the prediction */
+	private long mispredictions;
+
+	/** The number of times the session stalled */
+	private long stalls;
+
+	/** The number of rollbacks that took longer than the frame budget */
+	private long budgetOverruns;
+
+	/**
+	 * Constructor.
+	 * @param simulation the simulation; a new instance of the scene
+	 * @param localPlayer the index of the player on this machine
+	 * @param remotePlayer the index of the player on the other
+	 * @param link the link to the other side
+	 * @param maximumRollback the most frames a rollback goes back
+	 * @throws IllegalArgumentException if the players aren't two different players of the simulation or maximumRollback is less than one
+	 */
+	public RollbackSession(Simulation simulation, int localPlayer, int remotePlayer, InputLink link, int maximumRollback) {
+		final int players = simulation.getPlayerCount();
+		if (localPlayer < 0 || localPlayer >= players || remotePlayer < 0 || remotePlayer >= players || localPlayer == remotePlayer) {
+			throw new IllegalArgumentException("The local and remote players must be two different players of the simulation.");
+		}
+		if (maximumRollback < 1) throw new IllegalArgumentException("The maximum rollback must be one frame or more.");
+
+		this.simulation = simulation;
+		this.localPlayer = localPlayer;
+		this.remotePlayer = remotePlayer;
+		this.link = link;
+		this.maximumRollback = maximumRollback;
+		this.step = simulation.getWorld().getSettings().getStepFrequency();
+		simulation.getWorld().setDeterministic(true);
+
+		// room for the frames that can be rolled back and the remote frames
+		// that can arrive ahead of the local ones
+		final int size = Integer.highestOneBit(2 * maximumRollback + 1) << 1;
+		this.mask = size - 1;
+		this.states = new WorldState[size];
+		for (int i = 0; i < size; i++) {
+			this.states[i] = new WorldState();
+		}
+		this.localInputs = new int[size];
+		this.remoteInputs = new int[size];
+		this.received = new int[size];
+		Arrays.fill(this.received, -1);
+		this.initialRemoteInput = simulation.getPlayerInput(remotePlayer);
+
+		this.rollbackFrame = Integer.MAX_VALUE;
+		this.frameBudget = (long)(this.step * HeadlessSimulation.NANO_TO_BASE);
+		this.rollbackDepth = new Histogram();
+		this.resimulationTime = new Histogram();
+	}
+
+	/**
+	 * Steps the next frame with the given local buttons, after rolling back
+	 * for any remote buttons that have arrived.
+	 * @param buttons the local buttons as bits: 1 &lt;&lt; {@link InputQueue#LEFT} and so on
+	 * @return boolean false if the session stalled; call again with the buttons on the next tick
+	 */
+	public boolean advance(int buttons) {
+		this.poll();
+		if (this.frame - this.confirmedFrame >= this.maximumRollback) {
+			// a later rollback could go back further than allowed
+			this.stalls++;
+			return false;
+		}
+
+		final int slot = this.frame & this.mask;
+		this.localInputs[slot] = buttons;
+		this.link.send(this.frame, buttons);
+		this.states[slot].capture(this.simulation);
+		this.stepFrame(this.frame);
+		this.frame++;
+		return true;
+	}
+
+	/**
+	 * Receives the remote buttons that have arrived and rolls back if any
+	 * differ from the prediction, without stepping a new frame.
+	 */
+	public void poll() {
+		this.link.receive(this.receiver);
+		if (this.rollbackFrame < this.frame) {
+			this.rollback(this.rollbackFrame);
+		}
+		this.rollbackFrame = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Stores the remote buttons of the given frame.
+	 * @param frame the frame
+	 * @param buttons the buttons
+	 * @throws IllegalStateException if the other side is further ahead than it can be
+	 */
+	private void store(int frame, int buttons) {
+		// already received
+		if (frame < this.confirmedFrame) return;
+		// the slot before the confirmed frame still holds what predictions start from
+		if (frame - this.confirmedFrame >= this.mask) {
+			throw new IllegalStateException("Frame " + frame + " arrived while waiting for frame " + this.confirmedFrame + ".");
+		}
+		final int slot = frame & this.mask;
+		if (this.received[slot] == frame) return;
+
+		if (frame < this.frame && this.remoteInputs[slot] != buttons) {
+			this.mispredictions++;
+			this.rollbackFrame = Math.min(this.rollbackFrame, frame);
+		}
+		this.remoteInputs[slot] = buttons;
+		this.received[slot] = frame;
+		while (this.received[this.confirmedFrame & this.mask] == this.confirmedFrame) {
+			this.confirmedFrame++;
+		}
+	}
+
+	/**
+	 * Restores the state before the given frame and steps again up to the current frame.
+	 * @param from the first frame to step again
+	 */
+	private void rollback(int from) {
+		long start = System.nanoTime();
+		this.states[from & this.mask].restore(this.simulation);
+		for (int f = from; f < this.frame; f++) {
+			if (f > from) {
+				this.states[f & this.mask].capture(this.simulation);
+			}
+			this.stepFrame(f);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		this.rollbackDepth.record(this.frame - from);
+		this.resimulationTime.record(elapsed);
+		if (elapsed > this.frameBudget) {
+			this.budgetOverruns++;
+		}
+	}
+
+	/**
+	 * Steps the given frame with its buttons, predicting the remote ones if
+	 * they haven't arrived.
+	 * @param frame the frame
+	 */
+	private void stepFrame(int frame) {
+		final int slot = frame & this.mask;
+		if (this.received[slot] != frame) {
+			this.remoteInputs[slot] = frame == 0 ? this.initialRemoteInput : this.remoteInputs[(frame - 1) & this.mask];
+		}
+		this.simulation.setPlayerInput(this.localPlayer, this.localInputs[slot]);
+		this.simulation.setPlayerInput(this.remotePlayer, this.remoteInputs[slot]);
+		// exactly one step since the elapsed time equals the step frequency
+		this.simulation.update(this.step);
+	}
+
+	/**
+	 * Returns the simulation.
+	 * @return {@link Simulation}
+	 */
+	public Simulation getSimulation() {
+		return this.simulation;
+	}
+
+	/**
+	 * Returns the next frame to step, which is also the number of frames stepped.
+	 * @return int
+	 */
+	public int getFrame() {
+		return this.frame;
+	}
+
+	/**
+	 * Returns the first frame whose remote buttons haven't been received; the
+	 * frames before it won't be rolled back again.
+	 * @return int
+	 */
+	public int getConfirmedFrame() {
+		return this.confirmedFrame;
+	}
+
+	/**
+	 * Returns the most frames a rollback goes back.
+	 * @return int
+	 */
+	public int getMaximumRollback() {
+		return this.maximumRollback;
+	}
+
+	/**
+	 * Returns the frames gone back by each rollback.
+	 * @return {@link Histogram}
+	 */
+	public Histogram getRollbackDepth() {
+		return this.rollbackDepth;
+	}
+
+	/**
+	 * Returns the time each rollback took, restoring and stepping again, in nanoseconds.
+	 * @return {@link Histogram}
+	 */
+	public Histogram getResimulationTime() {
+		return this.resimulationTime;
+	}
+
+	/**
+	 * Returns the number of remote buttons that differed from the prediction.
+	 * @return long
+	 */
+	public long getMispredictionCount() {
+		return this.mispredictions;
+	}
+
+	/**
+	 * Returns the number of times {@link #advance(int)} stalled.
+	 * @return long
+	 */
+	public long getStallCount() {
+		return this.stalls;
+	}
+
+	/**
+	 * Returns the number of rollbacks that took longer than the frame budget.
+	 * @return long
+	 */
+	public long getBudgetOverrunCount() {
+		return this.budgetOverruns;
+	}
+
+	/**
+	 * Returns the time a rollback may take before it counts as a budget overrun in seconds.
+	 * @return double
+	 */
+	public double getFrameBudget() {
+		return this.frameBudget / HeadlessSimulation.NANO_TO_BASE;
+	}
+
+	/**
+	 * Sets the time a rollback may take before it counts as a budget overrun.
+	 * <p>
+	 * Only reported; a rollback isn't cut short or spread over frames when
+	 * it takes longer. Defaults to the step frequency.
+	 * @param budget the budget in seconds
+	 */
+	public void setFrameBudget(double budget) {
+		this.frameBudget = (long)(budget * HeadlessSimulation.NANO_TO_BASE);
+	}
+}
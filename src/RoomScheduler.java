@@ -0,0 +1,387 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Steps many independent {@link Simulation}s, the rooms, each at the fixed
+ * rate of its step frequency, on a shared work stealing pool.
+ * <p>
+ * A single clock thread keeps the idle rooms ordered by the time their
+ * next tick is due, sleeps until the earliest one and hands the rooms that
+ * are due to the {@link ForkJoinPool}, which spreads them across its
+ * threads. A room is never ticked by two threads at once: it only goes back
+ * to the clock once its tick is done. Each tick steps the room once, so a
+ * pool thread is only busy while a room is actually stepping, unlike a
+ * thread per room that sleeps between frames.
+ * <p>
+ * The time from when a tick was due to when it finished is the tick
+ * latency, recorded per room. A tick that finishes later than the room's
+ * deadline, one step frequency by default, is a missed deadline. A room
+ * that falls more than {@link #MAXIMUM_LAG} ticks behind skips the ticks
+ * it can't catch up on, which slows its match down, and counts them.
+ * <p>
+ * Rooms can be added and removed while the scheduler runs.
+ */
+public final class RoomScheduler {
+	/** The most ticks a room catches up on after falling behind */
+	public static final int MAXIMUM_LAG = 4;
+
+	/**
+	 * A simulation ticked by the scheduler, and its statistics.
+	 * <p>
+	 * The statistics are written by the thread ticking the room and may be
+	 * read by any thread, which sees approximate values.
+	 */
+	public static final class Room {
+		/** The simulation */
+		private final Simulation simulation;
+
+		/** The step frequency in seconds */
+		private final double step;
+
+		/** The time between ticks in nanoseconds */
+		private final long period;
+
+		/** The time a tick may take from when it was due in nanoseconds */
+		private volatile long deadline;
+
+		/** The time the next tick is due in nanoseconds */
+		private long next;
+
+		/** The time the current tick was due in nanoseconds */
+		private long due;
+
+		/** True once removed */
+		private volatile boolean removed;
+
+		/** The exception that stopped the room, if any */
+		private volatile RuntimeException failure;
+
+		/** The tick latency in nanoseconds */
+		private final Histogram latency;
+
+		/** The number of ticks */
+		private volatile long ticks;
+
+		/** The number of ticks that missed the deadline */
+		private volatile long missedDeadlines;
+
+		/** The number of ticks skipped to catch up */
+		private volatile long skippedTicks;
+
+		/** The scheduler ticking the room */
+		private final RoomScheduler scheduler;
+
+		/** Ticks the room on a pool thread */
+		private final Runnable tick = new Runnable() {
+			@Override
+			public void run() {
+				Room.this.tick();
+			}
+		};
+
+		/**
+		 * Constructor.
+		 * @param scheduler the scheduler
+		 * @param simulation the simulation
+		 * @param start the time the first tick is due in nanoseconds
+		 */
+		private Room(RoomScheduler scheduler, Simulation simulation, long start) {
+			this.scheduler = scheduler;
+			this.simulation = simulation;
+			this.step = simulation.getWorld().getSettings().getStepFrequency();
+			this.period = (long)(this.step * HeadlessSimulation.NANO_TO_BASE);
+			this.deadline = this.period;
+			this.next = start;
+			this.latency = new Histogram();
+		}
+
+		/**
+		 * Steps the simulation once and hands the room back to the clock.
+		 */
+		private void tick() {
+			try {
+				this.simulation.update(this.step);
+			} catch (RuntimeException e) {
+				// a broken room must not take the others down
+				this.failure = e;
+				this.removed = true;
+			}
+			long now = System.nanoTime();
+			long latency = now - this.due;
+			this.latency.record(latency);
+			this.ticks++;
+			if (latency > this.deadline) {
+				this.missedDeadlines++;
+			}
+
+			this.next = this.due + this.period;
+			long behind = (now - this.next) / this.period;
+			if (behind > MAXIMUM_LAG) {
+				long skipped = behind - MAXIMUM_LAG;
+				this.next += skipped * this.period;
+				this.skippedTicks += skipped;
+			}
+			this.scheduler.ready(this);
+		}
+
+		/**
+		 * Returns the simulation.
+		 * @return {@link Simulation}
+		 */
+		public Simulation getSimulation() {
+			return this.simulation;
+		}
+
+		/**
+		 * Returns the tick latency: from when each tick was due to when it finished, in nanoseconds.
+		 * @return {@link Histogram}
+		 */
+		public Histogram getLatency() {
+			return this.latency;
+		}
+
+		/**
+		 * Returns the number of ticks.
+		 * @return long
+		 */
+		public long getTickCount() {
+			return this.ticks;
+		}
+
+		/**
+		 * Returns the number of ticks that finished after the deadline.
+		 * @return long
+		 */
+		public long getMissedDeadlineCount() {
+			return this.missedDeadlines;
+		}
+
+		/**
+		 * Returns the number of ticks skipped because the room fell too far behind.
+		 * @return long
+		 */
+		public long getSkippedTickCount() {
+			return this.skippedTicks;
+		}
+
+		/**
+		 * Returns the time a tick may take from when it was due in seconds.
+		 * @return double
+		 */
+		public double getDeadline() {
+			return this.deadline / HeadlessSimulation.NANO_TO_BASE;
+		}
+
+		/**
+		 * Sets the time a tick may take from when it was due before it counts
+		 * as a missed deadline.
+		 * <p>
+		 * Defaults to the step frequency.
+		 * @param deadline the deadline in seconds
+		 */
+		public void setDeadline(double deadline) {
+			this.deadline = (long)(deadline * HeadlessSimulation.NANO_TO_BASE);
+		}
+
+		/**
+		 * Returns the exception a tick threw, which stopped the room.
+		 * @return RuntimeException null if the room hasn't failed
+		 */
+		public RuntimeException getFailure() {
+			return this.failure;
+		}
+	}
+
+	/** Orders rooms by the time their next tick is due */
+	private static final Comparator<Room> NEXT_TICK = new Comparator<Room>() {
+		@Override
+		public int compare(Room a, Room b) {
+			return Long.signum(a.next - b.next);
+		}
+	};
+
+	/** The pool the rooms are ticked on */
+	private final ForkJoinPool pool;
+
+	/** The idle rooms by next tick; only used by the clock thread */
+	private final PriorityQueue<Room> idle;
+
+	/** The rooms waiting to go back to the clock, new or after a tick */
+	private final ConcurrentLinkedQueue<Room> ready;
+
+	/** The rooms; guarded by itself */
+	private final List<Room> rooms;
+
+	/** The clock thread */
+	private volatile Thread clock;
+
+	/** True once stopped */
+	private volatile boolean stopped;
+
+	/**
+	 * Creates a scheduler ticking on a pool with a thread per core.
+	 */
+	public RoomScheduler() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a scheduler ticking on a pool with the given number of threads.
+	 * @param threads the number of threads
+	 */
+	public RoomScheduler(int threads) {
+		this.pool = new ForkJoinPool(threads);
+		this.idle = new PriorityQueue<Room>(64, NEXT_TICK);
+		this.ready = new ConcurrentLinkedQueue<Room>();
+		this.rooms = new ArrayList<Room>();
+	}
+
+	/**
+	 * Adds a room that's ticked at the step frequency of its world from now on.
+	 * @param simulation the simulation; not stepped by anything else
+	 * @return {@link Room}
+	 */
+	public Room add(Simulation simulation) {
+		Room room = new Room(this, simulation, System.nanoTime());
+		synchronized (this.rooms) {
+			this.rooms.add(room);
+		}
+		this.ready(room);
+		return room;
+	}
+
+	/**
+	 * Removes the given room; a tick that's running finishes, but no more start.
+	 * @param room the room
+	 */
+	public void remove(Room room) {
+		room.removed = true;
+		synchronized (this.rooms) {
+			this.rooms.remove(room);
+		}
+	}
+
+	/**
+	 * Returns the rooms.
+	 * @return List&lt;{@link Room}&gt; a copy
+	 */
+	public List<Room> getRooms() {
+		synchronized (this.rooms) {
+			return Collections.unmodifiableList(new ArrayList<Room>(this.rooms));
+		}
+	}
+
+	/**
+	 * Returns the number of rooms.
+	 * @return int
+	 */
+	public int getRoomCount() {
+		synchronized (this.rooms) {
+			return this.rooms.size();
+		}
+	}
+
+	/**
+	 * Returns the tick latency of all the rooms together, in nanoseconds.
+	 * @return {@link Histogram} a new histogram
+	 */
+	public Histogram getLatency() {
+		Histogram latency = new Histogram();
+		for (Room room : this.getRooms()) {
+			latency.add(room.latency);
+		}
+		return latency;
+	}
+
+	/**
+	 * Returns the number of threads the rooms are ticked on.
+	 * @return int
+	 */
+	public int getThreadCount() {
+		return this.pool.getParallelism();
+	}
+
+	/**
+	 * Starts the clock thread.
+	 * @throws IllegalStateException if already started
+	 */
+	public synchronized void start() {
+		if (this.clock != null) throw new IllegalStateException("The scheduler has already been started.");
+		this.clock = new Thread("room-clock") {
+			@Override
+			public void run() {
+				RoomScheduler.this.runClock();
+			}
+		};
+		this.clock.setDaemon(true);
+		this.clock.setPriority(Thread.MAX_PRIORITY);
+		this.clock.start();
+	}
+
+	/**
+	 * Stops ticking and waits up to the given time for the running ticks to finish.
+	 * @param timeout the most time to wait in seconds
+	 * @return boolean true if all ticks finished
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean stop(double timeout) throws InterruptedException {
+		this.stopped = true;
+		Thread clock;
+		synchronized (this) {
+			clock = this.clock;
+		}
+		if (clock != null) {
+			LockSupport.unpark(clock);
+			clock.join();
+		}
+		this.pool.shutdown();
+		return this.pool.awaitTermination((long)(timeout * HeadlessSimulation.NANO_TO_BASE), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Hands the given room back to the clock.
+	 * @param room the room
+	 */
+	private void ready(Room room) {
+		this.ready.offer(room);
+		Thread clock = this.clock;
+		if (clock != null) {
+			LockSupport.unpark(clock);
+		}
+	}
+
+	/**
+	 * Hands the rooms to the pool as their ticks fall due, until stopped.
+	 */
+	private void runClock() {
+		while (!this.stopped) {
+			Room room;
+			while ((room = this.ready.poll()) != null) {
+				if (!room.removed) {
+					this.idle.offer(room);
+				}
+			}
+
+			long now = System.nanoTime();
+			while ((room = this.idle.peek()) != null && room.next - now <= 0) {
+				this.idle.poll();
+				if (room.removed) continue;
+				room.due = room.next;
+				this.pool.execute(room.tick);
+			}
+
+			if (room == null) {
+				LockSupport.park(this);
+			} else {
+				LockSupport.parkNanos(this, room.next - now);
+			}
+		}
+	}
+}
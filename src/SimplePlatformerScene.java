@@ -0,0 +1,199 @@
+import java.awt.Color;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.Step;
+import org.dyn4j.dynamics.StepAdapter;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.MassType;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * The two capsule platformer scene, without any window attached.
+ * <p>
+ * Used by {@link SimplePlatformer} for the interactive game and by
+ * {@link HeadlessSimulation} to step the same world on machines
+ * without a display.
+ */
+public class SimplePlatformerScene extends Simulation {
+	private SimulationBody wheel;
+	private SimulationBody wheel2;
+
+	final AtomicBoolean leftPressed = new AtomicBoolean(false);
+	final AtomicBoolean rightPressed = new AtomicBoolean(false);
+	private GroundSensor ground;
+	final AtomicBoolean upPressed = new AtomicBoolean(false);
+	final AtomicBoolean leftPressed2 = new AtomicBoolean(false);
+	final AtomicBoolean rightPressed2 = new AtomicBoolean(false);
+	private GroundSensor ground2;
+	final AtomicBoolean upPressed2 = new AtomicBoolean(false);
+	private final AtomicBoolean ballsCollided = new AtomicBoolean(false);
+
+	private static final Color WHEEL_OFF_COLOR = Color.MAGENTA;
+	private static final Color WHEEL_ON_COLOR = Color.GREEN;
+	private static final Color WHEEL2_OFF_COLOR = Color.ORANGE;
+	private static final Color WHEEL2_ON_COLOR = Color.CYAN;
+
+	/** Applies the queued key transitions to the flags of each player */
+	private final InputQueue.Handler inputHandler = new InputQueue.Handler() {
+		@Override
+		public void apply(int target, int button, boolean pressed) {
+			switch (button) {
+			case InputQueue.LEFT:
+				(target == 0 ? leftPressed : leftPressed2).set(pressed);
+				break;
+			case InputQueue.RIGHT:
+				(target == 0 ? rightPressed : rightPressed2).set(pressed);
+				break;
+			case InputQueue.UP:
+				(target == 0 ? upPressed : upPressed2).set(pressed);
+				break;
+			}
+		}
+	};
+
+	/**
+	 * Creates game objects and adds them to the world.
+	 */
+	protected void initializeWorld() {
+		BallColliderScene.createArena(this.world);
+
+		// the wheel
+		wheel = new SimulationBody(WHEEL_OFF_COLOR);
+		// NOTE: lots of friction to simulate a sticky tire
+		wheel.addFixture(Geometry.createPolygonalCapsule(4, 0.5, 0.5), 1.0, 20.0, 0.1);
+		wheel.setMass(MassType.NORMAL);
+		this.world.addBody(wheel);
+		wheel.shift(new Vector2(5, 0));
+
+		//second wheel- made by ankit 
+		wheel2 = new SimulationBody(WHEEL2_OFF_COLOR);
+
+		wheel2.addFixture(Geometry.createPolygonalCapsule(4, 0.5, 0.5), 1.0, 20.0, 0.1);
+
+		wheel2.setMass(MassType.NORMAL);
+
+		this.world.addBody(wheel2);
+
+		this.world.addListener(new TracedStepListener("SimplePlatformerScene.ballsCollided", new StepAdapter() {
+			@Override
+			public void begin(Step step, World world) {
+				// at the beginning of each world step, check if the body is in
+				// contact with any of the floor bodies
+				ballsCollided.set(false);
+				List<Body> bodies2 = wheel2.getInContactBodies(false);
+
+				for (int i = 0; i < bodies2.size(); i++) {
+					if (bodies2.get(i).equals(wheel)) {
+						ballsCollided.set(true);
+						break;
+					}
+
+				}
+			}
+		}));
+
+		// count the floor contacts of each wheel as they begin and end
+		// NOTE: created here since this runs before the fields are initialized
+		ground = new GroundSensor(BallColliderScene.FLOOR_BODY);
+		ground2 = new GroundSensor(BallColliderScene.FLOOR_BODY);
+		ContactDispatcher dispatcher = ContactDispatcher.get(this.world);
+		dispatcher.subscribe(wheel, ground);
+		dispatcher.subscribe(wheel2, ground2);
+		}
+
+		/**
+		 * Applies the input of a player to their wheel.
+		 * @param player the player index
+		 */
+		private void updateBall(int player)
+		{
+			double sideSpeed = 10;
+			double jumpSpeed = 2;
+
+			SimulationBody wheel = player == 0 ? this.wheel : this.wheel2;
+			SimulationBody other = player == 0 ? this.wheel2 : this.wheel;
+			GroundSensor ground = player == 0 ? this.ground : this.ground2;
+
+			if ((player == 0 ? leftPressed : leftPressed2).get() && wheel.getLinearVelocity().getXComponent().x > -sideSpeed) {
+				wheel.applyForce(new Vector2(-sideSpeed, 0));
+			}
+			if ((player == 0 ? rightPressed : rightPressed2).get() && wheel.getLinearVelocity().getXComponent().x < sideSpeed) {
+				wheel.applyForce(new Vector2(sideSpeed, 0));
+			}
+			if ((player == 0 ? upPressed : upPressed2).get() && ground.isOnGround())
+			{
+				Vector2 force = new Vector2(0, jumpSpeed);
+				wheel.applyImpulse(force);
+			}
+
+			if (this.ballsCollided.get())
+			{
+				Vector2 currentForce = wheel.getAccumulatedForce();
+				currentForce.y = -currentForce.y;
+				other.clearAccumulatedForce();
+				other.clearForce();
+				other.applyImpulse(currentForce);
+			}
+
+			if (ground.isOnGround()) {
+				wheel.setColor(player == 0 ? WHEEL_ON_COLOR : WHEEL2_ON_COLOR);
+			} else {
+				wheel.setColor(player == 0 ? WHEEL_OFF_COLOR : WHEEL2_OFF_COLOR);
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see Simulation#update(double)
+		 */
+		@Override
+		protected void update(double elapsedTime) {
+			// apply the key transitions since the last step
+			this.input.drain(this.inputHandler);
+			// apply a torque based on key input
+			updateBall(0);
+			updateBall(1);
+			super.update(elapsedTime);
+		}
+
+		/* (non-Javadoc)
+		 * @see Simulation#getPlayerCount()
+		 */
+		@Override
+		public int getPlayerCount() {
+			return 2;
+		}
+
+		/* (non-Javadoc)
+		 * @see Simulation#getPlayerInput(int)
+		 */
+		@Override
+		public int getPlayerInput(int player) {
+			this.checkPlayer(player);
+			return ((player == 0 ? leftPressed : leftPressed2).get() ? 1 << InputQueue.LEFT : 0) |
+				   ((player == 0 ? rightPressed : rightPressed2).get() ? 1 << InputQueue.RIGHT : 0) |
+				   ((player == 0 ? upPressed : upPressed2).get() ? 1 << InputQueue.UP : 0);
+		}
+
+		/* (non-Javadoc)
+		 * @see Simulation#setPlayerInput(int, int)
+		 */
+		@Override
+		public void setPlayerInput(int player, int buttons) {
+			this.checkPlayer(player);
+			(player == 0 ? leftPressed : leftPressed2).set((buttons & (1 << InputQueue.LEFT)) != 0);
+			(player == 0 ? rightPressed : rightPressed2).set((buttons & (1 << InputQueue.RIGHT)) != 0);
+			(player == 0 ? upPressed : upPressed2).set((buttons & (1 << InputQueue.UP)) != 0);
+		}
+
+		/**
+		 * Throws if there's no such player.
+		 * @param player the player index
+		 * @throws IndexOutOfBoundsException if player isn't 0 or 1
+		 */
+		private void checkPlayer(int player) {
+			if (player < 0 || player > 1) throw new IndexOutOfBoundsException("No player " + player);
+		}
+	}
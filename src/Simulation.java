@@ -0,0 +1,97 @@
+import org.dyn4j.dynamics.World;
+
+/**
+ * The display independent part of a sample: owns the {@link World} and
+ * knows how to populate and advance it.
+ * <p>
+ * A {@link SimulationFrame} draws a simulation to the screen, a
+ * {@link HeadlessSimulation} steps it without ever creating a window.
+ */
+public abstract class Simulation {
+	/** The dynamics engine */
+	protected final SimulationWorld world;
+
+	/** The key presses and releases waiting for the next step */
+	protected final InputQueue input;
+
+	/**
+	 * Default constructor.
+	 * <p>
+	 * Creates the world and calls {@link #initializeWorld()}.
+	 */
+	public Simulation() {
+		// create the world
+		this.world = new SimulationWorld();
+		this.input = new InputQueue();
+
+		// setup the world
+		this.initializeWorld();
+	}
+
+	/**
+	 * Creates game objects and adds them to the world.
+	 */
+	protected abstract void initializeWorld();
+
+	/**
+	 * Updates the world.
+	 * <p>
+	 * Subclasses drain {@link #input} and apply their per frame input
+	 * here before calling the super method.
+	 * @param elapsedTime the elapsed time from the last update in seconds
+	 */
+	protected void update(double elapsedTime) {
+		// update the world with the elapsed time
+		this.world.update(elapsedTime);
+	}
+
+	/**
+	 * Returns the world.
+	 * @return {@link SimulationWorld}
+	 */
+	public SimulationWorld getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Returns the queue key listeners should add presses and releases to.
+	 * @return {@link InputQueue}
+	 */
+	public InputQueue getInput() {
+		return this.input;
+	}
+
+	/**
+	 * Returns the number of players whose buttons can be read and set with
+	 * {@link #getPlayerInput(int)} and {@link #setPlayerInput(int, int)}.
+	 * @return int zero if the simulation has no players
+	 */
+	public int getPlayerCount() {
+		return 0;
+	}
+
+	/**
+	 * Returns the buttons held by the given player as bits: 1 &lt;&lt;
+	 * {@link InputQueue#LEFT} and so on.
+	 * <p>
+	 * Called from the thread stepping the world.
+	 * @param player the player index
+	 * @return int
+	 * @throws IndexOutOfBoundsException if player is not less than {@link #getPlayerCount()}
+	 */
+	public int getPlayerInput(int player) {
+		throw new IndexOutOfBoundsException("No player " + player);
+	}
+
+	/**
+	 * Presses the given player's buttons whose bits are set and releases the others.
+	 * <p>
+	 * Called from the thread stepping the world.
+	 * @param player the player index
+	 * @param buttons the buttons as returned by {@link #getPlayerInput(int)}
+	 * @throws IndexOutOfBoundsException if player is not less than {@link #getPlayerCount()}
+	 */
+	public void setPlayerInput(int player, int buttons) {
+		throw new IndexOutOfBoundsException("No player " + player);
+	}
+}
@@ -1,11 +1,13 @@
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
+import java.util.List;
 
 import org.dyn4j.dynamics.Body;
 import org.dyn4j.dynamics.BodyFixture;
 import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
 
 /**
  * Custom Body class to add drawing functionality.
@@ -17,6 +19,26 @@ public class SimulationBody extends Body {
 	/** The color of the object */
 	protected Color color;
 	
+	/** The center point marker, reused so drawing doesn't allocate */
+	private final Ellipse2D.Double centerPoint = new Ellipse2D.Double();
+	
+	/** True for the classes that leave drawing as this class does it */
+	private static final ClassValue<Boolean> DRAWN_BY_DEFAULT = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			for (Class<?> c = type; c != SimulationBody.class; c = c.getSuperclass()) {
+				if (declares(c, "render", Graphics2D.class, double.class, Color.class, boolean.class, Transform.class) ||
+					declares(c, "renderFixture", Graphics2D.class, double.class, BodyFixture.class, Color.class, boolean.class)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	};
+	
+	/** The shared sprite geometry this body was last drawn with; only used by the drawing thread */
+	SpriteCache.Binding spriteBinding;
+	
 	/**
 	 * Default constructor.
 	 */
@@ -32,6 +54,102 @@ public class SimulationBody extends Body {
 		this.color = color;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.Body#removeFixture(org.dyn4j.dynamics.BodyFixture)
+	 */
+	@Override
+	public boolean removeFixture(BodyFixture fixture) {
+		boolean removed = super.removeFixture(fixture);
+		if (removed) {
+			Graphics2DRenderer.evict(fixture.getShape());
+		}
+		return removed;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.Body#removeFixture(int)
+	 */
+	@Override
+	public BodyFixture removeFixture(int index) {
+		BodyFixture fixture = super.removeFixture(index);
+		if (fixture != null) {
+			Graphics2DRenderer.evict(fixture.getShape());
+		}
+		return fixture;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.Body#removeFixture(org.dyn4j.geometry.Vector2)
+	 */
+	@Override
+	public BodyFixture removeFixture(Vector2 point) {
+		BodyFixture fixture = super.removeFixture(point);
+		if (fixture != null) {
+			Graphics2DRenderer.evict(fixture.getShape());
+		}
+		return fixture;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.Body#removeFixtures(org.dyn4j.geometry.Vector2)
+	 */
+	@Override
+	public List<BodyFixture> removeFixtures(Vector2 point) {
+		return this.evict(super.removeFixtures(point));
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.Body#removeAllFixtures()
+	 */
+	@Override
+	public List<BodyFixture> removeAllFixtures() {
+		return this.evict(super.removeAllFixtures());
+	}
+	
+	/**
+	 * Removes the cached drawing geometry of the given removed fixtures.
+	 * @param fixtures the removed fixtures
+	 * @return List&lt;{@link BodyFixture}&gt; the given fixtures
+	 */
+	private List<BodyFixture> evict(List<BodyFixture> fixtures) {
+		if (fixtures != null) {
+			for (int i = 0; i < fixtures.size(); i++) {
+				Graphics2DRenderer.evict(fixtures.get(i).getShape());
+			}
+		}
+		return fixtures;
+	}
+
+	/**
+	 * Returns true if this body is drawn the way this class draws it.
+	 * <p>
+	 * The {@link SpriteCache} and {@link BatchRenderer} draw bodies with the
+	 * default look instead of calling them, so a subclass that overrides
+	 * {@link #render(Graphics2D, double, Color, boolean, Transform)} or
+	 * {@link #renderFixture(Graphics2D, double, BodyFixture, Color, boolean)}
+	 * is neither drawn from the cache nor batched; it's drawn by itself.
+	 * @return boolean
+	 */
+	public boolean isDrawnByDefault() {
+		return DRAWN_BY_DEFAULT.get(this.getClass());
+	}
+	
+	/**
+	 * Returns true if the given class declares the given method itself.
+	 * @param type the class
+	 * @param name the method name
+	 * @param parameters the parameter types
+	 * @return boolean
+	 */
+	private static boolean declares(Class<?> type, String name, Class<?>... parameters) {
+		try {
+			type.getDeclaredMethod(name, parameters);
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
 	/**
 	 * Draws the body.
 	 * <p>
@@ -47,32 +165,48 @@ public class SimulationBody extends Body {
 	 * Draws the body.
 	 * <p>
 	 * Only coded for polygons and circles.
+	 * <p>
+	 * Draws the body where it is now, so must only be called by the thread
+	 * stepping the world; the render thread draws a {@link WorldSnapshot}
+	 * with {@link #render(Graphics2D, double, Color, boolean, Transform)}.
 	 * @param g the graphics object to render to
 	 * @param scale the scaling factor
 	 * @param color the color to render the body
 	 */
 	public void render(Graphics2D g, double scale, Color color) {
+		this.render(g, scale, color, this.isAsleep() && !this.isStatic(), this.transform);
+	}
+	
+	/**
+	 * Draws the body at the given transform.
+	 * @param g the graphics object to render to
+	 * @param scale the scaling factor
+	 * @param color the color to render the body
+	 * @param asleep true to draw the body in the brighter color of a sleeping body
+	 * @param transform the local to world transform to draw the body with
+	 */
+	public void render(Graphics2D g, double scale, Color color, boolean asleep, Transform transform) {
 		// point radius
 		final int pr = 4;
 		
-		// save the original transform
-		AffineTransform ot = g.getTransform();
+		// the translation and rotation from world coordinates to local coordinates
+		final double tx = transform.getTranslationX() * scale;
+		final double ty = transform.getTranslationY() * scale;
+		final double r = transform.getRotation();
 		
-		// transform the coordinate system from world coordinates to local coordinates
-		AffineTransform lt = new AffineTransform();
-		lt.translate(this.transform.getTranslationX() * scale, this.transform.getTranslationY() * scale);
-		lt.rotate(this.transform.getRotation());
-		
-		// apply the transform
-		g.transform(lt);
+		// apply the transform in place (getting and setting the
+		// transform of the graphics object would allocate copies)
+		g.translate(tx, ty);
+		g.rotate(r);
 		
 		// loop over all the body fixtures for this body
-		for (BodyFixture fixture : this.fixtures) {
-			this.renderFixture(g, scale, fixture, color);
+		for (int i = 0; i < this.fixtures.size(); i++) {
+			this.renderFixture(g, scale, this.fixtures.get(i), color, asleep);
 		}
 		
 		// draw a center point
-		Ellipse2D.Double ce = new Ellipse2D.Double(
+		Ellipse2D.Double ce = this.centerPoint;
+		ce.setFrame(
 				this.getLocalCenter().x * scale - pr * 0.5,
 				this.getLocalCenter().y * scale - pr * 0.5,
 				pr,
@@ -82,8 +216,45 @@ public class SimulationBody extends Body {
 		g.setColor(Color.DARK_GRAY);
 		g.draw(ce);
 		
-		// set the original transform
-		g.setTransform(ot);
+		// undo the transform
+		g.rotate(-r);
+		g.translate(-tx, -ty);
+	}
+	
+	/**
+	 * Draws the body at the given transform from the shared {@link SpriteCache}.
+	 * <p>
+	 * Falls back to {@link #render(Graphics2D, double, Color, boolean, Transform)} if
+	 * the body isn't {@link #isDrawnByDefault() drawn by default} or has a fixture
+	 * type the cache doesn't support.
+	 * @param g the graphics object to render to
+	 * @param scale the scaling factor
+	 * @param color the color to render the body
+	 * @param asleep true to draw the body in the brighter color of a sleeping body
+	 * @param transform the local to world transform to draw the body with
+	 */
+	public void renderSprite(Graphics2D g, double scale, Color color, boolean asleep, Transform transform) {
+		if (!this.isDrawnByDefault()) {
+			this.render(g, scale, color, asleep, transform);
+			return;
+		}
+		
+		final double tx = transform.getTranslationX() * scale;
+		final double ty = transform.getTranslationY() * scale;
+		final double r = transform.getRotation();
+		
+		// the stamp is drawn in the brighter color if asleep
+		Color stampColor = asleep ? Graphics2DRenderer.getBrighterColor(color) : color;
+		
+		g.translate(tx, ty);
+		g.rotate(r);
+		boolean drawn = SpriteCache.render(g, this, scale, stampColor);
+		g.rotate(-r);
+		g.translate(-tx, -ty);
+		
+		if (!drawn) {
+			this.render(g, scale, color, asleep, transform);
+		}
 	}
 	
 	/**
@@ -92,14 +263,15 @@ public class SimulationBody extends Body {
 	 * @param scale the scaling factor
 	 * @param fixture the fixture to render
 	 * @param color the color to render the fixture
+	 * @param asleep true to draw the fixture in the brighter color of a sleeping body
 	 */
-	protected void renderFixture(Graphics2D g, double scale, BodyFixture fixture, Color color) {
+	protected void renderFixture(Graphics2D g, double scale, BodyFixture fixture, Color color, boolean asleep) {
 		// get the shape on the fixture
 		Convex convex = fixture.getShape();
 		
 		// brighten the color if asleep
-		if (this.isAsleep()) {
-			color = color.brighter();
+		if (asleep) {
+			color = Graphics2DRenderer.getBrighterColor(color);
 		}
 		
 		// render the fixture
@@ -25,19 +25,31 @@
 import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.Toolkit;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.awt.Transparency;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 
 import javax.swing.JFrame;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 
 import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
 
 /**
  * A very VERY simple framework for building samples.
@@ -50,24 +62,183 @@ public abstract class SimulationFrame extends JFrame {
 
 	/** The conversion factor from nano to base */
 	public static final double NANO_TO_BASE = 1.0e9;
+	
+	/** The default number of frames drawn per second */
+	public static final double DEFAULT_FRAME_RATE = 60.0;
+	
+	/** The default maximum number of steps the physics thread may fall behind */
+	public static final int DEFAULT_MAXIMUM_STEPS = 5;
+	
+	/** The longest time between presenting frames when nothing changes in nanoseconds */
+	private static final long MAXIMUM_PRESENT_INTERVAL = 500000000L;
+	
+	/** The render phase getting the step and view ready, including the static layer */
+	private static final int RENDER_PREPARE = 0;
+	
+	/** The render phase drawing the frame */
+	private static final int RENDER_DRAW = 1;
+	
+	/** The render phase drawing the timing overlay */
+	private static final int RENDER_OVERLAY = 2;
+	
+	/** The render phase in {@link BufferStrategy#show()} */
+	private static final int RENDER_SHOW = 3;
+	
+	/** The render phase in {@link Toolkit#sync()} */
+	private static final int RENDER_SYNC = 4;
+	
+	/** The physics phase updating the world */
+	private static final int PHYSICS_UPDATE = 0;
+	
+	/** The physics phase recording the input */
+	private static final int PHYSICS_RECORD = 1;
+	
+	/** The physics phase publishing the step to the render thread */
+	private static final int PHYSICS_PUBLISH = 2;
+	
+	/** The pixels the static layer reaches past each side of the canvas, so the view can move over it */
+	private static final int STATIC_LAYER_MARGIN = 256;
+	
+	/** The timing overlay font */
+	private static final Font OVERLAY_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+	
+	/** The timing overlay background */
+	private static final Color OVERLAY_BACKGROUND = new Color(0, 0, 0, 160);
 
 	/** The canvas to draw to */
 	protected final Canvas canvas;
 	
+	/** The simulation being drawn */
+	protected final Simulation simulation;
+	
 	/** The dynamics engine */
 	protected final World world;
 	
 	/** The pixels per meter scale factor */
 	protected final double scale;
 	
+	/** The view of the world */
+	protected final Camera camera;
+	
 	/** True if the simulation is exited */
-	private boolean stopped;
+	private volatile boolean stopped;
 	
 	/** True if the simulation is paused */
-	private boolean paused;
+	private volatile boolean paused;
+	
+	/** Records the input of every step; null if not recording */
+	private volatile InputRecorder inputRecorder;
+	
+	/** True if dynamic bodies are drawn from the {@link SpriteCache} */
+	private volatile boolean spritesEnabled;
+	
+	/** True if bodies are drawn in batches by color */
+	private volatile boolean batchingEnabled;
+	
+	/** Draws the bodies in batches; only used by the render thread */
+	private final BatchRenderer batchRenderer;
+	
+	/** True if the current frame is drawn in batches; only used by the render thread */
+	private boolean batching;
+	
+	/** True if static bodies are drawn once into a background layer */
+	private volatile boolean staticLayerEnabled;
+	
+	/** The static bodies and background; only used by the render thread */
+	private final StaticLayer staticLayer;
+	
+	/** True if the current frame's static bodies are in the static layer; only used by the render thread */
+	private boolean staticLayerDrawn;
+	
+	/** The world point at the center of the current frame; only used by the render thread */
+	private double viewX, viewY;
+	
+	/** The pixels per meter of the current frame, with the zoom; only used by the render thread */
+	private double viewScale;
+	
+	/** The view the static layer was drawn with; only used by the render thread */
+	private double layerX, layerY, layerScale;
+	
+	/** Where the static layer is copied to the canvas in pixels; only used by the render thread */
+	private int layerOffsetX, layerOffsetY;
+	
+	/** The pixels past each side of the canvas being drawn; only used by the render thread */
+	private int viewMargin;
+	
+	/** The center of the body being drawn; only used by the render thread */
+	private final Vector2 renderCenter;
+	
+	/** The number of bodies drawn in the last frame */
+	private volatile int drawnBodyCount;
+	
+	/** The number of bodies drawn so far this frame; only used by the render thread */
+	private int drawnBodies;
+	
+	/** True if only the changed parts of the frame are repainted */
+	private volatile boolean dirtyRegionsEnabled;
+	
+	/** The changed parts of the frame; only used by the render thread */
+	private final DirtyRegions dirtyRegions;
+	
+	/** The frame repainted in parts or null if not created; only used by the render thread */
+	private BufferedImage frameImage;
+	
+	/** The graphics of the frame image, kept from frame to frame; only used by the render thread */
+	private Graphics2D frameGraphics;
+	
+	/** The transform the frame graphics is reset to for each dirty rectangle */
+	private final AffineTransform frameTransform;
+	
+	/** The dirty rectangle being repainted or -1 for all; only used by the render thread */
+	private int dirtyRegion;
+	
+	/** True if the last frame was repainted in parts; only used by the render thread */
+	private boolean dirtyRegionsDrawn;
+	
+	/** The view the frame image was drawn with; only used by the render thread */
+	private double frameX, frameY, frameScale;
+	
+	/** The time the last frame was presented; only used by the render thread */
+	private long lastPresent;
+	
+	/** The steps handed from the physics thread to the render thread */
+	private final SnapshotBuffer snapshots;
 	
-	/** The time stamp for the last iteration */
-	private long last;
+	/** The transform bodies are drawn with; only used by the render thread */
+	private final Transform renderTransform;
+	
+	/** Paces the render thread to the frame rate */
+	private final FramePacer renderPacer;
+	
+	/** Paces the physics thread to the step rate */
+	private final FramePacer physicsPacer;
+	
+	/** Times the phases of each frame; only written by the render thread */
+	private final PhaseTimer renderTimer;
+	
+	/** Times the phases of each step; only written by the physics thread */
+	private final PhaseTimer physicsTimer;
+	
+	/** Counts the bytes allocated in each phase of each frame */
+	private final AllocationMonitor renderAllocations;
+	
+	/** Counts the bytes allocated in each phase of each step */
+	private final AllocationMonitor physicsAllocations;
+	
+	/** True if the phase timings are drawn over the frame */
+	private volatile boolean timingOverlayEnabled;
+	
+	/** The lines of the timing overlay; only used by the render thread */
+	private String[] overlayLines;
+	
+	/** The timing windows the overlay lines were made from; only used by the render thread */
+	private PhaseTimer.Window overlayRender, overlayPhysics;
+	
+	/** The allocation windows the overlay lines were made from; only used by the render thread */
+	private AllocationMonitor.Window overlayRenderAllocations, overlayPhysicsAllocations;
+	
+	/** Streams the phase timings to a file; null if not streaming */
+	private volatile PhaseCsvWriter timingWriter;
 	
 	/**
 	 * Constructor.
@@ -75,15 +246,37 @@ public abstract class SimulationFrame extends JFrame {
 	 * By default creates a 800x600 canvas.
 	 * @param name the frame name
 	 * @param scale the pixels per meter scale factor
+	 * @param simulation the simulation to draw
 	 */
-	public SimulationFrame(String name, double scale) {
+	public SimulationFrame(String name, double scale, Simulation simulation) {
 		super(name);
 		
 		// set the scale
 		this.scale = scale;
 		
-		// create the world
-		this.world = new World();
+		// the simulation has already setup its world
+		this.simulation = simulation;
+		this.world = simulation.getWorld();
+		this.snapshots = new SnapshotBuffer();
+		this.renderTransform = new Transform();
+		this.renderCenter = new Vector2();
+		this.camera = new Camera();
+		this.batchRenderer = new BatchRenderer();
+		this.dirtyRegions = new DirtyRegions();
+		this.dirtyRegion = -1;
+		this.frameTransform = new AffineTransform();
+		this.staticLayer = new StaticLayer();
+		this.staticLayerEnabled = true;
+		
+		// set the default rates
+		this.renderPacer = new FramePacer(DEFAULT_FRAME_RATE);
+		this.physicsPacer = new FramePacer(1.0 / this.world.getSettings().getStepFrequency());
+		this.physicsPacer.setMaximumBacklog(DEFAULT_MAXIMUM_STEPS);
+		this.renderTimer = new PhaseTimer("render", "prepare", "draw", "overlay", "show", "sync");
+		this.physicsTimer = new PhaseTimer("physics", "update", "record", "publish");
+		this.renderAllocations = new AllocationMonitor("render", "prepare", "draw", "overlay", "show", "sync");
+		this.physicsAllocations = new AllocationMonitor("physics", "update", "record", "publish");
+		this.overlayLines = new String[0];
 		
 		// setup the JFrame
 		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -97,6 +290,8 @@ public abstract class SimulationFrame extends JFrame {
 			public void windowClosing(WindowEvent e) {
 				// before we stop the JVM stop the simulation
 				stop();
+				setInputRecorder(null);
+				setTimingWriter(null);
 				super.windowClosing(e);
 			}
 		});
@@ -110,6 +305,57 @@ public abstract class SimulationFrame extends JFrame {
 		this.canvas.setMinimumSize(size);
 		this.canvas.setMaximumSize(size);
 		
+		// drag to pan and use the mouse wheel to zoom
+		MouseAdapter mouse = new MouseAdapter() {
+			/** The last position of the mouse while dragging */
+			private int lastX, lastY;
+			
+			/* (non-Javadoc)
+			 * @see java.awt.event.MouseAdapter#mousePressed(java.awt.event.MouseEvent)
+			 */
+			@Override
+			public void mousePressed(MouseEvent e) {
+				this.lastX = e.getX();
+				this.lastY = e.getY();
+			}
+			
+			/* (non-Javadoc)
+			 * @see java.awt.event.MouseAdapter#mouseDragged(java.awt.event.MouseEvent)
+			 */
+			@Override
+			public void mouseDragged(MouseEvent e) {
+				// the screen y axis points down
+				double s = SimulationFrame.this.scale * camera.getZoom();
+				camera.pan((this.lastX - e.getX()) / s, (e.getY() - this.lastY) / s);
+				this.lastX = e.getX();
+				this.lastY = e.getY();
+			}
+			
+			/* (non-Javadoc)
+			 * @see java.awt.event.MouseAdapter#mouseWheelMoved(java.awt.event.MouseWheelEvent)
+			 */
+			@Override
+			public void mouseWheelMoved(MouseWheelEvent e) {
+				camera.zoom(Math.pow(1.1, -e.getPreciseWheelRotation()));
+			}
+		};
+		this.canvas.addMouseListener(mouse);
+		this.canvas.addMouseMotionListener(mouse);
+		this.canvas.addMouseWheelListener(mouse);
+		
+		// F3 shows and hides the timing overlay
+		this.canvas.addKeyListener(new KeyAdapter() {
+			/* (non-Javadoc)
+			 * @see java.awt.event.KeyAdapter#keyPressed(java.awt.event.KeyEvent)
+			 */
+			@Override
+			public void keyPressed(KeyEvent e) {
+				if (e.getKeyCode() == KeyEvent.VK_F3) {
+					setTimingOverlayEnabled(!isTimingOverlayEnabled());
+				}
+			}
+		});
+		
 		// add the canvas to the JFrame
 		this.add(this.canvas);
 		
@@ -119,99 +365,423 @@ public abstract class SimulationFrame extends JFrame {
 		
 		// size everything
 		this.pack();
-		
-		// setup the world
-		this.initializeWorld();
 	}
 	
-	/**
-	 * Creates game objects and adds them to the world.
-	 */
-	protected abstract void initializeWorld();
-	
 	/**
 	 * Start active rendering the simulation.
 	 * <p>
 	 * This should be called after the JFrame has been shown.
 	 */
 	private void start() {
-		// initialize the last update time
-		this.last = System.nanoTime();
 		// don't allow AWT to paint the canvas since we are
 		this.canvas.setIgnoreRepaint(true);
 		// enable double buffering (the JFrame has to be
 		// visible before this can be done)
 		this.canvas.createBufferStrategy(2);
-		// run a separate thread to do active rendering
-		// because we don't want to do it on the EDT
-		Thread thread = new Thread() {
+		// publish the initial state so there's something to draw
+		this.snapshots.getBack().capture(this.world, System.nanoTime());
+		this.snapshots.publish();
+		// step the world and render on separate threads so that a
+		// slow frame doesn't delay a step and a slow step doesn't
+		// delay a frame, neither of them on the EDT
+		Thread physics = new Thread("physics") {
 			public void run() {
-				// perform an infinite loop stopped
-				// render as fast as possible
-				while (!isStopped()) {
-					gameLoop();
-					// you could add a Thread.yield(); or
-					// Thread.sleep(long) here to give the
-					// CPU some breathing room
-					try {
-						Thread.sleep(5);
-					} catch (InterruptedException e) {}
-				}
+				physicsLoop();
+			}
+		};
+		Thread render = new Thread("render") {
+			public void run() {
+				renderLoop();
 			}
 		};
-		// set the game loop thread to a daemon thread so that
-		// it cannot stop the JVM from exiting
-		thread.setDaemon(true);
+		// set the game loop threads to daemon threads so that
+		// they cannot stop the JVM from exiting
+		physics.setDaemon(true);
+		render.setDaemon(true);
 		// start the game loop
-		thread.start();
+		physics.start();
+		render.start();
 	}
 	
 	/**
-	 * The method calling the necessary methods to update
-	 * the game, graphics, and poll for input.
+	 * Steps the world at the step rate until the simulation is stopped.
+	 * <p>
+	 * Each step is published to the render thread as a {@link WorldSnapshot}.
+	 */
+	private void physicsLoop() {
+		this.physicsPacer.reset();
+		while (!isStopped()) {
+			// the world always advances by the same step so that a long
+			// pause (GC, slow scheduling) doesn't become one huge step
+			final double step = this.world.getSettings().getStepFrequency();
+			
+			if (!paused) {
+				this.physicsTimer.begin();
+				// update the World
+				this.update(step);
+				this.physicsTimer.lap(PHYSICS_UPDATE);
+				this.recordInput();
+				this.physicsTimer.lap(PHYSICS_RECORD);
+				// hand the new state to the render thread
+				this.snapshots.getBack().capture(this.world, System.nanoTime());
+				this.snapshots.publish();
+				this.physicsTimer.lap(PHYSICS_PUBLISH);
+				this.physicsTimer.end();
+			}
+			
+			// wait for the next step, or run back to back to catch up
+			// if we're behind, dropping the missed time if we're too far
+			// behind (the spiral of death)
+			this.physicsPacer.await();
+		}
+	}
+	
+	/**
+	 * Draws the latest published step at the frame rate until the
+	 * simulation is stopped.
+	 */
+	private void renderLoop() {
+		this.renderPacer.reset();
+		while (!isStopped()) {
+			this.gameLoop();
+			// wait for the next frame deadline, an uncapped
+			// frame rate renders as fast as possible
+			this.renderPacer.await();
+		}
+	}
+	
+	/**
+	 * The method calling the necessary methods to draw
+	 * the latest step of the game.
+	 * <p>
+	 * Recorded as a {@link FlightEvents#FRAME} event, with showing the
+	 * buffer as a {@link FlightEvents#BUFFER_FLIP} event inside it.
 	 */
 	private void gameLoop() {
-		// get the graphics object to render to
-		Graphics2D g = (Graphics2D)this.canvas.getBufferStrategy().getDrawGraphics();
-		
-		// by default, set (0, 0) to be the center of the screen with the positive x axis
-		// pointing right and the positive y axis pointing up
-		this.transform(g);
-		
-		// reset the view
-		this.clear(g);
-		
-		// get the current time
-        long time = System.nanoTime();
-        // get the elapsed time from the last iteration
-        long diff = time - this.last;
-        // set the last time
-        this.last = time;
-    	// convert from nanoseconds to seconds
-    	double elapsedTime = (double)diff / NANO_TO_BASE;
-		
-		// render anything about the simulation (will render the World objects)
-		this.render(g, elapsedTime);
-        
-		if (!paused) {
-	        // update the World
-	        this.update(g, elapsedTime);
+		Object frameEvent = FlightEvents.FRAME.begin();
+		this.renderTimer.begin();
+		SpriteCache.nextFrame();
+		
+		// get the latest step, nothing will write to it until we ask for the next one
+		WorldSnapshot snapshot = this.snapshots.acquire();
+		
+		// draw part way between the last two steps by the time
+		// since the last one, one step behind the physics thread
+		final double step = this.world.getSettings().getStepFrequency();
+		double alpha = (System.nanoTime() - snapshot.getTime()) / NANO_TO_BASE / step;
+		if (alpha > 1.0) alpha = 1.0;
+		
+		// fix the view for this frame
+		this.camera.update(snapshot, alpha);
+		synchronized (this.camera) {
+			this.viewScale = this.scale * this.camera.getZoom();
+			// on whole pixels, so the static layer is copied at whole pixel offsets
+			this.viewX = Math.rint(this.camera.getX() * this.viewScale) / this.viewScale;
+			this.viewY = Math.rint(this.camera.getY() * this.viewScale) / this.viewScale;
 		}
 		
-		// dispose of the graphics object
-		g.dispose();
+		BufferStrategy strategy = this.canvas.getBufferStrategy();
+		this.drawnBodies = 0;
+		this.staticLayerDrawn = this.staticLayerEnabled;
+		if (this.staticLayerDrawn) {
+			this.updateStaticLayer(snapshot);
+		}
+		this.renderTimer.lap(RENDER_PREPARE);
+		
+		if (this.dirtyRegionsEnabled) {
+			// repaint the parts that changed on the kept frame
+			boolean changed = this.renderDirtyRegions(snapshot, alpha);
+			this.dirtyRegionsDrawn = true;
+			
+			// when nothing changed there's nothing to show, but show
+			// now and then in case the window needs painting
+			if (!changed && System.nanoTime() - this.lastPresent < MAXIMUM_PRESENT_INTERVAL) {
+				this.renderTimer.lap(RENDER_DRAW);
+				this.renderTimer.end();
+				FlightEvents.FRAME.commit(frameEvent, snapshot.getBodyCount(), this.drawnBodies);
+				return;
+			}
+			
+			Graphics2D g = (Graphics2D)strategy.getDrawGraphics();
+			g.drawImage(this.frameImage, 0, 0, null);
+			g.dispose();
+		} else {
+			this.dirtyRegionsDrawn = false;
+			
+			// get the graphics object to render to
+			Graphics2D g = (Graphics2D)strategy.getDrawGraphics();
+			
+			if (this.staticLayerDrawn) {
+				// copy the background and static bodies over the previous frame
+				g.drawImage(this.staticLayer.getImage(), this.layerOffsetX, this.layerOffsetY, null);
+				this.transform(g);
+			} else {
+				// by default, set (0, 0) to be the center of the screen with the positive x axis
+				// pointing right and the positive y axis pointing up
+				this.transform(g);
+				
+				// reset the view
+				this.clear(g);
+			}
+			
+			// render anything about the simulation (will render the World objects)
+			this.render(g, snapshot, alpha);
+			
+			// dispose of the graphics object
+			g.dispose();
+		}
+		this.drawnBodyCount = this.drawnBodies;
+		this.renderTimer.lap(RENDER_DRAW);
+		
+		if (this.timingOverlayEnabled) {
+			// over the frame, not into the kept frame image
+			this.renderTimingOverlay(strategy);
+			this.renderTimer.lap(RENDER_OVERLAY);
+		}
 		
 		// blit/flip the buffer
-		BufferStrategy strategy = this.canvas.getBufferStrategy();
+		Object flipEvent = FlightEvents.BUFFER_FLIP.begin();
 		if (!strategy.contentsLost()) {
 			strategy.show();
 		}
+		this.lastPresent = System.nanoTime();
+		this.renderTimer.lap(RENDER_SHOW);
 		
 		// Sync the display on some systems.
         // (on Linux, this fixes event queue problems)
         Toolkit.getDefaultToolkit().sync();
+        this.renderTimer.lap(RENDER_SYNC);
+        this.renderTimer.end();
+        FlightEvents.BUFFER_FLIP.commit(flipEvent, snapshot.getBodyCount(), this.drawnBodies);
+        FlightEvents.FRAME.commit(frameEvent, snapshot.getBodyCount(), this.drawnBodies);
+	}
+	
+	/**
+	 * Draws the last complete timing window of every phase in the top left corner.
+	 * @param strategy the buffer strategy of the frame being drawn
+	 */
+	private void renderTimingOverlay(BufferStrategy strategy) {
+		// only format the lines when there's a new window
+		PhaseTimer.Window render = this.renderTimer.getWindow();
+		PhaseTimer.Window physics = this.physicsTimer.getWindow();
+		AllocationMonitor.Window renderAllocations = null;
+		AllocationMonitor.Window physicsAllocations = null;
+		if (this.isAllocationMonitoringEnabled()) {
+			renderAllocations = this.renderAllocations.getWindow();
+			physicsAllocations = this.physicsAllocations.getWindow();
+		}
+		if (render != this.overlayRender || physics != this.overlayPhysics ||
+			renderAllocations != this.overlayRenderAllocations || physicsAllocations != this.overlayPhysicsAllocations) {
+			this.overlayRender = render;
+			this.overlayPhysics = physics;
+			this.overlayRenderAllocations = renderAllocations;
+			this.overlayPhysicsAllocations = physicsAllocations;
+			int lines = this.renderTimer.getPhaseCount() + this.physicsTimer.getPhaseCount() + 1;
+			if (this.isAllocationMonitoringEnabled()) lines += 4;
+			this.overlayLines = new String[lines];
+			this.overlayLines[0] = "phase            p50      p99      max ms";
+			int line = 1;
+			line = formatTimingLines(this.renderTimer, render, this.overlayLines, line);
+			line = formatTimingLines(this.physicsTimer, physics, this.overlayLines, line);
+			if (this.isAllocationMonitoringEnabled()) {
+				this.overlayLines[line++] = "allocated       mean      max  over budget";
+				line = formatAllocationLine(this.renderAllocations, renderAllocations, this.overlayLines, line);
+				line = formatAllocationLine(this.physicsAllocations, physicsAllocations, this.overlayLines, line);
+				AllocationMonitor.Window gcs = renderAllocations != null ? renderAllocations : physicsAllocations;
+				this.overlayLines[line++] = gcs == null ? "gc                -" :
+					String.format("gc         %6d   %6.1f ms", gcs.getCollectionCount(), gcs.getCollectionTime() / 1.0e6);
+			}
+		}
+		
+		Graphics2D g = (Graphics2D)strategy.getDrawGraphics();
+		g.setFont(OVERLAY_FONT);
+		final int height = g.getFontMetrics().getHeight();
+		g.setColor(OVERLAY_BACKGROUND);
+		g.fillRect(4, 4, 330, this.overlayLines.length * height + 8);
+		g.setColor(Color.WHITE);
+		for (int i = 0; i < this.overlayLines.length; i++) {
+			g.drawString(this.overlayLines[i], 10, 8 + (i + 1) * height - 3);
+		}
+		g.dispose();
+	}
+	
+	/**
+	 * Formats the bytes a pass of the given monitor allocated.
+	 * @param monitor the monitor
+	 * @param window its last complete window, or null
+	 * @param lines the lines to format into
+	 * @param line the line to format
+	 * @return int the next line
+	 */
+	private static int formatAllocationLine(AllocationMonitor monitor, AllocationMonitor.Window window, String[] lines, int line) {
+		final int total = monitor.getTotalPhase();
+		if (window == null) {
+			lines[line] = String.format("%-12s      -", monitor.getName());
+		} else {
+			lines[line] = String.format("%-12s %7.0f B %7d B  %d/%d",
+					monitor.getName(),
+					window.getMean(total),
+					window.getMax(total),
+					window.getOverBudgetCount(),
+					window.getCount());
+		}
+		return line + 1;
+	}
+	
+	/**
+	 * Formats a line per phase of the given timer.
+	 * @param timer the timer
+	 * @param window its last complete window, or null
+	 * @param lines the lines to format into
+	 * @param line the first line to format
+	 * @return int the line after the last one formatted
+	 */
+	private static int formatTimingLines(PhaseTimer timer, PhaseTimer.Window window, String[] lines, int line) {
+		for (int p = 0; p < timer.getPhaseCount(); p++) {
+			String name = timer.getName() + " " + timer.getPhaseName(p);
+			if (window == null || window.getCount(p) == 0) {
+				lines[line++] = String.format("%-16s        -", name);
+			} else {
+				lines[line++] = String.format("%-16s %7.2f  %7.2f  %7.2f",
+						name,
+						window.getP50(p) / 1.0e6,
+						window.getP99(p) / 1.0e6,
+						window.getMax(p) / 1.0e6);
+			}
+		}
+		return line;
+	}
+	
+	/**
+	 * Repaints the parts of the kept frame image that changed since the last frame.
+	 * @param snapshot the state of the world to render
+	 * @param alpha the interpolation factor between the previous and last step
+	 * @return boolean true if anything was repainted
+	 */
+	private boolean renderDirtyRegions(WorldSnapshot snapshot, double alpha) {
+		final int w = this.canvas.getWidth();
+		final int h = this.canvas.getHeight();
+		
+		// anything that changes the whole picture
+		if (this.frameImage == null || this.frameImage.getWidth() != w || this.frameImage.getHeight() != h) {
+			if (this.frameGraphics != null) this.frameGraphics.dispose();
+			this.frameImage = this.getGraphicsConfiguration().createCompatibleImage(w, h, Transparency.OPAQUE);
+			this.frameGraphics = this.frameImage.createGraphics();
+			this.dirtyRegions.invalidate();
+		}
+		if (!this.dirtyRegionsDrawn || this.frameX != this.viewX || this.frameY != this.viewY || this.frameScale != this.viewScale) {
+			this.dirtyRegions.invalidate();
+			this.frameX = this.viewX;
+			this.frameY = this.viewY;
+			this.frameScale = this.viewScale;
+		}
+		
+		// compare every body with the last frame
+		final int n = snapshot.getBodyCount();
+		this.dirtyRegions.begin(w, h, n);
+		for (int i = 0; i < n; i++) {
+			SimulationBody body = snapshot.getBody(i);
+			snapshot.interpolate(i, alpha, this.renderTransform);
+			
+			// the rotation disc on the canvas, with a few pixels for the outline and center point
+			double radius = body.getRotationDiscRadius() * this.viewScale + 4.0;
+			if (body.getRotationDiscRadius() <= 0.0) radius = w + h;
+			this.renderTransform.getTransformed(body.getLocalCenter(), this.renderCenter);
+			double cx = w / 2 + (this.renderCenter.x - this.viewX) * this.viewScale;
+			double cy = h / 2 - (this.renderCenter.y - this.viewY) * this.viewScale;
+			
+			this.dirtyRegions.add(body, this.renderTransform, snapshot.getColor(i), snapshot.isAsleep(i),
+					(int)Math.floor(cx - radius),
+					(int)Math.floor(cy - radius),
+					(int)Math.ceil(cx + radius),
+					(int)Math.ceil(cy + radius));
+		}
+		this.dirtyRegions.end();
+		
+		final int regions = this.dirtyRegions.getRegionCount();
+		if (regions == 0) return false;
+		
+		// one graphics for every rectangle, so repainting doesn't allocate
+		final Graphics2D g = this.frameGraphics;
+		for (int r = 0; r < regions; r++) {
+			// back to pixels for the clip and the static layer
+			g.setTransform(this.frameTransform);
+			g.setClip(this.dirtyRegions.getX(r), this.dirtyRegions.getY(r), this.dirtyRegions.getWidth(r), this.dirtyRegions.getHeight(r));
+			
+			// the background under the rectangle
+			if (this.staticLayerDrawn) {
+				g.drawImage(this.staticLayer.getImage(), this.layerOffsetX, this.layerOffsetY, null);
+				this.transform(g);
+			} else {
+				this.transform(g);
+				this.clear(g);
+			}
+			
+			// then the bodies over it
+			this.dirtyRegion = r;
+			this.render(g, snapshot, alpha);
+			this.dirtyRegion = -1;
+		}
+		return true;
 	}
 
+	/**
+	 * Draws the static bodies into the static layer if they've changed
+	 * since it was last drawn.
+	 * <p>
+	 * The layer is drawn with a margin around the view, so while only the
+	 * position of the view changes, as when following a body, it's copied
+	 * at an offset. It's only drawn again when the scale changes or the view
+	 * moves past the margin.
+	 * @param snapshot the state of the world to render
+	 */
+	private void updateStaticLayer(WorldSnapshot snapshot) {
+		final int w = this.canvas.getWidth();
+		final int h = this.canvas.getHeight();
+		final int m = STATIC_LAYER_MARGIN;
+		
+		// how far the view has moved over the layer, in whole pixels
+		// since the view is on whole pixels
+		long dx = Math.round((this.viewX - this.layerX) * this.viewScale);
+		long dy = Math.round((this.viewY - this.layerY) * this.viewScale);
+		if (this.layerScale != this.viewScale || Math.abs(dx) > m || Math.abs(dy) > m) {
+			this.staticLayer.invalidate();
+		}
+		
+		if (!this.staticLayer.isValid(snapshot, w + 2 * m, h + 2 * m)) {
+			// center the layer on the view
+			this.layerX = this.viewX;
+			this.layerY = this.viewY;
+			this.layerScale = this.viewScale;
+			dx = 0;
+			dy = 0;
+			
+			Graphics2D lg = this.staticLayer.update(snapshot, w + 2 * m, h + 2 * m).createGraphics();
+			this.viewMargin = m;
+			lg.translate(m, m);
+			this.transform(lg);
+			this.clear(lg);
+			lg.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+			lg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			for (int i = 0; i < snapshot.getBodyCount(); i++) {
+				// static bodies aren't moving, so draw them where they are
+				if (snapshot.isStatic(i)) {
+					this.render(lg, snapshot, i, 1.0);
+				}
+			}
+			this.viewMargin = 0;
+			lg.dispose();
+			
+			// the background of the kept frame changed too
+			this.dirtyRegions.invalidate();
+		}
+		
+		// the canvas is the part of the layer the view has moved to; the
+		// y axis of the world points up
+		this.layerOffsetX = (int)(-m - dx);
+		this.layerOffsetY = (int)(-m + dy);
+	}
+	
 	/**
 	 * Performs any transformations to the graphics.
 	 * <p>
@@ -225,10 +795,11 @@ public abstract class SimulationFrame extends JFrame {
 		
 		// before we render everything im going to flip the y axis and move the
 		// origin to the center (instead of it being in the top left corner)
-		AffineTransform yFlip = AffineTransform.getScaleInstance(1, -1);
-		AffineTransform move = AffineTransform.getTranslateInstance(w / 2, -h / 2);
-		g.transform(yFlip);
-		g.transform(move);
+		g.scale(1, -1);
+		g.translate(w / 2, -h / 2);
+		
+		// then move the camera's position to the center
+		g.translate(-this.viewX * this.viewScale, -this.viewY * this.viewScale);
 	}
 	
 	/**
@@ -238,48 +809,486 @@ public abstract class SimulationFrame extends JFrame {
 	protected void clear(Graphics2D g) {
 		final int w = this.canvas.getWidth();
 		final int h = this.canvas.getHeight();
+		final int m = this.viewMargin;
 		
 		// lets draw over everything with a white background
 		g.setColor(Color.WHITE);
-		g.fillRect(-w / 2, -h / 2, w, h);
+		g.fillRect(-w / 2 - m, -h / 2 - m, w + 2 * m, h + 2 * m);
 	}
 	
 	/**
 	 * Renders the example.
 	 * @param g the graphics object to render to
-	 * @param elapsedTime the elapsed time from the last update
+	 * @param snapshot the state of the world to render
+	 * @param alpha the interpolation factor between the previous and last step
 	 */
-	protected void render(Graphics2D g, double elapsedTime) {
+	protected void render(Graphics2D g, WorldSnapshot snapshot, double alpha) {
 		g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
 		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		// smooth the rotated sprites
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		
+		this.batching = this.batchingEnabled;
+		if (this.batching) {
+			this.batchRenderer.begin(g);
+		}
 		
 		// draw all the objects in the world
-		for (int i = 0; i < this.world.getBodyCount(); i++) {
-			// get the object
-			SimulationBody body = (SimulationBody) this.world.getBody(i);
-			this.render(g, elapsedTime, body);
+		for (int i = 0; i < snapshot.getBodyCount(); i++) {
+			// skip the static bodies if they're already drawn
+			if (this.staticLayerDrawn && snapshot.isStatic(i)) continue;
+			// and when repainting part of the frame, the bodies outside it
+			if (this.dirtyRegion >= 0 && !this.dirtyRegions.intersects(this.dirtyRegion, i)) continue;
+			if (this.render(g, snapshot, i, alpha)) this.drawnBodies++;
+		}
+		
+		if (this.batching) {
+			this.batchRenderer.end();
+			this.batching = false;
 		}
 	}
 	
 	/**
 	 * Renders the body.
 	 * @param g the graphics object to render to
-	 * @param elapsedTime the elapsed time from the last update
-	 * @param body the body to render
+	 * @param snapshot the state of the world to render
+	 * @param index the index of the body in the snapshot
+	 * @param alpha the interpolation factor between the previous and last step
+	 * @return boolean false if the body was skipped because it's out of view
+	 */
+	protected boolean render(Graphics2D g, WorldSnapshot snapshot, int index, double alpha) {
+		// get the object
+		SimulationBody body = snapshot.getBody(index);
+		snapshot.interpolate(index, alpha, this.renderTransform);
+		// skip it if it's off screen
+		if (!this.isVisible(body, this.renderTransform)) {
+			return false;
+		}
+		// draw the object; static bodies are usually too large to be worth a sprite
+		if (this.spritesEnabled && !body.getMass().isInfinite()) {
+			if (this.batching) {
+				// keep the drawing order
+				this.batchRenderer.flush();
+			}
+			body.renderSprite(g, this.viewScale, snapshot.getColor(index), snapshot.isAsleep(index), this.renderTransform);
+		} else if (this.batching && body.isDrawnByDefault()) {
+			this.batchRenderer.add(body, this.viewScale, snapshot.getColor(index), snapshot.isAsleep(index), this.renderTransform);
+		} else {
+			if (this.batching) {
+				// keep the drawing order
+				this.batchRenderer.flush();
+			}
+			body.render(g, this.viewScale, snapshot.getColor(index), snapshot.isAsleep(index), this.renderTransform);
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns true if any part of the given body may be in view.
+	 * <p>
+	 * Tests the square around the body's rotation disc, the circle
+	 * that contains it at any rotation, against the visible area.
+	 * @param body the body
+	 * @param transform the transform the body is drawn with
+	 * @return boolean
 	 */
-	protected void render(Graphics2D g, double elapsedTime, SimulationBody body) {
-		// draw the object
-		body.render(g, this.scale);
+	protected boolean isVisible(SimulationBody body, Transform transform) {
+		// the radius is only known once the mass has been set
+		final double radius = body.getRotationDiscRadius();
+		if (radius <= 0.0) return true;
+		
+		transform.getTransformed(body.getLocalCenter(), this.renderCenter);
+		
+		// half the visible area, with a few pixels for the outline and center point
+		// and, when drawing the static layer, its margin
+		final double pad = (4.0 + this.viewMargin) / this.viewScale;
+		final double hw = this.canvas.getWidth() * 0.5 / this.viewScale + radius + pad;
+		final double hh = this.canvas.getHeight() * 0.5 / this.viewScale + radius + pad;
+		
+		return Math.abs(this.renderCenter.x - this.viewX) <= hw &&
+			   Math.abs(this.renderCenter.y - this.viewY) <= hh;
 	}
 	
 	/**
-	 * Updates the world.
-	 * @param g the graphics object to render to
-	 * @param elapsedTime the elapsed time from the last update
+	 * Updates the world by one step.
+	 * <p>
+	 * Called from the physics thread.
+	 * @param elapsedTime the step time in seconds
+	 */
+	protected void update(double elapsedTime) {
+        // let the simulation apply its input and update the world
+        this.simulation.update(elapsedTime);
+	}
+	
+	/**
+	 * Records the input of the step just taken, if recording.
+	 * <p>
+	 * Called from the physics thread.
+	 */
+	private void recordInput() {
+		InputRecorder recorder = this.inputRecorder;
+		if (recorder == null) return;
+		try {
+			recorder.record();
+		} catch (IOException e) {
+			e.printStackTrace();
+			// stop recording rather than fail every step
+			this.setInputRecorder(null);
+		}
+	}
+	
+	/**
+	 * Applies the command line options shared by the example applications.
+	 * <p>
+	 * Options: <code>[--record file] [--timing file] [--overlay]
+	 * [--render-budget bytes] [--physics-budget bytes]</code> where the record
+	 * file receives the input of every step for {@link InputReplay}, the
+	 * timing file receives the phase timings every second and the overlay
+	 * shows them, which F3 toggles too. A budget counts the bytes each frame
+	 * or step allocates and warns when one allocates more.
+	 * <p>
+	 * The recording names the scene after the class of this frame, so it must
+	 * be one {@link HeadlessSimulation#createScene(String)} accepts. Call
+	 * before {@link #run()}.
+	 * @param args the command line arguments
+	 * @throws IllegalArgumentException if an option is unknown or its value is missing
+	 * @throws IOException if the recording or timing file can't be started
+	 */
+	public void configure(String[] args) throws IOException {
+		for (int i = 0; i < args.length; i++) {
+			String option = args[i];
+			if ("--overlay".equals(option)) {
+				this.setTimingOverlayEnabled(true);
+				continue;
+			}
+			if (i + 1 == args.length) throw new IllegalArgumentException("Missing value for option: " + option);
+			String value = args[++i];
+			if ("--record".equals(option)) {
+				this.setInputRecorder(new InputRecorder(this.getClass().getSimpleName(), this.simulation, new File(value)));
+			} else if ("--timing".equals(option)) {
+				this.setTimingWriter(new PhaseCsvWriter(new File(value), this.renderTimer, this.physicsTimer));
+			} else if ("--render-budget".equals(option)) {
+				this.renderAllocations.setBudget(Long.parseLong(value));
+				this.setAllocationMonitoringEnabled(true);
+			} else if ("--physics-budget".equals(option)) {
+				this.physicsAllocations.setBudget(Long.parseLong(value));
+				this.setAllocationMonitoringEnabled(true);
+			} else {
+				throw new IllegalArgumentException("Unknown option: " + option);
+			}
+		}
+	}
+	
+	/**
+	 * Starts recording the input of every step with the given recorder,
+	 * closing the recorder in use, if any.
+	 * <p>
+	 * The recorder should have been created before the first step so that
+	 * the log starts from the scene's starting state.
+	 * @param inputRecorder the recorder; null to stop recording
+	 */
+	public void setInputRecorder(InputRecorder inputRecorder) {
+		InputRecorder previous;
+		synchronized (this) {
+			previous = this.inputRecorder;
+			this.inputRecorder = inputRecorder;
+		}
+		if (previous != null && previous != inputRecorder) {
+			try {
+				previous.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Returns the recorder recording the input of every step.
+	 * @return {@link InputRecorder} or null if not recording
+	 */
+	public InputRecorder getInputRecorder() {
+		return this.inputRecorder;
+	}
+	
+	/**
+	 * Starts streaming the phase timings of both threads with the given
+	 * writer, closing the writer in use, if any.
+	 * @param timingWriter the writer; null to stop streaming
+	 */
+	public void setTimingWriter(PhaseCsvWriter timingWriter) {
+		PhaseCsvWriter previous;
+		synchronized (this) {
+			previous = this.timingWriter;
+			this.timingWriter = timingWriter;
+		}
+		if (previous != null && previous != timingWriter) {
+			try {
+				previous.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Returns the writer streaming the phase timings.
+	 * @return {@link PhaseCsvWriter} or null if not streaming
+	 */
+	public PhaseCsvWriter getTimingWriter() {
+		return this.timingWriter;
+	}
+	
+	/**
+	 * Sets whether the phase timings are drawn over the frame.
+	 * <p>
+	 * Shows the 50th and 99th percentile and the maximum time of each
+	 * phase of the render and physics threads over the last second.
+	 * F3 toggles it too.
+	 * @param timingOverlayEnabled true to draw the timings
+	 */
+	public void setTimingOverlayEnabled(boolean timingOverlayEnabled) {
+		this.timingOverlayEnabled = timingOverlayEnabled;
+	}
+	
+	/**
+	 * Returns true if the phase timings are drawn over the frame.
+	 * @return boolean
+	 */
+	public boolean isTimingOverlayEnabled() {
+		return this.timingOverlayEnabled;
+	}
+	
+	/**
+	 * Sets whether the bytes allocated by each phase of the render and
+	 * physics threads are counted along with their times.
+	 * <p>
+	 * The counts show in the timing overlay, and a pass that allocates
+	 * more than the budget of its {@link AllocationMonitor} is warned about.
+	 * @param flag true to count the allocations
+	 */
+	public void setAllocationMonitoringEnabled(boolean flag) {
+		this.renderTimer.setAllocationMonitor(flag ? this.renderAllocations : null);
+		this.physicsTimer.setAllocationMonitor(flag ? this.physicsAllocations : null);
+	}
+	
+	/**
+	 * Returns true if the bytes allocated by each phase are counted.
+	 * @return boolean
+	 */
+	public boolean isAllocationMonitoringEnabled() {
+		return this.renderTimer.getAllocationMonitor() != null;
+	}
+	
+	/**
+	 * Returns the monitor of the bytes allocated in each phase of the
+	 * render thread, for example to set its budget.
+	 * @return {@link AllocationMonitor}
+	 */
+	public AllocationMonitor getRenderAllocations() {
+		return this.renderAllocations;
+	}
+	
+	/**
+	 * Returns the monitor of the bytes allocated in each phase of the
+	 * physics thread, for example to set its budget.
+	 * @return {@link AllocationMonitor}
+	 */
+	public AllocationMonitor getPhysicsAllocations() {
+		return this.physicsAllocations;
+	}
+	
+	/**
+	 * Returns the timer of the render thread's phases: prepare, draw,
+	 * overlay, show and sync.
+	 * @return {@link PhaseTimer}
+	 */
+	public PhaseTimer getRenderTimer() {
+		return this.renderTimer;
+	}
+	
+	/**
+	 * Returns the timer of the physics thread's phases: update, record and publish.
+	 * @return {@link PhaseTimer}
+	 */
+	public PhaseTimer getPhysicsTimer() {
+		return this.physicsTimer;
+	}
+	
+	/**
+	 * Sets the number of physics steps per second.
+	 * @param stepRate the step rate in hertz
+	 * @throws IllegalArgumentException if stepRate is less than or equal to zero
+	 */
+	public void setStepRate(double stepRate) {
+		if (stepRate <= 0) throw new IllegalArgumentException("The step rate must be greater than zero.");
+		this.world.getSettings().setStepFrequency(1.0 / stepRate);
+		this.physicsPacer.setRate(stepRate);
+	}
+	
+	/**
+	 * Returns the number of physics steps per second.
+	 * @return double
+	 */
+	public double getStepRate() {
+		return 1.0 / this.world.getSettings().getStepFrequency();
+	}
+	
+	/**
+	 * Sets the number of frames drawn per second.
+	 * @param frameRate the frame rate in hertz; zero or less to draw as fast as possible
+	 */
+	public void setFrameRate(double frameRate) {
+		this.renderPacer.setRate(frameRate);
+	}
+	
+	/**
+	 * Returns the number of frames drawn per second.
+	 * @return double the frame rate or zero if uncapped
+	 */
+	public double getFrameRate() {
+		return this.renderPacer.getRate();
+	}
+	
+	/**
+	 * Sets the maximum number of steps the physics thread may fall behind.
+	 * <p>
+	 * Up to this many steps are run back to back to catch up; beyond
+	 * that the missed time is dropped and the simulation runs slower
+	 * than real time.
+	 * @param maximumSteps the maximum number of steps
+	 * @throws IllegalArgumentException if maximumSteps is less than one
+	 */
+	public void setMaximumSteps(int maximumSteps) {
+		if (maximumSteps < 1) throw new IllegalArgumentException("The maximum number of steps must be one or more.");
+		this.physicsPacer.setMaximumBacklog(maximumSteps);
+	}
+	
+	/**
+	 * Returns the maximum number of steps the physics thread may fall behind.
+	 * @return int
+	 */
+	public int getMaximumSteps() {
+		return this.physicsPacer.getMaximumBacklog();
+	}
+	
+	/**
+	 * Sets whether dynamic bodies are drawn from pre-rasterized sprites.
+	 * <p>
+	 * Bodies with the same fixtures share their sprites, which is much
+	 * cheaper than drawing their geometry when there are many of them.
+	 * @param spritesEnabled true to draw dynamic bodies from sprites
+	 * @see SpriteCache
+	 */
+	public void setSpritesEnabled(boolean spritesEnabled) {
+		this.spritesEnabled = spritesEnabled;
+	}
+	
+	/**
+	 * Returns true if dynamic bodies are drawn from pre-rasterized sprites.
+	 * @return boolean
+	 */
+	public boolean isSpritesEnabled() {
+		return this.spritesEnabled;
+	}
+	
+	/**
+	 * Sets whether only the parts of the frame that changed are repainted.
+	 * <p>
+	 * The frame is kept in an image and only the rectangles around bodies
+	 * that moved or changed color are repainted; when nothing changed,
+	 * such as when every body is asleep, nothing is drawn or shown.
+	 * Assumes the default {@link #transform(Graphics2D)}.
+	 * @param dirtyRegionsEnabled true to repaint only what changed
+	 * @see DirtyRegions
+	 */
+	public void setDirtyRegionsEnabled(boolean dirtyRegionsEnabled) {
+		this.dirtyRegionsEnabled = dirtyRegionsEnabled;
+	}
+	
+	/**
+	 * Returns true if only the parts of the frame that changed are repainted.
+	 * @return boolean
+	 */
+	public boolean isDirtyRegionsEnabled() {
+		return this.dirtyRegionsEnabled;
+	}
+	
+	/**
+	 * Sets whether bodies are drawn in batches by color.
+	 * <p>
+	 * Gives the same picture with far fewer fills and color changes
+	 * when there are many bodies.
+	 * @param batchingEnabled true to draw bodies in batches
+	 * @see BatchRenderer
+	 */
+	public void setBatchingEnabled(boolean batchingEnabled) {
+		this.batchingEnabled = batchingEnabled;
+	}
+	
+	/**
+	 * Returns true if bodies are drawn in batches by color.
+	 * @return boolean
+	 */
+	public boolean isBatchingEnabled() {
+		return this.batchingEnabled;
+	}
+	
+	/**
+	 * Sets whether static bodies are drawn once into a background layer
+	 * instead of every frame.
+	 * <p>
+	 * Enabled by default. The layer is drawn again whenever a static body
+	 * is added, removed, moved or recolored.
+	 * @param staticLayerEnabled true to cache the static bodies
+	 * @see StaticLayer
+	 */
+	public void setStaticLayerEnabled(boolean staticLayerEnabled) {
+		this.staticLayerEnabled = staticLayerEnabled;
+	}
+	
+	/**
+	 * Returns true if static bodies are drawn once into a background layer.
+	 * @return boolean
+	 */
+	public boolean isStaticLayerEnabled() {
+		return this.staticLayerEnabled;
+	}
+	
+	/**
+	 * Returns the camera.
+	 * @return {@link Camera}
+	 */
+	public Camera getCamera() {
+		return this.camera;
+	}
+	
+	/**
+	 * Returns the number of bodies drawn in the last frame, not counting
+	 * the static bodies in the static layer.
+	 * @return int
+	 */
+	public int getDrawnBodyCount() {
+		return this.drawnBodyCount;
+	}
+	
+	/**
+	 * Returns the pacer of the render thread.
+	 * <p>
+	 * Its histograms hold the measured frame times and frame jitter.
+	 * @return {@link FramePacer}
+	 */
+	public FramePacer getRenderPacer() {
+		return this.renderPacer;
+	}
+	
+	/**
+	 * Returns the pacer of the physics thread.
+	 * <p>
+	 * Its histograms hold the measured step times and step jitter.
+	 * @return {@link FramePacer}
 	 */
-	protected void update(Graphics2D g, double elapsedTime) {
-        // update the world with the elapsed time
-        this.world.update(elapsedTime);
+	public FramePacer getPhysicsPacer() {
+		return this.physicsPacer;
 	}
 	
 	/**
@@ -0,0 +1,96 @@
+import java.util.List;
+
+import org.dyn4j.collision.broadphase.BroadphaseDetector;
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.dynamics.contact.DefaultContactManager;
+
+/**
+ * The world of a {@link Simulation}.
+ * <p>
+ * Adds a way to bring the contacts up to date with the bodies without
+ * stepping, for when bodies have been moved by hand, for example by
+ * {@link WorldState#restore(Simulation)}.
+ * <p>
+ * Each step is recorded as a {@link FlightEvents#WORLD_STEP} event.
+ * <p>
+ * In deterministic mode the next step depends only on what a
+ * {@link WorldState} holds, so restoring a state and stepping again repeats
+ * the original steps exactly.
+ */
+public class SimulationWorld extends World {
+	/** True if the world keeps no state between steps that a {@link WorldState} doesn't hold */
+	private boolean deterministic;
+
+	/**
+	 * Detects the contacts between the bodies where they are now.
+	 * <p>
+	 * The contact listeners are notified as they are at the end of a step:
+	 * contacts that no longer exist end, new ones begin and the others
+	 * persist, so counts kept by listeners such as {@link GroundSensor}
+	 * stay right.
+	 */
+	public void updateContacts() {
+		this.detect();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.World#step()
+	 */
+	@Override
+	protected void step() {
+		Object event = FlightEvents.WORLD_STEP.begin();
+		super.step();
+		if (event != null) {
+			FlightEvents.WORLD_STEP.commit(event, this.getBodyCount(), this.contactManager.getContactCount());
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.World#detect()
+	 */
+	@Override
+	protected void detect() {
+		if (this.deterministic) {
+			// the broadphase tree depends on how the bodies got where they
+			// are and decides the order of the contacts, so build it anew
+			BroadphaseDetector<Body, BodyFixture> broadphase = this.broadphaseDetector;
+			List<Body> bodies = this.getBodies();
+			broadphase.clear();
+			for (int i = 0; i < bodies.size(); i++) {
+				broadphase.add(bodies.get(i));
+			}
+		}
+		super.detect();
+	}
+
+	/**
+	 * Sets deterministic mode.
+	 * <p>
+	 * Turns off what the world carries from step to step but a
+	 * {@link WorldState} can't capture: the contact impulses the solver starts
+	 * from, the time bodies have been resting before they fall asleep and the
+	 * shape of the broadphase tree, which is rebuilt every step. Bodies
+	 * settle a little more slowly without the impulses and no longer fall
+	 * asleep on their own.
+	 * @param flag true to enable
+	 * @throws UnsupportedOperationException if a custom contact manager has been set
+	 */
+	public void setDeterministic(boolean flag) {
+		if (!(this.contactManager instanceof DefaultContactManager)) {
+			throw new UnsupportedOperationException("Deterministic mode needs the default contact manager.");
+		}
+		((DefaultContactManager)this.contactManager).setWarmStartingEnabled(!flag);
+		this.getSettings().setAutoSleepingEnabled(!flag);
+		this.deterministic = flag;
+	}
+
+	/**
+	 * Returns true if deterministic mode is enabled.
+	 * @return boolean
+	 */
+	public boolean isDeterministic() {
+		return this.deterministic;
+	}
+}
@@ -0,0 +1,77 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands {@link WorldSnapshot}s from the physics thread to the render thread
+ * without either side ever waiting for the other.
+ * <p>
+ * This is double buffering with one spare: the physics thread writes the back
+ * snapshot while the render thread draws the front one, and the spare holds
+ * the latest finished snapshot. Publishing and acquiring just swap a slot
+ * index with the spare, so neither thread holds a lock while it works on its
+ * snapshot and a slow frame never blocks a step (or the other way around).
+ */
+public final class SnapshotBuffer {
+	/** The bit set on the spare index when it holds a snapshot the render thread hasn't seen */
+	private static final int FRESH = 4;
+
+	/** The bits holding the slot index */
+	private static final int INDEX = 3;
+
+	/** The snapshots */
+	private final WorldSnapshot[] slots;
+
+	/** The slot written by the physics thread */
+	private int back;
+
+	/** The slot drawn by the render thread */
+	private int front;
+
+	/** The slot holding the latest published snapshot, plus the {@link #FRESH} bit */
+	private final AtomicInteger spare;
+
+	/**
+	 * Default constructor.
+	 */
+	public SnapshotBuffer() {
+		this.slots = new WorldSnapshot[] {
+			new WorldSnapshot(),
+			new WorldSnapshot(),
+			new WorldSnapshot()
+		};
+		this.back = 0;
+		this.front = 1;
+		this.spare = new AtomicInteger(2);
+	}
+
+	/**
+	 * Returns the snapshot the physics thread should capture into.
+	 * @return {@link WorldSnapshot}
+	 */
+	public WorldSnapshot getBack() {
+		return this.slots[this.back];
+	}
+
+	/**
+	 * Makes the back snapshot the latest one and gives the physics
+	 * thread a new back snapshot.
+	 * <p>
+	 * Must only be called by the physics thread.
+	 */
+	public void publish() {
+		this.back = this.spare.getAndSet(this.back | FRESH) & INDEX;
+	}
+
+	/**
+	 * Returns the latest published snapshot.
+	 * <p>
+	 * The returned snapshot stays valid until the next call to this method.
+	 * Must only be called by the render thread.
+	 * @return {@link WorldSnapshot}
+	 */
+	public WorldSnapshot acquire() {
+		if ((this.spare.get() & FRESH) != 0) {
+			this.front = this.spare.getAndSet(this.front) & INDEX;
+		}
+		return this.slots[this.front];
+	}
+}
@@ -0,0 +1,555 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.geometry.AABB;
+import org.dyn4j.geometry.Capsule;
+import org.dyn4j.geometry.Circle;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Ellipse;
+import org.dyn4j.geometry.HalfEllipse;
+import org.dyn4j.geometry.Polygon;
+import org.dyn4j.geometry.Segment;
+import org.dyn4j.geometry.Slice;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * A shared cache of pre-rasterized body images.
+ * <p>
+ * Bodies with the same fixtures are drawn identically, so each distinct
+ * fixture set is rasterized once per scale and color into a stamp and
+ * every body with that fixture set blits the stamp with its own rotation
+ * and translation. Fixture sets are compared by their geometry, not by
+ * identity, so every wheel made with <code>Geometry.createCircle(0.5)</code>
+ * shares the same stamps, one per color it's been drawn with (for example
+ * the on and off colors of a {@link Wheel}, and their brighter sleeping
+ * variants).
+ * <p>
+ * Stamps are only rasterized at {@link #SCALE_STEPS} scales per doubling and
+ * drawn scaled by the few percent left, so zooming the camera doesn't make
+ * new geometry every frame. The cache holds at most {@link #MAXIMUM_GEOMETRIES}
+ * geometries and {@link #MAXIMUM_STAMPS} stamps; past either, the least
+ * recently drawn one is dropped. If that one was drawn in the current frame
+ * the frame needs more stamps than fit, so rather than rasterize them over
+ * and over the remaining bodies of the frame are drawn as geometry (and
+ * {@link #getFallbackCount()} counts them). Call {@link #nextFrame()} as
+ * each frame starts.
+ * <p>
+ * The stamps are drawn with the default {@link Graphics2DRenderer} look, so
+ * only bodies that {@link SimulationBody#isDrawnByDefault() keep it} are drawn
+ * from the cache. Stamps are managed images, so they're kept in video
+ * memory where the platform allows.
+ * <p>
+ * Must only be used from the thread drawing the bodies.
+ */
+public final class SpriteCache {
+	/** The maximum number of stamps kept */
+	private static final int MAXIMUM_STAMPS = 512;
+
+	/** The maximum number of fixture sets and scales kept */
+	private static final int MAXIMUM_GEOMETRIES = 256;
+
+	/** The scales per doubling that stamps are rasterized at */
+	private static final int SCALE_STEPS = 16;
+
+	/** The padding around a stamp in pixels for the outline and center point */
+	private static final int PADDING = 4;
+
+	/** The center point radius in pixels */
+	private static final int POINT_RADIUS = 4;
+
+	/** The distinct fixture sets at each scale */
+	private static final Map<Geometry, Geometry> GEOMETRIES = new HashMap<Geometry, Geometry>();
+
+	/** The key looked up in {@link #GEOMETRIES}, reused so finding a geometry doesn't allocate */
+	private static final Geometry LOOKUP = new Geometry();
+
+	/** The number of stamps in the cache */
+	private static int stampCount;
+
+	/** The current frame */
+	private static long frame;
+
+	/** The number of bodies drawn as geometry since the stamps didn't fit */
+	private static long fallbackCount;
+
+	/** True once the stamps not fitting has been reported */
+	private static boolean fallbackReported;
+
+	/** Hidden constructor */
+	private SpriteCache() {}
+
+	/**
+	 * The geometry of a fixture set at a scale and its stamps.
+	 */
+	static final class Geometry {
+		/** The shape types and parameters of the fixtures followed by the body's local center */
+		double[] descriptor;
+
+		/** The scale in pixels per meter */
+		double scale;
+
+		/** The hash code of the descriptor and scale */
+		int hash;
+
+		/** True once dropped from the cache */
+		boolean evicted;
+
+		/** The frame it was last drawn in */
+		long lastUsed;
+
+		/** The stamp pixel the body origin is drawn at */
+		int originX, originY;
+
+		/** The stamp size in pixels */
+		int width, height;
+
+		/** The stamp of each color */
+		final Map<Color, Stamp> stamps = new HashMap<Color, Stamp>();
+
+		/**
+		 * Default constructor, for the lookup key.
+		 */
+		Geometry() {}
+
+		/**
+		 * Full constructor.
+		 * @param descriptor the shape types and parameters of the fixtures
+		 * @param scale the scale in pixels per meter
+		 */
+		Geometry(double[] descriptor, double scale) {
+			this.set(descriptor, scale);
+		}
+
+		/**
+		 * Sets the descriptor and scale.
+		 * @param descriptor the shape types and parameters of the fixtures
+		 * @param scale the scale in pixels per meter
+		 */
+		void set(double[] descriptor, double scale) {
+			this.descriptor = descriptor;
+			this.scale = scale;
+			this.hash = descriptor == null ? 0 : 31 * Arrays.hashCode(descriptor) + Double.hashCode(scale);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) return true;
+			if (!(obj instanceof Geometry)) return false;
+			Geometry other = (Geometry)obj;
+			return this.scale == other.scale && Arrays.equals(this.descriptor, other.descriptor);
+		}
+	}
+
+	/**
+	 * A rasterized geometry in one color.
+	 */
+	static final class Stamp {
+		/** The image */
+		final BufferedImage image;
+
+		/** The frame it was last drawn in */
+		long lastUsed;
+
+		/**
+		 * Full constructor.
+		 * @param image the image
+		 */
+		Stamp(BufferedImage image) {
+			this.image = image;
+		}
+	}
+
+	/**
+	 * The fixtures a body was last drawn with and their geometry.
+	 * <p>
+	 * Kept on the body so that drawing it again only has to check that its
+	 * fixtures haven't changed, and so that a new scale only has to look up
+	 * another geometry.
+	 */
+	static final class Binding {
+		/** The fixture shapes the geometry was built from */
+		final Convex[] shapes;
+
+		/** The shape types and parameters of the fixtures and the local center, or null if they can't be cached */
+		final double[] descriptor;
+
+		/** The scale the geometry was found for */
+		double scale;
+
+		/** The shared geometry at that scale; null until found */
+		Geometry geometry;
+
+		/**
+		 * Full constructor.
+		 * @param shapes the fixture shapes
+		 * @param descriptor the shape types and parameters of the fixtures; can be null
+		 */
+		Binding(Convex[] shapes, double[] descriptor) {
+			this.shapes = shapes;
+			this.descriptor = descriptor;
+		}
+
+		/**
+		 * Returns true if the given body still has the same fixtures.
+		 * @param body the body
+		 * @return boolean
+		 */
+		boolean matches(SimulationBody body) {
+			List<BodyFixture> fixtures = body.getFixtures();
+			int n = fixtures.size();
+			if (n != this.shapes.length) return false;
+			for (int i = 0; i < n; i++) {
+				if (fixtures.get(i).getShape() != this.shapes[i]) return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Draws the given body from its stamp with the graphics context's current
+	 * transform, rasterizing the stamp first if it isn't cached.
+	 * <p>
+	 * The graphics context should already be transformed to the body's local
+	 * space, exactly as for {@link Graphics2DRenderer}.
+	 * @param g the graphics context
+	 * @param body the body
+	 * @param scale the scale in pixels per meter
+	 * @param color the color; already brightened if the body is asleep
+	 * @return boolean false if the body has a fixture type that can't be cached,
+	 * or its stamp doesn't fit in the cache this frame
+	 */
+	public static boolean render(Graphics2D g, SimulationBody body, double scale, Color color) {
+		Binding binding = body.spriteBinding;
+		if (binding == null || !binding.matches(body)) {
+			binding = bind(body);
+			body.spriteBinding = binding;
+		}
+		if (binding.descriptor == null) return false;
+
+		final double stampScale = round(scale);
+		Geometry geometry = binding.geometry;
+		if (geometry == null || geometry.evicted || binding.scale != stampScale) {
+			geometry = find(binding.descriptor, binding.shapes, stampScale);
+			binding.geometry = geometry;
+			binding.scale = stampScale;
+		}
+		geometry.lastUsed = frame;
+		Stamp stamp = geometry.stamps.get(color);
+		if (stamp == null) {
+			stamp = rasterize(geometry, binding.shapes, color);
+			if (stamp == null) return false;
+		}
+		stamp.lastUsed = frame;
+
+		// the rest of the way to the scale
+		final double s = scale / stampScale;
+		if (s != 1.0) g.scale(s, s);
+		g.drawImage(stamp.image, -geometry.originX, -geometry.originY, null);
+		if (s != 1.0) g.scale(1.0 / s, 1.0 / s);
+		return true;
+	}
+
+	/**
+	 * Starts a new frame; stamps drawn before it may be dropped for new ones.
+	 */
+	public static void nextFrame() {
+		frame++;
+	}
+
+	/**
+	 * Removes all stamps.
+	 */
+	public static void clear() {
+		for (Geometry geometry : GEOMETRIES.values()) {
+			geometry.stamps.clear();
+			geometry.evicted = true;
+		}
+		GEOMETRIES.clear();
+		stampCount = 0;
+	}
+
+	/**
+	 * Drops the given geometry and its stamps; the bodies drawn with it find
+	 * their geometry again the next time they're drawn.
+	 * @param geometry the geometry
+	 */
+	private static void evict(Geometry geometry) {
+		GEOMETRIES.remove(geometry);
+		stampCount -= geometry.stamps.size();
+		geometry.stamps.clear();
+		geometry.evicted = true;
+	}
+
+	/**
+	 * Drops the least recently drawn stamp, unless every stamp has been
+	 * drawn in the current frame.
+	 * @return boolean false if every stamp has been drawn in the current frame
+	 */
+	private static boolean evictStamp() {
+		Geometry oldest = null;
+		Color oldestColor = null;
+		long oldestUsed = frame;
+		for (Geometry geometry : GEOMETRIES.values()) {
+			for (Map.Entry<Color, Stamp> entry : geometry.stamps.entrySet()) {
+				if (entry.getValue().lastUsed < oldestUsed) {
+					oldest = geometry;
+					oldestColor = entry.getKey();
+					oldestUsed = entry.getValue().lastUsed;
+				}
+			}
+		}
+		if (oldest == null) return false;
+		oldest.stamps.remove(oldestColor);
+		stampCount--;
+		return true;
+	}
+
+	/**
+	 * Returns the number of bodies drawn as geometry since their stamps
+	 * didn't fit in the cache in their frame.
+	 * @return long
+	 */
+	public static long getFallbackCount() {
+		return fallbackCount;
+	}
+
+	/**
+	 * Returns the number of cached geometries.
+	 * @return int
+	 */
+	public static int getGeometryCount() {
+		return GEOMETRIES.size();
+	}
+
+	/**
+	 * Returns the number of cached stamps.
+	 * @return int
+	 */
+	public static int getStampCount() {
+		return stampCount;
+	}
+
+	/**
+	 * Returns the scale stamps are rasterized at for the given scale: the
+	 * nearest of {@link #SCALE_STEPS} per doubling.
+	 * @param scale the scale
+	 * @return double
+	 */
+	static double round(double scale) {
+		return Math.pow(2.0, Math.rint(Math.log(scale) / Math.log(2.0) * SCALE_STEPS) / SCALE_STEPS);
+	}
+
+	/**
+	 * Describes the given body's fixtures.
+	 * @param body the body
+	 * @return {@link Binding}
+	 */
+	private static Binding bind(SimulationBody body) {
+		List<BodyFixture> fixtures = body.getFixtures();
+		int n = fixtures.size();
+		Convex[] shapes = new Convex[n];
+		for (int i = 0; i < n; i++) {
+			shapes[i] = fixtures.get(i).getShape();
+		}
+		// null if not a shape we know how to compare
+		return new Binding(shapes, describe(shapes, body.getLocalCenter()));
+	}
+
+	/**
+	 * Finds the shared geometry of the given fixtures at the given scale,
+	 * adding it if there's none.
+	 * @param descriptor the shape types and parameters of the fixtures
+	 * @param shapes the shapes
+	 * @param scale the scale
+	 * @return {@link Geometry}
+	 */
+	private static Geometry find(double[] descriptor, Convex[] shapes, double scale) {
+		LOOKUP.set(descriptor, scale);
+		Geometry geometry = GEOMETRIES.get(LOOKUP);
+		LOOKUP.set(null, 0.0);
+		if (geometry == null) {
+			if (GEOMETRIES.size() >= MAXIMUM_GEOMETRIES) {
+				// the least recently drawn
+				Geometry oldest = null;
+				for (Geometry g : GEOMETRIES.values()) {
+					if (oldest == null || g.lastUsed < oldest.lastUsed) oldest = g;
+				}
+				evict(oldest);
+			}
+			geometry = new Geometry(descriptor, scale);
+			measure(geometry, shapes);
+			GEOMETRIES.put(geometry, geometry);
+		}
+		return geometry;
+	}
+
+	/**
+	 * Returns the shape types and parameters of the given shapes followed
+	 * by the given local center.
+	 * @param shapes the shapes
+	 * @param center the body's local center
+	 * @return double[] or null if a shape type isn't supported
+	 */
+	private static double[] describe(Convex[] shapes, Vector2 center) {
+		double[] d = new double[16];
+		int size = 0;
+		for (Convex shape : shapes) {
+			double[] p;
+			if (shape instanceof Circle) {
+				Circle c = (Circle)shape;
+				p = new double[] { 0, c.getRadius(), c.getCenter().x, c.getCenter().y };
+			} else if (shape instanceof Polygon) {
+				Vector2[] vertices = ((Polygon)shape).getVertices();
+				p = new double[2 + vertices.length * 2];
+				p[0] = 1;
+				p[1] = vertices.length;
+				for (int i = 0; i < vertices.length; i++) {
+					p[2 + i * 2] = vertices[i].x;
+					p[3 + i * 2] = vertices[i].y;
+				}
+			} else if (shape instanceof Segment) {
+				Vector2[] vertices = ((Segment)shape).getVertices();
+				p = new double[] { 2, vertices[0].x, vertices[0].y, vertices[1].x, vertices[1].y };
+			} else if (shape instanceof Capsule) {
+				Capsule c = (Capsule)shape;
+				p = new double[] { 3, c.getLength(), c.getCapRadius(), c.getCenter().x, c.getCenter().y, c.getRotation() };
+			} else if (shape instanceof Ellipse) {
+				Ellipse e = (Ellipse)shape;
+				p = new double[] { 4, e.getWidth(), e.getHeight(), e.getCenter().x, e.getCenter().y, e.getRotation() };
+			} else if (shape instanceof Slice) {
+				Slice s = (Slice)shape;
+				p = new double[] { 5, s.getSliceRadius(), s.getTheta(), s.getCircleCenter().x, s.getCircleCenter().y, s.getRotation() };
+			} else if (shape instanceof HalfEllipse) {
+				HalfEllipse h = (HalfEllipse)shape;
+				p = new double[] { 6, h.getWidth(), h.getHeight(), h.getEllipseCenter().x, h.getEllipseCenter().y, h.getRotation() };
+			} else {
+				return null;
+			}
+			if (size + p.length > d.length) {
+				d = Arrays.copyOf(d, Math.max(d.length * 2, size + p.length));
+			}
+			System.arraycopy(p, 0, d, size, p.length);
+			size += p.length;
+		}
+		d = Arrays.copyOf(d, size + 2);
+		d[size] = center.x;
+		d[size + 1] = center.y;
+		return d;
+	}
+
+	/**
+	 * Sets the size and origin of the stamps of the given geometry.
+	 * @param geometry the geometry
+	 * @param shapes the shapes
+	 */
+	private static void measure(Geometry geometry, Convex[] shapes) {
+		double scale = geometry.scale;
+
+		// the center point is always drawn
+		double[] d = geometry.descriptor;
+		double minX = d[d.length - 2], minY = d[d.length - 1];
+		double maxX = minX, maxY = minY;
+		for (Convex shape : shapes) {
+			AABB aabb = shape.createAABB();
+			minX = Math.min(minX, aabb.getMinX());
+			minY = Math.min(minY, aabb.getMinY());
+			maxX = Math.max(maxX, aabb.getMaxX());
+			maxY = Math.max(maxY, aabb.getMaxY());
+		}
+
+		geometry.originX = (int)Math.ceil(-minX * scale) + PADDING;
+		geometry.originY = (int)Math.ceil(-minY * scale) + PADDING;
+		geometry.width = geometry.originX + (int)Math.ceil(maxX * scale) + PADDING;
+		geometry.height = geometry.originY + (int)Math.ceil(maxY * scale) + PADDING;
+	}
+
+	/**
+	 * Draws the given geometry in the given color into a new stamp.
+	 * <p>
+	 * The stamp isn't flipped: a local point (x, y) is drawn at pixel
+	 * (x + originX, y + originY), so blitting it at (-originX, -originY)
+	 * in local space puts every pixel back where it came from, whichever
+	 * way the y axis of the destination points.
+	 * @param geometry the geometry
+	 * @param shapes the shapes
+	 * @param color the color
+	 * @return {@link Stamp} or null if the cache is full of stamps drawn this frame
+	 */
+	private static Stamp rasterize(Geometry geometry, Convex[] shapes, Color color) {
+		if (stampCount >= MAXIMUM_STAMPS && !evictStamp()) {
+			fallbackCount++;
+			if (!fallbackReported) {
+				fallbackReported = true;
+				System.err.println(String.format("Warning: a frame draws more than %d distinct sprites; the rest are drawn as geometry", MAXIMUM_STAMPS));
+			}
+			return null;
+		}
+
+		BufferedImage stamp = createImage(geometry.width, geometry.height);
+		Graphics2D g = stamp.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.translate(geometry.originX, geometry.originY);
+
+		double scale = geometry.scale;
+		for (Convex shape : shapes) {
+			Graphics2DRenderer.render(g, shape, scale, color);
+		}
+
+		// the center point, as SimulationBody draws it
+		double[] d = geometry.descriptor;
+		Ellipse2D.Double ce = new Ellipse2D.Double(
+				d[d.length - 2] * scale - POINT_RADIUS * 0.5,
+				d[d.length - 1] * scale - POINT_RADIUS * 0.5,
+				POINT_RADIUS,
+				POINT_RADIUS);
+		g.setColor(Color.WHITE);
+		g.fill(ce);
+		g.setColor(Color.DARK_GRAY);
+		g.draw(ce);
+		g.dispose();
+
+		Stamp s = new Stamp(stamp);
+		geometry.stamps.put(color, s);
+		stampCount++;
+		return s;
+	}
+
+	/**
+	 * Creates a transparent image suited to the screen.
+	 * @param width the width in pixels
+	 * @param height the height in pixels
+	 * @return BufferedImage
+	 */
+	private static BufferedImage createImage(int width, int height) {
+		if (!GraphicsEnvironment.isHeadless()) {
+			GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+					.getDefaultScreenDevice()
+					.getDefaultConfiguration();
+			return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+		}
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+	}
+}
@@ -0,0 +1,176 @@
+import java.awt.Color;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.dyn4j.geometry.Transform;
+
+/**
+ * A background image holding the static bodies of a world.
+ * <p>
+ * Static bodies, those with infinite mass that aren't moving, look the same
+ * every frame, so they can be drawn once and the image copied to the screen
+ * in place of clearing it. The layer remembers which static bodies it was
+ * drawn with, and where and in what color, and {@link #isValid(WorldSnapshot, int, int)}
+ * only returns true while that's still what the snapshot holds. Adding,
+ * removing, moving or recoloring a static body makes it draw again.
+ * <p>
+ * Must only be used from the thread drawing the snapshots.
+ */
+public final class StaticLayer {
+	/** The image or null if not created yet */
+	private BufferedImage image;
+
+	/** False when the layer must be drawn again regardless of the bodies */
+	private boolean valid;
+
+	/** The number of static bodies drawn */
+	private int bodyCount;
+
+	/** The static bodies drawn */
+	private SimulationBody[] bodies;
+
+	/** The x translation of each body */
+	private double[] x;
+
+	/** The y translation of each body */
+	private double[] y;
+
+	/** The rotation of each body */
+	private double[] rotation;
+
+	/** The color of each body */
+	private Color[] colors;
+
+	/**
+	 * Default constructor.
+	 */
+	public StaticLayer() {
+		this.bodies = new SimulationBody[0];
+		this.x = new double[0];
+		this.y = new double[0];
+		this.rotation = new double[0];
+		this.colors = new Color[0];
+	}
+
+	/**
+	 * Returns true if the layer is up to date with the static bodies of the
+	 * given snapshot at the given size.
+	 * @param snapshot the snapshot
+	 * @param width the width in pixels
+	 * @param height the height in pixels
+	 * @return boolean
+	 */
+	public boolean isValid(WorldSnapshot snapshot, int width, int height) {
+		if (!this.valid || this.image == null) return false;
+		if (this.image.getWidth() != width || this.image.getHeight() != height) return false;
+
+		int j = 0;
+		int n = snapshot.getBodyCount();
+		for (int i = 0; i < n; i++) {
+			if (!snapshot.isStatic(i)) continue;
+			if (j == this.bodyCount) return false;
+
+			SimulationBody body = snapshot.getBody(i);
+			Transform transform = snapshot.getTransform(i);
+			if (this.bodies[j] != body ||
+				this.x[j] != transform.getTranslationX() ||
+				this.y[j] != transform.getTranslationY() ||
+				this.rotation[j] != transform.getRotation() ||
+				this.colors[j] != snapshot.getColor(i)) {
+				return false;
+			}
+			j++;
+		}
+		return j == this.bodyCount;
+	}
+
+	/**
+	 * Returns the image to draw the layer to, creating it if it doesn't exist
+	 * or isn't the given size, and remembers the static bodies of the given
+	 * snapshot as the ones being drawn.
+	 * @param snapshot the snapshot
+	 * @param width the width in pixels
+	 * @param height the height in pixels
+	 * @return BufferedImage
+	 */
+	public BufferedImage update(WorldSnapshot snapshot, int width, int height) {
+		if (this.image == null || this.image.getWidth() != width || this.image.getHeight() != height) {
+			this.image = createImage(width, height);
+		}
+
+		int count = 0;
+		int n = snapshot.getBodyCount();
+		for (int i = 0; i < n; i++) {
+			if (snapshot.isStatic(i)) count++;
+		}
+		this.ensureCapacity(count);
+
+		int j = 0;
+		for (int i = 0; i < n; i++) {
+			if (!snapshot.isStatic(i)) continue;
+			SimulationBody body = snapshot.getBody(i);
+			Transform transform = snapshot.getTransform(i);
+			this.bodies[j] = body;
+			this.x[j] = transform.getTranslationX();
+			this.y[j] = transform.getTranslationY();
+			this.rotation[j] = transform.getRotation();
+			this.colors[j] = snapshot.getColor(i);
+			j++;
+		}
+		// don't keep removed bodies reachable
+		for (int i = count; i < this.bodyCount; i++) {
+			this.bodies[i] = null;
+			this.colors[i] = null;
+		}
+		this.bodyCount = count;
+		this.valid = true;
+		return this.image;
+	}
+
+	/**
+	 * Forces the layer to be drawn again, for example when the view changes.
+	 */
+	public void invalidate() {
+		this.valid = false;
+	}
+
+	/**
+	 * Returns the image of the layer.
+	 * @return BufferedImage or null if not drawn yet
+	 */
+	public BufferedImage getImage() {
+		return this.image;
+	}
+
+	/**
+	 * Grows the arrays to hold at least the given number of bodies.
+	 * @param n the number of bodies
+	 */
+	private void ensureCapacity(int n) {
+		if (n <= this.bodies.length) return;
+		this.bodies = Arrays.copyOf(this.bodies, n);
+		this.x = Arrays.copyOf(this.x, n);
+		this.y = Arrays.copyOf(this.y, n);
+		this.rotation = Arrays.copyOf(this.rotation, n);
+		this.colors = Arrays.copyOf(this.colors, n);
+	}
+
+	/**
+	 * Creates an opaque image suited to the screen.
+	 * @param width the width in pixels
+	 * @param height the height in pixels
+	 * @return BufferedImage
+	 */
+	private static BufferedImage createImage(int width, int height) {
+		if (!GraphicsEnvironment.isHeadless()) {
+			GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+					.getDefaultScreenDevice()
+					.getDefaultConfiguration();
+			return gc.createCompatibleImage(width, height, Transparency.OPAQUE);
+		}
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+	}
+}
@@ -0,0 +1,97 @@
+import org.dyn4j.dynamics.Step;
+import org.dyn4j.dynamics.StepListener;
+import org.dyn4j.dynamics.World;
+
+/**
+ * Passes each step event on to another listener and records the call as a
+ * {@link FlightEvents#STEP_CALLBACK} event under the given name.
+ * <p>
+ * Listeners are often anonymous classes that show up in a profile only as
+ * <code>Wheel$1</code> and the like, so the name says which listener it is.
+ * While nothing records, each call costs a volatile read more.
+ */
+public final class TracedStepListener implements StepListener {
+	/** The name of the listener in the events */
+	private final String name;
+
+	/** The listener */
+	private final StepListener listener;
+
+	/**
+	 * Constructor.
+	 * @param name the name of the listener in the events
+	 * @param listener the listener
+	 */
+	public TracedStepListener(String name, StepListener listener) {
+		this.name = name;
+		this.listener = listener;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.StepListener#begin(org.dyn4j.dynamics.Step, org.dyn4j.dynamics.World)
+	 */
+	@Override
+	public void begin(Step step, World world) {
+		Object event = FlightEvents.STEP_CALLBACK.begin();
+		this.listener.begin(step, world);
+		this.commit(event, "begin", world);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.StepListener#updatePerformed(org.dyn4j.dynamics.Step, org.dyn4j.dynamics.World)
+	 */
+	@Override
+	public void updatePerformed(Step step, World world) {
+		Object event = FlightEvents.STEP_CALLBACK.begin();
+		this.listener.updatePerformed(step, world);
+		this.commit(event, "updatePerformed", world);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.StepListener#postSolve(org.dyn4j.dynamics.Step, org.dyn4j.dynamics.World)
+	 */
+	@Override
+	public void postSolve(Step step, World world) {
+		Object event = FlightEvents.STEP_CALLBACK.begin();
+		this.listener.postSolve(step, world);
+		this.commit(event, "postSolve", world);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.StepListener#end(org.dyn4j.dynamics.Step, org.dyn4j.dynamics.World)
+	 */
+	@Override
+	public void end(Step step, World world) {
+		Object event = FlightEvents.STEP_CALLBACK.begin();
+		this.listener.end(step, world);
+		this.commit(event, "end", world);
+	}
+
+	/**
+	 * Records the call, if it's being recorded.
+	 * @param event the event; null if not recorded
+	 * @param callback the method called
+	 * @param world the world
+	 */
+	private void commit(Object event, String callback, World world) {
+		if (event != null) {
+			FlightEvents.STEP_CALLBACK.commit(event, this.name, callback, world.getBodyCount(), world.getContactManager().getContactCount());
+		}
+	}
+
+	/**
+	 * Returns the listener events are passed on to.
+	 * @return StepListener
+	 */
+	public StepListener getListener() {
+		return this.listener;
+	}
+
+	/**
+	 * Returns the name of the listener in the events.
+	 * @return String
+	 */
+	public String getName() {
+		return this.name;
+	}
+}
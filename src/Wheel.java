@@ -12,9 +12,6 @@ import org.dyn4j.dynamics.Force;
 import org.dyn4j.dynamics.Step;
 import org.dyn4j.dynamics.StepAdapter;
 import org.dyn4j.dynamics.World;
-import org.dyn4j.dynamics.contact.ContactAdapter;
-import org.dyn4j.dynamics.contact.ContactPoint;
-import org.dyn4j.dynamics.contact.PersistedContactPoint;
 import org.dyn4j.geometry.Geometry;
 import org.dyn4j.geometry.MassType;
 import org.dyn4j.geometry.Vector2;
@@ -26,17 +23,32 @@ public class Wheel extends SimulationBody
 	private final AtomicBoolean rightPressed;
 	private final AtomicBoolean upPressed;
 	private final AtomicBoolean collided;
-	private final AtomicBoolean isOnGround;
 
 	private SimulationBody wheel;
 	private Object thisFloor;
+	private GroundSensor ground;
 
 	private World thisWorld;
 
-	private static Color WHEEL_OFF_COLOR;
-	private static Color WHEEL_ON_COLOR;
+	// NOTE: per wheel, so wheels built on different threads share nothing
+	private final Color wheelOffColor;
+	private final Color wheelOnColor;
 
-	public Wheel(World world, int x, int y, Color color1, Color color2, Object floor)
+	/** The default density of the tire */
+	public static final double DEFAULT_DENSITY = 1.0;
+	/** The default friction of the tire; lots to simulate a sticky tire */
+	public static final double DEFAULT_FRICTION = 20.0;
+	/** The default restitution of the tire */
+	public static final double DEFAULT_RESTITUTION = 0.1;
+	/** The default force pushing the wheel sideways, which is also its top speed */
+	public static final double DEFAULT_SIDE_SPEED = 10;
+	/** The default impulse of a jump */
+	public static final double DEFAULT_JUMP_SPEED = 2;
+
+	private double sideSpeed = DEFAULT_SIDE_SPEED;
+	private double jumpSpeed = DEFAULT_JUMP_SPEED;
+
+	public Wheel(World world, double x, double y, Color color1, Color color2, Object floor)
 	{
 		thisWorld = world;
 		thisFloor = floor;
@@ -45,15 +57,14 @@ public class Wheel extends SimulationBody
 		rightPressed = new AtomicBoolean(false);
 		upPressed = new AtomicBoolean(false);
 		collided = new AtomicBoolean(false);
-		isOnGround = new AtomicBoolean(false);
 
-		WHEEL_OFF_COLOR = color1;
-		WHEEL_ON_COLOR = color2;
+		wheelOffColor = color1;
+		wheelOnColor = color2;
 
 		// the wheel
-		wheel = new SimulationBody(WHEEL_OFF_COLOR);
+		wheel = new SimulationBody(wheelOffColor);
 		// NOTE: lots of friction to simulate a sticky tire
-		wheel.addFixture(Geometry.createCircle(0.5), 1.0, 20.0, 0.1);
+		wheel.addFixture(Geometry.createCircle(0.5), DEFAULT_DENSITY, DEFAULT_FRICTION, DEFAULT_RESTITUTION);
 		wheel.setMass(MassType.NORMAL);
 		thisWorld.addBody(wheel);
 		wheel.translate(x, y);
@@ -61,6 +72,55 @@ public class Wheel extends SimulationBody
 
 	}
 
+	public SimulationBody getBody()
+	{
+		return wheel;
+	}
+
+	/**
+	 * Sets the density, friction and restitution of the tire and updates the mass.
+	 * @param density the density in kg/m<sup>2</sup>; {@link #DEFAULT_DENSITY} by default
+	 * @param friction the friction; {@link #DEFAULT_FRICTION} by default
+	 * @param restitution the restitution; {@link #DEFAULT_RESTITUTION} by default
+	 */
+	public void setTire(double density, double friction, double restitution)
+	{
+		BodyFixture fixture = wheel.getFixture(0);
+		fixture.setDensity(density);
+		fixture.setFriction(friction);
+		fixture.setRestitution(restitution);
+		wheel.setMass(MassType.NORMAL);
+	}
+
+	public double getSideSpeed()
+	{
+		return sideSpeed;
+	}
+
+	/**
+	 * Sets the force pushing the wheel sideways while left or right is held,
+	 * which is also the speed it stops pushing at.
+	 * @param sideSpeed the force in newtons and speed in m/s; {@link #DEFAULT_SIDE_SPEED} by default
+	 */
+	public void setSideSpeed(double sideSpeed)
+	{
+		this.sideSpeed = sideSpeed;
+	}
+
+	public double getJumpSpeed()
+	{
+		return jumpSpeed;
+	}
+
+	/**
+	 * Sets the upward impulse applied each step up is held while on the ground.
+	 * @param jumpSpeed the impulse in newton seconds; {@link #DEFAULT_JUMP_SPEED} by default
+	 */
+	public void setJumpSpeed(double jumpSpeed)
+	{
+		this.jumpSpeed = jumpSpeed;
+	}
+
 	public void setLeft(boolean set)
 	{
 		leftPressed.set(set);
@@ -74,67 +134,95 @@ public class Wheel extends SimulationBody
 		upPressed.set(set);
 	}
 
-	public void checkFloorColissions()
+	/**
+	 * Returns the pressed buttons as bits: 1 &lt;&lt; {@link InputQueue#LEFT} and so on.
+	 * @return int
+	 */
+	public int getInputBits()
 	{
-	thisWorld.addListener(new StepAdapter() {
-		@Override
-		public void begin(Step step, World world) {
-			// at the beginning of each world step, check if the body is in
-			// contact with any of the floor bodies
-			boolean isGround = false;
-
-			List<Body> bodies =  wheel.getInContactBodies(false);
-
-			for (int i = 0; i < bodies.size(); i++) {
-				if (bodies.get(i).getUserData() == thisFloor) 
-				{
-					isGround = true;
-					break;
-				}
+		return (leftPressed.get() ? 1 << InputQueue.LEFT : 0) |
+			   (rightPressed.get() ? 1 << InputQueue.RIGHT : 0) |
+			   (upPressed.get() ? 1 << InputQueue.UP : 0);
+	}
 
-			}
+	/**
+	 * Presses the buttons whose bits are set and releases the others.
+	 * @param bits the buttons as returned by {@link #getInputBits()}
+	 */
+	public void setInputBits(int bits)
+	{
+		setLeft((bits & (1 << InputQueue.LEFT)) != 0);
+		setRight((bits & (1 << InputQueue.RIGHT)) != 0);
+		setUp((bits & (1 << InputQueue.UP)) != 0);
+	}
 
-			if (!isGround) {
-				// if not, then set the flag, and update the color
-				isOnGround.set(false);					
-			}
+	/**
+	 * Presses or releases the given button.
+	 * @param button one of {@link InputQueue#LEFT}, {@link InputQueue#RIGHT} or {@link InputQueue#UP}
+	 * @param set true if pressed
+	 */
+	public void setInput(int button, boolean set)
+	{
+		switch (button) {
+		case InputQueue.LEFT:
+			setLeft(set);
+			break;
+		case InputQueue.RIGHT:
+			setRight(set);
+			break;
+		case InputQueue.UP:
+			setUp(set);
+			break;
 		}
-	});
+	}
+
+	/**
+	 * Starts tracking whether the wheel is on the floor.
+	 * <p>
+	 * Same as {@link #persistingFloorColissions()}; the wheel counts its
+	 * floor contacts as they begin and end, so one call is enough.
+	 */
+	public void checkFloorColissions()
+	{
+		trackGround();
 	}
 	
+	/**
+	 * Starts tracking whether the wheel is on the floor.
+	 * <p>
+	 * Same as {@link #checkFloorColissions()}.
+	 */
 	public void persistingFloorColissions()
 	{
-		thisWorld.addListener(new ContactAdapter() {
-			private boolean isContactWithFloor(ContactPoint point) {
-				if ((point.getBody1() == wheel || point.getBody2() == wheel) &&
-						(point.getBody1().getUserData() == thisFloor || point.getBody2().getUserData() == thisFloor)) {
-					return true;
-				}
-				return false;
-			}
-
+		trackGround();
+	}
 
-			@Override
-			public boolean persist(PersistedContactPoint point) {
-				if (isContactWithFloor(point)) {
-					isOnGround.set(true);
-				}
-				return super.persist(point);
-			}
+	/**
+	 * Subscribes a {@link GroundSensor} to the wheel unless it already has one.
+	 */
+	private void trackGround()
+	{
+		if (ground == null) {
+			ground = new GroundSensor(thisFloor);
+			ContactDispatcher.get(thisWorld).subscribe(wheel, ground);
+		}
+	}
 
-			@Override
-			public boolean begin(ContactPoint point) {
-				if (isContactWithFloor(point)) {
-					isOnGround.set(true);
-				}
-				return super.begin(point);
-			}
-		});
+	/**
+	 * Returns true if the wheel is touching the floor.
+	 * <p>
+	 * Always false unless {@link #checkFloorColissions()} or
+	 * {@link #persistingFloorColissions()} was called.
+	 * @return boolean
+	 */
+	public boolean isOnGround()
+	{
+		return ground != null && ground.isOnGround();
 	}
 	
 	public void checkBallColissions()
 	{
-		thisWorld.addListener(new StepAdapter() {
+		thisWorld.addListener(new TracedStepListener("Wheel.checkBallColissions", new StepAdapter() {
 			@Override
 			public void begin(Step step, World world) {
 				// at the beginning of each world step, check if the body is in
@@ -150,21 +238,18 @@ public class Wheel extends SimulationBody
 
 				}
 			}
-		});
+		}));
 	}
 	
 	public void updateBall(Wheel wheel2)
 	{
-		double sideSpeed = 10;
-		double jumpSpeed = 2;
-
 		if (this.leftPressed.get() && wheel.getLinearVelocity().getXComponent().x > -sideSpeed) {
 			wheel.applyForce(new Vector2(-sideSpeed, 0));
 		}
 		if (this.rightPressed.get() && wheel.getLinearVelocity().getXComponent().x < sideSpeed) {
 			wheel.applyForce(new Vector2(sideSpeed, 0));
 		}
-		if (this.upPressed.get() && this.isOnGround.get())
+		if (this.upPressed.get() && this.isOnGround())
 		{
 			Vector2 force = new Vector2(0, jumpSpeed);
 			wheel.applyImpulse(force);
@@ -180,10 +265,10 @@ public class Wheel extends SimulationBody
 			wheel2.applyImpulse(currentForce);
 		}
 
-		if (this.isOnGround.get()) {
-			wheel.setColor(WHEEL_ON_COLOR);
+		if (this.isOnGround()) {
+			wheel.setColor(wheelOnColor);
 		} else {
-			wheel.setColor(WHEEL_OFF_COLOR);
+			wheel.setColor(wheelOffColor);
 		}
 	}
 
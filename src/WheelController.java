@@ -0,0 +1,424 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.dynamics.contact.ContactAdapter;
+import org.dyn4j.dynamics.contact.ContactPoint;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * Drives any number of wheels the way {@link Wheel#updateBall(Wheel)}
+ * drives one, from state kept in parallel arrays indexed by wheel.
+ * <p>
+ * The buttons, floor contact count, side and jump speed of every wheel are
+ * primitive arrays next to the array of bodies, so {@link #update(double)}
+ * is one loop over them that allocates nothing. The push and jump are added
+ * to the velocity directly, as the solver would for a force held for one
+ * step and an impulse, rather than through {@link Body#applyForce(Vector2)},
+ * which allocates a force per call and per step. With a pool set and at
+ * least {@link #PARALLEL_THRESHOLD} wheels the loop is split across its
+ * threads; every wheel only touches its own body, so the chunks share
+ * nothing.
+ * <p>
+ * The floor contacts are counted like a {@link GroundSensor}'s, by a
+ * listener per wheel subscribed to the world's {@link ContactDispatcher}
+ * that only knows its index.
+ * <p>
+ * Like the world, must only be used from the thread stepping the world;
+ * key presses from other threads go through an {@link InputQueue}.
+ */
+public final class WheelController {
+	/** The fewest wheels split across the threads of the pool */
+	public static final int PARALLEL_THRESHOLD = 4096;
+
+	/** The number of chunks per pool thread, so the threads even out */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/** The initial capacity */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Counts the floor contacts of one wheel into the shared array.
+	 */
+	private final class GroundCounter extends ContactAdapter {
+		/** The wheel index */
+		private final int index;
+
+		/**
+		 * Constructor.
+		 * @param index the wheel index
+		 */
+		GroundCounter(int index) {
+			this.index = index;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.dyn4j.dynamics.contact.ContactAdapter#begin(org.dyn4j.dynamics.contact.ContactPoint)
+		 */
+		@Override
+		public boolean begin(ContactPoint point) {
+			if (isContactWithFloor(point)) {
+				ground[this.index]++;
+			}
+			return true;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.dyn4j.dynamics.contact.ContactAdapter#end(org.dyn4j.dynamics.contact.ContactPoint)
+		 */
+		@Override
+		public void end(ContactPoint point) {
+			// never below zero, in case the wheel was added mid contact
+			if (ground[this.index] > 0 && isContactWithFloor(point)) {
+				ground[this.index]--;
+			}
+		}
+	}
+
+	/**
+	 * Updates a range of wheels on a pool thread.
+	 */
+	private final class Chunk extends RecursiveAction {
+		/** The serial version id */
+		private static final long serialVersionUID = 1L;
+
+		/** The first wheel */
+		int from;
+
+		/** One past the last wheel */
+		int to;
+
+		/** The step duration in seconds */
+		double step;
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			control(this.from, this.to, this.step);
+		}
+	}
+
+	/** The world */
+	private final World world;
+
+	/** The user data of the floor bodies */
+	private final Object floor;
+
+	/** The number of wheels */
+	private int count;
+
+	/** The body of each wheel */
+	private Body[] bodies;
+
+	/** The held buttons of each wheel as bits: 1 &lt;&lt; {@link InputQueue#LEFT} and so on */
+	private int[] buttons;
+
+	/** The number of floor contact points of each wheel */
+	private int[] ground;
+
+	/** The sideways force and top speed of each wheel */
+	private double[] sideSpeed;
+
+	/** The jump impulse of each wheel */
+	private double[] jumpSpeed;
+
+	/** The pool to split the update across; null to update on the calling thread */
+	private ForkJoinPool pool;
+
+	/** The chunks of the parallel update, made once per pool */
+	private Chunk[] chunks;
+
+	/** Runs the chunks in the pool */
+	private RecursiveAction chunked;
+
+	/**
+	 * Constructor.
+	 * @param world the world the wheels are in
+	 * @param floor the user data of the floor bodies, which the wheels can jump off
+	 */
+	public WheelController(World world, Object floor) {
+		this.world = world;
+		this.floor = floor;
+		this.bodies = new Body[INITIAL_CAPACITY];
+		this.buttons = new int[INITIAL_CAPACITY];
+		this.ground = new int[INITIAL_CAPACITY];
+		this.sideSpeed = new double[INITIAL_CAPACITY];
+		this.jumpSpeed = new double[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Starts driving the given body with the {@link Wheel} default speeds.
+	 * @param body the body, already in the world
+	 * @return int the wheel index
+	 */
+	public int add(Body body) {
+		return this.add(body, Wheel.DEFAULT_SIDE_SPEED, Wheel.DEFAULT_JUMP_SPEED);
+	}
+
+	/**
+	 * Starts driving the given body.
+	 * @param body the body, already in the world
+	 * @param sideSpeed the sideways force in newtons and top speed in m/s
+	 * @param jumpSpeed the jump impulse in newton seconds
+	 * @return int the wheel index
+	 */
+	public int add(Body body, double sideSpeed, double jumpSpeed) {
+		if (this.count == this.bodies.length) {
+			int capacity = this.count * 2;
+			this.bodies = Arrays.copyOf(this.bodies, capacity);
+			this.buttons = Arrays.copyOf(this.buttons, capacity);
+			this.ground = Arrays.copyOf(this.ground, capacity);
+			this.sideSpeed = Arrays.copyOf(this.sideSpeed, capacity);
+			this.jumpSpeed = Arrays.copyOf(this.jumpSpeed, capacity);
+		}
+		int index = this.count++;
+		this.bodies[index] = body;
+		this.sideSpeed[index] = sideSpeed;
+		this.jumpSpeed[index] = jumpSpeed;
+		ContactDispatcher.get(this.world).subscribe(body, new GroundCounter(index));
+		return index;
+	}
+
+	/**
+	 * Pushes and lifts every wheel by its buttons, for the next step.
+	 * <p>
+	 * Call once before each world step, like {@link Wheel#updateBall(Wheel)}.
+	 * @param step the duration of the next step in seconds
+	 */
+	public void update(double step) {
+		ForkJoinPool pool = this.pool;
+		if (pool == null || this.count < PARALLEL_THRESHOLD) {
+			this.control(0, this.count, step);
+			return;
+		}
+
+		// reuse the chunks; the pool itself may still allocate a little
+		final int n = this.chunks.length;
+		for (int i = 0; i < n; i++) {
+			Chunk chunk = this.chunks[i];
+			chunk.reinitialize();
+			chunk.from = (int)((long)this.count * i / n);
+			chunk.to = (int)((long)this.count * (i + 1) / n);
+			chunk.step = step;
+		}
+		this.chunked.reinitialize();
+		pool.invoke(this.chunked);
+	}
+
+	/**
+	 * Pushes and lifts the given range of wheels.
+	 * @param from the first wheel
+	 * @param to one past the last wheel
+	 * @param step the duration of the next step in seconds
+	 */
+	private void control(int from, int to, double step) {
+		final Body[] bodies = this.bodies;
+		final int[] buttons = this.buttons;
+		final int[] ground = this.ground;
+		final double[] sideSpeed = this.sideSpeed;
+		final double[] jumpSpeed = this.jumpSpeed;
+		for (int i = from; i < to; i++) {
+			int bits = buttons[i];
+			if (bits == 0) continue;
+			Body body = bodies[i];
+			double inverseMass = body.getMass().getInverseMass();
+			if (inverseMass == 0.0) continue;
+
+			Vector2 velocity = body.getLinearVelocity();
+			double speed = sideSpeed[i];
+			// both limits against the speed before this step's push, like
+			// forces accumulated for the step
+			double vx = velocity.x;
+			boolean pushed = false;
+			// a force held for a step, up to the top speed
+			if ((bits & (1 << InputQueue.LEFT)) != 0 && vx > -speed) {
+				velocity.x -= speed * inverseMass * step;
+				pushed = true;
+			}
+			if ((bits & (1 << InputQueue.RIGHT)) != 0 && vx < speed) {
+				velocity.x += speed * inverseMass * step;
+				pushed = true;
+			}
+			// an impulse, off the floor only
+			if ((bits & (1 << InputQueue.UP)) != 0 && ground[i] > 0) {
+				velocity.y += jumpSpeed[i] * inverseMass;
+				pushed = true;
+			}
+			if (pushed) {
+				body.setAsleep(false);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the given contact is with a floor body.
+	 * @param point the contact point
+	 * @return boolean
+	 */
+	private boolean isContactWithFloor(ContactPoint point) {
+		return point.getBody1().getUserData() == this.floor || point.getBody2().getUserData() == this.floor;
+	}
+
+	/**
+	 * Returns the number of wheels.
+	 * @return int
+	 */
+	public int getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Returns the body of the given wheel.
+	 * @param index the wheel index
+	 * @return Body
+	 * @throws IndexOutOfBoundsException if index is not less than {@link #getCount()}
+	 */
+	public Body getBody(int index) {
+		this.check(index);
+		return this.bodies[index];
+	}
+
+	/**
+	 * Returns the buttons held for the given wheel as bits: 1 &lt;&lt;
+	 * {@link InputQueue#LEFT} and so on.
+	 * @param index the wheel index
+	 * @return int
+	 * @throws IndexOutOfBoundsException if index is not less than {@link #getCount()}
+	 */
+	public int getInputBits(int index) {
+		this.check(index);
+		return this.buttons[index];
+	}
+
+	/**
+	 * Presses the buttons of the given wheel whose bits are set and releases the others.
+	 * @param index the wheel index
+	 * @param bits the buttons as returned by {@link #getInputBits(int)}
+	 * @throws IndexOutOfBoundsException if index is not less than {@link #getCount()}
+	 */
+	public void setInputBits(int index, int bits) {
+		this.check(index);
+		this.buttons[index] = bits;
+	}
+
+	/**
+	 * Presses or releases a button of the given wheel, for example from an
+	 * {@link InputQueue.Handler}.
+	 * @param index the wheel index
+	 * @param button one of {@link InputQueue#LEFT}, {@link InputQueue#RIGHT} or {@link InputQueue#UP}
+	 * @param pressed true if pressed
+	 * @throws IndexOutOfBoundsException if index is not less than {@link #getCount()}
+	 */
+	public void setInput(int index, int button, boolean pressed) {
+		this.check(index);
+		if (pressed) {
+			this.buttons[index] |= 1 << button;
+		} else {
+			this.buttons[index] &= ~(1 << button);
+		}
+	}
+
+	/**
+	 * Returns true if the given wheel is touching the floor.
+	 * @param index the wheel index
+	 * @return boolean
+	 * @throws IndexOutOfBoundsException if index is not less than {@link #getCount()}
+	 */
+	public boolean isOnGround(int index) {
+		this.check(index);
+		return this.ground[index] > 0;
+	}
+
+	/**
+	 * Returns the sideways force and top speed of the given wheel.
+	 * @param index the wheel index
+	 * @return double
+	 * @throws IndexOutOfBoundsException if index is not less than {@link #getCount()}
+	 */
+	public double getSideSpeed(int index) {
+		this.check(index);
+		return this.sideSpeed[index];
+	}
+
+	/**
+	 * Sets the force pushing the given wheel sideways while left or right
+	 * is held, which is also the speed it stops pushing at.
+	 * @param index the wheel index
+	 * @param sideSpeed the force in newtons and speed in m/s
+	 * @throws IndexOutOfBoundsException if index is not less than {@link #getCount()}
+	 */
+	public void setSideSpeed(int index, double sideSpeed) {
+		this.check(index);
+		this.sideSpeed[index] = sideSpeed;
+	}
+
+	/**
+	 * Returns the jump impulse of the given wheel.
+	 * @param index the wheel index
+	 * @return double
+	 * @throws IndexOutOfBoundsException if index is not less than {@link #getCount()}
+	 */
+	public double getJumpSpeed(int index) {
+		this.check(index);
+		return this.jumpSpeed[index];
+	}
+
+	/**
+	 * Sets the upward impulse applied to the given wheel each step up is
+	 * held while on the floor.
+	 * @param index the wheel index
+	 * @param jumpSpeed the impulse in newton seconds
+	 * @throws IndexOutOfBoundsException if index is not less than {@link #getCount()}
+	 */
+	public void setJumpSpeed(int index, double jumpSpeed) {
+		this.check(index);
+		this.jumpSpeed[index] = jumpSpeed;
+	}
+
+	/**
+	 * Returns the pool the update is split across.
+	 * @return ForkJoinPool null if updated on the calling thread
+	 */
+	public ForkJoinPool getPool() {
+		return this.pool;
+	}
+
+	/**
+	 * Sets the pool to split the update across once there are at least
+	 * {@link #PARALLEL_THRESHOLD} wheels.
+	 * @param pool the pool; null to update on the calling thread
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+		if (pool == null) {
+			this.chunks = null;
+			this.chunked = null;
+			return;
+		}
+		final Chunk[] chunks = new Chunk[pool.getParallelism() * CHUNKS_PER_THREAD];
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = new Chunk();
+		}
+		this.chunks = chunks;
+		this.chunked = new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected void compute() {
+				invokeAll(chunks);
+			}
+		};
+	}
+
+	/**
+	 * Throws if there's no wheel with the given index.
+	 * @param index the wheel index
+	 * @throws IndexOutOfBoundsException if index is not less than {@link #getCount()}
+	 */
+	private void check(int index) {
+		if (index < 0 || index >= this.count) throw new IndexOutOfBoundsException("No wheel " + index);
+	}
+}
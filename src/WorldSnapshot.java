@@ -0,0 +1,192 @@
+import java.awt.Color;
+
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Transform;
+
+/**
+ * The drawable state of a {@link World} at the end of a step.
+ * <p>
+ * The physics thread {@link #capture(World, long)}s into a snapshot it owns
+ * and hands it to the render thread through a {@link SnapshotBuffer}. Once
+ * handed over a snapshot is never written to again until the render thread
+ * gives it back, so it can be drawn without holding any lock.
+ * <p>
+ * The arrays are reused from capture to capture and only grow, so in steady
+ * state capturing doesn't allocate.
+ */
+public final class WorldSnapshot {
+	/** The number of captured bodies */
+	private int bodyCount;
+
+	/** The captured bodies; only their fixtures are read when drawing */
+	private SimulationBody[] bodies;
+
+	/** The body transforms before the step */
+	private Transform[] previous;
+
+	/** The body transforms after the step */
+	private Transform[] current;
+
+	/** The body colors */
+	private Color[] colors;
+
+	/** True for bodies that have infinite mass and aren't moving */
+	private boolean[] statics;
+
+	/** True for bodies that are asleep and not static */
+	private boolean[] asleep;
+
+	/** The time the snapshot was captured in nanoseconds */
+	private long time;
+
+	/**
+	 * Default constructor.
+	 */
+	public WorldSnapshot() {
+		this.bodies = new SimulationBody[0];
+		this.previous = new Transform[0];
+		this.current = new Transform[0];
+		this.colors = new Color[0];
+		this.statics = new boolean[0];
+		this.asleep = new boolean[0];
+	}
+
+	/**
+	 * Captures the current state of the given world.
+	 * <p>
+	 * Must only be called by the thread stepping the world.
+	 * @param world the world
+	 * @param time the capture time in nanoseconds
+	 */
+	public void capture(World world, long time) {
+		int n = world.getBodyCount();
+		this.ensureCapacity(n);
+		for (int i = 0; i < n; i++) {
+			SimulationBody body = (SimulationBody)world.getBody(i);
+			this.bodies[i] = body;
+			this.previous[i].set(body.getInitialTransform());
+			this.current[i].set(body.getTransform());
+			this.colors[i] = body.getColor();
+			this.statics[i] = body.isStatic();
+			// static bodies are put to sleep and woken every time something
+			// touches them, so they're never drawn asleep
+			this.asleep[i] = body.isAsleep() && !this.statics[i];
+		}
+		// don't keep removed bodies reachable
+		for (int i = n; i < this.bodyCount; i++) {
+			this.bodies[i] = null;
+			this.colors[i] = null;
+		}
+		this.bodyCount = n;
+		this.time = time;
+	}
+
+	/**
+	 * Grows the arrays to hold at least the given number of bodies.
+	 * @param n the number of bodies
+	 */
+	private void ensureCapacity(int n) {
+		int size = this.bodies.length;
+		if (n <= size) return;
+
+		// grow by half again to avoid growing every time a body is added
+		int capacity = Math.max(n, size + (size >> 1));
+		SimulationBody[] bodies = new SimulationBody[capacity];
+		Transform[] previous = new Transform[capacity];
+		Transform[] current = new Transform[capacity];
+		Color[] colors = new Color[capacity];
+		boolean[] statics = new boolean[capacity];
+		boolean[] asleep = new boolean[capacity];
+		System.arraycopy(this.bodies, 0, bodies, 0, size);
+		System.arraycopy(this.previous, 0, previous, 0, size);
+		System.arraycopy(this.current, 0, current, 0, size);
+		System.arraycopy(this.colors, 0, colors, 0, size);
+		System.arraycopy(this.statics, 0, statics, 0, size);
+		System.arraycopy(this.asleep, 0, asleep, 0, size);
+		for (int i = size; i < capacity; i++) {
+			previous[i] = new Transform();
+			current[i] = new Transform();
+		}
+		this.bodies = bodies;
+		this.previous = previous;
+		this.current = current;
+		this.colors = colors;
+		this.statics = statics;
+		this.asleep = asleep;
+	}
+
+	/**
+	 * Computes the transform of the given body part way through the step.
+	 * @param index the body index
+	 * @param alpha the interpolation factor; 0.0 for before the step and 1.0 for after
+	 * @param result the transform to place the result in
+	 */
+	public void interpolate(int index, double alpha, Transform result) {
+		this.previous[index].lerp(this.current[index], alpha, result);
+	}
+
+	/**
+	 * Returns the number of captured bodies.
+	 * @return int
+	 */
+	public int getBodyCount() {
+		return this.bodyCount;
+	}
+
+	/**
+	 * Returns the body at the given index.
+	 * @param index the body index
+	 * @return {@link SimulationBody}
+	 */
+	public SimulationBody getBody(int index) {
+		return this.bodies[index];
+	}
+
+	/**
+	 * Returns the transform of the body at the given index after the step.
+	 * @param index the body index
+	 * @return Transform
+	 */
+	public Transform getTransform(int index) {
+		return this.current[index];
+	}
+
+	/**
+	 * Returns the color of the body at the given index.
+	 * @param index the body index
+	 * @return Color
+	 */
+	public Color getColor(int index) {
+		return this.colors[index];
+	}
+
+	/**
+	 * Returns true if the body at the given index has infinite mass and
+	 * wasn't moving.
+	 * @param index the body index
+	 * @return boolean
+	 */
+	public boolean isStatic(int index) {
+		return this.statics[index];
+	}
+
+	/**
+	 * Returns true if the body at the given index was asleep, and so is
+	 * drawn in a brighter color.
+	 * <p>
+	 * Always false for static bodies.
+	 * @param index the body index
+	 * @return boolean
+	 */
+	public boolean isAsleep(int index) {
+		return this.asleep[index];
+	}
+
+	/**
+	 * Returns the time the snapshot was captured in nanoseconds.
+	 * @return long
+	 */
+	public long getTime() {
+		return this.time;
+	}
+}
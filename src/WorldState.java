@@ -0,0 +1,348 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * The state of a {@link Simulation} in a compact binary form that can be
+ * restored into the same simulation, or another instance of the same scene.
+ * <p>
+ * The state holds, for every body in world order, its transform, velocity
+ * and its asleep and active flags, and the buttons held by every player.
+ * It doesn't hold the bodies themselves, so it can only be restored into a
+ * world that has the same bodies in the same order, as built by the scene's
+ * {@link Simulation#initializeWorld()}.
+ * <p>
+ * Capturing reuses the same buffer and doesn't allocate once the buffer is
+ * big enough, so a state can be taken every step. Restoring costs more: the
+ * contacts are detected again, which is the collision detection of a whole
+ * step and allocates like it (at 1000 wheels, milliseconds and about a
+ * megabyte per restore; WorldStateCheck measures both). Restore when going
+ * back, as a rollback does, rather than every frame. The buffer can be
+ * written to and read from a file with {@link #write(File)} and {@link #read(File)}.
+ * <p>
+ * After restoring, the contacts are detected again with
+ * {@link SimulationWorld#updateContacts()}, so contact listeners such as the
+ * {@link GroundSensor}s see the contacts of the restored positions. What the
+ * world doesn't let us set is not restored: how long each awake body has been
+ * resting, which decides when it falls asleep, and the impulses the contact
+ * solver starts from. A simulation continued from a restored state is
+ * therefore not bit for bit the one continued from the original, unless the
+ * world is in {@link SimulationWorld#setDeterministic(boolean) deterministic mode},
+ * which does without them.
+ * <p>
+ * The format, in big endian order:
+ * <ul>
+ * <li>the int {@link #MAGIC} and the short {@link #VERSION}</li>
+ * <li>the number of bodies as an int</li>
+ * <li>per body, the transform as six doubles (m00, m01, m10, m11, x, y), the
+ * linear velocity as two doubles, the angular velocity as a double and a
+ * byte of flags: {@link #ASLEEP} and {@link #ACTIVE}</li>
+ * <li>the number of players as an int and the buttons of each as a byte</li>
+ * </ul>
+ */
+public final class WorldState {
+	/** The first four bytes of a state */
+	public static final int MAGIC = 0x57535441;
+
+	/** The format version */
+	public static final short VERSION = 1;
+
+	/** The flag of a body that's asleep */
+	public static final int ASLEEP = 1;
+
+	/** The flag of a body that's active */
+	public static final int ACTIVE = 2;
+
+	/** The bytes of the header */
+	private static final int HEADER_SIZE = 4 + 2 + 4;
+
+	/** The bytes per body */
+	private static final int BODY_SIZE = 9 * 8 + 1;
+
+	/** The state; from zero to the limit */
+	private ByteBuffer buffer;
+
+	/** The transform being captured or restored */
+	private final Values values;
+
+	/**
+	 * A transform whose values can be read and set directly, since setting
+	 * the rotation by angle doesn't give back the exact same cosine and sine.
+	 */
+	private static final class Values extends Transform {
+		/**
+		 * Sets the values.
+		 * @param m00 the cosine
+		 * @param m01 minus the sine
+		 * @param m10 the sine
+		 * @param m11 the cosine
+		 * @param x the x translation
+		 * @param y the y translation
+		 */
+		void set(double m00, double m01, double m10, double m11, double x, double y) {
+			this.m00 = m00;
+			this.m01 = m01;
+			this.m10 = m10;
+			this.m11 = m11;
+			this.x = x;
+			this.y = y;
+		}
+
+		/**
+		 * Writes the values in the order {@link #set(double, double, double, double, double, double)} takes them.
+		 * @param b the buffer
+		 */
+		void put(ByteBuffer b) {
+			b.putDouble(this.m00);
+			b.putDouble(this.m01);
+			b.putDouble(this.m10);
+			b.putDouble(this.m11);
+			b.putDouble(this.x);
+			b.putDouble(this.y);
+		}
+	}
+
+	/**
+	 * Default constructor.
+	 * <p>
+	 * The state is empty until captured or read.
+	 */
+	public WorldState() {
+		this.buffer = ByteBuffer.allocateDirect(1024);
+		this.buffer.limit(0);
+		this.values = new Values();
+	}
+
+	/**
+	 * Captures the state of the given simulation.
+	 * <p>
+	 * Call between steps from the thread stepping the world.
+	 * @param simulation the simulation
+	 */
+	public void capture(Simulation simulation) {
+		// not getBodies(), which wraps the list on every call
+		World world = simulation.getWorld();
+		final int n = world.getBodyCount();
+		final int players = simulation.getPlayerCount();
+		this.ensureCapacity(HEADER_SIZE + n * BODY_SIZE + 4 + players);
+
+		ByteBuffer b = this.buffer;
+		b.clear();
+		b.putInt(MAGIC);
+		b.putShort(VERSION);
+		b.putInt(n);
+		for (int i = 0; i < n; i++) {
+			Body body = world.getBody(i);
+			// the exact values, not the angle
+			this.values.set(body.getTransform());
+			this.values.put(b);
+
+			Vector2 v = body.getLinearVelocity();
+			b.putDouble(v.x);
+			b.putDouble(v.y);
+			b.putDouble(body.getAngularVelocity());
+			b.put((byte)((body.isAsleep() ? ASLEEP : 0) | (body.isActive() ? ACTIVE : 0)));
+		}
+		b.putInt(players);
+		for (int i = 0; i < players; i++) {
+			b.put((byte)simulation.getPlayerInput(i));
+		}
+		b.flip();
+	}
+
+	/**
+	 * Restores the state into the given simulation.
+	 * <p>
+	 * Call between steps from the thread stepping the world.
+	 * @param simulation the simulation; with the same bodies, in the same order, as the captured one
+	 * @throws IllegalStateException if the state is empty or doesn't match the simulation
+	 */
+	public void restore(Simulation simulation) {
+		SimulationWorld world = simulation.getWorld();
+		List<Body> bodies = world.getBodies();
+		ByteBuffer b = this.buffer.duplicate();
+		try {
+			checkHeader(b);
+			final int n = b.getInt();
+			if (n != bodies.size()) {
+				throw new IllegalStateException("The state has " + n + " bodies, the world " + bodies.size() + ".");
+			}
+			// check the players before changing anything
+			final int players = b.getInt(b.position() + n * BODY_SIZE);
+			if (players != simulation.getPlayerCount()) {
+				throw new IllegalStateException("The state has " + players + " players, the simulation " + simulation.getPlayerCount() + ".");
+			}
+
+			for (int i = 0; i < n; i++) {
+				Body body = bodies.get(i);
+				this.values.set(b.getDouble(), b.getDouble(), b.getDouble(), b.getDouble(), b.getDouble(), b.getDouble());
+				double vx = b.getDouble();
+				double vy = b.getDouble();
+				double av = b.getDouble();
+				int flags = b.get();
+
+				body.setActive((flags & ACTIVE) != 0);
+				// before the velocity since putting a body to sleep clears it
+				body.setAsleep((flags & ASLEEP) != 0);
+				body.getTransform().set(this.values);
+				body.getInitialTransform().set(this.values);
+				body.setLinearVelocity(vx, vy);
+				body.setAngularVelocity(av);
+				body.clearForce();
+				body.clearTorque();
+			}
+
+			b.getInt();
+			for (int i = 0; i < players; i++) {
+				simulation.setPlayerInput(i, b.get());
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IllegalStateException("The state is truncated.");
+		} catch (IndexOutOfBoundsException e) {
+			throw new IllegalStateException("The state is truncated.");
+		}
+
+		// bring the contacts and the contact listeners up to date
+		world.updateContacts();
+	}
+
+	/**
+	 * Returns true if no state has been captured or read.
+	 * @return boolean
+	 */
+	public boolean isEmpty() {
+		return this.buffer.limit() == 0;
+	}
+
+	/**
+	 * Returns the size of the state in bytes.
+	 * @return int
+	 */
+	public int getSize() {
+		return this.buffer.limit();
+	}
+
+	/**
+	 * Returns a read only view of the state.
+	 * @return ByteBuffer
+	 */
+	public ByteBuffer getBuffer() {
+		return this.buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Copies the given state into this one.
+	 * @param state the state to copy
+	 */
+	public void set(WorldState state) {
+		this.ensureCapacity(state.buffer.limit());
+		this.buffer.clear();
+		this.buffer.put(state.buffer.duplicate());
+		this.buffer.flip();
+	}
+
+	/**
+	 * Writes the state to the given file, replacing it.
+	 * @param file the file
+	 * @throws IOException if the file can't be written
+	 */
+	public void write(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			this.write(channel);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Writes the state to the given channel at its position.
+	 * @param channel the channel
+	 * @throws IOException if the state can't be written
+	 */
+	public void write(FileChannel channel) throws IOException {
+		ByteBuffer b = this.buffer.duplicate();
+		while (b.hasRemaining()) {
+			channel.write(b);
+		}
+	}
+
+	/**
+	 * Reads the state from the given file.
+	 * @param file the file
+	 * @throws IOException if the file can't be read or doesn't hold a state
+	 */
+	public void read(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) throw new IOException("The file is too big to be a state.");
+			this.read(channel, (int)size);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Reads a state of the given size from the given channel at its position.
+	 * @param channel the channel
+	 * @param size the size of the state in bytes
+	 * @throws IOException if the state can't be read or isn't a state
+	 */
+	public void read(FileChannel channel, int size) throws IOException {
+		this.ensureCapacity(size);
+		ByteBuffer b = this.buffer;
+		b.clear();
+		b.limit(size);
+		while (b.hasRemaining()) {
+			if (channel.read(b) < 0) {
+				b.limit(0);
+				throw new IOException("The state is truncated.");
+			}
+		}
+		b.flip();
+		try {
+			checkHeader(b.duplicate());
+		} catch (IllegalStateException e) {
+			b.limit(0);
+			throw new IOException(e.getMessage());
+		} catch (BufferUnderflowException e) {
+			b.limit(0);
+			throw new IOException("The state is truncated.");
+		}
+	}
+
+	/**
+	 * Reads and checks the magic and version.
+	 * @param b the buffer at the start of a state
+	 * @throws IllegalStateException if they're wrong
+	 */
+	private static void checkHeader(ByteBuffer b) {
+		if (b.limit() == 0) throw new IllegalStateException("The state is empty.");
+		if (b.getInt() != MAGIC) throw new IllegalStateException("Not a world state.");
+		short version = b.getShort();
+		if (version != VERSION) throw new IllegalStateException("Unsupported world state version " + version + ".");
+	}
+
+	/**
+	 * Grows the buffer to at least the given size.
+	 * @param size the size in bytes
+	 */
+	private void ensureCapacity(int size) {
+		if (size <= this.buffer.capacity()) return;
+		this.buffer = ByteBuffer.allocateDirect(Math.max(size, this.buffer.capacity() * 2));
+		this.buffer.limit(0);
+	}
+}